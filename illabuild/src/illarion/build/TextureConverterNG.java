@@ -18,6 +18,8 @@ package illarion.build;
 
 import illarion.build.imagepacker.ImagePacker;
 import illarion.common.data.Book;
+import illarion.common.graphics.SpriteAtlasIndex;
+import illarion.common.util.CompiledTable;
 import illarion.common.util.Crypto;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.DirectoryScanner;
@@ -28,7 +30,9 @@ import org.apache.tools.ant.taskdefs.ManifestException;
 import org.apache.tools.ant.types.FileList;
 import org.apache.tools.ant.types.FileSet;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 import javax.annotation.Nonnull;
@@ -634,7 +638,8 @@ public final class TextureConverterNG
     }
 
     /**
-     * Encrypt and write the table files to the new archive.
+     * Encrypt and write the table files to the new archive. Next to every table, the compiled version of the table is
+     * written. It is encrypted the same way.
      *
      * @param outJar the target archive the encrypted table files are written to
      * @throws IOException in case there is anything wrong with the input or the output file stream
@@ -666,22 +671,15 @@ public final class TextureConverterNG
                 final ByteArrayOutputStream dst = new ByteArrayOutputStream((int) currentFile.length());
 
                 crypto.encrypt(in, dst);
-                final byte[] outBuf = dst.toByteArray();
-
-                final JarEntry dstEntry = new JarEntry(fileEntry.getFileName().replace(".tbl", ".dat"));
-                dstEntry.setMethod(ZipEntry.STORED);
-                dstEntry.setSize(outBuf.length);
-
-                // build crc
-                final CRC32 crc = new CRC32();
-                crc.update(outBuf);
-                dstEntry.setCrc(crc.getValue());
-
-                // write data to zip
-                outJar.putNextEntry(dstEntry);
-                outJar.write(outBuf);
-                outJar.closeEntry();
-
+                writeStoredEntry(outJar, fileEntry.getFileName().replace(".tbl", ".dat"), dst.toByteArray());
+
+                final byte[] compiledTable = compileTable(currentFile);
+                if (compiledTable != null) {
+                    dst.reset();
+                    crypto.encrypt(new ByteArrayInputStream(compiledTable), dst);
+                    writeStoredEntry(outJar, fileEntry.getFileName().replace(".tbl", CompiledTable.EXTENSION),
+                            dst.toByteArray());
+                }
             } catch (@Nonnull final Exception e) {
                 throw new BuildException(e);
             } finally {
@@ -697,8 +695,62 @@ public final class TextureConverterNG
         tableFiles.clear();
     }
 
+    /**
+     * Compile a table file.
+     *
+     * @param tableFile the table file
+     * @return the compiled table or {@code null} in case the table can't be compiled
+     * @throws IOException in case reading the table file fails
+     */
+    @Nullable
+    private static byte[] compileTable(@Nonnull final File tableFile) throws IOException {
+        final ByteArrayOutputStream compiled = new ByteArrayOutputStream((int) tableFile.length());
+        try {
+            CompiledTable.compile(new BufferedInputStream(new FileInputStream(tableFile)), true, ",", compiled);
+        } catch (@Nonnull final RuntimeException e) {
+            System.out.println("WARNING: Table " + tableFile.getName() + " can't be compiled: " + e.getMessage());
+            return null;
+        }
+        return compiled.toByteArray();
+    }
+
+    /**
+     * Write a uncompressed entry to the archive.
+     *
+     * @param outJar the target archive
+     * @param name   the name of the entry
+     * @param data   the data of the entry
+     * @throws IOException in case writing the entry fails
+     */
+    private static void writeStoredEntry(@Nonnull final JarOutputStream outJar, @Nonnull final String name,
+                                         @Nonnull final byte[] data) throws IOException {
+        final JarEntry dstEntry = new JarEntry(name);
+        dstEntry.setMethod(ZipEntry.STORED);
+        dstEntry.setSize(data.length);
+
+        // build crc
+        final CRC32 crc = new CRC32();
+        crc.update(data);
+        dstEntry.setCrc(crc.getValue());
+
+        // write data to zip
+        outJar.putNextEntry(dstEntry);
+        outJar.write(data);
+        outJar.closeEntry();
+    }
+
+    /**
+     * Pack the images of the packer into atlas files and write them to the archive.
+     *
+     * @param outJar   the target archive
+     * @param folder   the folder of the atlas files inside the archive
+     * @param packer   the packer that contains the images
+     * @param filename the file name of the atlas or {@code null} to use the numbered atlas file names
+     * @param index    the binary index the sprites are added to or {@code null} in case no index is created
+     * @return the amount of atlas files written
+     */
     private static int packTextures(@Nonnull final JarOutputStream outJar, final String folder, @Nonnull final ImagePacker packer,
-                                    @Nullable final String filename) {
+                                    @Nullable final String filename, @Nullable final SpriteAtlasIndex.Writer index) {
         int atlasFiles = 0;
         String usedFileName;
         while (!packer.isEverythingDone()) {
@@ -724,6 +776,18 @@ public final class TextureConverterNG
                 ImageIO.write(result, TEXTURE_FORMAT, outJar);
                 outJar.closeEntry();
 
+                if (index != null) {
+                    final NodeList sprites = document.getElementsByTagName("sprite");
+                    for (int i = 0; i < sprites.getLength(); i++) {
+                        final Element sprite = (Element) sprites.item(i);
+                        index.add(sprite.getAttribute("name"), atlasFiles,
+                                Integer.parseInt(sprite.getAttribute("x")),
+                                Integer.parseInt(sprite.getAttribute("y")),
+                                Integer.parseInt(sprite.getAttribute("width")),
+                                Integer.parseInt(sprite.getAttribute("height")));
+                    }
+                }
+
                 outJar.putNextEntry(new JarEntry(usedFileName + ".xml"));
                 // Prepare the DOM document for writing
                 Source source = new DOMSource(document);
@@ -769,7 +833,8 @@ public final class TextureConverterNG
 
         packer.printTypeCounts();
 
-        int atlasFiles = packTextures(outJar, folder, packer, null);
+        final SpriteAtlasIndex.Writer index = new SpriteAtlasIndex.Writer();
+        int atlasFiles = packTextures(outJar, folder, packer, null, index);
 
         DataOutputStream stream;
         try {
@@ -792,6 +857,23 @@ public final class TextureConverterNG
                 throw new BuildException(e);
             }
         }
+
+        try {
+            outJar.putNextEntry(new JarEntry(folder + SpriteAtlasIndex.FILE_NAME));
+            index.write(outJar);
+        } catch (@Nonnull final IOException e) {
+            throw new BuildException(e);
+        } catch (@Nonnull final IllegalStateException e) {
+            throw new BuildException(e);
+        } finally {
+            try {
+                outJar.closeEntry();
+                outJar.flush();
+            } catch (IOException e) {
+                e.printStackTrace();
+                throw new BuildException(e);
+            }
+        }
     }
 
     /**
@@ -818,7 +900,7 @@ public final class TextureConverterNG
             filename = filename.replace("notouch_", "");
             filename = filename.substring(0, filename.lastIndexOf('.'));
 
-            packTextures(outJar, folder, packer, filename);
+            packTextures(outJar, folder, packer, filename, null);
         }
         textureNoPackFiles.clear();
     }
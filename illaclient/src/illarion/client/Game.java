@@ -18,10 +18,16 @@ package illarion.client;
 
 import de.lessvoid.nifty.Nifty;
 import de.lessvoid.nifty.spi.time.impl.AccurateTimeProvider;
+import illarion.client.graphics.AvatarCompositeCache;
 import illarion.client.graphics.FontLoader;
 import illarion.client.input.InputReceiver;
+import illarion.client.loading.Loading;
 import illarion.client.states.*;
+import illarion.client.util.ChatLog;
+import illarion.client.util.GlobalExecutorService;
 import illarion.client.util.Lang;
+import illarion.client.util.UpdateTaskManager;
+import illarion.client.world.World;
 import illarion.common.config.ConfigChangedEvent;
 import org.apache.log4j.Logger;
 import org.bushe.swing.event.annotation.AnnotationProcessor;
@@ -36,6 +42,8 @@ import org.illarion.engine.input.ForwardingTarget;
 import org.illarion.engine.nifty.IgeInputSystem;
 import org.illarion.engine.nifty.IgeRenderDevice;
 import org.illarion.engine.nifty.IgeSoundDevice;
+import org.illarion.engine.profiler.FrameProfiler;
+import org.illarion.engine.profiler.ProfilerSection;
 import org.illarion.engine.sound.Sounds;
 
 import javax.annotation.Nonnull;
@@ -73,10 +81,35 @@ public final class Game implements GameListener {
      */
     public static final int STATE_ENDING = 3;
 
+    /**
+     * The profiler section that measures the update of the GUI.
+     */
+    @Nonnull
+    private static final ProfilerSection NIFTY_UPDATE = FrameProfiler.getInstance().getSection("Nifty update");
+
+    /**
+     * The profiler section that measures the rendering of the active state.
+     */
+    @Nonnull
+    private static final ProfilerSection STATE_RENDER = FrameProfiler.getInstance().getSection("State render");
+
+    /**
+     * The profiler section that measures the rendering of the GUI.
+     */
+    @Nonnull
+    private static final ProfilerSection NIFTY_RENDER = FrameProfiler.getInstance().getSection("Nifty render");
+
     @Nullable
     private Nifty nifty;
 
     private final GameState[] gameStates;
+
+    /**
+     * The manager of the loading tasks. The loading starts once the engine is up and continues while the login and
+     * the character selection are displayed.
+     */
+    @Nonnull
+    private final Loading loading = new Loading();
     private int activeListener = STATE_NONE;
     private int targetListener = STATE_NONE;
 
@@ -87,6 +120,7 @@ public final class Game implements GameListener {
         gameStates = new GameState[4];
         AnnotationProcessor.process(this);
         showFPS = IllaClient.getCfg().getBoolean("showFps");
+        FrameProfiler.getInstance().setEnabled(IllaClient.getCfg().getBoolean("profiler"));
     }
 
     public void enterState(final int stateId) {
@@ -110,12 +144,15 @@ public final class Game implements GameListener {
     @Override
     public void create(@Nonnull final GameContainer container) {
         final TextureManager texManager = container.getEngine().getAssets().getTextureManager();
+        texManager.setStreamingBudget(IllaClient.getCfg().getInteger("textureStreamingBudget") * 1024L * 1024L);
         texManager.addTextureDirectory("data/gui/");
         texManager.addTextureDirectory("data/chars/");
         texManager.addTextureDirectory("data/items/");
         texManager.addTextureDirectory("data/tiles/");
         texManager.addTextureDirectory("data/effects/");
 
+        container.getEngine().getGraphics().setRenderQueueEnabled(IllaClient.getCfg().getBoolean("renderQueue"));
+
         try {
             FontLoader.getInstance().prepareAllFonts(container.getEngine().getAssets());
         } catch (@Nonnull final IOException e) {
@@ -141,7 +178,7 @@ public final class Game implements GameListener {
         });
 
         gameStates[STATE_LOGIN] = new LoginState();
-        gameStates[STATE_LOADING] = new LoadingState();
+        gameStates[STATE_LOADING] = new LoadingState(loading);
         gameStates[STATE_PLAYING] = new PlayingState(inputReceiver);
         gameStates[STATE_ENDING] = new EndState();
 
@@ -161,6 +198,7 @@ public final class Game implements GameListener {
             listener.create(this, container, nifty);
         }
 
+        loading.enlistBackgroundComponents(container.getEngine());
         enterState(STATE_LOGIN);
     }
 
@@ -203,7 +241,9 @@ public final class Game implements GameListener {
             }
         }
 
+        final long niftyUpdateStart = NIFTY_UPDATE.start();
         nifty.update();
+        NIFTY_UPDATE.stop(niftyUpdateStart);
         container.getEngine().getSounds().poll(delta);
 
         final GameState activeListener = getCurrentState();
@@ -216,16 +256,23 @@ public final class Game implements GameListener {
     public void render(@Nonnull final GameContainer container) {
         assert nifty != null;
 
+        loading.load();
+
+        final long stateRenderStart = STATE_RENDER.start();
         final GameState activeListener = getCurrentState();
         if (activeListener != null) {
             activeListener.render(container);
         }
+        STATE_RENDER.stop(stateRenderStart);
+
+        final long niftyRenderStart = NIFTY_RENDER.start();
         nifty.render(false);
+        NIFTY_RENDER.stop(niftyRenderStart);
 
+        int renderLine = 10;
         if (showFPS) {
             final Font fpsFont = container.getEngine().getAssets().getFontManager().getFont(FontLoader.CONSOLE_FONT);
             if (fpsFont != null) {
-                int renderLine = 10;
                 container.getEngine().getGraphics().drawText(fpsFont, "FPS: " + container.getFPS(), Color.WHITE, 10,
                         renderLine);
                 renderLine += fpsFont.getLineHeight();
@@ -235,9 +282,47 @@ public final class Game implements GameListener {
                         container.getEngine().getGraphics().drawText(fpsFont, line, Color.WHITE, 10, renderLine);
                         renderLine += fpsFont.getLineHeight();
                     }
+                    for (final CharSequence line : GlobalExecutorService.getDiagnosticLines()) {
+                        container.getEngine().getGraphics().drawText(fpsFont, line, Color.WHITE, 10, renderLine);
+                        renderLine += fpsFont.getLineHeight();
+                    }
+                    final AvatarCompositeCache avatarCache = AvatarCompositeCache.getInstance();
+                    container.getEngine().getGraphics().drawText(fpsFont,
+                            "Avatar draws saved: " + avatarCache.getLastFrameSavedDraws() + " (" +
+                                    avatarCache.getEntryCount() + " cached)", Color.WHITE, 10, renderLine);
+                    renderLine += fpsFont.getLineHeight();
+                    if (activeListener == gameStates[STATE_PLAYING]) {
+                        container.getEngine().getGraphics().drawText(fpsFont,
+                                "Animations: " + World.getAnimationManager().getLastAnimatedCount(), Color.WHITE, 10,
+                                renderLine);
+                        renderLine += fpsFont.getLineHeight();
+                        final UpdateTaskManager updateTasks = World.getUpdateTaskManager();
+                        container.getEngine().getGraphics().drawText(fpsFont,
+                                "Update tasks: " + updateTasks.getQueueDepth() + " queued, " +
+                                        updateTasks.getLastDeferredCount() + " deferred (" +
+                                        updateTasks.getDeferringUpdates() + " updates over budget)", Color.WHITE, 10,
+                                renderLine);
+                        renderLine += fpsFont.getLineHeight();
+                        final ChatLog chatLog = World.getPlayer().getChatLog();
+                        container.getEngine().getGraphics().drawText(fpsFont,
+                                "Chat log: " + chatLog.getQueuedLines() + " queued, " + chatLog.getWrittenLines() +
+                                        " written, " + chatLog.getDroppedLines() + " dropped (" +
+                                        chatLog.getEarlyWakeups() + " early flushes)", Color.WHITE, 10, renderLine);
+                        renderLine += fpsFont.getLineHeight();
+                    }
                 }
             }
         }
+
+        final FrameProfiler profiler = FrameProfiler.getInstance();
+        if (profiler.isEnabled()) {
+            final Font profilerFont = container.getEngine().getAssets().getFontManager().getFont(
+                    FontLoader.CONSOLE_FONT);
+            if (profilerFont != null) {
+                profiler.renderOverlay(container.getEngine().getGraphics(), profilerFont, 10,
+                        renderLine + profilerFont.getLineHeight());
+            }
+        }
     }
 
     private static final boolean SHOW_RENDER_DIAGNOSTIC = IllaClient.DEFAULT_SERVER != Servers.realserver;
@@ -249,6 +334,11 @@ public final class Game implements GameListener {
         showFPS = event.getConfig().getBoolean(event.getKey());
     }
 
+    @EventTopicSubscriber(topic = "profiler")
+    public void onProfilerConfigChanged(@Nonnull final String topic, @Nonnull final ConfigChangedEvent event) {
+        FrameProfiler.getInstance().setEnabled(event.getConfig().getBoolean(event.getKey()));
+    }
+
     @Override
     public boolean isClosingGame() {
         final GameState activeListener = getCurrentState();
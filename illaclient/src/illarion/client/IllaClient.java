@@ -19,6 +19,7 @@
 package illarion.client;
 
 import illarion.client.crash.DefaultCrashHandler;
+import illarion.client.graphics.AvatarCompositeCache;
 import illarion.client.net.client.LogoutCmd;
 import illarion.client.resources.SongFactory;
 import illarion.client.resources.SoundFactory;
@@ -27,6 +28,7 @@ import illarion.client.resources.loaders.SoundLoader;
 import illarion.client.util.ChatLog;
 import illarion.client.util.GlobalExecutorService;
 import illarion.client.util.Lang;
+import illarion.client.util.Pathfinder;
 import illarion.client.world.Player;
 import illarion.client.world.World;
 import illarion.common.bug.CrashReporter;
@@ -509,12 +511,17 @@ public final class IllaClient implements EventTopicSubscriber<ConfigChangedEvent
         cfg.setDefault("musicOn", true);
         cfg.setDefault("musicVolume", Player.MAX_CLIENT_VOL * 0.75f);
         cfg.setDefault(ChatLog.CFG_TEXTLOG, true);
+        cfg.setDefault(ChatLog.CFG_TEXTLOG_SYNC, 5000);
         cfg.setDefault(CFG_FULLSCREEN, false);
         cfg.setDefault(CFG_RESOLUTION, new GraphicResolution(800, 600, 32, 60).toString());
         cfg.setDefault("windowWidth", -1);
         cfg.setDefault("windowHeight", -1);
         cfg.setDefault("savePassword", false);
         cfg.setDefault("showFps", false);
+        cfg.setDefault("renderQueue", true);
+        cfg.setDefault("profiler", false);
+        cfg.setDefault(AvatarCompositeCache.CFG_BUDGET, 16);
+        cfg.setDefault("textureStreamingBudget", 0);
         cfg.setDefault(CrashReporter.CFG_KEY, CrashReporter.MODE_ASK);
         cfg.setDefault(Lang.LOCALE_CFG, Lang.LOCALE_CFG_ENGLISH);
         cfg.setDefault("inventoryPosX", "100px");
@@ -527,6 +534,7 @@ public final class IllaClient implements EventTopicSubscriber<ConfigChangedEvent
         cfg.setDefault("questWindowPosY", "100px");
         cfg.setDefault("questShowFinished", false);
         cfg.setDefault("runAutoAvoid", true);
+        cfg.setDefault(Pathfinder.CFG_MAX_LENGTH, Pathfinder.DEFAULT_MAX_LENGTH);
         cfg.setDefault("server", Login.DEVSERVER);
         cfg.setDefault("serverAddress", Servers.customserver.getServerHost());
         cfg.setDefault("serverPort", Servers.customserver.getServerPort());
@@ -548,6 +556,7 @@ public final class IllaClient implements EventTopicSubscriber<ConfigChangedEvent
         final Crypto crypt = new Crypto();
         crypt.loadPublicKey();
         TableLoader.setCrypto(crypt);
+        TableLoader.setSnapshot(new TableSnapshot(new File(getFile("tables.cache"))));
     }
 
     @Override
@@ -198,7 +198,7 @@ public final class Login {
     }
 
     public void requestCharacterList(final Login.RequestCharListCallback resultCallback) {
-        GlobalExecutorService.getService().submit(new Login.RequestCharacterListTask(resultCallback));
+        GlobalExecutorService.getIoService().submit(new Login.RequestCharacterListTask(resultCallback));
     }
 
     private void requestCharacterListInternal(@Nonnull final Login.RequestCharListCallback resultCallback) {
@@ -306,6 +306,42 @@ public abstract class AbstractEntity<T extends AbstractEntityTemplate> implement
         g.drawSprite(template.getSprite(), x, y, light, getCurrentFrame(), getScale(), 0.f, effects);
     }
 
+    /**
+     * Get the base color that is currently applied to this entity.
+     *
+     * @return the base color or {@code null} in case the entity is shown with the original colors of its sprite
+     */
+    @Nullable
+    final Color getAppliedBaseColor() {
+        return (overWriteBaseColor == null) ? baseColor : overWriteBaseColor;
+    }
+
+    /**
+     * Add the area covered by the current sprite of this entity to a area. The area is relative to the display
+     * location of the entity and does not respect the scaling.
+     *
+     * @param area the area that is extended
+     * @param temp a rectangle instance that is used for the calculations
+     */
+    final void addCompositeArea(@Nonnull final Rectangle area, @Nonnull final Rectangle temp) {
+        template.getSprite().getDisplayArea(0, 0, 1.0, 0.0, temp);
+        area.add(temp);
+    }
+
+    /**
+     * Render the current frame of this entity into a composite image. Only the base color of this entity is applied.
+     * The light, the alpha value and the scaling are applied when the composite image is drawn.
+     *
+     * @param g the graphics used to render the entity
+     * @param x the x coordinate of the display location in the composite image
+     * @param y the y coordinate of the display location in the composite image
+     */
+    final void renderComposite(@Nonnull final Graphics g, final int x, final int y) {
+        final Color appliedBaseColor = getAppliedBaseColor();
+        g.drawSprite(template.getSprite(), x, y, (appliedBaseColor == null) ? Color.WHITE : appliedBaseColor,
+                getCurrentFrame(), 1.0, 0.0);
+    }
+
     private static final Color COLOR_HIGHLIGHT_STRONG = new ImmutableColor(1.f, 1.f, 1.f, 0.25f);
     private static final Color COLOR_HIGHLIGHT_WEAK = new ImmutableColor(1.f, 1.f, 1.f, 0.05f);
 
@@ -613,17 +649,30 @@ public abstract class AbstractEntity<T extends AbstractEntityTemplate> implement
         return shown;
     }
 
-    @Override
-    public void update(@Nonnull final GameContainer container, final int delta) {
+    /**
+     * Check if the entity is still supposed to receive updates. In case its not, the entity is removed from the
+     * display.
+     *
+     * @return {@code true} in case the update of the entity is allowed
+     */
+    private boolean isUpdateAllowed() {
         if (removedEntity) {
             shown = true;
             hide();
-            return;
+            return false;
         }
         if (!isShown()) {
             LOGGER.warn(toString() + " Entity that is not shown received update.");
             shown = true;
             hide();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void update(@Nonnull final GameContainer container, final int delta) {
+        if (!isUpdateAllowed()) {
             return;
         }
         final Sprite sprite = template.getSprite();
@@ -676,6 +725,22 @@ public abstract class AbstractEntity<T extends AbstractEntityTemplate> implement
         }
     }
 
+    /**
+     * The update of the entity in case it is outside of the viewport. This only updates the display area and sets the
+     * alpha value to its target right away, as no fading is visible anyway.
+     */
+    @Override
+    public void updateOffScreen(@Nonnull final GameContainer container, final int delta) {
+        if (!isUpdateAllowed()) {
+            return;
+        }
+        template.getSprite().getDisplayArea(displayX, displayY, scale, 0.f, displayRect);
+        if (getAlpha() != alphaTarget) {
+            setAlpha(alphaTarget);
+        }
+        highlightEffect = null;
+    }
+
     @Nullable
     private HighlightEffect highlightEffect;
 
@@ -723,12 +788,19 @@ public abstract class AbstractEntity<T extends AbstractEntityTemplate> implement
         return interactionRect;
     }
 
+    @Nonnull
+    @Override
+    public Rectangle getEventArea() {
+        return getInteractionRect();
+    }
+
     /**
      * Get the current display rectangle.
      *
      * @return the current display rectangle
      */
     @Nonnull
+    @Override
     public final Rectangle getDisplayRect() {
         return displayRect;
     }
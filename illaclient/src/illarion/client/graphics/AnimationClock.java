@@ -0,0 +1,113 @@
+/*
+ * This file is part of the Illarion Client.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Client.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.client.graphics;
+
+/**
+ * This is a looped frame animation that is shared by all entities that are created from the same template. Other
+ * then the {@link FrameAnimation} this clock does not report the frame changes to its users. The entities read the
+ * current frame from the clock when they are rendered instead. That way the clock is the only object that needs to
+ * be updated by the {@link AnimationManager}, no matter how many entities use it.
+ * <p />
+ * The clock only runs as long as at least one entity uses it.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+public final class AnimationClock extends AbstractAnimation {
+    /**
+     * The amount of frames of the animation.
+     */
+    private final int frames;
+
+    /**
+     * The frame that is currently displayed.
+     */
+    private int currentFrame;
+
+    /**
+     * The amount of entities that currently use this clock.
+     */
+    private int users;
+
+    /**
+     * Create a new animation clock.
+     *
+     * @param frames the amount of frames of the animation
+     * @param speed  the speed the animation runs with, the larger the number the slower the animation
+     */
+    public AnimationClock(final int frames, final int speed) {
+        super(null);
+        this.frames = frames;
+        setDuration(speed * ANIMATION_FRAME);
+    }
+
+    /**
+     * Register a entity that uses this clock. The clock starts running with the first user.
+     */
+    public void acquire() {
+        users++;
+        if (!isRunning() && (frames > 1)) {
+            restart();
+        }
+    }
+
+    /**
+     * Remove a entity that used this clock. The clock stops once the last user is gone.
+     */
+    public void release() {
+        if (users > 0) {
+            users--;
+        }
+        if (users == 0) {
+            stop();
+        }
+    }
+
+    /**
+     * Get the frame that is currently displayed.
+     *
+     * @return the index of the current frame
+     */
+    public int getCurrentFrame() {
+        return currentFrame;
+    }
+
+    @Override
+    public boolean animate(final int delta) {
+        if (users == 0) {
+            setRunning(false);
+            return false;
+        }
+        if (updateCurrentTime(delta)) {
+            setTiming();
+        }
+        currentFrame = Math.min(frames - 1, (int) (frames * animationProgress()));
+        return true;
+    }
+
+    @Override
+    public void restart() {
+        currentFrame = 0;
+        start();
+    }
+
+    @Override
+    public void stop() {
+        setRunning(false);
+    }
+}
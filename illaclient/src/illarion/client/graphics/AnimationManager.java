@@ -46,6 +46,11 @@ public final class AnimationManager {
     @Nonnull
     private final List<AbstractAnimation> animations;
 
+    /**
+     * The amount of animations that were updated during the last call of {@link #animate(int)}.
+     */
+    private int lastAnimatedCount;
+
     /**
      * The private constructor of this class. This ensures that the only
      * instance of this class is the singleton instance.
@@ -70,6 +75,7 @@ public final class AnimationManager {
         }
 
         int count = animations.size();
+        lastAnimatedCount = count;
         for (int i = 0; i < count; ++i) {
             final AbstractAnimation ani = animations.get(i);
             // execute those that are running
@@ -84,6 +90,16 @@ public final class AnimationManager {
         }
     }
 
+    /**
+     * Get the amount of animations that were updated during the last animation update. Entities that share a
+     * {@link AnimationClock} only count once.
+     *
+     * @return the amount of updated animations
+     */
+    public int getLastAnimatedCount() {
+        return lastAnimatedCount;
+    }
+
     /**
      * Add an animation to this animation manager. Every animation that is
      * registered to the Animation Manager is notified at every call of
@@ -28,6 +28,7 @@ import illarion.client.util.Lang;
 import illarion.client.world.Char;
 import illarion.client.world.World;
 import illarion.common.graphics.Layers;
+import illarion.common.types.Rectangle;
 import org.apache.log4j.Logger;
 import org.illarion.engine.GameContainer;
 import org.illarion.engine.graphic.Color;
@@ -113,6 +114,24 @@ public final class Avatar extends AbstractEntity<AvatarTemplate> implements Reso
      */
     private boolean renderName;
 
+    /**
+     * The key of the composite image that shows this avatar with its clothes.
+     */
+    @Nonnull
+    private final AvatarCompositeCache.Key compositeKey;
+
+    /**
+     * The composite image that is currently used to draw this avatar or {@code null} in case it needs to be fetched
+     * again.
+     */
+    @Nullable
+    private AvatarCompositeCache.Entry compositeEntry;
+
+    /**
+     * This flag is {@code true} in case the current look of the avatar does not fit into a composite image.
+     */
+    private boolean compositeUnsupported;
+
     /**
      * The target light of this avatar. In case the light is set to be animated
      * the color this avatar is rendered with will approach this target light.
@@ -127,6 +146,7 @@ public final class Avatar extends AbstractEntity<AvatarTemplate> implements Reso
         clothRender = new AvatarClothRenderer(template.getDirection(), template.getFrames());
         clothRender.setLight(getLight());
         clothRender.setFrame(0);
+        compositeKey = new AvatarCompositeCache.Key(3 + (AvatarClothManager.GROUP_COUNT * 3));
 
         targetLight = DEFAULT_LIGHT;
         animateLight = false;
@@ -215,6 +235,81 @@ public final class Avatar extends AbstractEntity<AvatarTemplate> implements Reso
      */
     public void changeClothColor(final int slot, final Color color) {
         clothRender.changeBaseColor(slot, color);
+        invalidateComposite();
+    }
+
+    @Override
+    public void changeBaseColor(@Nullable final Color newBaseColor) {
+        super.changeBaseColor(newBaseColor);
+        invalidateComposite();
+    }
+
+    /**
+     * Drop the composite image of this avatar. This needs to be called every time the look of the avatar or its
+     * clothes changes.
+     */
+    private void invalidateComposite() {
+        compositeEntry = null;
+        compositeUnsupported = false;
+    }
+
+    /**
+     * Draw the avatar with all its clothes using a composite image.
+     *
+     * @param g the graphics used to draw the avatar
+     * @return {@code true} in case the avatar was drawn, {@code false} in case the sprites need to be drawn one by one
+     */
+    private boolean renderUsingComposite(@Nonnull final Graphics g) {
+        final AvatarCompositeCache cache = AvatarCompositeCache.getInstance();
+        if (compositeUnsupported || !cache.isEnabled() || (getHighlight() > 0)) {
+            return false;
+        }
+
+        AvatarCompositeCache.Entry entry = compositeEntry;
+        if ((entry == null) || !entry.isValid()) {
+            final int[] keyValues = compositeKey.getValues();
+            keyValues[0] = getTemplate().getId();
+            keyValues[1] = getCurrentFrame();
+            keyValues[2] = AvatarCompositeCache.packColor(getAppliedBaseColor());
+            clothRender.fillCompositeKey(keyValues, 3);
+            compositeKey.updateHash();
+
+            entry = cache.getComposite(g, this, compositeKey);
+            if (entry == null) {
+                compositeUnsupported = !cache.isSupported(this);
+                return false;
+            }
+            compositeEntry = entry;
+        }
+
+        entry.render(g, getDisplayX(), getDisplayY(), getScale(), getLocalLight());
+        cache.reportDraw(entry);
+        return true;
+    }
+
+    /**
+     * Add the area covered by the avatar and all its clothes to a area. The area is relative to the display location
+     * of the avatar and does not respect the scaling.
+     *
+     * @param area the area that is extended
+     * @param temp a rectangle instance used for the calculations
+     */
+    void addAvatarCompositeArea(@Nonnull final Rectangle area, @Nonnull final Rectangle temp) {
+        addCompositeArea(area, temp);
+        clothRender.addCompositeArea(area, temp);
+    }
+
+    /**
+     * Render the avatar and all its clothes into a composite image. Only the base colors are applied.
+     *
+     * @param g the graphics used to render the avatar
+     * @param x the x coordinate of the display location in the composite image
+     * @param y the y coordinate of the display location in the composite image
+     * @return the amount of sprites that were rendered
+     */
+    int renderAvatarComposite(@Nonnull final Graphics g, final int x, final int y) {
+        renderComposite(g, x, y);
+        return clothRender.renderComposite(g, x, y) + 1;
     }
 
     @Override
@@ -247,6 +342,23 @@ public final class Avatar extends AbstractEntity<AvatarTemplate> implements Reso
         return false;
     }
 
+    /**
+     * The area the avatar accepts pointer events in. This contains the name tag as long as its displayed.
+     */
+    @Nonnull
+    private final Rectangle eventArea = new Rectangle();
+
+    @Nonnull
+    @Override
+    public Rectangle getEventArea() {
+        if (!renderName) {
+            return getInteractionRect();
+        }
+        eventArea.set(getInteractionRect());
+        eventArea.add(avatarTextTag.getDisplayRect());
+        return eventArea;
+    }
+
     /**
      * Check if a mouse event points at the interactive area of a avatar or on its tag.
      *
@@ -280,11 +392,13 @@ public final class Avatar extends AbstractEntity<AvatarTemplate> implements Reso
             attackMark.render(g);
         }
 
-        // draw the avatar, naked!! :O
-        super.render(g);
+        if (!renderUsingComposite(g)) {
+            // draw the avatar, naked!! :O
+            super.render(g);
 
-        // draw the clothes
-        clothRender.render(g);
+            // draw the clothes
+            clothRender.render(g);
+        }
 
         if (renderName) {
             avatarTextTag.render(g);
@@ -317,6 +431,7 @@ public final class Avatar extends AbstractEntity<AvatarTemplate> implements Reso
      */
     public void removeClothItem(final int group) {
         clothRender.setCloth(group, null);
+        invalidateComposite();
     }
 
     /**
@@ -328,6 +443,7 @@ public final class Avatar extends AbstractEntity<AvatarTemplate> implements Reso
      */
     public void setClothItem(final int group, final int itemID) {
         clothRender.setCloth(group, getTemplate().getClothes().getCloth(group, itemID, this));
+        invalidateComposite();
     }
 
     /**
@@ -340,6 +456,7 @@ public final class Avatar extends AbstractEntity<AvatarTemplate> implements Reso
     public void setFrame(final int frame) {
         super.setFrame(frame);
         clothRender.setFrame(frame);
+        invalidateComposite();
     }
 
     /**
@@ -450,11 +567,7 @@ public final class Avatar extends AbstractEntity<AvatarTemplate> implements Reso
         clothRender.setAlpha(getAlpha());
         clothRender.update(container, delta);
 
-        final Color locLight = getLight();
-        if (animateLight && !AnimationUtility.approach(locLight, targetLight, delta)) {
-            targetLight = locLight;
-            animateLight = false;
-        }
+        updateLight(delta);
 
         final Input input = container.getEngine().getInput();
 
@@ -471,4 +584,26 @@ public final class Avatar extends AbstractEntity<AvatarTemplate> implements Reso
             attackMark.update(container, delta);
         }
     }
+
+    @Override
+    public void updateOffScreen(@Nonnull final GameContainer container, final int delta) {
+        super.updateOffScreen(container, delta);
+
+        clothRender.setAlpha(getAlpha());
+        updateLight(delta);
+        renderName = false;
+    }
+
+    /**
+     * Let the light of the avatar approach the target light in case the light is animated.
+     *
+     * @param delta the time since the last update
+     */
+    private void updateLight(final int delta) {
+        final Color locLight = getLight();
+        if (animateLight && !AnimationUtility.approach(locLight, targetLight, delta)) {
+            targetLight = locLight;
+            animateLight = false;
+        }
+    }
 }
@@ -19,6 +19,7 @@
 package illarion.client.graphics;
 
 import illarion.common.types.Location;
+import illarion.common.types.Rectangle;
 import org.illarion.engine.GameContainer;
 import org.illarion.engine.graphic.Color;
 import org.illarion.engine.graphic.Graphics;
@@ -363,6 +364,79 @@ final class AvatarClothRenderer {
         }
     }
 
+    /**
+     * Write the values that identify the look of the clothes to the key of a composite image.
+     *
+     * @param key    the array that stores the key
+     * @param offset the index of the first value that is written
+     * @return the index after the last value that was written
+     */
+    int fillCompositeKey(@Nonnull final int[] key, final int offset) {
+        int index = offset;
+        clothLock.readLock().lock();
+        try {
+            for (int i = 0; i < AvatarClothManager.GROUP_COUNT; ++i) {
+                final AvatarCloth currentCloth = currentClothes[i];
+                if (currentCloth == null) {
+                    key[index++] = -1;
+                    key[index++] = 0;
+                    key[index++] = 0;
+                } else {
+                    key[index++] = currentCloth.getTemplate().getId();
+                    key[index++] = currentCloth.getCurrentFrame();
+                    key[index++] = AvatarCompositeCache.packColor(currentCloth.getAppliedBaseColor());
+                }
+            }
+        } finally {
+            clothLock.readLock().unlock();
+        }
+        return index;
+    }
+
+    /**
+     * Add the area covered by all clothes to a area.
+     *
+     * @param area the area that is extended
+     * @param temp a rectangle instance that is used for the calculations
+     */
+    void addCompositeArea(@Nonnull final Rectangle area, @Nonnull final Rectangle temp) {
+        clothLock.readLock().lock();
+        try {
+            for (int i = 0; i < AvatarClothManager.GROUP_COUNT; ++i) {
+                if (currentClothes[i] != null) {
+                    currentClothes[i].addCompositeArea(area, temp);
+                }
+            }
+        } finally {
+            clothLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Render all clothes in the correct order into a composite image.
+     *
+     * @param g the graphics used to render the clothes
+     * @param x the x coordinate of the display location in the composite image
+     * @param y the y coordinate of the display location in the composite image
+     * @return the amount of clothes that were rendered
+     */
+    int renderComposite(@Nonnull final Graphics g, final int x, final int y) {
+        int count = 0;
+        clothLock.readLock().lock();
+        try {
+            for (int i = 0; i < AvatarClothManager.GROUP_COUNT; ++i) {
+                final int currentIndex = RENDER_DIR[direction][i];
+                if (currentClothes[currentIndex] != null) {
+                    currentClothes[currentIndex].renderComposite(g, x, y);
+                    count++;
+                }
+            }
+        } finally {
+            clothLock.readLock().unlock();
+        }
+        return count;
+    }
+
     /**
      * Update all clothes
      */
@@ -0,0 +1,560 @@
+/*
+ * This file is part of the Illarion Client.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Client.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.client.graphics;
+
+import illarion.client.IllaClient;
+import illarion.common.config.ConfigChangedEvent;
+import illarion.common.types.Rectangle;
+import org.apache.log4j.Logger;
+import org.bushe.swing.event.annotation.AnnotationProcessor;
+import org.bushe.swing.event.annotation.EventTopicSubscriber;
+import org.illarion.engine.graphic.Color;
+import org.illarion.engine.graphic.Graphics;
+import org.illarion.engine.graphic.RenderTarget;
+import org.illarion.engine.graphic.Texture;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This cache stores pre-composited images of avatars with all their clothes. Avatars that look the same, face the
+ * same direction and show the same animation frame share one composite image. So a avatar is drawn with one draw
+ * operation instead of one for the avatar and one for every cloth.
+ * <p />
+ * The composite images are stored in cells of large render targets. The amount of render targets is limited by the
+ * texture memory budget that is set in the configuration. Once all cells are used, the least recently used composite
+ * image is dropped.
+ * <p />
+ * The composite images contain the base colors of the avatar and the clothes. The light and the alpha value are
+ * applied when the composite image is drawn.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+@NotThreadSafe
+public final class AvatarCompositeCache {
+    /**
+     * The key of the configuration entry that stores the texture memory budget of the cache in megabytes.
+     */
+    @SuppressWarnings("nls")
+    public static final String CFG_BUDGET = "avatarCacheBudget";
+
+    /**
+     * The width and the height of one render target.
+     */
+    private static final int PAGE_SIZE = 1024;
+
+    /**
+     * The width of one cell in the render targets.
+     */
+    private static final int CELL_WIDTH = 128;
+
+    /**
+     * The height of one cell in the render targets.
+     */
+    private static final int CELL_HEIGHT = 192;
+
+    /**
+     * The amount of cells in one row of a render target.
+     */
+    private static final int CELL_COLUMNS = PAGE_SIZE / CELL_WIDTH;
+
+    /**
+     * The amount of cells in one render target.
+     */
+    private static final int CELLS_PER_PAGE = CELL_COLUMNS * (PAGE_SIZE / CELL_HEIGHT);
+
+    /**
+     * The amount of bytes of texture memory used by one render target.
+     */
+    private static final int BYTES_PER_PAGE = PAGE_SIZE * PAGE_SIZE * 4;
+
+    /**
+     * The maximal amount of composite images that are created during one frame. This avoids that a frame takes
+     * very long in case a lot of new avatars appear at once.
+     */
+    private static final int MAX_COMPOSITIONS_PER_FRAME = 4;
+
+    /**
+     * The logger that takes care for the logging output of this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(AvatarCompositeCache.class);
+
+    /**
+     * The singleton instance of this class.
+     */
+    @Nonnull
+    private static final AvatarCompositeCache INSTANCE = new AvatarCompositeCache();
+
+    /**
+     * This is the key that identifies a composite image. It stores the look of the avatar and all its clothes.
+     */
+    static final class Key {
+        /**
+         * The values of the key.
+         */
+        @Nonnull
+        private final int[] values;
+
+        /**
+         * The hash code of the values.
+         */
+        private int hash;
+
+        /**
+         * Create a new key.
+         *
+         * @param size the amount of values in the key
+         */
+        Key(final int size) {
+            values = new int[size];
+        }
+
+        /**
+         * Create a copy of a key.
+         *
+         * @param org the key to copy
+         */
+        private Key(@Nonnull final Key org) {
+            values = Arrays.copyOf(org.values, org.values.length);
+            hash = org.hash;
+        }
+
+        /**
+         * Get the array that stores the values of this key. After the values are changed {@link #updateHash()} has
+         * to be called.
+         *
+         * @return the values of the key
+         */
+        @Nonnull
+        int[] getValues() {
+            return values;
+        }
+
+        /**
+         * Update the hash code of this key after the values were changed.
+         */
+        void updateHash() {
+            hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(@Nullable final Object obj) {
+            return (obj instanceof Key) && (((Key) obj).hash == hash) && Arrays.equals(((Key) obj).values, values);
+        }
+    }
+
+    /**
+     * This is one composite image stored in the cache.
+     */
+    static final class Entry {
+        /**
+         * The cell that stores the image.
+         */
+        private final int cell;
+
+        /**
+         * The texture of the composite image.
+         */
+        @Nonnull
+        private final Texture texture;
+
+        /**
+         * The x offset of the image relative to the display location of the avatar.
+         */
+        private final int offsetX;
+
+        /**
+         * The y offset of the image relative to the display location of the avatar.
+         */
+        private final int offsetY;
+
+        /**
+         * The amount of sprites that were merged into this image.
+         */
+        private final int layerCount;
+
+        /**
+         * This flag is {@code true} as long as the image is stored in the cache.
+         */
+        private boolean valid;
+
+        /**
+         * Create a new entry.
+         *
+         * @param cell       the cell that stores the image
+         * @param texture    the texture of the image
+         * @param offsetX    the x offset of the image relative to the display location of the avatar
+         * @param offsetY    the y offset of the image relative to the display location of the avatar
+         * @param layerCount the amount of sprites merged into the image
+         */
+        Entry(final int cell, @Nonnull final Texture texture, final int offsetX, final int offsetY,
+              final int layerCount) {
+            this.cell = cell;
+            this.texture = texture;
+            this.offsetX = offsetX;
+            this.offsetY = offsetY;
+            this.layerCount = layerCount;
+            valid = true;
+        }
+
+        /**
+         * Check if this image is still stored in the cache.
+         *
+         * @return {@code true} in case the image is valid
+         */
+        boolean isValid() {
+            return valid;
+        }
+
+        /**
+         * Draw the composite image.
+         *
+         * @param g        the graphics used to draw the image
+         * @param displayX the x coordinate of the display location of the avatar
+         * @param displayY the y coordinate of the display location of the avatar
+         * @param scale    the scaling value of the avatar
+         * @param light    the light and the alpha value applied to the image
+         */
+        void render(@Nonnull final Graphics g, final int displayX, final int displayY, final float scale,
+                    @Nonnull final Color light) {
+            g.drawTexture(texture, displayX + Math.round(offsetX * scale), displayY + Math.round(offsetY * scale),
+                    Math.round(texture.getWidth() * scale), Math.round(texture.getHeight() * scale), light);
+        }
+
+        /**
+         * Get the amount of sprites that were merged into this image.
+         *
+         * @return the amount of sprites
+         */
+        int getLayerCount() {
+            return layerCount;
+        }
+    }
+
+    /**
+     * The composite images in the order of their last use.
+     */
+    @Nonnull
+    private final Map<Key, Entry> entries;
+
+    /**
+     * The render targets that store the composite images.
+     */
+    @Nonnull
+    private final List<RenderTarget> pages;
+
+    /**
+     * The cells of the render targets that are currently unused.
+     */
+    @Nonnull
+    private int[] freeCells;
+
+    /**
+     * The amount of unused cells.
+     */
+    private int freeCellCount;
+
+    /**
+     * The maximal amount of render targets allowed by the texture memory budget.
+     */
+    private int maxPages;
+
+    /**
+     * The budget that needs to be applied at the end of the current frame or {@code -1} in case it did not change.
+     */
+    private volatile int pendingBudget = -1;
+
+    /**
+     * This flag is set {@code true} in case the backend failed to create a render target. The cache is disabled
+     * after that.
+     */
+    private boolean unsupported;
+
+    /**
+     * The amount of composite images created during the current frame.
+     */
+    private int frameCompositions;
+
+    /**
+     * The amount of draw operations saved during the current frame.
+     */
+    private int frameSavedDraws;
+
+    /**
+     * The amount of draw operations saved during the last frame.
+     */
+    private int lastFrameSavedDraws;
+
+    /**
+     * The area of the composite image that is currently created.
+     */
+    @Nonnull
+    private final Rectangle compositeArea = new Rectangle();
+
+    /**
+     * Rectangle instance used for temporary calculations.
+     */
+    @Nonnull
+    private final Rectangle tempRect = new Rectangle();
+
+    /**
+     * Private constructor to ensure that only the singleton instance is created.
+     */
+    private AvatarCompositeCache() {
+        entries = new LinkedHashMap<Key, Entry>(64, 0.75f, true);
+        pages = new ArrayList<RenderTarget>();
+        freeCells = new int[0];
+        applyBudget(IllaClient.getCfg().getInteger(CFG_BUDGET));
+        AnnotationProcessor.process(this);
+    }
+
+    /**
+     * Get the singleton instance of this class.
+     *
+     * @return the singleton instance
+     */
+    @Nonnull
+    public static AvatarCompositeCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Pack a color into a integer value that is used as part of the key of a composite image.
+     *
+     * @param color the color or {@code null} for the original colors of the sprite
+     * @return the packed color
+     */
+    static int packColor(@Nullable final Color color) {
+        if (color == null) {
+            return -1;
+        }
+        return (color.getRed() << 24) | (color.getGreen() << 16) | (color.getBlue() << 8) | color.getAlpha();
+    }
+
+    /**
+     * Check if the composite images are currently used.
+     *
+     * @return {@code true} in case the cache is enabled
+     */
+    boolean isEnabled() {
+        return !unsupported && (maxPages > 0);
+    }
+
+    /**
+     * Check if the current look of a avatar can be stored as composite image.
+     *
+     * @param avatar the avatar
+     * @return {@code true} in case the composite image fits into the cells of the cache
+     */
+    boolean isSupported(@Nonnull final Avatar avatar) {
+        compositeArea.reset();
+        avatar.addAvatarCompositeArea(compositeArea, tempRect);
+        return isFitting(compositeArea);
+    }
+
+    /**
+     * Check if a composite image of a specified area fits into the cells of the cache.
+     *
+     * @param area the area of the composite image
+     * @return {@code true} in case the composite image can be stored
+     */
+    private static boolean isFitting(@Nonnull final Rectangle area) {
+        return !area.isEmpty() && (area.getWidth() <= CELL_WIDTH) && (area.getHeight() <= CELL_HEIGHT);
+    }
+
+    /**
+     * Get the composite image of a avatar. In case the image is not stored in the cache yet, its created.
+     *
+     * @param g      the graphics used to create the image
+     * @param avatar the avatar
+     * @param key    the key that identifies the look of the avatar
+     * @return the composite image or {@code null} in case the image is not available during this frame
+     */
+    @Nullable
+    Entry getComposite(@Nonnull final Graphics g, @Nonnull final Avatar avatar, @Nonnull final Key key) {
+        final Entry storedEntry = entries.get(key);
+        if (storedEntry != null) {
+            return storedEntry;
+        }
+        if (!isEnabled() || (frameCompositions >= MAX_COMPOSITIONS_PER_FRAME)) {
+            return null;
+        }
+
+        if (!isSupported(avatar)) {
+            return null;
+        }
+
+        final int cell = allocateCell(g);
+        if (cell == -1) {
+            return null;
+        }
+
+        final RenderTarget page = pages.get(cell / CELLS_PER_PAGE);
+        final int cellIndex = cell % CELLS_PER_PAGE;
+        final int cellX = (cellIndex % CELL_COLUMNS) * CELL_WIDTH;
+        final int cellY = (cellIndex / CELL_COLUMNS) * CELL_HEIGHT;
+
+        final int layerCount;
+        g.beginRenderTarget(page, cellX, cellY, CELL_WIDTH, CELL_HEIGHT);
+        try {
+            layerCount = avatar.renderAvatarComposite(g, cellX - compositeArea.getX(), cellY - compositeArea.getY());
+        } finally {
+            g.endRenderTarget();
+        }
+        frameCompositions++;
+
+        final Texture texture = page.getTexture().getSubTexture(cellX, cellY, compositeArea.getWidth(),
+                compositeArea.getHeight());
+        final Entry entry = new Entry(cell, texture, compositeArea.getX(), compositeArea.getY(), layerCount);
+        entries.put(new Key(key), entry);
+        return entry;
+    }
+
+    /**
+     * Get a unused cell. In case all cells are used a new render target is created or, if the budget does not allow
+     * another render target, the least recently used composite image is dropped.
+     *
+     * @param g the graphics used to create new render targets
+     * @return the index of the cell or {@code -1} in case no cell is available
+     */
+    private int allocateCell(@Nonnull final Graphics g) {
+        if ((freeCellCount == 0) && (pages.size() < maxPages)) {
+            final RenderTarget page = g.createRenderTarget(PAGE_SIZE, PAGE_SIZE);
+            if (page == null) {
+                LOGGER.warn("Render targets are not supported. Composite avatar images are disabled.");
+                unsupported = true;
+                clear();
+                return -1;
+            }
+            final int firstCell = pages.size() * CELLS_PER_PAGE;
+            pages.add(page);
+            if (freeCells.length < CELLS_PER_PAGE) {
+                freeCells = new int[CELLS_PER_PAGE];
+            }
+            for (int i = CELLS_PER_PAGE - 1; i >= 0; i--) {
+                freeCells[freeCellCount++] = firstCell + i;
+            }
+        }
+        if (freeCellCount == 0) {
+            final Iterator<Entry> itr = entries.values().iterator();
+            if (!itr.hasNext()) {
+                return -1;
+            }
+            final Entry eldest = itr.next();
+            itr.remove();
+            eldest.valid = false;
+            return eldest.cell;
+        }
+        return freeCells[--freeCellCount];
+    }
+
+    /**
+     * Drop all composite images and release the render targets.
+     */
+    private void clear() {
+        for (final Entry entry : entries.values()) {
+            entry.valid = false;
+        }
+        entries.clear();
+        for (final RenderTarget page : pages) {
+            page.dispose();
+        }
+        pages.clear();
+        freeCellCount = 0;
+    }
+
+    /**
+     * Set the texture memory budget of the cache.
+     *
+     * @param budget the budget in megabytes
+     */
+    private void applyBudget(final int budget) {
+        final int newMaxPages = Math.max(0, (budget * 1024 * 1024) / BYTES_PER_PAGE);
+        if (newMaxPages < pages.size()) {
+            clear();
+        }
+        maxPages = newMaxPages;
+    }
+
+    /**
+     * Report that a avatar was drawn using a composite image.
+     *
+     * @param entry the composite image that was drawn
+     */
+    void reportDraw(@Nonnull final Entry entry) {
+        frameSavedDraws += entry.getLayerCount() - 1;
+    }
+
+    /**
+     * Finish the current frame. This needs to be called once all avatars are drawn.
+     */
+    public void finishFrame() {
+        lastFrameSavedDraws = frameSavedDraws;
+        frameSavedDraws = 0;
+        frameCompositions = 0;
+
+        final int budget = pendingBudget;
+        if (budget > -1) {
+            pendingBudget = -1;
+            applyBudget(budget);
+        }
+    }
+
+    /**
+     * Get the amount of draw operations that were saved during the last frame by drawing composite images.
+     *
+     * @return the amount of saved draw operations
+     */
+    public int getLastFrameSavedDraws() {
+        return lastFrameSavedDraws;
+    }
+
+    /**
+     * Get the amount of composite images currently stored in the cache.
+     *
+     * @return the amount of composite images
+     */
+    public int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * This is the handler for changes of the texture memory budget. The new budget is applied at the end of the
+     * current frame.
+     *
+     * @param topic the name of the configuration entry
+     * @param event the event data
+     */
+    @EventTopicSubscriber(topic = CFG_BUDGET)
+    public void onBudgetChanged(@Nonnull final String topic, @Nonnull final ConfigChangedEvent event) {
+        pendingBudget = Math.max(0, event.getConfig().getInteger(CFG_BUDGET));
+    }
+}
@@ -51,10 +51,15 @@ import javax.annotation.Nullable;
 @SuppressWarnings("ClassNamingConvention")
 public final class Item extends AbstractEntity<ItemTemplate> implements Resource {
     /**
-     * The frame animation object that is used in case the item contains a animation that needs to be played.
+     * The animation clock shared by all items of this type or {@code null} in case the item is not animated.
      */
     @Nullable
-    private final FrameAnimation animation;
+    private final AnimationClock animation;
+
+    /**
+     * This flag is {@code true} while this item is registered as user of the animation clock.
+     */
+    private boolean animationAcquired;
 
     /**
      * The amount of items that are represented by this item instance. So in case the number is larger then 1 this
@@ -166,6 +171,9 @@ public final class Item extends AbstractEntity<ItemTemplate> implements Resource
 
     @Override
     public void render(@Nonnull final Graphics g) {
+        if (animation != null) {
+            setFrame(animation.getCurrentFrame());
+        }
         super.render(g);
 
         if (showNumber && (number != null)) {
@@ -297,15 +305,18 @@ public final class Item extends AbstractEntity<ItemTemplate> implements Resource
     public void show() {
         // add to display list
         super.show();
-        if (animation != null) {
-            animation.addTarget(this, true);
+        if ((animation != null) && !animationAcquired) {
+            animation.acquire();
+            animationAcquired = true;
         }
     }
 
     @Override
     public void hide() {
-        if (animation != null) {
-            animation.removeTarget(this);
+        if (animationAcquired) {
+            assert animation != null;
+            animation.release();
+            animationAcquired = false;
         }
         super.hide();
     }
@@ -31,6 +31,8 @@ import org.illarion.engine.graphic.Scene;
 import org.illarion.engine.graphic.effects.FogEffect;
 import org.illarion.engine.graphic.effects.GrayScaleEffect;
 import org.illarion.engine.input.Input;
+import org.illarion.engine.profiler.FrameProfiler;
+import org.illarion.engine.profiler.ProfilerSection;
 
 import javax.annotation.Nonnull;
 
@@ -48,6 +50,12 @@ public final class MapDisplayManager implements AnimatedMove {
      */
     public static final int TILE_PERSPECTIVE_OFFSET = 3;
 
+    /**
+     * The profiler section that measures the update of the game scene.
+     */
+    @Nonnull
+    private static final ProfilerSection SCENE_UPDATE = FrameProfiler.getInstance().getSection("Scene update");
+
     private boolean active;
 
     @Nonnull
@@ -181,10 +189,13 @@ public final class MapDisplayManager implements AnimatedMove {
         }
 
         Camera.getInstance().setViewport(-offX, -offY, container.getWidth(), container.getHeight());
+        gameScene.setViewport(-offX, -offY, container.getWidth(), container.getHeight());
 
         final Input engineInput = container.getEngine().getInput();
         gameScene.publishEvent(new CurrentMouseLocationEvent(engineInput.getMouseX(), engineInput.getMouseY()));
+        final long sceneUpdateStart = SCENE_UPDATE.start();
         gameScene.update(container, delta);
+        SCENE_UPDATE.stop(sceneUpdateStart);
         updateFog(container);
         updateDeadView(container);
     }
@@ -270,6 +281,7 @@ public final class MapDisplayManager implements AnimatedMove {
 
         final Camera camera = Camera.getInstance();
         gameScene.render(c.getEngine().getGraphics(), camera.getViewportOffsetX(), camera.getViewportOffsetY());
+        AvatarCompositeCache.getInstance().finishFrame();
     }
 
     public void setActive(final boolean active) {
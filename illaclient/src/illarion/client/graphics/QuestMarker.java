@@ -159,6 +159,14 @@ public class QuestMarker extends AbstractEntity<MiscImageTemplate> {
         super.update(container, delta);
     }
 
+    @Override
+    public void updateOffScreen(@Nonnull final GameContainer container, final int delta) {
+        if (appliedOffset != parentTile.getQuestMarkerElevation()) {
+            updateScreenPosition(delta);
+        }
+        super.updateOffScreen(container, delta);
+    }
+
     /**
      * Get the availability state of this quest marker.
      *
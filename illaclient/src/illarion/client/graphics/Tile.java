@@ -51,10 +51,15 @@ import javax.annotation.Nullable;
 @SuppressWarnings("ClassNamingConvention")
 public class Tile extends AbstractEntity<TileTemplate> implements Resource {
     /**
-     * The animation that is applied to this tile or {@code null} in case there is none.
+     * The animation clock shared by all tiles of this type or {@code null} in case the tile is not animated.
      */
     @Nullable
-    private final FrameAnimation animation;
+    private final AnimationClock animation;
+
+    /**
+     * This flag is {@code true} while this tile is registered as user of the animation clock.
+     */
+    private boolean animationAcquired;
 
     /**
      * The template of the overlay that is rendered on top of the tile or {@code null} in case just the plain tile is
@@ -118,6 +123,10 @@ public class Tile extends AbstractEntity<TileTemplate> implements Resource {
             return;
         }
 
+        if (animation != null) {
+            setFrame(animation.getCurrentFrame());
+        }
+
         super.render(g);
     }
 
@@ -141,16 +150,19 @@ public class Tile extends AbstractEntity<TileTemplate> implements Resource {
             setFadingCorridorEffectEnabled(true);
         }
         super.show();
-        if (animation != null) {
-            animation.addTarget(this, true);
+        if ((animation != null) && !animationAcquired) {
+            animation.acquire();
+            animationAcquired = true;
         }
     }
 
     @Override
     public void hide() {
         super.hide();
-        if (animation != null) {
-            animation.removeTarget(this);
+        if (animationAcquired) {
+            assert animation != null;
+            animation.release();
+            animationAcquired = false;
         }
     }
 
@@ -23,9 +23,9 @@ import de.lessvoid.nifty.screen.Screen;
 import de.lessvoid.nifty.screen.ScreenController;
 import illarion.client.graphics.AnimationUtility;
 import illarion.client.net.server.events.AttributeUpdateReceivedEvent;
+import illarion.client.util.EventDispatcher;
+import illarion.client.util.EventHandler;
 import illarion.client.world.World;
-import org.bushe.swing.event.annotation.AnnotationProcessor;
-import org.bushe.swing.event.annotation.EventSubscriber;
 import org.illarion.engine.GameContainer;
 import org.illarion.nifty.controls.Progress;
 
@@ -82,6 +82,18 @@ public final class CharStatusHandler implements ScreenController, UpdatableHandl
      */
     private int currentManaPoints;
 
+    /**
+     * The handler that receives the attribute updates from the event dispatcher.
+     */
+    @Nonnull
+    private final EventHandler<AttributeUpdateReceivedEvent> attributeHandler =
+            new EventHandler<AttributeUpdateReceivedEvent>() {
+                @Override
+                public void handleEvent(@Nonnull final AttributeUpdateReceivedEvent event) {
+                    onAttributeMessageReceived(event);
+                }
+            };
+
     @Override
     public void bind(final Nifty nifty, @Nonnull final Screen screen) {
         hitPointBar = screen.findNiftyControl("healthBar", Progress.class);
@@ -94,8 +106,7 @@ public final class CharStatusHandler implements ScreenController, UpdatableHandl
      *
      * @param event the received event
      */
-    @EventSubscriber
-    public void onAttributeMessageReceived(@Nonnull final AttributeUpdateReceivedEvent event) {
+    private void onAttributeMessageReceived(@Nonnull final AttributeUpdateReceivedEvent event) {
         if (event.getTargetCharId().equals(World.getPlayer().getPlayerId())) {
             switch (event.getAttribute()) {
                 case HitPoints:
@@ -113,12 +124,12 @@ public final class CharStatusHandler implements ScreenController, UpdatableHandl
 
     @Override
     public void onStartScreen() {
-        AnnotationProcessor.process(this);
+        EventDispatcher.getInstance().subscribe(AttributeUpdateReceivedEvent.class, attributeHandler);
     }
 
     @Override
     public void onEndScreen() {
-        AnnotationProcessor.unprocess(this);
+        EventDispatcher.getInstance().unsubscribe(attributeHandler);
     }
 
     @Override
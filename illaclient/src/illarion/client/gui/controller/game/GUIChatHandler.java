@@ -44,6 +44,7 @@ import illarion.client.gui.ChatGui;
 import illarion.client.net.client.IntroduceCmd;
 import illarion.client.net.client.SayCmd;
 import illarion.client.util.ChatHandler;
+import illarion.client.util.UpdatePriority;
 import illarion.client.util.UpdateTask;
 import illarion.client.world.Char;
 import illarion.client.world.World;
@@ -115,7 +116,7 @@ public final class GUIChatHandler implements ChatGui, KeyInputHandler, ScreenCon
      */
     @Override
     public void showChatBubble(@Nullable final Char character, @Nonnull final String message, @Nonnull final Color color) {
-        World.getUpdateTaskManager().addTask(new CharTalkEntry(character, message, color));
+        World.getUpdateTaskManager().addTask(new CharTalkEntry(character, message, color), UpdatePriority.Cosmetic);
     }
 
     /**
@@ -34,6 +34,8 @@ import illarion.client.gui.EntitySlickRenderImage;
 import illarion.client.gui.GameMapGui;
 import illarion.client.gui.Tooltip;
 import illarion.client.input.*;
+import illarion.client.util.EventDispatcher;
+import illarion.client.util.EventHandler;
 import illarion.client.world.MapTile;
 import illarion.client.world.World;
 import illarion.client.world.interactive.InteractionManager;
@@ -151,6 +153,18 @@ public final class GameMapHandler implements GameMapGui, ScreenController {
 
     private final TooltipHandler tooltipHandler;
 
+    /**
+     * The handler that receives the mouse movements on the map from the event dispatcher.
+     */
+    @Nonnull
+    private final EventHandler<SceneEvent> mouseMoveHandler;
+
+    /**
+     * The handler that receives the events of the mouse pointing at the map from the event dispatcher.
+     */
+    @Nonnull
+    private final EventHandler<SceneEvent> pointAtHandler;
+
     /**
      * Default constructor that takes care to initialize the variables required for this class to work.
      */
@@ -160,6 +174,19 @@ public final class GameMapHandler implements GameMapGui, ScreenController {
         numberSelect = numberSelectPopupHandler;
         tooltipHandler = tooltip;
         this.input = input;
+
+        mouseMoveHandler = new EventHandler<SceneEvent>() {
+            @Override
+            public void handleEvent(@Nonnull final SceneEvent event) {
+                handleMouseMove(event);
+            }
+        };
+        pointAtHandler = new EventHandler<SceneEvent>() {
+            @Override
+            public void handleEvent(@Nonnull final SceneEvent event) {
+                handlePointAt(event);
+            }
+        };
     }
 
     /**
@@ -275,8 +302,12 @@ public final class GameMapHandler implements GameMapGui, ScreenController {
         input.enableForwarding(ForwardingTarget.Mouse);
     }
 
-    @EventSubscriber(eventClass = MoveOnMapEvent.class)
-    public void handleMouseMove(final SceneEvent event) {
+    /**
+     * Handle a mouse movement on the map that was published by the event dispatcher.
+     *
+     * @param event the event
+     */
+    private void handleMouseMove(@Nonnull final SceneEvent event) {
         if (World.getInteractionManager().isDragging()) {
             return;
         }
@@ -287,8 +318,12 @@ public final class GameMapHandler implements GameMapGui, ScreenController {
         World.getMapDisplay().getGameScene().publishEvent(event);
     }
 
-    @EventSubscriber(eventClass = PointOnMapEvent.class)
-    public void handlePointAt(final SceneEvent event) {
+    /**
+     * Handle the mouse pointing at the map that was published by the event dispatcher.
+     *
+     * @param event the event
+     */
+    private void handlePointAt(@Nonnull final SceneEvent event) {
         if (World.getInteractionManager().isDragging()) {
             return;
         }
@@ -350,12 +385,16 @@ public final class GameMapHandler implements GameMapGui, ScreenController {
     public void onEndScreen() {
         activeNifty.unsubscribeAnnotations(this);
         AnnotationProcessor.unprocess(this);
+        EventDispatcher.getInstance().unsubscribe(mouseMoveHandler);
+        EventDispatcher.getInstance().unsubscribe(pointAtHandler);
     }
 
     @Override
     public void onStartScreen() {
         activeNifty.subscribeAnnotations(this);
         AnnotationProcessor.process(this);
+        EventDispatcher.getInstance().subscribe(MoveOnMapEvent.class, mouseMoveHandler);
+        EventDispatcher.getInstance().subscribe(PointOnMapEvent.class, pointAtHandler);
     }
 
     @Override
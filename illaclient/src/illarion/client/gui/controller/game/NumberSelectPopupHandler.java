@@ -30,6 +30,7 @@ import de.lessvoid.nifty.input.NiftyStandardInputEvent;
 import de.lessvoid.nifty.screen.KeyInputHandler;
 import de.lessvoid.nifty.screen.Screen;
 import de.lessvoid.nifty.screen.ScreenController;
+import illarion.client.util.UpdatePriority;
 import illarion.client.util.UpdateTask;
 import illarion.client.world.World;
 import org.apache.log4j.Logger;
@@ -120,7 +121,7 @@ public final class NumberSelectPopupHandler implements ScreenController {
             public void onUpdateGame(@Nonnull final GameContainer container, final int delta) {
                 internalCreateNewPopup(minValue, maxValue, callback);
             }
-        });
+        }, UpdatePriority.Input);
     }
 
     /**
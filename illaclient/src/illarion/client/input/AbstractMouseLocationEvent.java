@@ -18,7 +18,7 @@
  */
 package illarion.client.input;
 
-import org.illarion.engine.graphic.SceneEvent;
+import org.illarion.engine.graphic.PointerSceneEvent;
 
 import javax.annotation.Nonnull;
 
@@ -27,7 +27,7 @@ import javax.annotation.Nonnull;
  *
  * @author Martin Karing &lt;nitram@illarion.org&gt;
  */
-public abstract class AbstractMouseLocationEvent implements SceneEvent {
+public abstract class AbstractMouseLocationEvent implements PointerSceneEvent {
     /**
      * The x coordinate on the screen where the click occurred.
      */
@@ -77,6 +77,16 @@ public abstract class AbstractMouseLocationEvent implements SceneEvent {
         return y;
     }
 
+    @Override
+    public int getPointerX() {
+        return getX();
+    }
+
+    @Override
+    public int getPointerY() {
+        return getY();
+    }
+
     @Override
     public void notHandled() {
         // nothing
@@ -78,6 +78,26 @@ public class DragOnMapEvent extends AbstractMouseOnMapEvent {
         return oldY;
     }
 
+    /**
+     * The elements on the map handle a dragging operation at the location where it started.
+     *
+     * @return the X coordinate of the starting location
+     */
+    @Override
+    public int getPointerX() {
+        return oldX;
+    }
+
+    /**
+     * The elements on the map handle a dragging operation at the location where it started.
+     *
+     * @return the Y coordinate of the starting location
+     */
+    @Override
+    public int getPointerY() {
+        return oldY;
+    }
+
     /**
      * Get the X coordinate of the location there the mouse was located after the dragging operation.
      *
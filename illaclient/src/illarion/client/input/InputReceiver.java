@@ -19,6 +19,7 @@
 package illarion.client.input;
 
 import illarion.client.IllaClient;
+import illarion.client.util.EventDispatcher;
 import illarion.client.world.World;
 import illarion.common.gui.AbstractMultiActionHelper;
 import org.bushe.swing.event.EventBus;
@@ -123,7 +124,7 @@ public final class InputReceiver implements InputListener {
 
         @Override
         public void executeAction(final int count) {
-            EventBus.publish(new PointOnMapEvent(x, y));
+            EventDispatcher.getInstance().publish(new PointOnMapEvent(x, y));
         }
     }
 
@@ -223,7 +224,7 @@ public final class InputReceiver implements InputListener {
         if (enabled) {
             pointAtHelper.setInputData(mouseX, mouseY);
             pointAtHelper.pulse();
-            EventBus.publish(new MoveOnMapEvent(mouseX, mouseY));
+            EventDispatcher.getInstance().publish(new MoveOnMapEvent(mouseX, mouseY));
         }
     }
 
@@ -21,19 +21,24 @@ package illarion.client.input;
 import illarion.client.IllaClient;
 import illarion.client.net.client.CloseShowcaseCmd;
 import illarion.client.net.client.PickUpAllItemsCmd;
+import illarion.client.util.GlobalExecutorService;
 import illarion.client.world.CharMovementMode;
 import illarion.client.world.PlayerMovement;
 import illarion.client.world.World;
 import illarion.client.world.items.InventorySlot;
 import illarion.common.config.ConfigChangedEvent;
 import illarion.common.types.Location;
+import org.apache.log4j.Logger;
 import org.bushe.swing.event.EventBus;
 import org.bushe.swing.event.annotation.AnnotationProcessor;
 import org.bushe.swing.event.annotation.EventTopicSubscriber;
 import org.illarion.engine.input.Input;
 import org.illarion.engine.input.Key;
+import org.illarion.engine.profiler.FrameProfiler;
 
 import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
 import java.util.EnumMap;
 import java.util.Map;
 
@@ -43,6 +48,11 @@ import java.util.Map;
  * @author Martin Karing &lt;nitram@illarion.org&gt;
  */
 public final class KeyMapper {
+    /**
+     * The logger that takes care for the logging output of this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(KeyMapper.class);
+
     @Nonnull
     private final Map<Key, String> inputMap;
 
@@ -178,6 +188,12 @@ public final class KeyMapper {
             case Enter:
                 World.getGameGui().getChatGui().activateChatBox();
                 break;
+            case F11:
+                IllaClient.getCfg().set("profiler", !IllaClient.getCfg().getBoolean("profiler"));
+                break;
+            case F12:
+                writeProfilerTrace();
+                break;
 
             case CursorUp:
             case NumPad8:
@@ -258,4 +274,26 @@ public final class KeyMapper {
                 }
         }
     }
+
+    /**
+     * Write the trace of the frame profiler to the user directory. This is done in the background as the trace may
+     * be large.
+     */
+    private static void writeProfilerTrace() {
+        if (!FrameProfiler.getInstance().isEnabled()) {
+            return;
+        }
+        final File traceFile = new File(IllaClient.getFile("profiler-trace.json"));
+        GlobalExecutorService.getIoService().submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    FrameProfiler.getInstance().writeTrace(traceFile);
+                    LOGGER.info("Profiler trace written to " + traceFile.getAbsolutePath());
+                } catch (@Nonnull final IOException e) {
+                    LOGGER.error("Failed to write the profiler trace.", e);
+                }
+            }
+        });
+    }
 }
@@ -18,7 +18,11 @@
  */
 package illarion.client.loading;
 
+import illarion.client.util.GlobalExecutorService;
 import illarion.common.util.ProgressMonitor;
+import illarion.common.util.TableLoader;
+import illarion.common.util.TableSnapshot;
+import org.apache.log4j.Logger;
 import org.illarion.engine.Engine;
 
 import javax.annotation.Nonnull;
@@ -26,19 +30,52 @@ import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class is used to enlist the required loading tasks and perform the loading operations itself.
+ * <p />
+ * The loading is split in two parts. The textures, the resource tables and the sounds do not depend on the login, so
+ * they are enlisted as soon as the engine is up and loaded while the player is busy with the login and the character
+ * selection. The environment of the game requires the selected character, so it is only enlisted once the player
+ * enters the game. That way entering the game only waits for the parts that are not done yet.
  *
  * @author Martin Karing &lt;nitram@illarion.org&gt;
  */
 @NotThreadSafe
 public final class Loading {
     /**
-     * This variable is set to true in case the elements got enlisted already and this class must not do anything
-     * anymore.
+     * The logger that provides the logging output of this class.
      */
-    private boolean loadingDone;
+    private static final Logger LOGGER = Logger.getLogger(Loading.class);
+
+    /**
+     * This variable is set to true in case the components that do not depend on the login got enlisted already.
+     */
+    private boolean backgroundEnlisted;
+
+    /**
+     * The task that loads the environment of the game. This is {@code null} until the missing components got
+     * enlisted.
+     */
+    @Nullable
+    private LoadingTask environmentTask;
+
+    /**
+     * The time the background loading started in nanoseconds.
+     */
+    private long startTime;
+
+    /**
+     * The time the background loading finished in nanoseconds or {@code 0} in case it is not done yet.
+     */
+    private long backgroundDoneTime;
+
+    /**
+     * The time the player finished the login and the character selection in nanoseconds or {@code 0} in case this
+     * did not happen yet.
+     */
+    private long loginDoneTime;
 
     /**
      * The progress monitor that is used to keep track of the loading progress.
@@ -60,23 +97,39 @@ public final class Loading {
     }
 
     /**
-     * Enlist all components that are still needed to be loaded.
+     * Enlist the components that do not depend on the login. This is supposed to be called as soon as the engine is
+     * up, so those components are loaded while the login and the character selection are displayed.
+     *
+     * @param gameEngine the game engine
+     */
+    public void enlistBackgroundComponents(@Nonnull final Engine gameEngine) {
+        if (backgroundEnlisted) {
+            return;
+        }
+        backgroundEnlisted = true;
+        startTime = System.nanoTime();
+        addToTaskList(new TextureLoadingTask(gameEngine));
+        addToTaskList(new ResourceTableLoading(gameEngine));
+        addToTaskList(new SoundLoadingTask(gameEngine));
+    }
+
+    /**
+     * Enlist all components that are still needed to be loaded. This is called once the player enters the game.
      *
      * @param gameEngine the game engine
      */
     public void enlistMissingComponents(@Nonnull final Engine gameEngine) {
-        progressMonitor = new ProgressMonitor();
-        if (!loadingDone) {
-            addToTaskList(new TextureLoadingTask(gameEngine));
-            addToTaskList(new ResourceTableLoading(gameEngine));
-            addToTaskList(new SoundLoadingTask(gameEngine));
-            addToTaskList(new GameEnvironmentLoading(gameEngine));
-            loadingDone = true;
+        enlistBackgroundComponents(gameEngine);
+        if (environmentTask == null) {
+            loginDoneTime = System.nanoTime();
+            environmentTask = new GameEnvironmentLoading(gameEngine);
+            addToTaskList(environmentTask);
         }
     }
 
     /**
-     * Perform the text loading step.
+     * Perform the text loading step. This needs to be called from the render thread for every frame until the
+     * loading is done.
      */
     public void load() {
         if (tasks.isEmpty()) {
@@ -87,16 +140,71 @@ public final class Loading {
         currentTask.load();
         if (currentTask.isLoadingDone()) {
             tasks.remove(0);
+            if ((backgroundDoneTime == 0L) && (tasks.isEmpty() || (tasks.get(0) == environmentTask))) {
+                backgroundDoneTime = System.nanoTime();
+                saveTableSnapshot();
+            }
+            if (tasks.isEmpty()) {
+                logTimeline();
+            }
         }
     }
 
+    /**
+     * Write the timeline of the startup to the log. The saved time is the part of the background loading that was
+     * done while the player was busy with the login and the character selection.
+     */
+    private void logTimeline() {
+        final long doneTime = System.nanoTime();
+        final long savedTime = Math.min(backgroundDoneTime, loginDoneTime) - startTime;
+        final long waitTime = doneTime - loginDoneTime;
+
+        final StringBuilder builder = new StringBuilder();
+        builder.append("Startup timeline:");
+        builder.append("\n    Background loading started: 0ms");
+        builder.append("\n    Background loading done: ").append(toMillis(backgroundDoneTime));
+        builder.append("ms\n    Login and character selection done: ").append(toMillis(loginDoneTime));
+        builder.append("ms\n    Game environment ready: ").append(toMillis(doneTime));
+        builder.append("ms\n    Waited ").append(TimeUnit.NANOSECONDS.toMillis(waitTime));
+        builder.append("ms after the login, saved ").append(TimeUnit.NANOSECONDS.toMillis(savedTime));
+        builder.append("ms by loading during the login");
+        LOGGER.info(builder.toString());
+    }
+
+    /**
+     * Get the time since the background loading started.
+     *
+     * @param time the time in nanoseconds
+     * @return the milliseconds passed between the start of the background loading and the time
+     */
+    private long toMillis(final long time) {
+        return TimeUnit.NANOSECONDS.toMillis(time - startTime);
+    }
+
+    /**
+     * Write the snapshot of the resource tables in the background, so the next start does not need to decrypt and
+     * parse the tables again.
+     */
+    private static void saveTableSnapshot() {
+        @Nullable final TableSnapshot snapshot = TableLoader.getSnapshot();
+        if (snapshot == null) {
+            return;
+        }
+        GlobalExecutorService.getIoService().submit(new Runnable() {
+            @Override
+            public void run() {
+                snapshot.save();
+            }
+        });
+    }
+
     /**
      * Check if all loading operations are done.
      *
      * @return {@code true} in case the loading is done
      */
     public boolean isLoadingDone() {
-        return tasks.isEmpty();
+        return tasks.isEmpty() && (environmentTask != null);
     }
 
     /**
@@ -107,7 +215,9 @@ public final class Loading {
     private void addToTaskList(@Nonnull final LoadingTask task) {
         tasks.add(task);
 
-        assert progressMonitor != null;
+        if (progressMonitor == null) {
+            progressMonitor = new ProgressMonitor();
+        }
         progressMonitor.addChild(task.getProgressMonitor());
     }
 
@@ -0,0 +1,327 @@
+/*
+ * This file is part of the Illarion Client.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Client.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.client.loading;
+
+import illarion.client.resources.Resource;
+import illarion.client.resources.loaders.AbstractResourceLoader;
+import illarion.common.util.Crypto;
+import org.apache.log4j.Logger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This scheduler runs the resource loaders on a executor. Loaders that do not depend on each other run at the same
+ * time. A loader that depends on other loaders is only started once all those loaders are done. In case a loader
+ * fails, the loaders that depend on it are skipped.
+ * <p />
+ * Once all loaders are done, the time spent by each loader and the throughput of the decryption of the tables is
+ * written to the log.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+@ThreadSafe
+final class ResourceLoaderScheduler {
+    /**
+     * The logger that provides the logging output of this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(ResourceLoaderScheduler.class);
+
+    /**
+     * The entries of the loaders in the order they were added.
+     */
+    @Nonnull
+    private final List<Entry> entries;
+
+    /**
+     * The entries of the loaders, stored by the loader.
+     */
+    @Nonnull
+    private final Map<AbstractResourceLoader<?>, Entry> entryMap;
+
+    /**
+     * The executor that runs the loaders. This is {@code null} until the scheduler is started.
+     */
+    @Nullable
+    private ExecutorService executor;
+
+    /**
+     * The time the scheduler was started in nanoseconds.
+     */
+    private long startTime;
+
+    /**
+     * The amount of bytes decrypted by {@link Crypto} at the time the scheduler was started.
+     */
+    private long startDecryptedBytes;
+
+    /**
+     * The time spent on decryption by {@link Crypto} at the time the scheduler was started in nanoseconds.
+     */
+    private long startDecryptionTime;
+
+    /**
+     * The amount of loaders that are done, failed or got skipped.
+     */
+    private int finishedCount;
+
+    /**
+     * This flag is set {@code true} once all loaders are finished.
+     */
+    private volatile boolean done;
+
+    /**
+     * Create a new scheduler without any loaders.
+     */
+    ResourceLoaderScheduler() {
+        entries = new ArrayList<Entry>();
+        entryMap = new IdentityHashMap<AbstractResourceLoader<?>, Entry>();
+    }
+
+    /**
+     * Add a loader to the scheduler.
+     *
+     * @param loader       the loader
+     * @param dependencies the loaders that need to be done before this loader is started, they have to be added to
+     *                     the scheduler before
+     * @throws IllegalStateException    in case the scheduler is already started
+     * @throws IllegalArgumentException in case one of the dependencies was not added before
+     */
+    synchronized void addLoader(@Nonnull final AbstractResourceLoader<? extends Resource> loader,
+                                @Nonnull final AbstractResourceLoader<?>... dependencies) {
+        if (executor != null) {
+            throw new IllegalStateException("Adding loaders after the scheduler was started is not allowed.");
+        }
+        final Entry entry = new Entry(loader);
+        for (final AbstractResourceLoader<?> dependency : dependencies) {
+            @Nullable final Entry dependencyEntry = entryMap.get(dependency);
+            if (dependencyEntry == null) {
+                throw new IllegalArgumentException("Dependency was not added to the scheduler: " +
+                        dependency.getClass().getSimpleName());
+            }
+            dependencyEntry.dependents.add(entry);
+            entry.openDependencies++;
+        }
+        entries.add(entry);
+        entryMap.put(loader, entry);
+    }
+
+    /**
+     * Start all loaders that do not depend on other loaders.
+     *
+     * @param service the executor that runs the loaders
+     * @throws IllegalStateException in case the scheduler is already started
+     */
+    synchronized void start(@Nonnull final ExecutorService service) {
+        if (executor != null) {
+            throw new IllegalStateException("The scheduler is already started.");
+        }
+        executor = service;
+        startTime = System.nanoTime();
+        startDecryptedBytes = Crypto.getDecryptedBytes();
+        startDecryptionTime = Crypto.getDecryptionTime();
+        if (entries.isEmpty()) {
+            done = true;
+            return;
+        }
+        for (final Entry entry : entries) {
+            if (entry.openDependencies == 0) {
+                submit(entry);
+            }
+        }
+    }
+
+    /**
+     * Check if all loaders are finished.
+     *
+     * @return {@code true} in case all loaders are done, failed or got skipped
+     */
+    boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Hand a loader to the executor.
+     *
+     * @param entry the entry of the loader
+     */
+    private void submit(@Nonnull final Entry entry) {
+        entry.readyTime = System.nanoTime();
+        assert executor != null;
+        executor.submit(entry);
+    }
+
+    /**
+     * Called once a loader is finished. This starts the loaders that were waiting for it.
+     *
+     * @param entry the entry of the loader
+     */
+    private synchronized void onFinished(@Nonnull final Entry entry) {
+        finishedCount++;
+        for (final Entry dependent : entry.dependents) {
+            if (entry.failed) {
+                skip(dependent, entry);
+            } else {
+                dependent.openDependencies--;
+                if ((dependent.openDependencies == 0) && !dependent.failed) {
+                    submit(dependent);
+                }
+            }
+        }
+
+        if (finishedCount == entries.size()) {
+            logTimings();
+            done = true;
+        }
+    }
+
+    /**
+     * Skip a loader and all loaders depending on it, because one of its dependencies failed.
+     *
+     * @param entry the entry of the loader that is skipped
+     * @param cause the entry of the loader that failed
+     */
+    private void skip(@Nonnull final Entry entry, @Nonnull final Entry cause) {
+        if (entry.failed) {
+            return;
+        }
+        LOGGER.error("Skipping " + entry.getName() + ", because " + cause.getName() + " failed.");
+        entry.failed = true;
+        finishedCount++;
+        for (final Entry dependent : entry.dependents) {
+            skip(dependent, cause);
+        }
+    }
+
+    /**
+     * Write the time spent by each loader to the log.
+     */
+    private void logTimings() {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("Resource tables loaded in ");
+        builder.append(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime)).append("ms");
+
+        final long decryptedBytes = Crypto.getDecryptedBytes() - startDecryptedBytes;
+        final long decryptionTime = Crypto.getDecryptionTime() - startDecryptionTime;
+        builder.append("\n    Decryption: ").append(decryptedBytes / 1024L).append("kB in ");
+        builder.append(TimeUnit.NANOSECONDS.toMillis(decryptionTime)).append("ms");
+        if (decryptionTime > 0L) {
+            builder.append(" (").append((decryptedBytes * 1000L) / decryptionTime).append("MB/s per thread)");
+        }
+        for (final Entry entry : entries) {
+            builder.append("\n    ").append(entry.getName()).append(": ");
+            if (entry.endTime == 0L) {
+                builder.append("skipped");
+                continue;
+            }
+            builder.append(TimeUnit.NANOSECONDS.toMillis(entry.endTime - entry.beginTime)).append("ms");
+            builder.append(" (queued ").append(TimeUnit.NANOSECONDS.toMillis(entry.beginTime - entry.readyTime));
+            builder.append("ms, started after ").append(TimeUnit.NANOSECONDS.toMillis(entry.beginTime - startTime));
+            builder.append("ms)");
+            if (entry.failed) {
+                builder.append(" failed");
+            }
+        }
+        LOGGER.info(builder.toString());
+    }
+
+    /**
+     * This is the entry of one loader in the scheduler.
+     */
+    private final class Entry implements Runnable {
+        /**
+         * The loader.
+         */
+        @Nonnull
+        private final AbstractResourceLoader<? extends Resource> loader;
+
+        /**
+         * The entries of the loaders that depend on this loader.
+         */
+        @Nonnull
+        private final List<Entry> dependents;
+
+        /**
+         * The amount of dependencies of this loader that are not done yet.
+         */
+        private int openDependencies;
+
+        /**
+         * This flag is {@code true} in case the loader failed or got skipped.
+         */
+        private boolean failed;
+
+        /**
+         * The time the loader was handed to the executor in nanoseconds.
+         */
+        private long readyTime;
+
+        /**
+         * The time the loader started working in nanoseconds.
+         */
+        private long beginTime;
+
+        /**
+         * The time the loader finished working in nanoseconds or {@code 0} in case it did not run yet.
+         */
+        private long endTime;
+
+        /**
+         * Create a new entry.
+         *
+         * @param loader the loader
+         */
+        Entry(@Nonnull final AbstractResourceLoader<? extends Resource> loader) {
+            this.loader = loader;
+            dependents = new ArrayList<Entry>();
+        }
+
+        /**
+         * Get the name of the loader that is used in the log output.
+         *
+         * @return the name of the loader
+         */
+        @Nonnull
+        String getName() {
+            return loader.getClass().getSimpleName();
+        }
+
+        @Override
+        public void run() {
+            beginTime = System.nanoTime();
+            failed = true;
+            try {
+                loader.call();
+                failed = false;
+            } catch (@Nonnull final Exception e) {
+                LOGGER.error("Error while loading the resource table with " + getName(), e);
+            } finally {
+                endTime = System.nanoTime();
+                onFinished(this);
+            }
+        }
+    }
+}
@@ -20,16 +20,16 @@ package illarion.client.loading;
 
 import illarion.client.resources.*;
 import illarion.client.resources.loaders.*;
+import illarion.client.util.GlobalExecutorService;
 import illarion.common.util.ProgressMonitor;
 import org.illarion.engine.Engine;
 
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.NotThreadSafe;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
- * This class is used to allow the loading sequence of the client to load the resource tables.
+ * This class is used to allow the loading sequence of the client to load the resource tables. The tables are load
+ * by the {@link ResourceLoaderScheduler} in parallel as far as the dependencies between the tables allow it.
  *
  * @author Martin Karing &lt;nitram@illarion.org&gt;
  */
@@ -42,10 +42,10 @@ final class ResourceTableLoading implements LoadingTask {
     private final ProgressMonitor progressMonitor;
 
     /**
-     * The list of tasks that need to be finished during the resource table loading.
+     * The scheduler that runs the loaders of the resource tables.
      */
     @Nonnull
-    private final List<AbstractResourceLoader<? extends Resource>> taskList;
+    private final ResourceLoaderScheduler scheduler;
 
     /**
      * This is set {@code true} once the loading was triggered.
@@ -58,62 +58,48 @@ final class ResourceTableLoading implements LoadingTask {
      * @param gameEngine the engine of the game
      */
     ResourceTableLoading(@Nonnull final Engine gameEngine) {
-        taskList = new ArrayList<AbstractResourceLoader<? extends Resource>>();
+        scheduler = new ResourceLoaderScheduler();
         progressMonitor = new ProgressMonitor();
 
         addTask(new TileLoader(gameEngine.getAssets()), TileFactory.getInstance());
         addTask(new OverlayLoader(gameEngine.getAssets()), OverlayFactory.getInstance());
         addTask(new ItemLoader(gameEngine.getAssets()), ItemFactory.getInstance());
-        addTask(new CharacterLoader(gameEngine.getAssets()), CharacterFactory.getInstance());
-        addTask(new ClothLoader(gameEngine.getAssets()), new ClothFactoryRelay());
+        final CharacterLoader characterLoader = new CharacterLoader(gameEngine.getAssets());
+        addTask(characterLoader, CharacterFactory.getInstance());
+        addTask(new ClothLoader(gameEngine.getAssets()), new ClothFactoryRelay(), characterLoader);
         addTask(new EffectLoader(gameEngine.getAssets()), EffectFactory.getInstance());
         addTask(new MiscImageLoader(gameEngine.getAssets()), MiscImageFactory.getInstance());
         addTask(new BookLoader(), BookFactory.getInstance());
     }
 
     /**
-     * Add a task to the list of tasks and to the progress monitor.
+     * Add a task to the scheduler and to the progress monitor.
      *
-     * @param loader  the loader of this task
-     * @param factory the factory that is supposed to be filled
-     * @param <T>     the resource type that is load in this case
+     * @param loader       the loader of this task
+     * @param factory      the factory that is supposed to be filled
+     * @param dependencies the loaders that need to be done before this loader is started
+     * @param <T>          the resource type that is load in this case
      */
     private <T extends Resource> void addTask(@Nonnull final AbstractResourceLoader<T> loader,
-                                              @Nonnull final ResourceFactory<T> factory) {
+                                              @Nonnull final ResourceFactory<T> factory,
+                                              @Nonnull final AbstractResourceLoader<?>... dependencies) {
         loader.setTarget(factory);
         progressMonitor.addChild(loader.getProgressMonitor());
-        taskList.add(loader);
+        scheduler.addLoader(loader, dependencies);
     }
 
     @Override
     public void load() {
-        if (!taskList.isEmpty()) {
-            final AbstractResourceLoader<? extends Resource> loader = taskList.remove(0);
-            try {
-                loader.call();
-            } catch (Exception e) {
-                e.printStackTrace(System.err);
-            }
+        if (loadingTriggered) {
+            return;
         }
-        //if (loadingTriggered) {
-        //    return;
-        //}
-        //loadingTriggered = true;
-
-        //for (final AbstractResourceLoader<? extends Resource> loader : taskList) {
-        //    GlobalExecutorService.getService().submit(loader);
-        //}
+        loadingTriggered = true;
+        scheduler.start(GlobalExecutorService.getComputeService());
     }
 
     @Override
     public boolean isLoadingDone() {
-        for (final AbstractResourceLoader<? extends Resource> loader : taskList) {
-            if (!loader.isLoadingDone()) {
-                return false;
-            }
-        }
-
-        return true;
+        return scheduler.isDone();
     }
 
     @Nonnull
@@ -121,5 +107,4 @@ final class ResourceTableLoading implements LoadingTask {
     public ProgressMonitor getProgressMonitor() {
         return progressMonitor;
     }
-
 }
@@ -24,6 +24,7 @@ import illarion.common.util.ProgressMonitor;
 import org.illarion.engine.Engine;
 
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -59,19 +60,31 @@ class SoundLoadingTask implements LoadingTask {
     /**
      * The amount of resources to load before the loading started.
      */
-    private final int initialAmount;
+    private int initialAmount;
+
+    /**
+     * This flag is set {@code true} once the names of the songs and sounds were fetched from the factories. This is
+     * delayed until the first loading step, because the factories are filled by the resource tables that may still
+     * be loading when this task is created.
+     */
+    private boolean namesFetched;
 
     SoundLoadingTask(@Nonnull final Engine engine) {
         this.engine = engine;
         monitor = new ProgressMonitor(3.f);
 
-        songsToLoad = SongFactory.getInstance().getSongNames();
-        soundsToLoad = SoundFactory.getInstance().getSoundNames();
-        initialAmount = songsToLoad.size() + soundsToLoad.size();
+        songsToLoad = new ArrayList<String>();
+        soundsToLoad = new ArrayList<String>();
     }
 
     @Override
     public void load() {
+        if (!namesFetched) {
+            songsToLoad.addAll(SongFactory.getInstance().getSongNames());
+            soundsToLoad.addAll(SoundFactory.getInstance().getSoundNames());
+            initialAmount = songsToLoad.size() + soundsToLoad.size();
+            namesFetched = true;
+        }
         if (!songsToLoad.isEmpty()) {
             SongFactory.getInstance().loadSong(engine.getAssets().getSoundsManager(),
                     songsToLoad.remove(songsToLoad.size() - 1));
@@ -80,12 +93,16 @@ class SoundLoadingTask implements LoadingTask {
                     soundsToLoad.remove(soundsToLoad.size() - 1));
         }
 
-        monitor.setProgress(1.f - ((float) (songsToLoad.size() + soundsToLoad.size()) / (float) initialAmount));
+        if (initialAmount == 0) {
+            monitor.setProgress(1.f);
+        } else {
+            monitor.setProgress(1.f - ((float) (songsToLoad.size() + soundsToLoad.size()) / (float) initialAmount));
+        }
     }
 
     @Override
     public boolean isLoadingDone() {
-        return songsToLoad.isEmpty() && soundsToLoad.isEmpty();
+        return namesFetched && songsToLoad.isEmpty() && soundsToLoad.isEmpty();
     }
 
     @Nonnull
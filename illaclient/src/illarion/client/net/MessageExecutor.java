@@ -23,6 +23,7 @@ import illarion.client.IllaClient;
 import illarion.client.net.server.AbstractReply;
 import illarion.common.util.Stoppable;
 import org.apache.log4j.Logger;
+import org.illarion.engine.profiler.FrameProfiler;
 
 import javax.annotation.Nonnull;
 import java.util.LinkedList;
@@ -107,7 +108,9 @@ final class MessageExecutor extends Thread implements Stoppable {
              */
             if (!delayedQueue.isEmpty() && delayedQueue.peek().processNow()) {
                 final AbstractReply rpl = delayedQueue.poll();
+                final long executeStart = FrameProfiler.getInstance().start();
                 rpl.executeUpdate();
+                FrameProfiler.getInstance().recordSpan("Network execute", executeStart);
                 continue;
             }
 
@@ -134,7 +137,10 @@ final class MessageExecutor extends Thread implements Stoppable {
                     LOGGER.debug("executing " + rpl.toString());
                 }
 
-                if (rpl.executeUpdate()) {
+                final long executeStart = FrameProfiler.getInstance().start();
+                final boolean executed = rpl.executeUpdate();
+                FrameProfiler.getInstance().recordSpan("Network execute", executeStart);
+                if (executed) {
                     if (IllaClient.isDebug(Debug.net)) {
                         LOGGER.debug("finished " + rpl.toString());
                     }
@@ -24,6 +24,7 @@ import illarion.client.net.server.AbstractReply;
 import illarion.client.util.Lang;
 import illarion.common.net.NetCommReader;
 import org.apache.log4j.Logger;
+import org.illarion.engine.profiler.FrameProfiler;
 
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.NotThreadSafe;
@@ -316,9 +317,11 @@ final class Receiver extends Thread implements NetCommReader {
 
                         // decode
                         try {
+                            final long decodeStart = FrameProfiler.getInstance().start();
                             final AbstractReply rpl = ReplyFactory.getInstance().getReply(id);
                             if (rpl != null) {
                                 rpl.decode(this);
+                                FrameProfiler.getInstance().recordSpan("Network decode", decodeStart);
 
                                 if (IllaClient.isDebug(Debug.protocol)) {
                                     LOGGER.debug("REC: " + rpl.toString());
@@ -22,6 +22,7 @@ import illarion.client.graphics.AvatarClothManager;
 import illarion.client.net.CommandList;
 import illarion.client.net.annotations.ReplyMessage;
 import illarion.client.net.server.events.AttributeUpdateReceivedEvent;
+import illarion.client.util.EventDispatcher;
 import illarion.client.world.Char;
 import illarion.client.world.World;
 import illarion.client.world.characters.CharacterAttribute;
@@ -30,7 +31,6 @@ import illarion.common.net.NetCommReader;
 import illarion.common.types.CharacterId;
 import illarion.common.types.ItemId;
 import org.apache.log4j.Logger;
-import org.bushe.swing.event.EventBus;
 import org.illarion.engine.graphic.Color;
 
 import javax.annotation.Nonnull;
@@ -231,7 +231,7 @@ public final class AppearanceMsg extends AbstractReply {
 
         character.setVisible(World.getPlayer().canSee(character));
 
-        EventBus.publish(new AttributeUpdateReceivedEvent(charId, CharacterAttribute.HitPoints, hitPoints));
+        EventDispatcher.getInstance().publish(new AttributeUpdateReceivedEvent(charId, CharacterAttribute.HitPoints, hitPoints));
         return true;
     }
 
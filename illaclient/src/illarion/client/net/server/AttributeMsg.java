@@ -21,10 +21,10 @@ package illarion.client.net.server;
 import illarion.client.net.CommandList;
 import illarion.client.net.annotations.ReplyMessage;
 import illarion.client.net.server.events.AttributeUpdateReceivedEvent;
+import illarion.client.util.EventDispatcher;
 import illarion.client.world.characters.CharacterAttribute;
 import illarion.common.net.NetCommReader;
 import illarion.common.types.CharacterId;
-import org.bushe.swing.event.EventBus;
 
 import javax.annotation.Nonnull;
 import java.io.IOException;
@@ -84,7 +84,7 @@ public final class AttributeMsg extends AbstractReply {
     public boolean executeUpdate() {
         for (final CharacterAttribute charAttribute : CharacterAttribute.values()) {
             if (charAttribute.getServerName().equals(attribute)) {
-                EventBus.publish(new AttributeUpdateReceivedEvent(targetCharacter, charAttribute, value));
+                EventDispatcher.getInstance().publish(new AttributeUpdateReceivedEvent(targetCharacter, charAttribute, value));
             }
         }
         return true;
@@ -21,6 +21,7 @@ package illarion.client.net.server;
 import illarion.client.net.CommandList;
 import illarion.client.net.annotations.ReplyMessage;
 import illarion.client.resources.SoundFactory;
+import illarion.client.util.UpdatePriority;
 import illarion.client.util.UpdateTask;
 import illarion.client.world.World;
 import illarion.common.net.NetCommReader;
@@ -76,7 +77,7 @@ public final class SoundEffectMsg extends AbstractReply implements UpdateTask {
      */
     @Override
     public boolean executeUpdate() {
-        World.getUpdateTaskManager().addTask(this);
+        World.getUpdateTaskManager().addTask(this, UpdatePriority.Cosmetic);
         return true;
     }
 
@@ -19,26 +19,42 @@
 package illarion.client.resources;
 
 import illarion.client.resources.data.ResourceTemplate;
+import org.apache.log4j.Logger;
 
 import javax.annotation.Nonnull;
-import javax.annotation.concurrent.NotThreadSafe;
-import java.util.HashMap;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The purpose of this class is to store and retrieve the templates that were load from the resources. Those
  * templates are later on used to create the actual objects.
+ * <p />
+ * While loading, the templates are stored in a concurrent map. Once {@link #loadingFinished()} is called, the
+ * templates are moved to a {@link TemplateRegistry} that is read without boxing the IDs and without locking.
  *
  * @author Martin Karing &lt;nitram@illarion.org&gt;
  */
-@NotThreadSafe
+@ThreadSafe
 public abstract class AbstractTemplateFactory<T extends ResourceTemplate> implements ResourceFactory<T> {
     /**
-     * The map that is used to store the resources.
+     * The logger that provides the logging output of this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(AbstractTemplateFactory.class);
+
+    /**
+     * The map that is used to store the resources while they are load.
      */
     @Nonnull
     private final Map<Integer, T> storage;
 
+    /**
+     * The frozen storage of the resources or {@code null} in case the loading is not finished yet.
+     */
+    @Nullable
+    private volatile TemplateRegistry<T> registry;
+
     /**
      * The ID used in case the requested object does not exist.
      */
@@ -55,32 +71,86 @@ public abstract class AbstractTemplateFactory<T extends ResourceTemplate> implem
      * The default constructor.
      */
     protected AbstractTemplateFactory(final int defaultId) {
-        storage = new HashMap<Integer, T>();
+        storage = new ConcurrentHashMap<Integer, T>();
         this.defaultId = defaultId;
     }
 
     @Override
     public void storeResource(final T resource) {
-        storage.put(resource.getTemplateId(), resource);
+        @Nullable final TemplateRegistry<T> currentRegistry = registry;
+        if (currentRegistry == null) {
+            storage.put(resource.getTemplateId(), resource);
+            return;
+        }
+
+        synchronized (storage) {
+            currentRegistry.copyTo(storage);
+            storage.put(resource.getTemplateId(), resource);
+            registry = new TemplateRegistry<T>(storage);
+            storage.clear();
+        }
     }
 
     @Override
     public void loadingFinished() {
+        synchronized (storage) {
+            @Nullable final TemplateRegistry<T> currentRegistry = registry;
+            if (currentRegistry != null) {
+                currentRegistry.copyTo(storage);
+            }
+            final TemplateRegistry<T> newRegistry = new TemplateRegistry<T>(storage);
+            registry = newRegistry;
+            storage.clear();
+
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug(getClass().getSimpleName() + ": " + newRegistry.size() + " templates in " +
+                        (newRegistry.isDense() ? "dense array" : "hash table") + ", " +
+                        newRegistry.getMemoryFootprint() + " bytes");
+            }
+        }
     }
 
     @Override
     public void init() {
     }
 
+    /**
+     * Get the estimated amount of memory used to store the templates, not counting the templates themselves.
+     *
+     * @return the memory footprint in bytes or {@code 0} in case the loading is not finished yet
+     */
+    public long getMemoryFootprint() {
+        @Nullable final TemplateRegistry<T> currentRegistry = registry;
+        if (currentRegistry == null) {
+            return 0L;
+        }
+        return currentRegistry.getMemoryFootprint();
+    }
+
+    /**
+     * Get a template from the storage.
+     *
+     * @param templateId the ID of the template
+     * @return the template or {@code null} in case there is no template with this ID
+     */
+    @Nullable
+    private T findTemplate(final int templateId) {
+        @Nullable final TemplateRegistry<T> currentRegistry = registry;
+        if (currentRegistry != null) {
+            return currentRegistry.get(templateId);
+        }
+        return storage.get(templateId);
+    }
+
     public boolean hasTemplate(final int templateId) {
-        return storage.get(templateId) != null;
+        return findTemplate(templateId) != null;
     }
 
     @Nonnull
     public T getTemplate(final int templateId) {
-        final T object = storage.get(templateId);
+        final T object = findTemplate(templateId);
         if ((object == null) && (defaultId > -1)) {
-            final T defaultObject = storage.get(defaultId);
+            final T defaultObject = findTemplate(defaultId);
             if (defaultObject == null) {
                 throw new IllegalStateException("Requested object and the default object were not found.");
             }
@@ -34,6 +34,7 @@ import java.lang.ref.SoftReference;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The book factory stores the references to the books.
@@ -77,7 +78,7 @@ public final class BookFactory implements ResourceFactory<IdWrapper<String>> {
      * Default constructor.
      */
     private BookFactory() {
-        fileMap = new HashMap<Integer, String>();
+        fileMap = new ConcurrentHashMap<Integer, String>();
         bookMap = new HashMap<Integer, Reference<Book>>();
     }
 
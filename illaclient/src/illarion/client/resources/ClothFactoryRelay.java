@@ -43,7 +43,7 @@ public final class ClothFactoryRelay implements ResourceFactory<AvatarClothTempl
      * Initialize the factory for loading the resources.
      */
     @Override
-    public void init() {
+    public synchronized void init() {
         usedAvatars = new ArrayList<AvatarTemplate>();
     }
 
@@ -51,7 +51,7 @@ public final class ClothFactoryRelay implements ResourceFactory<AvatarClothTempl
      * Finish the loading and optimize the factory for normal operation.
      */
     @Override
-    public void loadingFinished() {
+    public synchronized void loadingFinished() {
         for (final AvatarTemplate ava : usedAvatars) {
             ava.getClothes().finish();
         }
@@ -63,7 +63,7 @@ public final class ClothFactoryRelay implements ResourceFactory<AvatarClothTempl
      * charge of maintaining this resource.
      */
     @Override
-    public void storeResource(@Nonnull final AvatarClothTemplate resource) {
+    public synchronized void storeResource(@Nonnull final AvatarClothTemplate resource) {
         final AvatarTemplate avatarTemplate = CharacterFactory.getInstance().getTemplate(resource.getAvatarId());
         final AvatarClothManager manager = avatarTemplate.getClothes();
         manager.addCloth(resource.getClothSlot(), resource);
@@ -37,7 +37,8 @@ public interface ResourceFactory<T extends Resource> {
     void loadingFinished();
 
     /**
-     * Store a resource in this factory.
+     * Store a resource in this factory. The loaders of the different resource tables run at the same time, so this
+     * function has to be safe to be called while other factories are filled or read by other threads.
      *
      * @param resource the resource to store
      */
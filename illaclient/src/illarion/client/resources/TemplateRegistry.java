@@ -0,0 +1,216 @@
+/*
+ * This file is part of the Illarion Client.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Client.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.client.resources;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.util.Map;
+
+/**
+ * This is the frozen storage of the templates of a factory. The templates are stored in a array that is indexed by
+ * the template ID in case the IDs are dense enough. Otherwise they are stored in a open addressing hash table with
+ * primitive keys. Either way, looking up a template does not box the ID and does not require any locking.
+ * <p />
+ * The storage that uses less memory is selected. The dense array needs one reference for each ID between the
+ * smallest and the largest ID, the hash table needs one key and one reference for each slot.
+ *
+ * @param <T> the type of the templates
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+@Immutable
+final class TemplateRegistry<T> {
+    /**
+     * The assumed size of a object header in bytes. This is used to estimate the memory footprint.
+     */
+    private static final int OBJECT_HEADER_SIZE = 16;
+
+    /**
+     * The assumed size of a reference in bytes. This is used to estimate the memory footprint.
+     */
+    private static final int REFERENCE_SIZE = 4;
+
+    /**
+     * The smallest ID stored in the dense array.
+     */
+    private final int firstId;
+
+    /**
+     * The keys of the hash table or {@code null} in case the dense array is used.
+     */
+    @Nullable
+    private final int[] keys;
+
+    /**
+     * The templates. In case the dense array is used, this array is indexed by the ID minus {@link #firstId}.
+     * Otherwise the index is the slot of the hash table.
+     */
+    @Nonnull
+    private final Object[] values;
+
+    /**
+     * The amount of templates stored.
+     */
+    private final int size;
+
+    /**
+     * Create a new registry that contains the templates of a map.
+     *
+     * @param templates the templates stored by their ID
+     */
+    TemplateRegistry(@Nonnull final Map<Integer, T> templates) {
+        size = templates.size();
+        if (size == 0) {
+            firstId = 0;
+            keys = null;
+            values = new Object[0];
+            return;
+        }
+
+        int minId = Integer.MAX_VALUE;
+        int maxId = Integer.MIN_VALUE;
+        for (final Integer id : templates.keySet()) {
+            minId = Math.min(minId, id);
+            maxId = Math.max(maxId, id);
+        }
+
+        final long span = ((long) maxId - minId) + 1L;
+        final int capacity = getHashCapacity(size);
+        if (span <= (capacity * 2L)) {
+            firstId = minId;
+            keys = null;
+            values = new Object[(int) span];
+            for (final Map.Entry<Integer, T> entry : templates.entrySet()) {
+                values[entry.getKey() - minId] = entry.getValue();
+            }
+        } else {
+            firstId = 0;
+            keys = new int[capacity];
+            values = new Object[capacity];
+            final int mask = capacity - 1;
+            for (final Map.Entry<Integer, T> entry : templates.entrySet()) {
+                int slot = mix(entry.getKey()) & mask;
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = entry.getKey();
+                values[slot] = entry.getValue();
+            }
+        }
+    }
+
+    /**
+     * Get the capacity of the hash table for a amount of templates. The capacity is a power of two and the table is
+     * at most half full.
+     *
+     * @param count the amount of templates
+     * @return the capacity
+     */
+    private static int getHashCapacity(final int count) {
+        int capacity = 2;
+        while (capacity < (count * 2)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * Spread the bits of a ID, so IDs that follow each other do not end up in neighbouring slots.
+     *
+     * @param id the ID
+     * @return the mixed value
+     */
+    private static int mix(final int id) {
+        final int hash = id * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Get a template.
+     *
+     * @param id the ID of the template
+     * @return the template or {@code null} in case there is no template with this ID
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    T get(final int id) {
+        if (keys == null) {
+            final int index = id - firstId;
+            if ((index < 0) || (index >= values.length)) {
+                return null;
+            }
+            return (T) values[index];
+        }
+
+        final int mask = values.length - 1;
+        int slot = mix(id) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == id) {
+                return (T) values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Copy all templates of this registry to a map.
+     *
+     * @param target the map that receives the templates
+     */
+    @SuppressWarnings("unchecked")
+    void copyTo(@Nonnull final Map<Integer, T> target) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                target.put((keys == null) ? (firstId + i) : keys[i], (T) values[i]);
+            }
+        }
+    }
+
+    /**
+     * Get the amount of templates in this registry.
+     *
+     * @return the amount of templates
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Check if the templates are stored in a array indexed by the ID.
+     *
+     * @return {@code true} in case the dense array is used, {@code false} in case the hash table is used
+     */
+    boolean isDense() {
+        return keys == null;
+    }
+
+    /**
+     * Get the estimated amount of memory used by this registry, not counting the templates themselves.
+     *
+     * @return the memory footprint in bytes
+     */
+    long getMemoryFootprint() {
+        long footprint = OBJECT_HEADER_SIZE + ((long) values.length * REFERENCE_SIZE);
+        if (keys != null) {
+            footprint += OBJECT_HEADER_SIZE + ((long) keys.length * 4L);
+        }
+        return footprint;
+    }
+}
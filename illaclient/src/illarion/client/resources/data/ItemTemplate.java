@@ -18,7 +18,7 @@
  */
 package illarion.client.resources.data;
 
-import illarion.client.graphics.FrameAnimation;
+import illarion.client.graphics.AnimationClock;
 import illarion.common.graphics.ItemInfo;
 import org.illarion.engine.graphic.Color;
 import org.illarion.engine.graphic.Sprite;
@@ -69,7 +69,7 @@ public class ItemTemplate extends AbstractAnimatedEntityTemplate {
      * The sharedAnimation instance all the items share.
      */
     @Nonnull
-    private final FrameAnimation sharedAnimation;
+    private final AnimationClock sharedAnimation;
 
     /**
      * The constructor of this class.
@@ -93,8 +93,7 @@ public class ItemTemplate extends AbstractAnimatedEntityTemplate {
         this.itemInfo = itemInfo;
         this.paperdollingId = paperdollingId;
         this.paperdollingColor = paperdollingColor;
-        sharedAnimation = new FrameAnimation();
-        sharedAnimation.setup(frames, 0, speed, FrameAnimation.LOOPED);
+        sharedAnimation = new AnimationClock(frames, speed);
         this.guiTexture = guiTexture;
     }
 
@@ -122,7 +121,7 @@ public class ItemTemplate extends AbstractAnimatedEntityTemplate {
     }
 
     @Nonnull
-    public FrameAnimation getSharedAnimation() {
+    public AnimationClock getSharedAnimation() {
         return sharedAnimation;
     }
 }
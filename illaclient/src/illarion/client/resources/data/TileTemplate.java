@@ -18,7 +18,7 @@
  */
 package illarion.client.resources.data;
 
-import illarion.client.graphics.FrameAnimation;
+import illarion.client.graphics.AnimationClock;
 import illarion.common.graphics.TileInfo;
 import org.illarion.engine.graphic.Sprite;
 
@@ -42,7 +42,7 @@ public class TileTemplate extends AbstractAnimatedEntityTemplate {
     /**
      * All tiles of one type share a single animation.
      */
-    private final FrameAnimation sharedAnimation;
+    private final AnimationClock sharedAnimation;
 
     /**
      * The constructor of this class.
@@ -57,15 +57,14 @@ public class TileTemplate extends AbstractAnimatedEntityTemplate {
                         @Nonnull final TileInfo tileInfo) {
         super(id, sprite, frames, 0, speed, null, 0);
         this.tileInfo = tileInfo;
-        sharedAnimation = new FrameAnimation(null);
-        sharedAnimation.setup(frames, 0, speed, FrameAnimation.LOOPED);
+        sharedAnimation = new AnimationClock(frames, speed);
     }
 
     public TileInfo getTileInfo() {
         return tileInfo;
     }
 
-    public FrameAnimation getSharedAnimation() {
+    public AnimationClock getSharedAnimation() {
         return sharedAnimation;
     }
 }
@@ -112,7 +112,7 @@ public abstract class AbstractResourceLoader<T extends Resource> implements Call
     /**
      * This variable is set {@code true} once the loading is done.
      */
-    private boolean loadingDone;
+    private volatile boolean loadingDone;
 
     /**
      * Report the loading progress as done.
@@ -39,9 +39,20 @@ public final class LoadingState implements GameState {
     private LoadScreenController controller;
 
     /**
-     * The manager of the loading tasks.
+     * The manager of the loading tasks. The loading steps are performed by the game for every frame, this state only
+     * waits for the loading to finish.
      */
-    private final Loading loadingManager = new Loading();
+    @Nonnull
+    private final Loading loadingManager;
+
+    /**
+     * Create the loading state.
+     *
+     * @param loading the manager of the loading tasks that is shared with the game
+     */
+    public LoadingState(@Nonnull final Loading loading) {
+        loadingManager = loading;
+    }
 
     @Override
     public void create(@Nonnull final Game game, @Nonnull final GameContainer container, @Nonnull final Nifty nifty) {
@@ -65,7 +76,6 @@ public final class LoadingState implements GameState {
 
     @Override
     public void render(@Nonnull final GameContainer container) {
-        loadingManager.load();
         controller.setProgress(loadingManager.getProgress());
 
         if (loadingManager.isLoadingDone()) {
@@ -27,6 +27,8 @@ import illarion.client.world.World;
 import illarion.client.world.events.CloseGameEvent;
 import org.bushe.swing.event.EventBus;
 import org.illarion.engine.GameContainer;
+import org.illarion.engine.profiler.FrameProfiler;
+import org.illarion.engine.profiler.ProfilerSection;
 
 import javax.annotation.Nonnull;
 
@@ -36,6 +38,24 @@ import javax.annotation.Nonnull;
  * @author Martin Karing &lt;nitram@illarion.org&gt;
  */
 public class PlayingState implements GameState {
+    /**
+     * The profiler section that measures the execution of the update tasks.
+     */
+    @Nonnull
+    private static final ProfilerSection UPDATE_TASKS = FrameProfiler.getInstance().getSection("Update tasks");
+
+    /**
+     * The profiler section that measures the update of the map display.
+     */
+    @Nonnull
+    private static final ProfilerSection MAP_DISPLAY = FrameProfiler.getInstance().getSection("Map display");
+
+    /**
+     * The profiler section that measures the update of the animations.
+     */
+    @Nonnull
+    private static final ProfilerSection ANIMATIONS = FrameProfiler.getInstance().getSection("Animations");
+
     /**
      * The input receiver of the game.
      */
@@ -66,12 +86,20 @@ public class PlayingState implements GameState {
     @Override
     public void update(@Nonnull final GameContainer container, final int delta) {
         if (World.getGameGui().isReady()) {
+            final long updateTasksStart = UPDATE_TASKS.start();
             World.getUpdateTaskManager().onUpdateGame(container, delta);
+            UPDATE_TASKS.stop(updateTasksStart);
         }
         World.getGameGui().onUpdateGame(container, delta);
         World.getWeather().update(delta);
+
+        final long mapDisplayStart = MAP_DISPLAY.start();
         World.getMapDisplay().update(container, delta);
+        MAP_DISPLAY.stop(mapDisplayStart);
+
+        final long animationsStart = ANIMATIONS.start();
         World.getAnimationManager().animate(delta);
+        ANIMATIONS.stop(animationsStart);
         World.getMusicBox().update();
     }
 
@@ -0,0 +1,476 @@
+/*
+ * This file is part of the Illarion Client.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Client.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.client.util;
+
+import illarion.common.types.Location;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+
+/**
+ * This is the A* search used by the {@link Pathfinder}. The search works on a square window of tiles centered on the
+ * start location. The window reaches as far as the longest path allowed, so every tile the search can reach has a
+ * fixed index in the window.
+ * <p />
+ * All values of the nodes are stored in primitive arrays indexed by the node index and the open list is a binary heap
+ * of node indices that supports lowering the cost of a node that is already in the heap. The arrays are only
+ * allocated again in case the maximal path length changes. Instead of clearing the arrays before every search, each
+ * node stores the number of the search that touched it last. Nodes with a older number are treated as unknown.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+@NotThreadSafe
+final class AStarSearch {
+    /**
+     * Minimum cost of a one step to the next tile. This is used for the heuristic of the path finding.
+     */
+    private static final int MIN_MOVE_COST = 5;
+
+    /**
+     * The state of a node that was not reached yet during the current search.
+     */
+    private static final byte STATE_NEW = 0;
+
+    /**
+     * The state of a node that is in the open list.
+     */
+    private static final byte STATE_OPEN = 1;
+
+    /**
+     * The state of a node that was expanded already.
+     */
+    private static final byte STATE_CLOSED = 2;
+
+    /**
+     * The state of a node that can't be entered.
+     */
+    private static final byte STATE_BLOCKED = 3;
+
+    /**
+     * The offsets on the x axis of the eight neighbours of a tile.
+     */
+    private static final int[] NEIGHBOUR_X = {0, 1, 1, 1, 0, -1, -1, -1};
+
+    /**
+     * The offsets on the y axis of the eight neighbours of a tile.
+     */
+    private static final int[] NEIGHBOUR_Y = {-1, -1, 0, 1, 1, 1, 0, -1};
+
+    /**
+     * The maximal amount of steps of a path the arrays are prepared for.
+     */
+    private int maxLength;
+
+    /**
+     * The length of one side of the search window.
+     */
+    private int windowSize;
+
+    /**
+     * The number of the current search.
+     */
+    private int generation;
+
+    /**
+     * The number of the search that touched the node last.
+     */
+    private int[] touched;
+
+    /**
+     * The state of each node.
+     */
+    private byte[] state;
+
+    /**
+     * The cost of stepping onto the tile of each node.
+     */
+    private int[] tileCost;
+
+    /**
+     * The cost to reach each node from the start.
+     */
+    private int[] cost;
+
+    /**
+     * The cost to reach each node plus the estimated cost from the node to the destination.
+     */
+    private int[] estimate;
+
+    /**
+     * The index of the node the path reached each node from.
+     */
+    private int[] parent;
+
+    /**
+     * The amount of steps needed to reach each node.
+     */
+    private int[] depth;
+
+    /**
+     * The position of each node in the heap.
+     */
+    private int[] heapPosition;
+
+    /**
+     * The binary heap of the open nodes, ordered by {@link #estimate}.
+     */
+    private int[] heap;
+
+    /**
+     * The amount of nodes in the heap.
+     */
+    private int heapSize;
+
+    /**
+     * The x coordinate of the start location of the current search.
+     */
+    private int originX;
+
+    /**
+     * The y coordinate of the start location of the current search.
+     */
+    private int originY;
+
+    /**
+     * The level of the current search.
+     */
+    private int level;
+
+    /**
+     * The amount of nodes expanded during the last search.
+     */
+    private int expandedNodes;
+
+    /**
+     * This flag is set {@code true} in case the current search is supposed to stop as soon as possible.
+     */
+    private volatile boolean aborted;
+
+    /**
+     * The map the search reads the tiles from.
+     */
+    @Nonnull
+    private final SearchMap map;
+
+    /**
+     * Create a new search.
+     *
+     * @param map the map the search reads the tiles from
+     */
+    AStarSearch(@Nonnull final SearchMap map) {
+        this.map = map;
+    }
+
+    /**
+     * Search a path.
+     *
+     * @param start    the location the path starts at
+     * @param dest     the location the path ends at
+     * @param maxSteps the maximal amount of steps of the path
+     * @return the path or {@code null} in case there is no path with the allowed length or the search got aborted
+     */
+    @Nullable
+    Path search(@Nonnull final Location start, @Nonnull final Location dest, final int maxSteps) {
+        aborted = false;
+        expandedNodes = 0;
+        if ((start.getScZ() != dest.getScZ()) || (start.getDistance(dest) > maxSteps)) {
+            return null;
+        }
+        prepare(maxSteps);
+
+        originX = start.getScX();
+        originY = start.getScY();
+        level = start.getScZ();
+        final int destX = dest.getScX();
+        final int destY = dest.getScY();
+        final int destIndex = getIndex(destX, destY);
+        final int startIndex = getIndex(originX, originY);
+
+        touch(destIndex, destX, destY);
+        if (state[destIndex] == STATE_BLOCKED) {
+            return null;
+        }
+
+        touched[startIndex] = generation;
+        cost[startIndex] = 0;
+        depth[startIndex] = 0;
+        parent[startIndex] = -1;
+        estimate[startIndex] = MIN_MOVE_COST * start.getDistance(dest);
+        push(startIndex);
+
+        while (heapSize > 0) {
+            if (aborted) {
+                return null;
+            }
+            final int current = pop();
+            if (current == destIndex) {
+                return buildPath(current);
+            }
+            state[current] = STATE_CLOSED;
+            expandedNodes++;
+            if (depth[current] >= maxLength) {
+                continue;
+            }
+
+            final int currentX = getX(current);
+            final int currentY = getY(current);
+            for (int dir = 0; dir < NEIGHBOUR_X.length; dir++) {
+                final int nextX = currentX + NEIGHBOUR_X[dir];
+                final int nextY = currentY + NEIGHBOUR_Y[dir];
+                if (!isInWindow(nextX, nextY)) {
+                    continue;
+                }
+                final int next = getIndex(nextX, nextY);
+                touch(next, nextX, nextY);
+                if (state[next] == STATE_BLOCKED) {
+                    continue;
+                }
+
+                int stepCost = tileCost[next];
+                if ((NEIGHBOUR_X[dir] != 0) && (NEIGHBOUR_Y[dir] != 0)) {
+                    stepCost = (stepCost * 11) / 10;
+                }
+                final int newCost = cost[current] + stepCost;
+                if ((state[next] != STATE_NEW) && (newCost >= cost[next])) {
+                    continue;
+                }
+
+                cost[next] = newCost;
+                parent[next] = current;
+                depth[next] = depth[current] + 1;
+                estimate[next] = newCost + (MIN_MOVE_COST * Math.max(Math.abs(destX - nextX),
+                        Math.abs(destY - nextY)));
+                if (state[next] == STATE_OPEN) {
+                    siftUp(heapPosition[next]);
+                } else {
+                    push(next);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stop the search that is currently running. The search returns {@code null} at the next node.
+     */
+    void abort() {
+        aborted = true;
+    }
+
+    /**
+     * Get the amount of nodes that were expanded during the last search.
+     *
+     * @return the amount of expanded nodes
+     */
+    int getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    /**
+     * Prepare the arrays for a new search.
+     *
+     * @param maxSteps the maximal amount of steps of the path
+     */
+    private void prepare(final int maxSteps) {
+        if ((touched == null) || (maxSteps != maxLength)) {
+            maxLength = maxSteps;
+            windowSize = (maxSteps * 2) + 1;
+            final int nodeCount = windowSize * windowSize;
+            touched = new int[nodeCount];
+            state = new byte[nodeCount];
+            tileCost = new int[nodeCount];
+            cost = new int[nodeCount];
+            estimate = new int[nodeCount];
+            parent = new int[nodeCount];
+            depth = new int[nodeCount];
+            heapPosition = new int[nodeCount];
+            heap = new int[nodeCount];
+            generation = 0;
+        }
+        generation++;
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(touched, 0);
+            generation = 1;
+        }
+        heapSize = 0;
+    }
+
+    /**
+     * Make sure the state of a node is valid for the current search. In case the node was not touched during this
+     * search yet, the map is checked if the node is blocked and how much it costs to step onto it.
+     *
+     * @param index the index of the node
+     * @param x     the x coordinate of the node
+     * @param y     the y coordinate of the node
+     */
+    private void touch(final int index, final int x, final int y) {
+        if (touched[index] == generation) {
+            return;
+        }
+        touched[index] = generation;
+        final int movementCost = map.getMovementCost(x, y, level);
+        if (movementCost == SearchMap.BLOCKED) {
+            state[index] = STATE_BLOCKED;
+        } else {
+            state[index] = STATE_NEW;
+            tileCost[index] = movementCost;
+        }
+    }
+
+    /**
+     * Build the path that leads to a node.
+     *
+     * @param index the index of the last node of the path
+     * @return the path
+     */
+    @Nonnull
+    private Path buildPath(final int index) {
+        final Path result = new Path();
+        int current = index;
+        while (current != -1) {
+            result.prependStep(new PathNode(new Location(getX(current), getY(current), level), cost[current]));
+            current = parent[current];
+        }
+        return result;
+    }
+
+    /**
+     * Check if a location is inside the search window.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return {@code true} in case the location is inside the window
+     */
+    private boolean isInWindow(final int x, final int y) {
+        return (Math.abs(x - originX) <= maxLength) && (Math.abs(y - originY) <= maxLength);
+    }
+
+    /**
+     * Get the index of the node of a location.
+     *
+     * @param x the x coordinate, it has to be inside the window
+     * @param y the y coordinate, it has to be inside the window
+     * @return the index of the node
+     */
+    private int getIndex(final int x, final int y) {
+        return ((x - originX + maxLength) * windowSize) + (y - originY + maxLength);
+    }
+
+    /**
+     * Get the x coordinate of a node.
+     *
+     * @param index the index of the node
+     * @return the x coordinate
+     */
+    private int getX(final int index) {
+        return ((index / windowSize) + originX) - maxLength;
+    }
+
+    /**
+     * Get the y coordinate of a node.
+     *
+     * @param index the index of the node
+     * @return the y coordinate
+     */
+    private int getY(final int index) {
+        return ((index % windowSize) + originY) - maxLength;
+    }
+
+    /**
+     * Add a node to the heap.
+     *
+     * @param index the index of the node
+     */
+    private void push(final int index) {
+        state[index] = STATE_OPEN;
+        heap[heapSize] = index;
+        heapPosition[index] = heapSize;
+        heapSize++;
+        siftUp(heapSize - 1);
+    }
+
+    /**
+     * Remove the node with the lowest estimated cost from the heap.
+     *
+     * @return the index of the node
+     */
+    private int pop() {
+        final int result = heap[0];
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapPosition[heap[0]] = 0;
+            siftDown(0);
+        }
+        return result;
+    }
+
+    /**
+     * Move a entry of the heap towards the root until the heap is valid again.
+     *
+     * @param position the position of the entry in the heap
+     */
+    private void siftUp(final int position) {
+        final int node = heap[position];
+        final int value = estimate[node];
+        int current = position;
+        while (current > 0) {
+            final int parentPosition = (current - 1) >>> 1;
+            final int parentNode = heap[parentPosition];
+            if (estimate[parentNode] <= value) {
+                break;
+            }
+            heap[current] = parentNode;
+            heapPosition[parentNode] = current;
+            current = parentPosition;
+        }
+        heap[current] = node;
+        heapPosition[node] = current;
+    }
+
+    /**
+     * Move a entry of the heap towards the leaves until the heap is valid again.
+     *
+     * @param position the position of the entry in the heap
+     */
+    private void siftDown(final int position) {
+        final int node = heap[position];
+        final int value = estimate[node];
+        int current = position;
+        while (true) {
+            int child = (current * 2) + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (((child + 1) < heapSize) && (estimate[heap[child + 1]] < estimate[heap[child]])) {
+                child++;
+            }
+            if (estimate[heap[child]] >= value) {
+                break;
+            }
+            heap[current] = heap[child];
+            heapPosition[heap[current]] = current;
+            current = child;
+        }
+        heap[current] = node;
+        heapPosition[node] = current;
+    }
+}
@@ -19,13 +19,8 @@
 package illarion.client.util;
 
 import illarion.client.IllaClient;
-import illarion.common.config.ConfigChangedEvent;
-import org.apache.log4j.DailyRollingFileAppender;
-import org.apache.log4j.Level;
-import org.apache.log4j.Logger;
-import org.apache.log4j.PatternLayout;
-import org.bushe.swing.event.annotation.AnnotationProcessor;
-import org.bushe.swing.event.annotation.EventTopicSubscriber;
+import illarion.common.config.ConfigKey;
+import illarion.common.util.StoppableStorage;
 
 import javax.annotation.Nonnull;
 import java.io.File;
@@ -34,6 +29,9 @@ import java.util.Date;
 
 /**
  * Class to handle the logging of the Chat in the game to the logfile.
+ * <p />
+ * The lines are handed to a {@link ChatLogWriter} that writes them to the file system in the background, so logging
+ * chat never waits for the file system.
  *
  * @author Martin Karing &lt;nitram@illarion.org&gt;
  */
@@ -44,49 +42,41 @@ public final class ChatLog {
     public static final String CFG_TEXTLOG = "textLog"; //$NON-NLS-1$
 
     /**
-     * Constant value to determine if the logger is active in general or not. In case the logging is disabled by the
-     * config, nothing will be logged.
+     * The key used for the configuration to store the time in milliseconds between two synchronizations of the log
+     * file with the storage device. {@code 0} synchronizes after every write, a negative value never forces it.
      */
-    private boolean logActive;
+    public static final String CFG_TEXTLOG_SYNC = "textLogSyncInterval"; //$NON-NLS-1$
 
     /**
-     * Instance of the used logger.
+     * The configuration handle of the setting if the logger is active in general or not. In case the logging is
+     * disabled by the config, nothing will be logged.
      */
-    @SuppressWarnings("nls")
-    private static final Logger logger = Logger.getLogger("CHAT");
+    @Nonnull
+    private final ConfigKey logActive;
 
     /**
-     * Stores the information if the logger is set up and working. Only in this case log files are written.
+     * The writer that stores the lines of the log in the file system.
      */
-    private boolean loggerWorking;
+    @Nonnull
+    private final ChatLogWriter writer;
 
     /**
-     * Private constructor to avoid that any instance but the singleton instance is created.
+     * Create a new chat log and start the writer of the log.
      *
      * @param playerPath the path this chat log is supposed to be stored at
      */
-    public ChatLog(final File playerPath) {
-        logActive = IllaClient.getCfg().getBoolean(CFG_TEXTLOG);
+    public ChatLog(@Nonnull final File playerPath) {
+        logActive = IllaClient.getCfg().getKey(CFG_TEXTLOG);
 
-        final DailyRollingFileAppender appender = new DailyRollingFileAppender();
-        appender.setDatePattern("'.'yyyy-MM'.log'");
-        appender.setFile(new File(playerPath, "illarion.log").getAbsolutePath());
-        appender.setLayout(new PatternLayout("%m%n"));
-        appender.setAppend(true);
-        appender.activateOptions();
-
-        logger.setLevel(Level.ALL);
-        logger.addAppender(appender);
-
-        loggerWorking = true;
+        writer = new ChatLogWriter(playerPath, IllaClient.getCfg().getKey(CFG_TEXTLOG_SYNC));
+        writer.start();
+        StoppableStorage.getInstance().add(writer);
 
         // add a entry of the staring logging session to the logfile.
         final SimpleDateFormat sdf = new SimpleDateFormat("dd.MM.yyyy HH:mm");
 
-        logger.info("");
-        logger.info(Lang.getMsg("log.newSession") + " - " + sdf.format(new Date()));
-
-        AnnotationProcessor.process(this);
+        writer.log("");
+        writer.log(Lang.getMsg("log.newSession") + " - " + sdf.format(new Date()));
     }
 
     /**
@@ -94,16 +84,53 @@ public final class ChatLog {
      *
      * @param text the text to log
      */
-    public void logText(final CharSequence text) {
-        if (loggerWorking && logActive) {
-            logger.info(text);
+    public void logText(@Nonnull final CharSequence text) {
+        if (logActive.getBoolean()) {
+            writer.log(text.toString());
         }
     }
 
-    @EventTopicSubscriber(topic = CFG_TEXTLOG)
-    public void onConfigChangedEvent(@Nonnull final String topic, @Nonnull final ConfigChangedEvent data) {
-        if (topic.equals(CFG_TEXTLOG)) {
-            logActive = data.getConfig().getBoolean(topic);
-        }
+    /**
+     * Get the amount of lines that wait to be written to the file system.
+     *
+     * @return the amount of queued lines
+     */
+    public int getQueuedLines() {
+        return writer.getQueuedLines();
+    }
+
+    /**
+     * Get the amount of lines that got dropped because the writer was not able to keep up.
+     *
+     * @return the amount of dropped lines
+     */
+    public long getDroppedLines() {
+        return writer.getDroppedLines();
+    }
+
+    /**
+     * Get the amount of times the buffer of the writer was filled halfway and the writer had to be woken up early.
+     *
+     * @return the amount of early wake ups
+     */
+    public long getEarlyWakeups() {
+        return writer.getEarlyWakeups();
+    }
+
+    /**
+     * Get the amount of lines that got written to the file system.
+     *
+     * @return the amount of written lines
+     */
+    public long getWrittenLines() {
+        return writer.getWrittenLines();
+    }
+
+    /**
+     * Write the remaining lines of the log and stop the writer.
+     */
+    public void shutdown() {
+        StoppableStorage.getInstance().remove(writer);
+        writer.saveShutdown();
     }
 }
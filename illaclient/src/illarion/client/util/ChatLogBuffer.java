@@ -0,0 +1,179 @@
+/*
+ * This file is part of the Illarion Client.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Client.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.client.util;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * This is the bounded ring buffer that carries the lines of the chat log from the threads that log chat to the
+ * {@link ChatLogWriter}. Any amount of threads may add lines at the same time without locking. Only the writer thread
+ * is allowed to remove lines.
+ * <p />
+ * Each slot of the ring stores a sequence number next to the line. A thread that adds a line claims the next position
+ * with a compare and set operation on the tail and publishes the line by raising the sequence of the slot. The writer
+ * thread takes the line once the sequence shows that it is published and releases the slot for the next round.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+@ThreadSafe
+final class ChatLogBuffer {
+    /**
+     * The amount of slots of the ring.
+     */
+    private final int capacity;
+
+    /**
+     * The mask that turns a position into the index of a slot.
+     */
+    private final int mask;
+
+    /**
+     * The lines stored in the slots.
+     */
+    @Nonnull
+    private final AtomicReferenceArray<String> lines;
+
+    /**
+     * The sequence numbers of the slots. A slot is free to be written for the position that equals its sequence and
+     * ready to be read for the position one less then its sequence.
+     */
+    @Nonnull
+    private final AtomicLongArray sequences;
+
+    /**
+     * The next position that is claimed by a thread that adds a line.
+     */
+    @Nonnull
+    private final AtomicLong tail;
+
+    /**
+     * The next position that is read by the writer thread. Only the writer thread changes this value.
+     */
+    private volatile long head;
+
+    /**
+     * Create a new buffer.
+     *
+     * @param size the amount of lines the buffer is able to store, this has to be a power of two
+     */
+    ChatLogBuffer(final int size) {
+        if ((size <= 0) || (Integer.bitCount(size) != 1)) {
+            throw new IllegalArgumentException("The size of the buffer has to be a power of two: " + size);
+        }
+        capacity = size;
+        mask = size - 1;
+        lines = new AtomicReferenceArray<String>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        tail = new AtomicLong();
+    }
+
+    /**
+     * Add a line to the buffer. This never blocks.
+     *
+     * @param line the line to add
+     * @return {@code true} in case the line was added, {@code false} in case the buffer is full
+     */
+    boolean offer(@Nonnull final String line) {
+        long position = tail.get();
+        while (true) {
+            final int index = (int) (position & mask);
+            final long difference = sequences.get(index) - position;
+            if (difference == 0L) {
+                if (tail.compareAndSet(position, position + 1L)) {
+                    lines.lazySet(index, line);
+                    sequences.lazySet(index, position + 1L);
+                    return true;
+                }
+            } else if (difference < 0L) {
+                return false;
+            }
+            position = tail.get();
+        }
+    }
+
+    /**
+     * Remove the oldest line from the buffer. This must only be called by the writer thread.
+     *
+     * @return the line or {@code null} in case there is no line that is ready to be read
+     */
+    @Nullable
+    String poll() {
+        final long position = head;
+        final int index = (int) (position & mask);
+        if (sequences.get(index) != (position + 1L)) {
+            return null;
+        }
+        final String line = lines.get(index);
+        lines.lazySet(index, null);
+        sequences.lazySet(index, position + capacity);
+        head = position + 1L;
+        return line;
+    }
+
+    /**
+     * Remove lines from the buffer and add them to a collection. This must only be called by the writer thread.
+     *
+     * @param target   the collection that receives the lines
+     * @param maxLines the maximal amount of lines to remove
+     * @return the amount of lines that were removed
+     */
+    int drainTo(@Nonnull final Collection<String> target, final int maxLines) {
+        int count = 0;
+        while (count < maxLines) {
+            @Nullable final String line = poll();
+            if (line == null) {
+                break;
+            }
+            target.add(line);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Get the amount of lines that are currently stored in the buffer.
+     *
+     * @return the amount of lines
+     */
+    int size() {
+        final long size = tail.get() - head;
+        if (size <= 0L) {
+            return 0;
+        }
+        return (int) Math.min(size, capacity);
+    }
+
+    /**
+     * Get the amount of lines the buffer is able to store.
+     *
+     * @return the capacity of the buffer
+     */
+    int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,459 @@
+/*
+ * This file is part of the Illarion Client.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Client.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.client.util;
+
+import illarion.common.config.ConfigKey;
+import illarion.common.util.Stoppable;
+import org.apache.log4j.Logger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.*;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * This is the thread that writes the lines of the chat log to the file system. The lines are handed over using a
+ * {@link ChatLogBuffer}, so the threads that log chat never wait for the file system. In case the buffer is full the
+ * new lines are dropped and counted instead.
+ * <p />
+ * The writer wakes up in a fixed interval or once the buffer is filled halfway and writes all lines that are waiting
+ * in batches. After the lines are written the file is synchronized with the storage device according to the sync
+ * interval that is set in the configuration. The log file is rotated at the start of every month. The rotated file
+ * is compressed in the background.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+final class ChatLogWriter extends Thread implements Stoppable {
+    /**
+     * The logger that provides the logging output of this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(ChatLogWriter.class);
+
+    /**
+     * The amount of lines the buffer is able to store.
+     */
+    private static final int BUFFER_SIZE = 4096;
+
+    /**
+     * The maximal amount of lines written in one batch.
+     */
+    private static final int BATCH_SIZE = 256;
+
+    /**
+     * The time between two writes in case the buffer does not fill up.
+     */
+    private static final long FLUSH_INTERVAL = TimeUnit.MILLISECONDS.toNanos(250);
+
+    /**
+     * The name of the file the chat log is written to.
+     */
+    @Nonnull
+    private static final String FILE_NAME = "illarion.log";
+
+    /**
+     * The line separator used by the chat log.
+     */
+    @Nonnull
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator", "\n");
+
+    /**
+     * The buffer that carries the lines to this thread.
+     */
+    @Nonnull
+    private final ChatLogBuffer buffer;
+
+    /**
+     * The directory the chat log is stored in.
+     */
+    @Nonnull
+    private final File directory;
+
+    /**
+     * The configuration handle of the time in milliseconds between two synchronizations of the log file with the
+     * storage device. {@code 0} synchronizes after every batch, a negative value leaves it to the operating system.
+     */
+    @Nonnull
+    private final ConfigKey syncInterval;
+
+    /**
+     * The amount of lines that got dropped because the buffer was full.
+     */
+    @Nonnull
+    private final AtomicLong droppedLines;
+
+    /**
+     * The amount of times the buffer was filled halfway and the writer was woken up early.
+     */
+    @Nonnull
+    private final AtomicLong earlyWakeups;
+
+    /**
+     * The amount of lines that got written to the file. This is only changed by the writer thread.
+     */
+    private volatile long writtenLines;
+
+    /**
+     * The flag that stores if the thread is running or not.
+     */
+    private volatile boolean running;
+
+    /**
+     * The stream of the log file that is currently open.
+     */
+    @Nullable
+    private FileOutputStream stream;
+
+    /**
+     * The writer of the log file that is currently open.
+     */
+    @Nullable
+    private Writer writer;
+
+    /**
+     * The month the currently open log file belongs to, counted in months since the year {@code 0}.
+     */
+    private int openMonth;
+
+    /**
+     * The time of the last synchronization with the storage device in nanoseconds.
+     */
+    private long lastSync;
+
+    /**
+     * This flag is set {@code true} once a error got reported, so a broken file system does not flood the log.
+     */
+    private boolean errorReported;
+
+    /**
+     * Create a new chat log writer.
+     *
+     * @param directory    the directory the chat log is stored in
+     * @param syncInterval the configuration handle of the sync interval
+     */
+    ChatLogWriter(@Nonnull final File directory, @Nonnull final ConfigKey syncInterval) {
+        super("Chat Log Writer");
+        setDaemon(true);
+        this.directory = directory;
+        this.syncInterval = syncInterval;
+        buffer = new ChatLogBuffer(BUFFER_SIZE);
+        droppedLines = new AtomicLong();
+        earlyWakeups = new AtomicLong();
+    }
+
+    /**
+     * Add a line to the chat log. This never blocks. In case the buffer is full the line is dropped.
+     *
+     * @param line the line to add
+     */
+    void log(@Nonnull final String line) {
+        if (!buffer.offer(line)) {
+            droppedLines.incrementAndGet();
+            return;
+        }
+        if (buffer.size() == (buffer.getCapacity() / 2)) {
+            earlyWakeups.incrementAndGet();
+            LockSupport.unpark(this);
+        }
+    }
+
+    /**
+     * Get the amount of lines that wait to be written.
+     *
+     * @return the amount of queued lines
+     */
+    int getQueuedLines() {
+        return buffer.size();
+    }
+
+    /**
+     * Get the amount of lines that got dropped because the buffer was full.
+     *
+     * @return the amount of dropped lines
+     */
+    long getDroppedLines() {
+        return droppedLines.get();
+    }
+
+    /**
+     * Get the amount of times the buffer was filled halfway and the writer had to be woken up early.
+     *
+     * @return the amount of early wake ups
+     */
+    long getEarlyWakeups() {
+        return earlyWakeups.get();
+    }
+
+    /**
+     * Get the amount of lines that got written to the file.
+     *
+     * @return the amount of written lines
+     */
+    long getWrittenLines() {
+        return writtenLines;
+    }
+
+    @Override
+    public void run() {
+        final List<String> batch = new ArrayList<String>(BATCH_SIZE);
+        while (running) {
+            LockSupport.parkNanos(this, FLUSH_INTERVAL);
+            writeWaitingLines(batch);
+        }
+        writeWaitingLines(batch);
+        closeFile();
+    }
+
+    /**
+     * Write all lines that wait in the buffer.
+     *
+     * @param batch the list used to collect the lines of one batch
+     */
+    private void writeWaitingLines(@Nonnull final List<String> batch) {
+        if (buffer.drainTo(batch, BATCH_SIZE) == 0) {
+            return;
+        }
+        try {
+            @Nonnull final Writer currentWriter = openFile();
+            do {
+                for (final String line : batch) {
+                    currentWriter.write(line);
+                    currentWriter.write(LINE_SEPARATOR);
+                }
+                writtenLines += batch.size();
+                batch.clear();
+            } while (buffer.drainTo(batch, BATCH_SIZE) > 0);
+            currentWriter.flush();
+            syncFile();
+            errorReported = false;
+        } catch (@Nonnull final IOException e) {
+            droppedLines.addAndGet(batch.size());
+            batch.clear();
+            if (!errorReported) {
+                errorReported = true;
+                LOGGER.error("Failed to write the chat log.", e);
+            }
+            closeFile();
+        }
+    }
+
+    /**
+     * Get the writer of the log file of the current month. In case the month changed since the file was opened, the
+     * file is rotated first.
+     *
+     * @return the writer of the log file
+     * @throws IOException in case opening the file fails
+     */
+    @Nonnull
+    private Writer openFile() throws IOException {
+        final int currentMonth = getMonth(System.currentTimeMillis());
+        if ((writer != null) && (openMonth != currentMonth)) {
+            closeFile();
+            rotateFile(openMonth);
+        }
+        if (writer != null) {
+            return writer;
+        }
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create the directory of the chat log: " + directory);
+        }
+        final File logFile = new File(directory, FILE_NAME);
+        if (logFile.isFile()) {
+            final int fileMonth = getMonth(logFile.lastModified());
+            if (fileMonth != currentMonth) {
+                rotateFile(fileMonth);
+            }
+        }
+
+        stream = new FileOutputStream(logFile, true);
+        writer = new BufferedWriter(new OutputStreamWriter(stream));
+        openMonth = currentMonth;
+        lastSync = System.nanoTime();
+        return writer;
+    }
+
+    /**
+     * Synchronize the log file with the storage device in case the sync interval passed.
+     *
+     * @throws IOException in case the synchronization fails
+     */
+    private void syncFile() throws IOException {
+        final int interval = syncInterval.getInteger();
+        if ((interval < 0) || (stream == null)) {
+            return;
+        }
+        final long now = System.nanoTime();
+        if ((now - lastSync) >= TimeUnit.MILLISECONDS.toNanos(interval)) {
+            stream.getFD().sync();
+            lastSync = now;
+        }
+    }
+
+    /**
+     * Close the log file that is currently open.
+     */
+    private void closeFile() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.flush();
+            if ((stream != null) && (syncInterval.getInteger() >= 0)) {
+                stream.getFD().sync();
+            }
+        } catch (@Nonnull final IOException e) {
+            LOGGER.error("Failed to flush the chat log.", e);
+        }
+        try {
+            writer.close();
+        } catch (@Nonnull final IOException e) {
+            LOGGER.error("Failed to close the chat log.", e);
+        }
+        writer = null;
+        stream = null;
+    }
+
+    /**
+     * Rename the log file to the name of the month it belongs to and compress it in the background. In case the
+     * executor services are already shut down, the file is compressed right away.
+     *
+     * @param month the month the log file belongs to
+     */
+    private void rotateFile(final int month) {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(month / 12, month % 12, 1);
+        final String monthName = new SimpleDateFormat("yyyy-MM").format(calendar.getTime());
+
+        final File logFile = new File(directory, FILE_NAME);
+        final File rotatedFile = new File(directory, FILE_NAME + '.' + monthName + ".log");
+        if (rotatedFile.exists() && !rotatedFile.delete()) {
+            LOGGER.warn("Failed to remove the old chat log: " + rotatedFile);
+            return;
+        }
+        if (!logFile.renameTo(rotatedFile)) {
+            LOGGER.warn("Failed to rotate the chat log to: " + rotatedFile);
+            return;
+        }
+
+        try {
+            GlobalExecutorService.getIoService().execute(new Runnable() {
+                @Override
+                public void run() {
+                    compressFile(rotatedFile);
+                }
+            });
+        } catch (@Nonnull final RejectedExecutionException e) {
+            // the executor services are already shut down, so the writer has to do it on its own
+            compressFile(rotatedFile);
+        }
+    }
+
+    /**
+     * Compress a rotated log file. The uncompressed file is removed once the compressed file is written.
+     *
+     * @param file the file to compress
+     */
+    private static void compressFile(@Nonnull final File file) {
+        final File compressedFile = new File(file.getPath() + ".gz");
+        InputStream in = null;
+        OutputStream out = null;
+        boolean done = false;
+        try {
+            in = new BufferedInputStream(new FileInputStream(file));
+            out = new GZIPOutputStream(new FileOutputStream(compressedFile));
+            final byte[] data = new byte[8192];
+            int count = in.read(data);
+            while (count >= 0) {
+                out.write(data, 0, count);
+                count = in.read(data);
+            }
+            out.close();
+            out = null;
+            done = true;
+        } catch (@Nonnull final IOException e) {
+            LOGGER.error("Failed to compress the chat log: " + file, e);
+        } finally {
+            closeQuietly(in);
+            closeQuietly(out);
+        }
+
+        if (done) {
+            if (!file.delete()) {
+                LOGGER.warn("Failed to remove the compressed chat log: " + file);
+            }
+        } else if (compressedFile.exists() && !compressedFile.delete()) {
+            LOGGER.warn("Failed to remove the broken compressed chat log: " + compressedFile);
+        }
+    }
+
+    /**
+     * Close a stream and ignore any errors.
+     *
+     * @param closeable the stream to close
+     */
+    private static void closeQuietly(@Nullable final Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (@Nonnull final IOException ignored) {
+            // nothing to do
+        }
+    }
+
+    /**
+     * Get the month of a point in time, counted in months since the year {@code 0}.
+     *
+     * @param time the time in milliseconds
+     * @return the month
+     */
+    private static int getMonth(final long time) {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.setTime(new Date(time));
+        return (calendar.get(Calendar.YEAR) * 12) + calendar.get(Calendar.MONTH);
+    }
+
+    @Override
+    public void saveShutdown() {
+        running = false;
+        LockSupport.unpark(this);
+        try {
+            join(TimeUnit.SECONDS.toMillis(5));
+        } catch (@Nonnull final InterruptedException e) {
+            LOGGER.warn("Interrupted while waiting for the chat log writer.");
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        running = true;
+        super.start();
+    }
+}
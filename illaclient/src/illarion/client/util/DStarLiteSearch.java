@@ -0,0 +1,637 @@
+/*
+ * This file is part of the Illarion Client.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Client.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.client.util;
+
+import illarion.common.types.Location;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This is the incremental D* Lite planner used by the {@link Pathfinder} to repair a path the player is walking on.
+ * The planner searches backwards from the destination and keeps the cost of every tile to reach the destination
+ * between the steps of the player. In case tiles change, only the tiles whose cost depends on the changed tiles are
+ * calculated again.
+ * <p />
+ * The planner works on a square window of tiles centered on the destination, with the same primitive array layout
+ * as the {@link AStarSearch}. The window reaches as far as the longest path allowed. Once the player leaves the
+ * window, the planner can't repair the path anymore.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+@NotThreadSafe
+final class DStarLiteSearch {
+    /**
+     * Minimum cost of a one step to the next tile. This is used for the heuristic of the path finding.
+     */
+    private static final int MIN_MOVE_COST = 5;
+
+    /**
+     * The cost that marks a tile that can't be reached.
+     */
+    private static final int INFINITE = Integer.MAX_VALUE / 4;
+
+    /**
+     * The cost of tile that was not read from the map yet.
+     */
+    private static final int UNKNOWN = -1;
+
+    /**
+     * The offsets on the x axis of the eight neighbours of a tile.
+     */
+    private static final int[] NEIGHBOUR_X = {0, 1, 1, 1, 0, -1, -1, -1};
+
+    /**
+     * The offsets on the y axis of the eight neighbours of a tile.
+     */
+    private static final int[] NEIGHBOUR_Y = {-1, -1, 0, 1, 1, 1, 0, -1};
+
+    /**
+     * The maximal amount of steps of a path the arrays are prepared for.
+     */
+    private int maxLength;
+
+    /**
+     * The length of one side of the search window.
+     */
+    private int windowSize;
+
+    /**
+     * The cost of stepping onto the tile of each node, {@link #INFINITE} for blocked tiles and {@link #UNKNOWN} for
+     * tiles that were not read from the map yet.
+     */
+    private int[] tileCost;
+
+    /**
+     * The cost to reach the destination from each node as it was calculated last.
+     */
+    private int[] distance;
+
+    /**
+     * The cost to reach the destination from each node, based on the costs of the neighbours.
+     */
+    private int[] lookahead;
+
+    /**
+     * The key each node is stored with in the heap.
+     */
+    private long[] heapKey;
+
+    /**
+     * The position of each node in the heap or {@code -1} in case the node is not in the heap.
+     */
+    private int[] heapPosition;
+
+    /**
+     * The binary heap of the inconsistent nodes, ordered by {@link #heapKey}.
+     */
+    private int[] heap;
+
+    /**
+     * The amount of nodes in the heap.
+     */
+    private int heapSize;
+
+    /**
+     * The x coordinate of the destination.
+     */
+    private int goalX;
+
+    /**
+     * The y coordinate of the destination.
+     */
+    private int goalY;
+
+    /**
+     * The level of the destination.
+     */
+    private int level;
+
+    /**
+     * The x coordinate of the location of the player during the last update.
+     */
+    private int startX;
+
+    /**
+     * The y coordinate of the location of the player during the last update.
+     */
+    private int startY;
+
+    /**
+     * The value added to the keys to make up for the player moving since the planner was initialized.
+     */
+    private int keyModifier;
+
+    /**
+     * This flag is {@code true} once the planner was initialized.
+     */
+    private boolean initialized;
+
+    /**
+     * The amount of nodes expanded during the last call of {@link #initialize(Location, Location, int)} or
+     * {@link #update(Location, long[], int)}.
+     */
+    private int expandedNodes;
+
+    /**
+     * This flag is set {@code true} in case the current calculation is supposed to stop as soon as possible.
+     */
+    private volatile boolean aborted;
+
+    /**
+     * The map the planner reads the tiles from.
+     */
+    @Nonnull
+    private final SearchMap map;
+
+    /**
+     * Create a new planner.
+     *
+     * @param map the map the planner reads the tiles from
+     */
+    DStarLiteSearch(@Nonnull final SearchMap map) {
+        this.map = map;
+    }
+
+    /**
+     * Initialize the planner for a new destination and calculate the path from the start.
+     *
+     * @param start    the location of the player
+     * @param dest     the destination
+     * @param maxSteps the maximal amount of steps of the path
+     * @return {@code true} in case the calculation was completed, {@code false} in case it was aborted or the start
+     *         is too far away from the destination
+     */
+    boolean initialize(@Nonnull final Location start, @Nonnull final Location dest, final int maxSteps) {
+        aborted = false;
+        expandedNodes = 0;
+        initialized = false;
+        if ((start.getScZ() != dest.getScZ()) || (start.getDistance(dest) > maxSteps)) {
+            return false;
+        }
+        if ((tileCost == null) || (maxSteps != maxLength)) {
+            maxLength = maxSteps;
+            windowSize = (maxSteps * 2) + 1;
+            final int nodeCount = windowSize * windowSize;
+            tileCost = new int[nodeCount];
+            distance = new int[nodeCount];
+            lookahead = new int[nodeCount];
+            heapKey = new long[nodeCount];
+            heapPosition = new int[nodeCount];
+            heap = new int[nodeCount];
+        }
+        Arrays.fill(tileCost, UNKNOWN);
+        Arrays.fill(distance, INFINITE);
+        Arrays.fill(lookahead, INFINITE);
+        Arrays.fill(heapPosition, -1);
+        heapSize = 0;
+
+        goalX = dest.getScX();
+        goalY = dest.getScY();
+        level = dest.getScZ();
+        startX = start.getScX();
+        startY = start.getScY();
+        keyModifier = 0;
+
+        final int goal = getIndex(goalX, goalY);
+        lookahead[goal] = 0;
+        insert(goal);
+        initialized = computeShortestPath();
+        return initialized;
+    }
+
+    /**
+     * Update the planner after the player moved or tiles changed.
+     *
+     * @param start        the location of the player
+     * @param changedTiles the keys of the locations that changed since the last update
+     * @param changedCount the amount of valid entries in the array of changed tiles
+     * @return {@code true} in case the calculation was completed, {@code false} in case it was aborted, the planner
+     *         is not initialized or the player left the window of the planner
+     */
+    boolean update(@Nonnull final Location start, @Nonnull final long[] changedTiles, final int changedCount) {
+        aborted = false;
+        expandedNodes = 0;
+        if (!initialized || (start.getScZ() != level) || !isInWindow(start.getScX(), start.getScY())) {
+            return false;
+        }
+
+        keyModifier += getHeuristic(startX, startY, start.getScX(), start.getScY());
+        startX = start.getScX();
+        startY = start.getScY();
+
+        for (int i = 0; i < changedCount; i++) {
+            final long changedKey = changedTiles[i];
+            final int x = Location.getKeyX(changedKey);
+            final int y = Location.getKeyY(changedKey);
+            if ((Location.getKeyZ(changedKey) != level) || !isInWindow(x, y)) {
+                continue;
+            }
+            final int changed = getIndex(x, y);
+            if (tileCost[changed] == UNKNOWN) {
+                continue;
+            }
+            final int newCost = readTileCost(x, y);
+            if (newCost == tileCost[changed]) {
+                continue;
+            }
+            tileCost[changed] = newCost;
+            for (int dir = 0; dir < NEIGHBOUR_X.length; dir++) {
+                final int nextX = x + NEIGHBOUR_X[dir];
+                final int nextY = y + NEIGHBOUR_Y[dir];
+                if (isInWindow(nextX, nextY)) {
+                    updateNode(getIndex(nextX, nextY), nextX, nextY);
+                }
+            }
+        }
+
+        initialized = computeShortestPath();
+        return initialized;
+    }
+
+    /**
+     * Get the path from the location of the player during the last update to the destination.
+     *
+     * @return the path or {@code null} in case the destination can't be reached
+     */
+    @Nullable
+    Path extractPath() {
+        if (!initialized) {
+            return null;
+        }
+        int current = getIndex(startX, startY);
+        if (lookahead[current] >= INFINITE) {
+            return null;
+        }
+
+        final int goal = getIndex(goalX, goalY);
+        final List<PathNode> steps = new ArrayList<PathNode>();
+        int pathCost = 0;
+        steps.add(new PathNode(new Location(startX, startY, level), 0));
+        while (current != goal) {
+            if (steps.size() > heap.length) {
+                return null;
+            }
+            final int currentX = getX(current);
+            final int currentY = getY(current);
+            int best = -1;
+            int bestCost = INFINITE;
+            int bestStep = 0;
+            for (int dir = 0; dir < NEIGHBOUR_X.length; dir++) {
+                final int nextX = currentX + NEIGHBOUR_X[dir];
+                final int nextY = currentY + NEIGHBOUR_Y[dir];
+                if (!isInWindow(nextX, nextY)) {
+                    continue;
+                }
+                final int next = getIndex(nextX, nextY);
+                final int stepCost = getStepCost(next, dir);
+                final int totalCost = add(stepCost, distance[next]);
+                if (totalCost < bestCost) {
+                    best = next;
+                    bestCost = totalCost;
+                    bestStep = stepCost;
+                }
+            }
+            if (best == -1) {
+                return null;
+            }
+            current = best;
+            pathCost += bestStep;
+            steps.add(new PathNode(new Location(getX(current), getY(current), level), pathCost));
+        }
+
+        final Path result = new Path();
+        for (int i = steps.size() - 1; i >= 0; i--) {
+            result.prependStep(steps.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Check if the planner is initialized for a destination.
+     *
+     * @param dest the destination
+     * @return {@code true} in case the planner is initialized and its destination matches
+     */
+    boolean isPlanningFor(@Nonnull final Location dest) {
+        return initialized && (dest.getScX() == goalX) && (dest.getScY() == goalY) && (dest.getScZ() == level);
+    }
+
+    /**
+     * Drop the state of the planner.
+     */
+    void reset() {
+        initialized = false;
+    }
+
+    /**
+     * Stop the calculation that is currently running.
+     */
+    void abort() {
+        aborted = true;
+    }
+
+    /**
+     * Get the amount of nodes that were expanded during the last calculation.
+     *
+     * @return the amount of expanded nodes
+     */
+    int getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    /**
+     * Expand the inconsistent nodes until the cost of the location of the player is known.
+     *
+     * @return {@code true} in case the calculation was completed, {@code false} in case it was aborted
+     */
+    private boolean computeShortestPath() {
+        final int start = getIndex(startX, startY);
+        while ((heapSize > 0) &&
+                ((heapKey[heap[0]] < calculateKey(start)) || (lookahead[start] != distance[start]))) {
+            if (aborted) {
+                return false;
+            }
+            final int current = heap[0];
+            final long oldKey = heapKey[current];
+            final long newKey = calculateKey(current);
+            expandedNodes++;
+            if (oldKey < newKey) {
+                heapKey[current] = newKey;
+                siftDown(0);
+            } else if (distance[current] > lookahead[current]) {
+                distance[current] = lookahead[current];
+                remove(current);
+                updateNeighbours(current);
+            } else {
+                distance[current] = INFINITE;
+                updateNode(current, getX(current), getY(current));
+                updateNeighbours(current);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Update all neighbours of a node.
+     *
+     * @param index the index of the node
+     */
+    private void updateNeighbours(final int index) {
+        final int x = getX(index);
+        final int y = getY(index);
+        for (int dir = 0; dir < NEIGHBOUR_X.length; dir++) {
+            final int nextX = x + NEIGHBOUR_X[dir];
+            final int nextY = y + NEIGHBOUR_Y[dir];
+            if (isInWindow(nextX, nextY)) {
+                updateNode(getIndex(nextX, nextY), nextX, nextY);
+            }
+        }
+    }
+
+    /**
+     * Calculate the cost of a node based on its neighbours again and update its position in the heap.
+     *
+     * @param index the index of the node
+     * @param x     the x coordinate of the node
+     * @param y     the y coordinate of the node
+     */
+    private void updateNode(final int index, final int x, final int y) {
+        if ((x != goalX) || (y != goalY)) {
+            int best = INFINITE;
+            for (int dir = 0; dir < NEIGHBOUR_X.length; dir++) {
+                final int nextX = x + NEIGHBOUR_X[dir];
+                final int nextY = y + NEIGHBOUR_Y[dir];
+                if (isInWindow(nextX, nextY)) {
+                    final int next = getIndex(nextX, nextY);
+                    best = Math.min(best, add(getStepCost(next, dir), distance[next]));
+                }
+            }
+            lookahead[index] = best;
+        }
+        if (heapPosition[index] != -1) {
+            remove(index);
+        }
+        if (distance[index] != lookahead[index]) {
+            insert(index);
+        }
+    }
+
+    /**
+     * Get the cost of stepping onto a node.
+     *
+     * @param index     the index of the node that is entered
+     * @param direction the index of the direction of the step in the neighbour arrays
+     * @return the cost of the step or {@link #INFINITE} in case the node is blocked
+     */
+    private int getStepCost(final int index, final int direction) {
+        if (tileCost[index] == UNKNOWN) {
+            tileCost[index] = readTileCost(getX(index), getY(index));
+        }
+        final int cost = tileCost[index];
+        if ((cost >= INFINITE) || (NEIGHBOUR_X[direction] == 0) || (NEIGHBOUR_Y[direction] == 0)) {
+            return cost;
+        }
+        return (cost * 11) / 10;
+    }
+
+    /**
+     * Read the cost of stepping onto a tile from the map.
+     *
+     * @param x   the x coordinate of the tile
+     * @param y   the y coordinate of the tile
+     * @return the cost or {@link #INFINITE} in case the tile is blocked
+     */
+    private int readTileCost(final int x, final int y) {
+        final int movementCost = map.getMovementCost(x, y, level);
+        if (movementCost == SearchMap.BLOCKED) {
+            return INFINITE;
+        }
+        return movementCost;
+    }
+
+    /**
+     * Add two costs without exceeding {@link #INFINITE}.
+     *
+     * @param first  the first cost
+     * @param second the second cost
+     * @return the sum of the costs
+     */
+    private static int add(final int first, final int second) {
+        if ((first >= INFINITE) || (second >= INFINITE)) {
+            return INFINITE;
+        }
+        return Math.min(INFINITE, first + second);
+    }
+
+    /**
+     * Get the estimated cost between two locations.
+     *
+     * @param fromX the x coordinate of the first location
+     * @param fromY the y coordinate of the first location
+     * @param toX   the x coordinate of the second location
+     * @param toY   the y coordinate of the second location
+     * @return the estimated cost
+     */
+    private static int getHeuristic(final int fromX, final int fromY, final int toX, final int toY) {
+        return MIN_MOVE_COST * Math.max(Math.abs(toX - fromX), Math.abs(toY - fromY));
+    }
+
+    /**
+     * Calculate the key of a node. The primary key is stored in the upper half of the value, the secondary key in the
+     * lower half, so comparing the values compares the keys in the right order.
+     *
+     * @param index the index of the node
+     * @return the key
+     */
+    private long calculateKey(final int index) {
+        final int minCost = Math.min(distance[index], lookahead[index]);
+        final long primary = (long) minCost + getHeuristic(startX, startY, getX(index), getY(index)) + keyModifier;
+        return (primary << 32) | minCost;
+    }
+
+    /**
+     * Check if a location is inside the window of the planner.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return {@code true} in case the location is inside the window
+     */
+    private boolean isInWindow(final int x, final int y) {
+        return (Math.abs(x - goalX) <= maxLength) && (Math.abs(y - goalY) <= maxLength);
+    }
+
+    /**
+     * Get the index of the node of a location.
+     *
+     * @param x the x coordinate, it has to be inside the window
+     * @param y the y coordinate, it has to be inside the window
+     * @return the index of the node
+     */
+    private int getIndex(final int x, final int y) {
+        return ((x - goalX + maxLength) * windowSize) + (y - goalY + maxLength);
+    }
+
+    /**
+     * Get the x coordinate of a node.
+     *
+     * @param index the index of the node
+     * @return the x coordinate
+     */
+    private int getX(final int index) {
+        return ((index / windowSize) + goalX) - maxLength;
+    }
+
+    /**
+     * Get the y coordinate of a node.
+     *
+     * @param index the index of the node
+     * @return the y coordinate
+     */
+    private int getY(final int index) {
+        return ((index % windowSize) + goalY) - maxLength;
+    }
+
+    /**
+     * Add a node to the heap.
+     *
+     * @param index the index of the node
+     */
+    private void insert(final int index) {
+        heapKey[index] = calculateKey(index);
+        heap[heapSize] = index;
+        heapPosition[index] = heapSize;
+        heapSize++;
+        siftUp(heapSize - 1);
+    }
+
+    /**
+     * Remove a node from the heap.
+     *
+     * @param index the index of the node
+     */
+    private void remove(final int index) {
+        final int position = heapPosition[index];
+        heapPosition[index] = -1;
+        heapSize--;
+        if (position == heapSize) {
+            return;
+        }
+        final int last = heap[heapSize];
+        heap[position] = last;
+        heapPosition[last] = position;
+        siftDown(position);
+        siftUp(heapPosition[last]);
+    }
+
+    /**
+     * Move a entry of the heap towards the root until the heap is valid again.
+     *
+     * @param position the position of the entry in the heap
+     */
+    private void siftUp(final int position) {
+        final int node = heap[position];
+        final long key = heapKey[node];
+        int current = position;
+        while (current > 0) {
+            final int parentPosition = (current - 1) >>> 1;
+            final int parentNode = heap[parentPosition];
+            if (heapKey[parentNode] <= key) {
+                break;
+            }
+            heap[current] = parentNode;
+            heapPosition[parentNode] = current;
+            current = parentPosition;
+        }
+        heap[current] = node;
+        heapPosition[node] = current;
+    }
+
+    /**
+     * Move a entry of the heap towards the leaves until the heap is valid again.
+     *
+     * @param position the position of the entry in the heap
+     */
+    private void siftDown(final int position) {
+        final int node = heap[position];
+        final long key = heapKey[node];
+        int current = position;
+        while (true) {
+            int child = (current * 2) + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (((child + 1) < heapSize) && (heapKey[heap[child + 1]] < heapKey[heap[child]])) {
+                child++;
+            }
+            if (heapKey[heap[child]] >= key) {
+                break;
+            }
+            heap[current] = heap[child];
+            heapPosition[heap[current]] = current;
+            current = child;
+        }
+        heap[current] = node;
+        heapPosition[node] = current;
+    }
+}
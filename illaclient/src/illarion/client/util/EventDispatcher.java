@@ -0,0 +1,347 @@
+/*
+ * This file is part of the Illarion Client.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Client.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.client.util;
+
+import illarion.client.world.World;
+import org.apache.log4j.Logger;
+import org.bushe.swing.event.annotation.EventSubscriber;
+import org.bushe.swing.event.annotation.UseTheClassOfTheAnnotatedMethodsParameter;
+import org.illarion.engine.GameContainer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This is the dispatcher for events that are published very often, like attribute updates and mouse movements.
+ * Other then the {@link org.bushe.swing.event.EventBus} it does not search the subscribers when a event is published.
+ * The handlers that receive a class of events are resolved once and stored in a array, that is used for all
+ * following events of this class until the subscribers change. Once the handlers are resolved, publishing a event to
+ * typed {@link EventHandler} instances that are called on the publishing thread does not create any objects.
+ * <p />
+ * Classes receive the events by subscribing a {@link EventHandler} with {@link #subscribe(Class, EventHandler)}.
+ * Events published with this dispatcher are not send to the event bus. As a fallback for classes that were not
+ * converted yet, {@link #process(Object)} subscribes the methods annotated with {@link EventSubscriber}. Those methods
+ * are called using reflection, so each call creates the argument array and is slower then a typed handler.
+ * <p />
+ * Other then the event bus, this dispatcher holds strong references to all handlers. Every call of
+ * {@link #subscribe(Class, EventHandler)} needs a matching call of {@link #unsubscribe(EventHandler)} and every call of
+ * {@link #process(Object)} needs a matching call of {@link #unprocess(Object)}. Otherwise the subscriber is never
+ * released and keeps receiving events.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+@ThreadSafe
+public final class EventDispatcher {
+    /**
+     * This enumeration contains the ways the events are delivered to a handler.
+     */
+    public enum Delivery {
+        /**
+         * The handler is called on the thread that publishes the event.
+         */
+        Synchronous,
+
+        /**
+         * The handler is called on the render thread during the next update of the game.
+         */
+        RenderThread
+    }
+
+    /**
+     * The logger that provides the logging output of this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(EventDispatcher.class);
+
+    /**
+     * The singleton instance of this class.
+     */
+    private static final EventDispatcher INSTANCE = new EventDispatcher();
+
+    /**
+     * The array that is used for event classes without any handlers.
+     */
+    private static final EventHandler<?>[] NO_HANDLERS = new EventHandler<?>[0];
+
+    /**
+     * The handlers subscribed to each class of events.
+     */
+    @GuardedBy("subscriptions")
+    @Nonnull
+    private final Map<Class<?>, List<EventHandler<?>>> subscriptions;
+
+    /**
+     * The resolved handlers for each class of published events. This includes the handlers subscribed to the super
+     * classes and interfaces of the event class.
+     */
+    @Nonnull
+    private final Map<Class<?>, EventHandler<?>[]> resolvedHandlers;
+
+    /**
+     * Private constructor to ensure that only the singleton instance exists.
+     */
+    private EventDispatcher() {
+        subscriptions = new HashMap<Class<?>, List<EventHandler<?>>>();
+        resolvedHandlers = new ConcurrentHashMap<Class<?>, EventHandler<?>[]>();
+    }
+
+    /**
+     * Get the singleton instance of this class.
+     *
+     * @return the singleton instance
+     */
+    @Nonnull
+    public static EventDispatcher getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Subscribe a handler that is called on the publishing thread. The handler needs to be removed with
+     * {@link #unsubscribe(EventHandler)} once it is not needed anymore.
+     *
+     * @param eventClass the class of the events, the handler receives the events of the sub classes as well
+     * @param handler    the handler
+     * @param <T>        the type of the events
+     */
+    public <T> void subscribe(@Nonnull final Class<T> eventClass, @Nonnull final EventHandler<? super T> handler) {
+        subscribe(eventClass, handler, Delivery.Synchronous);
+    }
+
+    /**
+     * Subscribe a handler. The handler needs to be removed with {@link #unsubscribe(EventHandler)} once it is not
+     * needed anymore.
+     *
+     * @param eventClass the class of the events, the handler receives the events of the sub classes as well
+     * @param handler    the handler
+     * @param delivery   the way the events are delivered to the handler
+     * @param <T>        the type of the events
+     */
+    public <T> void subscribe(@Nonnull final Class<T> eventClass, @Nonnull final EventHandler<? super T> handler,
+                              @Nonnull final Delivery delivery) {
+        final EventHandler<?> storedHandler;
+        if (delivery == Delivery.RenderThread) {
+            storedHandler = new RenderThreadHandler<T>(handler);
+        } else {
+            storedHandler = handler;
+        }
+        synchronized (subscriptions) {
+            List<EventHandler<?>> handlers = subscriptions.get(eventClass);
+            if (handlers == null) {
+                handlers = new ArrayList<EventHandler<?>>();
+                subscriptions.put(eventClass, handlers);
+            }
+            handlers.add(storedHandler);
+            resolvedHandlers.clear();
+        }
+    }
+
+    /**
+     * Remove a handler. The handler is removed from all event classes it was subscribed to.
+     *
+     * @param handler the handler
+     */
+    public void unsubscribe(@Nonnull final EventHandler<?> handler) {
+        synchronized (subscriptions) {
+            for (final List<EventHandler<?>> handlers : subscriptions.values()) {
+                final Iterator<EventHandler<?>> itr = handlers.iterator();
+                while (itr.hasNext()) {
+                    final EventHandler<?> storedHandler = itr.next();
+                    if (storedHandler.equals(handler) || ((storedHandler instanceof RenderThreadHandler) &&
+                            ((RenderThreadHandler<?>) storedHandler).handler.equals(handler))) {
+                        itr.remove();
+                    }
+                }
+            }
+            resolvedHandlers.clear();
+        }
+    }
+
+    /**
+     * Subscribe all methods of a object that are annotated with {@link EventSubscriber}. This is the fallback for
+     * classes that receive events from the event bus and were not converted to typed handlers yet. The methods are
+     * called on the publishing thread using reflection. Other then the event bus, this dispatcher keeps a strong
+     * reference to the object, so every call of this function needs a matching call of {@link #unprocess(Object)}.
+     *
+     * @param subscriber the object
+     */
+    public void process(@Nonnull final Object subscriber) {
+        for (final Method method : subscriber.getClass().getMethods()) {
+            @Nullable final EventSubscriber annotation = method.getAnnotation(EventSubscriber.class);
+            if ((annotation == null) || (method.getParameterTypes().length != 1)) {
+                continue;
+            }
+            Class<?> eventClass = annotation.eventClass();
+            if (eventClass == UseTheClassOfTheAnnotatedMethodsParameter.class) {
+                eventClass = method.getParameterTypes()[0];
+            }
+            subscribeMethod(eventClass, new MethodHandler(subscriber, method));
+        }
+    }
+
+    /**
+     * Remove all methods of a object that were subscribed by {@link #process(Object)}.
+     *
+     * @param subscriber the object
+     */
+    public void unprocess(@Nonnull final Object subscriber) {
+        synchronized (subscriptions) {
+            for (final List<EventHandler<?>> handlers : subscriptions.values()) {
+                final Iterator<EventHandler<?>> itr = handlers.iterator();
+                while (itr.hasNext()) {
+                    final EventHandler<?> handler = itr.next();
+                    if ((handler instanceof MethodHandler) && (((MethodHandler) handler).target == subscriber)) {
+                        itr.remove();
+                    }
+                }
+            }
+            resolvedHandlers.clear();
+        }
+    }
+
+    /**
+     * Publish a event to all handlers that are subscribed to its class or one of its super classes and interfaces.
+     *
+     * @param event the event
+     */
+    @SuppressWarnings("unchecked")
+    public void publish(@Nonnull final Object event) {
+        final Class<?> eventClass = event.getClass();
+        EventHandler<?>[] handlers = resolvedHandlers.get(eventClass);
+        if (handlers == null) {
+            handlers = resolveHandlers(eventClass);
+        }
+        for (final EventHandler<?> handler : handlers) {
+            try {
+                ((EventHandler<Object>) handler).handleEvent(event);
+            } catch (@Nonnull final RuntimeException e) {
+                LOGGER.error("Handler failed to process " + eventClass.getSimpleName(), e);
+            }
+        }
+    }
+
+    /**
+     * Subscribe the handler of a annotated method.
+     *
+     * @param eventClass the class of the events
+     * @param handler    the handler
+     */
+    @SuppressWarnings("unchecked")
+    private void subscribeMethod(@Nonnull final Class<?> eventClass, @Nonnull final MethodHandler handler) {
+        subscribe((Class<Object>) eventClass, handler);
+    }
+
+    /**
+     * Collect the handlers that receive a class of events and store them for the following events of this class.
+     *
+     * @param eventClass the class of the events
+     * @return the handlers
+     */
+    @Nonnull
+    private EventHandler<?>[] resolveHandlers(@Nonnull final Class<?> eventClass) {
+        synchronized (subscriptions) {
+            final List<EventHandler<?>> result = new ArrayList<EventHandler<?>>();
+            for (final Map.Entry<Class<?>, List<EventHandler<?>>> entry : subscriptions.entrySet()) {
+                if (entry.getKey().isAssignableFrom(eventClass)) {
+                    result.addAll(entry.getValue());
+                }
+            }
+            final EventHandler<?>[] handlers = result.isEmpty() ? NO_HANDLERS :
+                    result.toArray(new EventHandler<?>[result.size()]);
+            resolvedHandlers.put(eventClass, handlers);
+            return handlers;
+        }
+    }
+
+    /**
+     * This handler calls a method annotated with {@link EventSubscriber}.
+     */
+    private static final class MethodHandler implements EventHandler<Object> {
+        /**
+         * The object the method is called on.
+         */
+        @Nonnull
+        private final Object target;
+
+        /**
+         * The method.
+         */
+        @Nonnull
+        private final Method method;
+
+        /**
+         * Create a new handler for a annotated method.
+         *
+         * @param target the object the method is called on
+         * @param method the method
+         */
+        MethodHandler(@Nonnull final Object target, @Nonnull final Method method) {
+            this.target = target;
+            this.method = method;
+            method.setAccessible(true);
+        }
+
+        @Override
+        public void handleEvent(@Nonnull final Object event) {
+            try {
+                method.invoke(target, event);
+            } catch (@Nonnull final IllegalAccessException e) {
+                LOGGER.error("Can't access event subscriber " + method.getName(), e);
+            } catch (@Nonnull final InvocationTargetException e) {
+                LOGGER.error("Event subscriber " + method.getName() + " failed.", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * This handler forwards the events to a other handler that is called on the render thread.
+     *
+     * @param <T> the type of the events
+     */
+    private static final class RenderThreadHandler<T> implements EventHandler<T> {
+        /**
+         * The handler that is called on the render thread.
+         */
+        @Nonnull
+        private final EventHandler<? super T> handler;
+
+        /**
+         * Create a new handler that forwards the events to the render thread.
+         *
+         * @param handler the handler that is called on the render thread
+         */
+        RenderThreadHandler(@Nonnull final EventHandler<? super T> handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void handleEvent(@Nonnull final T event) {
+            World.getUpdateTaskManager().addTask(new UpdateTask() {
+                @Override
+                public void onUpdateGame(@Nonnull final GameContainer container, final int delta) {
+                    handler.handleEvent(event);
+                }
+            }, UpdatePriority.World);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * This file is part of the Illarion Client.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Client.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.client.util;
+
+import javax.annotation.Nonnull;
+
+/**
+ * This interface is used for a class that receives the events of one type published by the {@link EventDispatcher}.
+ *
+ * @param <T> the type of the events
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+public interface EventHandler<T> {
+    /**
+     * Handle a published event.
+     *
+     * @param event the event
+     */
+    void handleEvent(@Nonnull T event);
+}
@@ -0,0 +1,42 @@
+/*
+ * This file is part of the Illarion Client.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Client.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.client.util;
+
+import illarion.client.world.MapTile;
+import illarion.client.world.World;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * This is the search map that reads the tiles from the map of the game world.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+@ThreadSafe
+final class GameMapSearchMap implements SearchMap {
+    @Override
+    public int getMovementCost(final int x, final int y, final int level) {
+        @Nullable final MapTile tile = World.getMap().getMapAt(x, y, level);
+        if ((tile == null) || tile.isBlocked()) {
+            return BLOCKED;
+        }
+        return tile.getMovementCost();
+    }
+}
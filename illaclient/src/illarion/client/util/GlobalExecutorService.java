@@ -18,34 +18,106 @@
  */
 package illarion.client.util;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import illarion.common.util.Stoppable;
+import illarion.common.util.StoppableStorage;
+import org.apache.log4j.Logger;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * This class stores the reference to the global executor service.
+ * This class stores the references to the global executor services. The tasks are split into two tiers:
+ * <ul>
+ * <li>The compute tier runs tasks that keep the CPU busy, like parsing the resource tables. It has one thread per
+ * processor.</li>
+ * <li>The I/O tier runs tasks that spend most of their time waiting for the disk or the network. It has more threads
+ * then processors, so waiting tasks do not block the others.</li>
+ * </ul>
+ * Both tiers have a bounded queue. In case a queue is full, the task is executed by the thread that tried to submit
+ * it. That slows down the producer instead of dropping tasks or growing the queue without limit. Once the services
+ * are shut down, submitting a task throws a {@link RejectedExecutionException}, so the caller is able to handle the
+ * task on its own.
+ * <p />
+ * Tasks that need to run on the render thread are handed over using the {@link UpdateTaskManager}.
  *
  * @author Martin Karing &lt;nitram@illarion.org&gt;
  */
 public class GlobalExecutorService {
     /**
-     * The executor service instance.
+     * The logger that provides the logging output of this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(GlobalExecutorService.class);
+
+    /**
+     * The amount of tasks each tier is able to queue.
+     */
+    private static final int QUEUE_SIZE = 256;
+
+    /**
+     * The amount of threads of the I/O tier.
+     */
+    private static final int IO_THREADS = 8;
+
+    /**
+     * The time in seconds idle threads are kept alive.
+     */
+    private static final long KEEP_ALIVE_TIME = 30L;
+
+    /**
+     * The executor service for tasks that keep the CPU busy.
      */
-    private static final ExecutorService SERVICE = Executors.newCachedThreadPool();
+    @Nonnull
+    private static final Tier COMPUTE_SERVICE = new Tier("Compute", Runtime.getRuntime().availableProcessors());
 
     /**
-     * Get the service instance.
+     * The executor service for tasks that wait for the disk or the network.
+     */
+    @Nonnull
+    private static final Tier IO_SERVICE = new Tier("IO", IO_THREADS);
+
+    static {
+        StoppableStorage.getInstance().add(COMPUTE_SERVICE);
+        StoppableStorage.getInstance().add(IO_SERVICE);
+    }
+
+    /**
+     * Get the service for tasks that keep the CPU busy.
+     *
+     * @return the service instance
+     */
+    @Nonnull
+    public static ExecutorService getComputeService() {
+        return COMPUTE_SERVICE;
+    }
+
+    /**
+     * Get the service for tasks that spend most of their time waiting for the disk or the network.
      *
      * @return the service instance
      */
-    public static ExecutorService getService() {
-        return SERVICE;
+    @Nonnull
+    public static ExecutorService getIoService() {
+        return IO_SERVICE;
+    }
+
+    /**
+     * Get the lines that describe the current state of the tiers. This is used for the diagnostic display.
+     *
+     * @return the state of the compute tier and the I/O tier
+     */
+    @Nonnull
+    public static CharSequence[] getDiagnosticLines() {
+        return new CharSequence[]{COMPUTE_SERVICE.getState(), IO_SERVICE.getState()};
     }
 
     /**
      * Shut the service down. This class will be rendered unusable after calling this function.
      */
     public static void shutdown() {
-        SERVICE.shutdown();
+        COMPUTE_SERVICE.saveShutdown();
+        IO_SERVICE.saveShutdown();
     }
 
     /**
@@ -54,4 +126,137 @@ public class GlobalExecutorService {
     private GlobalExecutorService() {
         // nothing
     }
+
+    /**
+     * This is one tier of the executor services. It keeps track of the time the tasks spend in the queue and how
+     * often the queue was full.
+     */
+    private static final class Tier extends ThreadPoolExecutor implements Stoppable {
+        /**
+         * The name of the tier.
+         */
+        @Nonnull
+        private final String name;
+
+        /**
+         * The total time in nanoseconds the started tasks waited in the queue.
+         */
+        @Nonnull
+        private final AtomicLong totalWaitTime;
+
+        /**
+         * The amount of tasks that were started.
+         */
+        @Nonnull
+        private final AtomicLong startedTasks;
+
+        /**
+         * The amount of tasks that were executed by the submitting thread, because the queue was full.
+         */
+        @Nonnull
+        private final AtomicLong saturatedTasks;
+
+        /**
+         * Create a new tier.
+         *
+         * @param tierName the name of the tier, it is used for the names of the threads
+         * @param threads  the amount of threads
+         */
+        Tier(@Nonnull final String tierName, final int threads) {
+            super(threads, threads, KEEP_ALIVE_TIME, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(QUEUE_SIZE));
+            name = tierName;
+            totalWaitTime = new AtomicLong();
+            startedTasks = new AtomicLong();
+            saturatedTasks = new AtomicLong();
+            allowCoreThreadTimeOut(true);
+
+            final AtomicInteger threadIndex = new AtomicInteger();
+            setThreadFactory(new ThreadFactory() {
+                @Nonnull
+                @Override
+                public Thread newThread(@Nonnull final Runnable r) {
+                    final Thread thread = new Thread(r, name + " Worker " + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            setRejectedExecutionHandler(new RejectedExecutionHandler() {
+                @Override
+                public void rejectedExecution(@Nonnull final Runnable r, @Nonnull final ThreadPoolExecutor e) {
+                    if (e.isShutdown()) {
+                        throw new RejectedExecutionException("Tier " + name + " is shut down.");
+                    }
+                    saturatedTasks.incrementAndGet();
+                    r.run();
+                }
+            });
+        }
+
+        @Override
+        public void execute(@Nonnull final Runnable command) {
+            super.execute(new QueuedTask(command));
+        }
+
+        @Override
+        protected void beforeExecute(@Nonnull final Thread t, @Nonnull final Runnable r) {
+            super.beforeExecute(t, r);
+            if (r instanceof QueuedTask) {
+                totalWaitTime.addAndGet(System.nanoTime() - ((QueuedTask) r).queueTime);
+                startedTasks.incrementAndGet();
+            }
+        }
+
+        /**
+         * Get the current state of this tier.
+         *
+         * @return the line that describes the state
+         */
+        @Nonnull
+        String getState() {
+            final long started = startedTasks.get();
+            final long averageWait = (started == 0L) ? 0L : (totalWaitTime.get() / started);
+            return name + ": " + getActiveCount() + " active, " + getQueue().size() + " queued, " +
+                    TimeUnit.NANOSECONDS.toMicros(averageWait) + "us wait, " + saturatedTasks.get() + " saturated";
+        }
+
+        @Override
+        public void saveShutdown() {
+            if (isShutdown()) {
+                return;
+            }
+            LOGGER.debug(getState() + ", " + getCompletedTaskCount() + " completed");
+            shutdown();
+        }
+    }
+
+    /**
+     * This is the wrapper of a task that stores the time the task was queued.
+     */
+    private static final class QueuedTask implements Runnable {
+        /**
+         * The task.
+         */
+        @Nonnull
+        private final Runnable task;
+
+        /**
+         * The time the task was queued in nanoseconds.
+         */
+        private final long queueTime;
+
+        /**
+         * Create the wrapper of a task.
+         *
+         * @param task the task
+         */
+        QueuedTask(@Nonnull final Runnable task) {
+            this.task = task;
+            queueTime = System.nanoTime();
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+    }
 }
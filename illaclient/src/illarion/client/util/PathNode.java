@@ -18,117 +18,23 @@
  */
 package illarion.client.util;
 
-import gnu.trove.map.hash.TLongObjectHashMap;
-import gnu.trove.procedure.TObjectProcedure;
-import illarion.client.world.MapTile;
-import illarion.client.world.World;
 import illarion.common.types.Location;
-import illarion.common.util.Reusable;
-import javolution.context.ObjectFactory;
 
 import javax.annotation.Nonnull;
-import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
 
 /**
- * A single path node that is used during the path finding and represents a single step on the path that is searched or
- * was found.
+ * A single path node that represents a single step on a path that was found by the {@link Pathfinder}.
  *
  * @author Martin Karing &lt;nitram@illarion.org&gt;
  * @author Nop
  */
-public final class PathNode
-        implements Comparable<PathNode>, Reusable {
+@Immutable
+public final class PathNode {
     /**
-     * This procedure is used to recycle all references in the cache.
-     *
-     * @author Martin Karing &lt;nitram@illarion.org&gt;
-     */
-    private static final class CleanCacheProcedure
-            implements TObjectProcedure<PathNode> {
-        /**
-         * Public constructor so the parent class is able to create a instance.
-         */
-        CleanCacheProcedure() {
-            // nothing to do
-        }
-
-        @Override
-        public boolean execute(@Nonnull final PathNode node) {
-            node.reset();
-            node.recycle();
-            return true;
-        }
-
-    }
-
-    /**
-     * The factory that is used to create and buffer the instances of the path nodes.
-     *
-     * @author Martin Karing &lt;nitram@illarion.org&gt;
+     * The movement cost to reach this tile from the start of the path.
      */
-    private static final class PathNodeFactory
-            extends ObjectFactory<PathNode> {
-        /**
-         * Public constructor to allow the parent class to create proper instances.
-         */
-        PathNodeFactory() {
-            // nothing to do
-        }
-
-        /**
-         * Create a new path node.
-         *
-         * @return the new path node instance
-         */
-        @Nonnull
-        @Override
-        protected PathNode create() {
-            return new PathNode();
-        }
-    }
-
-    /**
-     * The cache for the path nodes that were loaded already. It needed to store them so the pathfinder can access
-     * values calculated before.
-     */
-    @Nonnull
-    private static final TLongObjectHashMap<PathNode> CACHE = new TLongObjectHashMap<PathNode>();
-
-    /**
-     * The instance of the CleanCacheProcedure instance that is used to clean up the path nodes.
-     */
-    private static final TObjectProcedure<PathNode> CLEAN_HELPER = new CleanCacheProcedure();
-
-    /**
-     * The factory used to create and buffer the instances of this path nodes.
-     */
-    private static final PathNodeFactory FACTORY = new PathNodeFactory();
-
-    /**
-     * Is the tile blocked or not.
-     */
-    private boolean blocked;
-
-    /**
-     * True if the tile is in the list of tiles that were already checked.
-     */
-    private boolean close;
-
-    /**
-     * The movement cost to reach this tile at the current settings. Means the movement cost of this tile and of all
-     * tiles stepped on before.
-     */
-    private int cost;
-
-    /**
-     * The depth of the tile. Means how many steps it is away from the starting position.
-     */
-    private int depth;
-
-    /**
-     * The heuristic value, means the estimated movement cost to reach the target position.
-     */
-    private int heuristic;
+    private final int cost;
 
     /**
      * The location this path node represents.
@@ -136,79 +42,15 @@ public final class PathNode
     @Nonnull
     private final Location location;
 
-    /**
-     * True in case the path node is in the list of tile that still need to be checked.
-     */
-    private boolean open;
-
-    /**
-     * The parent node, so the node the character steps on before it reaches this path node.
-     */
-    @Nullable
-    private PathNode parent;
-
-    /**
-     * The map tile of this path node, needed to access some tile related information.
-     */
-    @Nullable
-    private MapTile tile;
-
     /**
      * Constructor for a path node.
-     */
-    PathNode() {
-        location = new Location();
-    }
-
-    /**
-     * Delete all nodes in the cache. Needed for a fresh start, like a new path finding.
-     */
-    public static void clearCache() {
-        CACHE.forEachValue(CLEAN_HELPER);
-        CACHE.clear();
-    }
-
-    /**
-     * Get a path node on a specified location. The path node is taken from the cache and is only newly created in case
-     * it is not present in the cache.
      *
-     * @param loc the location the path node shall represent
-     * @return the path node, fresh created or from the cache
-     */
-    public static PathNode getNode(@Nonnull final Location loc) {
-        final long key = loc.getKey();
-        PathNode node = CACHE.get(key);
-        if (node == null) {
-            node = FACTORY.object();
-            node.setPosition(loc);
-
-            CACHE.put(key, node);
-        }
-        return node;
-    }
-
-    /**
-     * Compare this path node with another one. Needed to sort the path nodes in the list of path nodes that are still
-     * to check, so the path nodes that most likely are checked first. The {@link #getCost()} and the heuristic value
-     * are added and compared for both nodes.
-     *
-     * @param o the path node this path nodes is compared with
-     * @return 0 in case the result of the sumation is the same for both nodes, 1 in case the value of this node is
-     *         larger, else -1
-     * @see Comparable#compareTo(Object)
+     * @param location the location of this node
+     * @param cost     the movement cost to reach this node from the start of the path
      */
-    @Override
-    public int compareTo(final PathNode o) {
-        final int ownf = heuristic + cost;
-        final int otherf = o.heuristic + o.cost;
-
-        if (ownf < otherf) {
-            return -1;
-        }
-        if (ownf > otherf) {
-            return 1;
-        }
-        return 0;
+    PathNode(@Nonnull final Location location, final int cost) {
+        this.location = location;
+        this.cost = cost;
     }
 
     /**
@@ -231,18 +73,7 @@ public final class PathNode
     }
 
     /**
-     * Check if the tile is in the list of tiles that are already checked.
-     *
-     * @return true if its in the list
-     */
-    public boolean isClosed() {
-        return close;
-    }
-
-    /**
-     * Get the movement cost to reach this tile when walking from the starting location on the current path to this
-     * path
-     * node.
+     * Get the movement cost to reach this tile when walking from the starting location on the path to this path node.
      *
      * @return the walking cost to reach this tile
      */
@@ -250,15 +81,6 @@ public final class PathNode
         return cost;
     }
 
-    /**
-     * Get the depth of the tile, so the steps needed to reach this node.
-     *
-     * @return the steps needed to reach this path node
-     */
-    public int getDepth() {
-        return depth;
-    }
-
     /**
      * Get the location of this path node.
      *
@@ -269,37 +91,6 @@ public final class PathNode
         return location;
     }
 
-    /**
-     * Check if the tile is in the list of tiles that still need to be checked.
-     *
-     * @return true if its in the list
-     */
-    public boolean isOpen() {
-        return open;
-    }
-
-    /**
-     * Get the parent node, so the node the character steps on before steping on this node.
-     *
-     * @return the parent path node
-     */
-    @Nullable
-    public PathNode getParent() {
-        return parent;
-    }
-
-    /**
-     * Get the movement cost to get on this path node, independent from all tiles before.
-     *
-     * @return the movement cost
-     */
-    public int getValue() {
-        if (tile == null) {
-            return 0;
-        }
-        return tile.getMovementCost();
-    }
-
     /**
      * Get the has code for this path node.
      *
@@ -311,95 +102,6 @@ public final class PathNode
         return (int) (location.getKey() % Integer.MAX_VALUE);
     }
 
-    /**
-     * Check if this path node is blocked by anything, such as a item or a other character or simply a tile that is not
-     * passable.
-     *
-     * @return true if the tile is blocked
-     */
-    public boolean isBlocked() {
-        return blocked;
-    }
-
-    @Override
-    public void recycle() {
-        reset();
-        FACTORY.recycle(this);
-    }
-
-    @Override
-    public void reset() {
-        tile = null;
-        parent = null;
-        cost = 0;
-        depth = 0;
-        blocked = false;
-        open = false;
-        close = false;
-        heuristic = 0;
-    }
-
-    /**
-     * Change the status if the path node is in the list of tiles that are already checked, or not.
-     *
-     * @param newClose true if the tile is in the list
-     */
-    public void setClosed(final boolean newClose) {
-        close = newClose;
-    }
-
-    /**
-     * Set the movement cost to reach this tile when walking from the starting location on the current path to this
-     * path
-     * node.
-     *
-     * @param newCost the new value for the movement cost
-     */
-    public void setCost(final int newCost) {
-        cost = newCost;
-    }
-
-    /**
-     * Set the enstimated movement cost to reach the target location.
-     *
-     * @param newHeuristic the new estimated walking cost to reach the target.
-     */
-    public void setHeuristic(final int newHeuristic) {
-        heuristic = newHeuristic;
-    }
-
-    /**
-     * Change the status if the path node is in the list of tiles that still need to be checked, or not.
-     *
-     * @param newOpen true if the tile is in the list
-     */
-    public void setOpen(final boolean newOpen) {
-        open = newOpen;
-    }
-
-    /**
-     * Set the parent node, that is before this node in the path. This also updates the depth to the depth of the
-     * parent
-     * node + 1.
-     *
-     * @param newParent the new parent node
-     */
-    public void setParent(@Nonnull final PathNode newParent) {
-        parent = newParent;
-        depth = newParent.getDepth() + 1;
-    }
-
-    /**
-     * Set the location of this node. This also fetches the required references for this class to work properly.
-     *
-     * @param location the location of this node
-     */
-    public void setPosition(@Nonnull final Location location) {
-        this.location.set(location);
-        tile = World.getMap().getMapAt(this.location);
-        blocked = (tile == null) || tile.isBlocked();
-    }
-
     /**
      * Get a string that represents this path node.
      *
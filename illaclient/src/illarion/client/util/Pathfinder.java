@@ -18,39 +18,78 @@
  */
 package illarion.client.util;
 
+import illarion.client.IllaClient;
 import illarion.client.crash.PathfinderCrashHandler;
+import illarion.common.config.ConfigKey;
 import illarion.common.types.Location;
 import illarion.common.util.Stoppable;
 import illarion.common.util.StoppableStorage;
+import org.apache.log4j.Logger;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.util.ArrayList;
-import java.util.Collections;
+import javax.annotation.concurrent.GuardedBy;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Pathfinder to search the best way between two locations. Using the A*-algorithm.
+ * <p />
+ * Paths that got blocked while the player walks on them are repaired using the D* Lite algorithm. The planner keeps
+ * its state between the repairs of a path and only calculates the parts of the map again that are effected by the
+ * tiles that changed since the last repair.
+ * <p />
+ * Destinations that are too far away for the A*-algorithm are routed on the data of the mini map. The result of
+ * such a route is a list of waypoints that are walked one after another.
+ * <p />
+ * The calculations are executed as tasks of the compute tier of the {@link GlobalExecutorService}. At most one task
+ * of the pathfinder is scheduled at a time. It keeps working until no more requests are pending.
  *
  * @author Martin Karing &lt;nitram@illarion.org&gt;
  */
-public final class Pathfinder
-        extends Thread
-        implements Stoppable {
+public final class Pathfinder implements Stoppable {
     /**
-     * The singleton instance of the pathfinder class.
+     * The key in the configuration that stores the maximum length of a path.
+     */
+    @SuppressWarnings("nls")
+    public static final String CFG_MAX_LENGTH = "pathfinderMaxLength";
+
+    /**
+     * The default value of the maximum length of a path.
+     */
+    public static final int DEFAULT_MAX_LENGTH = 30;
+
+    /**
+     * The largest maximum length of a path that is accepted from the configuration. The memory used by the search
+     * grows with the square of this value.
+     */
+    static final int LIMIT_MAX_LENGTH = 200;
+
+    /**
+     * The logger that provides the logging output of this class.
      */
-    private static Pathfinder instance;
+    private static final Logger LOGGER = Logger.getLogger(Pathfinder.class);
 
     /**
-     * The maximum length of a path, that is accepted, before the pathfinder gives up searching.
+     * The mode of a request that searches a new path.
      */
-    private static final int MAX_LENGTH = 30;
+    private static final int MODE_SEARCH = 0;
 
     /**
-     * Minimum cost of a one step to the next tile. This is used for the Heuristic of the path finding
+     * The mode of a request that repairs a path.
      */
-    private static final int MIN_MOVE_COST = 5;
+    private static final int MODE_REPAIR = 1;
+
+    /**
+     * The mode of a request that searches a route on the mini map.
+     */
+    private static final int MODE_ROUTE = 2;
+
+    /**
+     * The singleton instance of the pathfinder class.
+     */
+    @Nullable
+    private static volatile Pathfinder instance;
 
     /**
      * The end location of the current path finding action.
@@ -59,10 +98,54 @@ public final class Pathfinder
     private final Location endLoc;
 
     /**
-     * List of path nodes that were not considered fully for searching yet.
+     * The search that is used to find the paths.
+     */
+    @Nonnull
+    private final AStarSearch search;
+
+    /**
+     * The incremental planner that is used to repair paths.
      */
     @Nonnull
-    private final List<PathNode> open;
+    private final DStarLiteSearch replanner;
+
+    /**
+     * The planner for the routes on the mini map.
+     */
+    @Nonnull
+    private final RegionRouter router;
+
+    /**
+     * This flag is {@code true} while the replanner holds a state that needs to know about changed tiles.
+     */
+    private volatile boolean replannerActive;
+
+    /**
+     * The keys of the locations that changed since the last repair of the path.
+     */
+    @Nonnull
+    private long[] changedTiles;
+
+    /**
+     * The amount of valid entries in {@link #changedTiles}.
+     */
+    private int changedCount;
+
+    /**
+     * The buffer that receives the changed locations while the replanner works on them.
+     */
+    @Nonnull
+    private long[] processedTiles;
+
+    /**
+     * The amount of nodes expanded by the last full search. This is used to compare the repairs with full searches.
+     */
+    private int lastSearchExpanded;
+
+    /**
+     * The mode of the requested calculation.
+     */
+    private int mode;
 
     /**
      * The class that is supposed to receive the generated path.
@@ -70,15 +153,33 @@ public final class Pathfinder
     @Nullable
     private PathReceiver receiver;
 
+    /**
+     * The class that is supposed to receive the generated route.
+     */
+    @Nullable
+    private RouteReceiver routeReceiver;
+
     /**
      * The restart flag that is set true in case a new path shall be searched.
      */
-    private boolean restart;
+    private volatile boolean restart;
 
     /**
-     * The flag that stores of the thread is running or not.
+     * The flag that stores if the pathfinder accepts requests or not.
      */
-    private boolean running;
+    private volatile boolean running;
+
+    /**
+     * This flag is {@code true} while the task that processes the requests is scheduled or running.
+     */
+    @GuardedBy("this")
+    private boolean scheduled;
+
+    /**
+     * The task that processes the requests on the compute tier.
+     */
+    @Nonnull
+    private final Runnable searchTask;
 
     /**
      * The start location of the current path finding action.
@@ -86,20 +187,49 @@ public final class Pathfinder
     @Nonnull
     private final Location startLoc;
 
+    /**
+     * The start location of the calculation that is currently processed.
+     */
+    @Nonnull
+    private final Location searchStartLoc;
+
+    /**
+     * The end location of the calculation that is currently processed.
+     */
+    @Nonnull
+    private final Location searchEndLoc;
+
     /**
      * Private constructor.
      */
-    @SuppressWarnings("nls")
     private Pathfinder() {
-        super("Pathfinder");
-        setDaemon(true);
-
         endLoc = new Location();
         startLoc = new Location();
+        searchStartLoc = new Location();
+        searchEndLoc = new Location();
+
+        final SearchMap map = new GameMapSearchMap();
+        search = new AStarSearch(map);
+        replanner = new DStarLiteSearch(map);
+        router = new RegionRouter(new MiniMapRegionMap());
+        changedTiles = new long[64];
+        processedTiles = new long[64];
+
+        searchTask = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    processRequests();
+                } catch (@Nonnull final RuntimeException e) {
+                    synchronized (Pathfinder.this) {
+                        scheduled = false;
+                    }
+                    PathfinderCrashHandler.getInstance().uncaughtException(Thread.currentThread(), e);
+                }
+            }
+        };
 
-        open = new ArrayList<PathNode>();
-
-        start();
+        running = true;
         StoppableStorage.getInstance().add(this);
     }
 
@@ -111,7 +241,6 @@ public final class Pathfinder
     public static synchronized Pathfinder getInstance() {
         if (instance == null) {
             instance = new Pathfinder();
-            instance.setUncaughtExceptionHandler(PathfinderCrashHandler.getInstance());
         }
         return instance;
     }
@@ -125,212 +254,262 @@ public final class Pathfinder
             StoppableStorage.getInstance().remove(instance);
         }
         instance = new Pathfinder();
-        instance.setUncaughtExceptionHandler(PathfinderCrashHandler.getInstance());
     }
 
     /**
-     * Search a path between two locations.
+     * Get the maximum length of a path, that is accepted, before the pathfinder gives up searching.
+     *
+     * @return the maximum amount of steps of a path
+     */
+    public static int getMaxLength() {
+        final int length = MaxLengthKey.KEY.getInteger();
+        if (length <= 0) {
+            return DEFAULT_MAX_LENGTH;
+        }
+        return Math.min(length, LIMIT_MAX_LENGTH);
+    }
+
+    /**
+     * Search a path between two locations. A search that is still running is aborted.
      *
      * @param pathStart the location where the path starts
      * @param pathDest  the location where the path ends
      * @param pathRec   the class that receives the resulting path
      */
     public void findPath(@Nonnull final Location pathStart, @Nonnull final Location pathDest, final PathReceiver pathRec) {
-        startLoc.set(pathStart);
-        endLoc.set(pathDest);
-        receiver = pathRec;
-        restart = true;
-        synchronized (this) {
-            notify();
+        requestPath(pathStart, pathDest, pathRec, null, MODE_SEARCH);
+    }
+
+    /**
+     * Repair a path that got blocked or that the player left. In case the destination is the same as the one of the
+     * path that was repaired last, only the changes since that repair are calculated again. Otherwise this performs a
+     * full search.
+     *
+     * @param pathStart the location of the player
+     * @param pathDest  the destination of the path
+     * @param pathRec   the class that receives the resulting path
+     */
+    public void repairPath(@Nonnull final Location pathStart, @Nonnull final Location pathDest,
+                           final PathReceiver pathRec) {
+        requestPath(pathStart, pathDest, pathRec, null, MODE_REPAIR);
+    }
+
+    /**
+     * Search a route to a destination that is too far away for a regular path. The route is searched on the data of
+     * the mini map, so start and destination need to be on the same level and inside the area of the mini map that is
+     * currently load.
+     *
+     * @param routeStart the location where the route starts
+     * @param routeDest  the location where the route ends
+     * @param routeRec   the class that receives the resulting route
+     */
+    public void findRoute(@Nonnull final Location routeStart, @Nonnull final Location routeDest,
+                          final RouteReceiver routeRec) {
+        requestPath(routeStart, routeDest, null, routeRec, MODE_ROUTE);
+    }
+
+    /**
+     * Report that a location on the map changed in a way that could effect the paths leading over it. This is
+     * supposed to be called for changed tiles and for characters that moved.
+     *
+     * @param key the key of the location that changed
+     */
+    public static void reportChangedTile(final long key) {
+        @Nullable final Pathfinder pathfinder = instance;
+        if ((pathfinder != null) && pathfinder.replannerActive) {
+            pathfinder.addChangedTile(key);
         }
     }
 
     /**
-     * Run the thread. This function keeps running as long as the path finder thread is working. It will sleep as long
-     * as the the path finder is idle. To quit this function use the {@link #saveShutdown()} function.
+     * Report that a tile of the mini map changed. The parts of the route planner that depend on the tile are
+     * calculated again the next time a route is searched.
+     *
+     * @param loc the location of the tile
      */
-    @SuppressWarnings("null")
-    @Override
-    public void run() {
-        Location searchStartLoc = null;
-        Location searchEndLoc = null;
-        boolean searching = false;
-        PathReceiver searchReceiver = null;
-        int maxDepth = 0;
-        boolean outputPath = false;
-        while (running) {
-            if (!searching && !restart) {
+    public static void reportMiniMapChange(@Nonnull final Location loc) {
+        @Nullable final Pathfinder pathfinder = instance;
+        if (pathfinder != null) {
+            pathfinder.router.reportChangedTile(loc);
+        }
+    }
+
+    /**
+     * Store a changed location until the next repair of a path.
+     *
+     * @param key the key of the location that changed
+     */
+    private synchronized void addChangedTile(final long key) {
+        if (changedCount == changedTiles.length) {
+            final long[] newTiles = new long[changedTiles.length * 2];
+            System.arraycopy(changedTiles, 0, newTiles, 0, changedCount);
+            changedTiles = newTiles;
+        }
+        changedTiles[changedCount++] = key;
+    }
+
+    /**
+     * Request the calculation of a path. A calculation that is still running is aborted. In case no task of the
+     * pathfinder is scheduled, a new one is handed to the compute tier.
+     *
+     * @param pathStart   the location where the path starts
+     * @param pathDest    the location where the path ends
+     * @param pathRec     the class that receives the resulting path
+     * @param routeRec    the class that receives the resulting route
+     * @param requestMode the mode of the calculation
+     */
+    private void requestPath(@Nonnull final Location pathStart, @Nonnull final Location pathDest,
+                             @Nullable final PathReceiver pathRec, @Nullable final RouteReceiver routeRec,
+                             final int requestMode) {
+        final boolean schedule;
+        synchronized (this) {
+            startLoc.set(pathStart);
+            endLoc.set(pathDest);
+            receiver = pathRec;
+            routeReceiver = routeRec;
+            mode = requestMode;
+            restart = true;
+            search.abort();
+            replanner.abort();
+
+            schedule = running && !scheduled;
+            if (schedule) {
+                scheduled = true;
+            }
+        }
+
+        if (schedule) {
+            try {
+                GlobalExecutorService.getComputeService().execute(searchTask);
+            } catch (@Nonnull final RejectedExecutionException e) {
+                LOGGER.debug("Pathfinder request dropped, the compute tier is shut down.");
                 synchronized (this) {
-                    try {
-                        wait();
-                    } catch (@Nonnull final InterruptedException e) {
-                        // nothing
-                    }
+                    scheduled = false;
                 }
-                continue;
             }
+        }
+    }
 
-            if (restart) {
-                if (searchStartLoc == null) {
-                    searchStartLoc = new Location();
-                }
-                if (searchEndLoc == null) {
-                    searchEndLoc = new Location();
+    /**
+     * Process the pending requests. This function keeps running until no more requests are pending or the
+     * pathfinder is shut down with the {@link #saveShutdown()} function.
+     */
+    private void processRequests() {
+        while (running) {
+            final PathReceiver searchReceiver;
+            final RouteReceiver searchRouteReceiver;
+            final int searchMode;
+            final int searchChangedCount;
+            synchronized (this) {
+                if (!restart) {
+                    scheduled = false;
+                    return;
                 }
                 restart = false;
                 searchStartLoc.set(startLoc);
                 searchEndLoc.set(endLoc);
                 searchReceiver = receiver;
-                if (searchReceiver == null) {
-                    continue;
-                }
-                searching = true;
-
-                PathNode.clearCache();
-                open.clear();
-                maxDepth = 0;
-                outputPath = false;
-
-                if (PathNode.getNode(searchEndLoc).isBlocked()) {
-                    searching = false;
-                    continue;
-                }
-
-                addToOpen(PathNode.getNode(searchStartLoc));
+                searchRouteReceiver = routeReceiver;
+                searchMode = mode;
+
+                final long[] tiles = changedTiles;
+                changedTiles = processedTiles;
+                processedTiles = tiles;
+                searchChangedCount = changedCount;
+                changedCount = 0;
             }
-
-            if (outputPath) {
-                outputPath = false;
-                searching = false;
-                if (PathNode.getNode(searchEndLoc).getParent() == null) {
+            final long searchStart = System.nanoTime();
+            if (searchMode == MODE_ROUTE) {
+                if (searchRouteReceiver == null) {
                     continue;
                 }
-
-                final Path resultPath = new Path();
-                PathNode currentNode = PathNode.getNode(searchEndLoc);
-                final PathNode searchNode = PathNode.getNode(searchStartLoc);
-                while (!currentNode.equals(searchNode)) {
-                    resultPath.prependStep(currentNode);
-                    currentNode = currentNode.getParent();
+                @Nullable final List<Location> route = router.route(searchStartLoc, searchEndLoc);
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Route search expanded " + router.getExpandedNodes() + " nodes in " +
+                            ((System.nanoTime() - searchStart) / 1000L) + "us");
+                }
+                if ((route != null) && !restart) {
+                    searchRouteReceiver.handleRoute(route);
                 }
-                resultPath.prependStep(searchNode);
-                searchReceiver.handlePath(resultPath);
-                searchStartLoc = null;
-                searchEndLoc = null;
                 continue;
             }
-
-            if ((maxDepth > MAX_LENGTH) || open.isEmpty()) {
-                searching = false;
+            if (searchReceiver == null) {
                 continue;
             }
 
-            final PathNode currentNode = open.get(0);
-            maxDepth = currentNode.getDepth();
-            final Location currentLoc = currentNode.getLocation();
-
-            if (currentNode.getLocation().equals(searchEndLoc)) {
-                outputPath = true;
-                continue;
+            @Nullable final Path resultPath;
+            if (searchMode == MODE_REPAIR) {
+                resultPath = repair(searchStartLoc, searchEndLoc, searchChangedCount);
+            } else {
+                replannerActive = false;
+                replanner.reset();
+                resultPath = search.search(searchStartLoc, searchEndLoc, getMaxLength());
+                lastSearchExpanded = search.getExpandedNodes();
             }
-
-            removeFromOpen(currentNode);
-            addToClosed(currentNode);
-
-            final Location searchLoc = new Location();
-            for (int dir = 0; dir < Location.DIR_MOVE8; ++dir) {
-                searchLoc.set(currentLoc);
-                searchLoc.moveSC(dir);
-                final PathNode searchNode = PathNode.getNode(searchLoc);
-
-                if (!searchNode.isBlocked()) {
-                    int newMoveCost = currentNode.getCost() + searchNode.getValue();
-
-                    if ((dir == Location.DIR_NORTHEAST) || (dir == Location.DIR_NORTHWEST) || (dir == Location
-                            .DIR_SOUTHEAST) || (dir == Location.DIR_SOUTHWEST)) {
-                        newMoveCost *= 1.1f;
-                    }
-
-                    if (newMoveCost < searchNode.getCost()) {
-                        if (searchNode.isOpen()) {
-                            removeFromOpen(searchNode);
-                        }
-                        if (searchNode.isClosed()) {
-                            removeFromClosed(searchNode);
-                        }
-                    }
-
-                    if (!searchNode.isOpen() && !searchNode.isClosed()) {
-                        searchNode.setCost(newMoveCost);
-                        searchNode.setParent(currentNode);
-
-                        maxDepth = Math.max(maxDepth, searchNode.getDepth());
-
-                        searchNode.setHeuristic(MIN_MOVE_COST * searchLoc.getDistance(searchEndLoc));
-
-                        addToOpen(searchNode);
-                    }
+            if (LOGGER.isDebugEnabled()) {
+                final long searchTime = (System.nanoTime() - searchStart) / 1000L;
+                if (searchMode == MODE_REPAIR) {
+                    LOGGER.debug("Path repair expanded " + replanner.getExpandedNodes() + " nodes in " + searchTime +
+                            "us, the last full search expanded " + lastSearchExpanded + " nodes");
+                } else {
+                    LOGGER.debug("Path search expanded " + lastSearchExpanded + " nodes in " + searchTime + "us");
                 }
             }
-            Collections.sort(open);
+            if ((resultPath != null) && !restart) {
+                searchReceiver.handlePath(resultPath);
+            }
         }
-    }
-
-    /**
-     * Stop the thread at the next chance.
-     */
-    @Override
-    public void saveShutdown() {
-        running = false;
         synchronized (this) {
-            notify();
+            scheduled = false;
         }
     }
 
     /**
-     * Start the thread.
-     */
-    @Override
-    public synchronized void start() {
-        running = true;
-        super.start();
-    }
-
-    /**
-     * Add a path node to the list of nodes that were considered already.
-     *
-     * @param node the path node that shall be added
-     */
-    private static void addToClosed(@Nonnull final PathNode node) {
-        node.setClosed(true);
-    }
-
-    /**
-     * Add a path node to the list of nodes that were not fully checked yet.
+     * Repair a path with the incremental planner. The planner is initialized in case it does not plan for the
+     * destination yet or the update fails.
      *
-     * @param node the path node that shall be added
+     * @param start        the location of the player
+     * @param dest         the destination of the path
+     * @param changedCount the amount of changed locations stored in {@link #processedTiles}
+     * @return the repaired path or {@code null} in case there is none
      */
-    private void addToOpen(@Nonnull final PathNode node) {
-        open.add(node);
-        node.setOpen(true);
+    @Nullable
+    private Path repair(@Nonnull final Location start, @Nonnull final Location dest, final int changedCount) {
+        if (replanner.isPlanningFor(dest) && replanner.update(start, processedTiles, changedCount)) {
+            return replanner.extractPath();
+        }
+        if (restart) {
+            return null;
+        }
+        replannerActive = true;
+        if (replanner.initialize(start, dest, getMaxLength())) {
+            return replanner.extractPath();
+        }
+        replannerActive = false;
+        return null;
     }
 
     /**
-     * Remove a node from the list of tiles that were considered already.
-     *
-     * @param node the node that shall be removed from the list
+     * Stop the pathfinder. The calculation that is currently running is aborted and no more requests are accepted.
      */
-    private static void removeFromClosed(@Nonnull final PathNode node) {
-        node.setClosed(false);
+    @Override
+    public void saveShutdown() {
+        running = false;
+        synchronized (this) {
+            search.abort();
+            replanner.abort();
+        }
     }
 
     /**
-     * Remove a node from the list of tiles that were not fully checked yet.
-     *
-     * @param node the node that shall be removed from the list
+     * This class holds the configuration handle of the maximal path length. The handle is fetched once the maximal
+     * length is requested for the first time, so the configuration is ready by then.
      */
-    private void removeFromOpen(@Nonnull final PathNode node) {
-        node.setOpen(false);
-        open.remove(node);
+    private static final class MaxLengthKey {
+        /**
+         * The handle of the maximal path length.
+         */
+        @Nonnull
+        static final ConfigKey KEY = IllaClient.getCfg().getKey(CFG_MAX_LENGTH);
     }
 }
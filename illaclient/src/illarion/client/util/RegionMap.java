@@ -0,0 +1,44 @@
+/*
+ * This file is part of the Illarion Client.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Client.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.client.util;
+
+import illarion.common.types.Location;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.BitSet;
+
+/**
+ * This is the source of the passable tiles the {@link RegionRouter} builds its graphs from. It hides where the tiles
+ * come from, so the router is able to run on the mini map as well as on any other map.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+interface RegionMap {
+    /**
+     * Copy the passable tiles of one level of the currently load map. The bit of a tile is stored at the index
+     * {@code y * GameMiniMap.WORLDMAP_WIDTH + x} with x and y relative to the origin of the map.
+     *
+     * @param level  the level to copy
+     * @param target the bit set that receives the passable tiles, it is cleared before
+     * @return the origin of the copied map or {@code null} in case the data of the level is not load
+     */
+    @Nullable
+    Location copyPassableTiles(int level, @Nonnull BitSet target);
+}
@@ -0,0 +1,791 @@
+/*
+ * This file is part of the Illarion Client.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Client.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.client.util;
+
+import illarion.client.world.GameMiniMap;
+import illarion.common.types.Location;
+import org.apache.log4j.Logger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.*;
+
+/**
+ * This is the planner for routes that are too long for the {@link AStarSearch}. It works on the data of the mini map,
+ * that stores for every explored tile if the tile is blocked.
+ * <p />
+ * The area of a mini map is split into square clusters. Where two neighbouring clusters share a run of passable tiles
+ * along their border, a portal is placed in the middle of the run. The costs to walk between the portals of each
+ * cluster are calculated once and stored in a abstract graph. A route is searched on this graph and results in a list
+ * of waypoints, that are walked one after another using the regular path finding as the tiles on the way are load.
+ * <p />
+ * The graphs are cached by the origin of the mini map. Changes of the mini map mark the effected clusters, that are
+ * calculated again the next time a route is searched on the graph.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+@NotThreadSafe
+final class RegionRouter {
+    /**
+     * The logger that provides the logging output of this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(RegionRouter.class);
+
+    /**
+     * The length of one side of a cluster.
+     */
+    private static final int CLUSTER_SIZE = 32;
+
+    /**
+     * The length of one side of the area of a mini map.
+     */
+    private static final int REGION_SIZE = GameMiniMap.WORLDMAP_WIDTH;
+
+    /**
+     * The amount of clusters along one side of the area of a mini map.
+     */
+    private static final int CLUSTER_COUNT = REGION_SIZE / CLUSTER_SIZE;
+
+    /**
+     * The cost of a straight step.
+     */
+    private static final int STRAIGHT_COST = 10;
+
+    /**
+     * The cost of a diagonal step.
+     */
+    private static final int DIAGONAL_COST = 11;
+
+    /**
+     * The cost that marks a tile that can't be reached.
+     */
+    private static final int INFINITE = Integer.MAX_VALUE / 4;
+
+    /**
+     * The ID of the abstract node that represents the destination of a route.
+     */
+    private static final int GOAL_NODE = REGION_SIZE * REGION_SIZE;
+
+    /**
+     * The ID used as parent of the nodes that are connected to the start of a route.
+     */
+    private static final int START_NODE = -1;
+
+    /**
+     * The amount of graphs stored in the cache.
+     */
+    private static final int CACHE_SIZE = 4;
+
+    /**
+     * The offsets on the x axis of the eight neighbours of a tile.
+     */
+    private static final int[] NEIGHBOUR_X = {0, 1, 1, 1, 0, -1, -1, -1};
+
+    /**
+     * The offsets on the y axis of the eight neighbours of a tile.
+     */
+    private static final int[] NEIGHBOUR_Y = {-1, -1, 0, 1, 1, 1, 0, -1};
+
+    /**
+     * The map the passable tiles are read from.
+     */
+    @Nonnull
+    private final RegionMap map;
+
+    /**
+     * The graphs, stored by the origin of the mini map they were created from.
+     */
+    @GuardedBy("cache")
+    @Nonnull
+    private final Map<Location, RegionGraph> cache;
+
+    /**
+     * The distances calculated by the last search inside a cluster, indexed by the tile inside the cluster.
+     */
+    @Nonnull
+    private final int[] clusterDistance;
+
+    /**
+     * The binary heap used by the search inside a cluster.
+     */
+    @Nonnull
+    private final int[] clusterHeap;
+
+    /**
+     * The position of each tile of a cluster in {@link #clusterHeap} or {@code -1} in case it is not in the heap.
+     */
+    @Nonnull
+    private final int[] clusterHeapPosition;
+
+    /**
+     * The amount of abstract nodes expanded during the last route search.
+     */
+    private int expandedNodes;
+
+    /**
+     * Create a new router with a empty cache.
+     *
+     * @param map the map the passable tiles are read from
+     */
+    RegionRouter(@Nonnull final RegionMap map) {
+        this.map = map;
+        cache = new LinkedHashMap<Location, RegionGraph>(CACHE_SIZE, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Location, RegionGraph> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+        clusterDistance = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+        clusterHeap = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+        clusterHeapPosition = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+    }
+
+    /**
+     * Report that a tile of the mini map changed. The cluster that contains the tile is calculated again the next
+     * time a route is searched.
+     *
+     * @param loc the location of the tile
+     */
+    void reportChangedTile(@Nonnull final Location loc) {
+        @Nullable final RegionGraph graph;
+        synchronized (cache) {
+            graph = cache.get(GameMiniMap.getOriginLocation(loc));
+        }
+        if (graph != null) {
+            graph.markDirty(loc.getScX() - graph.originX, loc.getScY() - graph.originY);
+        }
+    }
+
+    /**
+     * Search a route.
+     *
+     * @param start the location the route starts at
+     * @param dest  the destination of the route
+     * @return the waypoints of the route, the last one is the destination, or {@code null} in case no route was found
+     */
+    @Nullable
+    List<Location> route(@Nonnull final Location start, @Nonnull final Location dest) {
+        expandedNodes = 0;
+        if (start.getScZ() != dest.getScZ()) {
+            return null;
+        }
+        final Location origin = GameMiniMap.getOriginLocation(start);
+        if (!origin.equals(GameMiniMap.getOriginLocation(dest))) {
+            return null;
+        }
+        @Nullable final RegionGraph graph = getGraph(origin);
+        if (graph == null) {
+            return null;
+        }
+
+        final int startTile = getTile(start.getScX() - origin.getScX(), start.getScY() - origin.getScY());
+        final int goalTile = getTile(dest.getScX() - origin.getScX(), dest.getScY() - origin.getScY());
+        if (!graph.passable.get(goalTile)) {
+            return null;
+        }
+
+        final int startCluster = getCluster(startTile);
+        final int goalCluster = getCluster(goalTile);
+
+        final int[] startEndpoints = graph.endpoints[startCluster];
+        final int[] startCosts = new int[startEndpoints.length];
+        searchCluster(graph, startTile);
+        int directCost = INFINITE;
+        for (int i = 0; i < startEndpoints.length; i++) {
+            startCosts[i] = clusterDistance[getClusterTile(startEndpoints[i])];
+        }
+        if (startCluster == goalCluster) {
+            directCost = clusterDistance[getClusterTile(goalTile)];
+        }
+
+        final int[] goalEndpoints = graph.endpoints[goalCluster];
+        final int[] goalCosts = new int[goalEndpoints.length];
+        searchCluster(graph, goalTile);
+        for (int i = 0; i < goalEndpoints.length; i++) {
+            goalCosts[i] = clusterDistance[getClusterTile(goalEndpoints[i])];
+        }
+
+        final Map<Integer, Integer> cost = new HashMap<Integer, Integer>();
+        final Map<Integer, Integer> parent = new HashMap<Integer, Integer>();
+        final PriorityQueue<Long> open = new PriorityQueue<Long>();
+        if (directCost < INFINITE) {
+            relax(cost, parent, open, GOAL_NODE, START_NODE, directCost, goalTile);
+        }
+        for (int i = 0; i < startEndpoints.length; i++) {
+            if (startCosts[i] < INFINITE) {
+                relax(cost, parent, open, startEndpoints[i], START_NODE, startCosts[i], goalTile);
+            }
+        }
+
+        while (!open.isEmpty()) {
+            final long entry = open.poll();
+            final int node = (int) (entry & 0xFFFFFFFFL);
+            final int nodeCost = cost.get(node);
+            if ((entry >>> 32) != (nodeCost + getHeuristic(node, goalTile))) {
+                continue;
+            }
+            if (node == GOAL_NODE) {
+                return buildRoute(parent, origin, dest);
+            }
+            expandedNodes++;
+
+            final int cluster = getCluster(node);
+            final int[] endpoints = graph.endpoints[cluster];
+            final int index = Arrays.binarySearch(endpoints, node);
+            final int[] intraCost = graph.intraCost[cluster];
+            for (int i = 0; i < endpoints.length; i++) {
+                final int stepCost = intraCost[(index * endpoints.length) + i];
+                if ((i != index) && (stepCost < INFINITE)) {
+                    relax(cost, parent, open, endpoints[i], node, nodeCost + stepCost, goalTile);
+                }
+            }
+            if (cluster == goalCluster) {
+                final int goalCost = goalCosts[Arrays.binarySearch(goalEndpoints, node)];
+                if (goalCost < INFINITE) {
+                    relax(cost, parent, open, GOAL_NODE, node, nodeCost + goalCost, goalTile);
+                }
+            }
+            final int x = node % REGION_SIZE;
+            final int y = node / REGION_SIZE;
+            final int clusterX = cluster % CLUSTER_COUNT;
+            final int clusterY = cluster / CLUSTER_COUNT;
+            if ((x == (((clusterX + 1) * CLUSTER_SIZE) - 1)) && (clusterX < (CLUSTER_COUNT - 1)) &&
+                    (Arrays.binarySearch(graph.eastPortals[cluster], y) >= 0)) {
+                relax(cost, parent, open, node + 1, node, nodeCost + STRAIGHT_COST, goalTile);
+            }
+            if ((x == (clusterX * CLUSTER_SIZE)) && (clusterX > 0) &&
+                    (Arrays.binarySearch(graph.eastPortals[cluster - 1], y) >= 0)) {
+                relax(cost, parent, open, node - 1, node, nodeCost + STRAIGHT_COST, goalTile);
+            }
+            if ((y == (((clusterY + 1) * CLUSTER_SIZE) - 1)) && (clusterY < (CLUSTER_COUNT - 1)) &&
+                    (Arrays.binarySearch(graph.southPortals[cluster], x) >= 0)) {
+                relax(cost, parent, open, node + REGION_SIZE, node, nodeCost + STRAIGHT_COST, goalTile);
+            }
+            if ((y == (clusterY * CLUSTER_SIZE)) && (clusterY > 0) &&
+                    (Arrays.binarySearch(graph.southPortals[cluster - CLUSTER_COUNT], x) >= 0)) {
+                relax(cost, parent, open, node - REGION_SIZE, node, nodeCost + STRAIGHT_COST, goalTile);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the amount of abstract nodes that were expanded during the last route search.
+     *
+     * @return the amount of expanded nodes
+     */
+    int getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    /**
+     * Store a new cost for a abstract node in case it is lower then the known cost.
+     *
+     * @param cost     the costs of the nodes
+     * @param parent   the parents of the nodes
+     * @param open     the queue of the nodes to expand
+     * @param node     the node
+     * @param from     the node the new cost was reached from
+     * @param newCost  the new cost
+     * @param goalTile the tile of the destination
+     */
+    private static void relax(@Nonnull final Map<Integer, Integer> cost, @Nonnull final Map<Integer, Integer> parent,
+                              @Nonnull final Queue<Long> open, final int node, final int from, final int newCost,
+                              final int goalTile) {
+        @Nullable final Integer oldCost = cost.get(node);
+        if ((oldCost != null) && (oldCost <= newCost)) {
+            return;
+        }
+        cost.put(node, newCost);
+        parent.put(node, from);
+        open.add(((long) (newCost + getHeuristic(node, goalTile)) << 32) | node);
+    }
+
+    /**
+     * Get the estimated cost between a abstract node and the destination.
+     *
+     * @param node     the node
+     * @param goalTile the tile of the destination
+     * @return the estimated cost
+     */
+    private static int getHeuristic(final int node, final int goalTile) {
+        if (node == GOAL_NODE) {
+            return 0;
+        }
+        final int distX = Math.abs((node % REGION_SIZE) - (goalTile % REGION_SIZE));
+        final int distY = Math.abs((node / REGION_SIZE) - (goalTile / REGION_SIZE));
+        return STRAIGHT_COST * Math.max(distX, distY);
+    }
+
+    /**
+     * Build the list of waypoints from the result of the search.
+     *
+     * @param parent the parents of the abstract nodes
+     * @param origin the origin of the mini map
+     * @param dest   the destination
+     * @return the waypoints
+     */
+    @Nonnull
+    private static List<Location> buildRoute(@Nonnull final Map<Integer, Integer> parent,
+                                             @Nonnull final Location origin, @Nonnull final Location dest) {
+        final LinkedList<Location> route = new LinkedList<Location>();
+        route.add(new Location(dest));
+        int node = parent.get(GOAL_NODE);
+        while (node != START_NODE) {
+            route.addFirst(new Location(origin.getScX() + (node % REGION_SIZE), origin.getScY() + (node / REGION_SIZE),
+                    origin.getScZ()));
+            node = parent.get(node);
+        }
+        return route;
+    }
+
+    /**
+     * Get the graph for a origin. The graph is created in case it is not cached yet and the clusters that changed
+     * since the last search are calculated again.
+     *
+     * @param origin the origin of the mini map
+     * @return the graph or {@code null} in case the mini map data is not load
+     */
+    @Nullable
+    private RegionGraph getGraph(@Nonnull final Location origin) {
+        @Nullable RegionGraph graph;
+        synchronized (cache) {
+            graph = cache.get(origin);
+        }
+
+        final BitSet passable = new BitSet(REGION_SIZE * REGION_SIZE);
+        if (graph == null) {
+            final Location copiedOrigin = map.copyPassableTiles(origin.getScZ(), passable);
+            if (!origin.equals(copiedOrigin)) {
+                return null;
+            }
+            final long buildStart = System.nanoTime();
+            graph = new RegionGraph(origin, passable);
+            for (int cluster = 0; cluster < (CLUSTER_COUNT * CLUSTER_COUNT); cluster++) {
+                buildBorders(graph, cluster);
+            }
+            for (int cluster = 0; cluster < (CLUSTER_COUNT * CLUSTER_COUNT); cluster++) {
+                buildCluster(graph, cluster);
+            }
+            LOGGER.debug("Route graph for " + origin + " created in " + ((System.nanoTime() - buildStart) / 1000000L) +
+                    "ms");
+            synchronized (cache) {
+                cache.put(new Location(origin), graph);
+            }
+            return graph;
+        }
+
+        final boolean[] dirtyClusters = graph.takeDirtyClusters();
+        if (dirtyClusters == null) {
+            return graph;
+        }
+        final Location copiedOrigin = map.copyPassableTiles(origin.getScZ(), passable);
+        if (!origin.equals(copiedOrigin)) {
+            return null;
+        }
+        graph.passable = passable;
+        final boolean[] rebuild = new boolean[dirtyClusters.length];
+        for (int cluster = 0; cluster < dirtyClusters.length; cluster++) {
+            if (!dirtyClusters[cluster]) {
+                continue;
+            }
+            buildBorders(graph, cluster);
+            rebuild[cluster] = true;
+            final int clusterX = cluster % CLUSTER_COUNT;
+            final int clusterY = cluster / CLUSTER_COUNT;
+            if (clusterX > 0) {
+                buildBorders(graph, cluster - 1);
+                rebuild[cluster - 1] = true;
+            }
+            if (clusterY > 0) {
+                buildBorders(graph, cluster - CLUSTER_COUNT);
+                rebuild[cluster - CLUSTER_COUNT] = true;
+            }
+            if (clusterX < (CLUSTER_COUNT - 1)) {
+                rebuild[cluster + 1] = true;
+            }
+            if (clusterY < (CLUSTER_COUNT - 1)) {
+                rebuild[cluster + CLUSTER_COUNT] = true;
+            }
+        }
+        for (int cluster = 0; cluster < rebuild.length; cluster++) {
+            if (rebuild[cluster]) {
+                buildCluster(graph, cluster);
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Find the portals on the eastern and the southern border of a cluster.
+     *
+     * @param graph   the graph
+     * @param cluster the index of the cluster
+     */
+    private static void buildBorders(@Nonnull final RegionGraph graph, final int cluster) {
+        final int clusterX = cluster % CLUSTER_COUNT;
+        final int clusterY = cluster / CLUSTER_COUNT;
+        final int firstX = clusterX * CLUSTER_SIZE;
+        final int firstY = clusterY * CLUSTER_SIZE;
+        final BitSet passable = graph.passable;
+
+        final List<Integer> portals = new ArrayList<Integer>();
+        if (clusterX < (CLUSTER_COUNT - 1)) {
+            final int borderX = (firstX + CLUSTER_SIZE) - 1;
+            int runStart = -1;
+            for (int y = firstY; y <= (firstY + CLUSTER_SIZE); y++) {
+                final boolean open = (y < (firstY + CLUSTER_SIZE)) && passable.get(getTile(borderX, y)) &&
+                        passable.get(getTile(borderX + 1, y));
+                if (open && (runStart == -1)) {
+                    runStart = y;
+                } else if (!open && (runStart != -1)) {
+                    portals.add((runStart + y - 1) / 2);
+                    runStart = -1;
+                }
+            }
+        }
+        graph.eastPortals[cluster] = toArray(portals);
+
+        portals.clear();
+        if (clusterY < (CLUSTER_COUNT - 1)) {
+            final int borderY = (firstY + CLUSTER_SIZE) - 1;
+            int runStart = -1;
+            for (int x = firstX; x <= (firstX + CLUSTER_SIZE); x++) {
+                final boolean open = (x < (firstX + CLUSTER_SIZE)) && passable.get(getTile(x, borderY)) &&
+                        passable.get(getTile(x, borderY + 1));
+                if (open && (runStart == -1)) {
+                    runStart = x;
+                } else if (!open && (runStart != -1)) {
+                    portals.add((runStart + x - 1) / 2);
+                    runStart = -1;
+                }
+            }
+        }
+        graph.southPortals[cluster] = toArray(portals);
+    }
+
+    /**
+     * Collect the portal tiles of a cluster and calculate the costs to walk between them.
+     *
+     * @param graph   the graph
+     * @param cluster the index of the cluster
+     */
+    private void buildCluster(@Nonnull final RegionGraph graph, final int cluster) {
+        final int clusterX = cluster % CLUSTER_COUNT;
+        final int clusterY = cluster / CLUSTER_COUNT;
+        final int firstX = clusterX * CLUSTER_SIZE;
+        final int firstY = clusterY * CLUSTER_SIZE;
+        final int lastX = (firstX + CLUSTER_SIZE) - 1;
+        final int lastY = (firstY + CLUSTER_SIZE) - 1;
+
+        final SortedSet<Integer> tiles = new TreeSet<Integer>();
+        for (final int y : graph.eastPortals[cluster]) {
+            tiles.add(getTile(lastX, y));
+        }
+        for (final int x : graph.southPortals[cluster]) {
+            tiles.add(getTile(x, lastY));
+        }
+        if (clusterX > 0) {
+            for (final int y : graph.eastPortals[cluster - 1]) {
+                tiles.add(getTile(firstX, y));
+            }
+        }
+        if (clusterY > 0) {
+            for (final int x : graph.southPortals[cluster - CLUSTER_COUNT]) {
+                tiles.add(getTile(x, firstY));
+            }
+        }
+
+        final int[] endpoints = toArray(tiles);
+        final int[] intraCost = new int[endpoints.length * endpoints.length];
+        for (int i = 0; i < endpoints.length; i++) {
+            searchCluster(graph, endpoints[i]);
+            for (int j = 0; j < endpoints.length; j++) {
+                intraCost[(i * endpoints.length) + j] = clusterDistance[getClusterTile(endpoints[j])];
+            }
+        }
+        graph.endpoints[cluster] = endpoints;
+        graph.intraCost[cluster] = intraCost;
+    }
+
+    /**
+     * Calculate the distances from a tile to all other tiles of the same cluster, only walking inside the cluster.
+     * The result is stored in {@link #clusterDistance}.
+     *
+     * @param graph      the graph
+     * @param sourceTile the tile the search starts at
+     */
+    private void searchCluster(@Nonnull final RegionGraph graph, final int sourceTile) {
+        Arrays.fill(clusterDistance, INFINITE);
+        Arrays.fill(clusterHeapPosition, -1);
+        final int cluster = getCluster(sourceTile);
+        final int firstX = (cluster % CLUSTER_COUNT) * CLUSTER_SIZE;
+        final int firstY = (cluster / CLUSTER_COUNT) * CLUSTER_SIZE;
+
+        int heapSize = 0;
+        final int source = getClusterTile(sourceTile);
+        clusterDistance[source] = 0;
+        heapSize = heapPush(heapSize, source);
+        while (heapSize > 0) {
+            final int current = clusterHeap[0];
+            heapSize = heapPop(heapSize);
+            final int currentX = current % CLUSTER_SIZE;
+            final int currentY = current / CLUSTER_SIZE;
+            for (int dir = 0; dir < NEIGHBOUR_X.length; dir++) {
+                final int nextX = currentX + NEIGHBOUR_X[dir];
+                final int nextY = currentY + NEIGHBOUR_Y[dir];
+                if ((nextX < 0) || (nextY < 0) || (nextX >= CLUSTER_SIZE) || (nextY >= CLUSTER_SIZE) ||
+                        !graph.passable.get(getTile(firstX + nextX, firstY + nextY))) {
+                    continue;
+                }
+                final int next = (nextY * CLUSTER_SIZE) + nextX;
+                final int stepCost = ((NEIGHBOUR_X[dir] != 0) && (NEIGHBOUR_Y[dir] != 0)) ? DIAGONAL_COST :
+                        STRAIGHT_COST;
+                final int newCost = clusterDistance[current] + stepCost;
+                if (newCost >= clusterDistance[next]) {
+                    continue;
+                }
+                clusterDistance[next] = newCost;
+                if (clusterHeapPosition[next] == -1) {
+                    heapSize = heapPush(heapSize, next);
+                } else {
+                    siftUp(clusterHeapPosition[next]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Add a tile to the heap of the cluster search.
+     *
+     * @param heapSize the current size of the heap
+     * @param tile     the tile inside the cluster
+     * @return the new size of the heap
+     */
+    private int heapPush(final int heapSize, final int tile) {
+        clusterHeap[heapSize] = tile;
+        clusterHeapPosition[tile] = heapSize;
+        siftUp(heapSize);
+        return heapSize + 1;
+    }
+
+    /**
+     * Remove the first tile from the heap of the cluster search.
+     *
+     * @param heapSize the current size of the heap
+     * @return the new size of the heap
+     */
+    private int heapPop(final int heapSize) {
+        final int newSize = heapSize - 1;
+        clusterHeapPosition[clusterHeap[0]] = -2;
+        if (newSize > 0) {
+            clusterHeap[0] = clusterHeap[newSize];
+            clusterHeapPosition[clusterHeap[0]] = 0;
+            int current = 0;
+            final int tile = clusterHeap[0];
+            while (true) {
+                int child = (current * 2) + 1;
+                if (child >= newSize) {
+                    break;
+                }
+                if (((child + 1) < newSize) &&
+                        (clusterDistance[clusterHeap[child + 1]] < clusterDistance[clusterHeap[child]])) {
+                    child++;
+                }
+                if (clusterDistance[clusterHeap[child]] >= clusterDistance[tile]) {
+                    break;
+                }
+                clusterHeap[current] = clusterHeap[child];
+                clusterHeapPosition[clusterHeap[current]] = current;
+                current = child;
+            }
+            clusterHeap[current] = tile;
+            clusterHeapPosition[tile] = current;
+        }
+        return newSize;
+    }
+
+    /**
+     * Move a entry of the heap of the cluster search towards the root until the heap is valid again.
+     *
+     * @param position the position of the entry in the heap
+     */
+    private void siftUp(final int position) {
+        final int tile = clusterHeap[position];
+        int current = position;
+        while (current > 0) {
+            final int parentPosition = (current - 1) >>> 1;
+            if (clusterDistance[clusterHeap[parentPosition]] <= clusterDistance[tile]) {
+                break;
+            }
+            clusterHeap[current] = clusterHeap[parentPosition];
+            clusterHeapPosition[clusterHeap[current]] = current;
+            current = parentPosition;
+        }
+        clusterHeap[current] = tile;
+        clusterHeapPosition[tile] = current;
+    }
+
+    /**
+     * Get the index of a tile inside the area of the mini map.
+     *
+     * @param x the x coordinate relative to the origin of the mini map
+     * @param y the y coordinate relative to the origin of the mini map
+     * @return the index of the tile
+     */
+    private static int getTile(final int x, final int y) {
+        return (y * REGION_SIZE) + x;
+    }
+
+    /**
+     * Get the index of the cluster that contains a tile.
+     *
+     * @param tile the index of the tile
+     * @return the index of the cluster
+     */
+    private static int getCluster(final int tile) {
+        return (((tile / REGION_SIZE) / CLUSTER_SIZE) * CLUSTER_COUNT) + ((tile % REGION_SIZE) / CLUSTER_SIZE);
+    }
+
+    /**
+     * Get the index of a tile inside its cluster.
+     *
+     * @param tile the index of the tile
+     * @return the index of the tile inside the cluster
+     */
+    private static int getClusterTile(final int tile) {
+        return (((tile / REGION_SIZE) % CLUSTER_SIZE) * CLUSTER_SIZE) + ((tile % REGION_SIZE) % CLUSTER_SIZE);
+    }
+
+    /**
+     * Copy a collection of integer values to a array.
+     *
+     * @param values the values
+     * @return the array
+     */
+    @Nonnull
+    private static int[] toArray(@Nonnull final Collection<Integer> values) {
+        final int[] result = new int[values.size()];
+        int index = 0;
+        for (final Integer value : values) {
+            result[index++] = value;
+        }
+        return result;
+    }
+
+    /**
+     * This is the abstract graph of the area of one mini map.
+     */
+    private static final class RegionGraph {
+        /**
+         * The x coordinate of the origin of the mini map.
+         */
+        private final int originX;
+
+        /**
+         * The y coordinate of the origin of the mini map.
+         */
+        private final int originY;
+
+        /**
+         * The passable tiles of the mini map.
+         */
+        @Nonnull
+        private BitSet passable;
+
+        /**
+         * The y coordinates of the portals on the eastern border of each cluster, sorted.
+         */
+        @Nonnull
+        private final int[][] eastPortals;
+
+        /**
+         * The x coordinates of the portals on the southern border of each cluster, sorted.
+         */
+        @Nonnull
+        private final int[][] southPortals;
+
+        /**
+         * The sorted tiles of each cluster that are connected to a portal.
+         */
+        @Nonnull
+        private final int[][] endpoints;
+
+        /**
+         * The costs to walk between the endpoints of each cluster. The cost from endpoint {@code i} to endpoint
+         * {@code j} is stored at {@code i * endpoints.length + j}.
+         */
+        @Nonnull
+        private final int[][] intraCost;
+
+        /**
+         * The clusters that changed since the last search or {@code null} in case none changed.
+         */
+        @GuardedBy("this")
+        @Nullable
+        private boolean[] dirtyClusters;
+
+        /**
+         * Create a new graph.
+         *
+         * @param origin   the origin of the mini map
+         * @param passable the passable tiles of the mini map
+         */
+        RegionGraph(@Nonnull final Location origin, @Nonnull final BitSet passable) {
+            originX = origin.getScX();
+            originY = origin.getScY();
+            this.passable = passable;
+            final int clusterCount = CLUSTER_COUNT * CLUSTER_COUNT;
+            eastPortals = new int[clusterCount][];
+            southPortals = new int[clusterCount][];
+            endpoints = new int[clusterCount][];
+            intraCost = new int[clusterCount][];
+        }
+
+        /**
+         * Mark the cluster that contains a tile as changed.
+         *
+         * @param x the x coordinate relative to the origin of the mini map
+         * @param y the y coordinate relative to the origin of the mini map
+         */
+        synchronized void markDirty(final int x, final int y) {
+            if ((x < 0) || (y < 0) || (x >= REGION_SIZE) || (y >= REGION_SIZE)) {
+                return;
+            }
+            if (dirtyClusters == null) {
+                dirtyClusters = new boolean[CLUSTER_COUNT * CLUSTER_COUNT];
+            }
+            dirtyClusters[getCluster(getTile(x, y))] = true;
+        }
+
+        /**
+         * Fetch and reset the clusters that changed.
+         *
+         * @return the changed clusters or {@code null} in case none changed
+         */
+        @Nullable
+        synchronized boolean[] takeDirtyClusters() {
+            final boolean[] result = dirtyClusters;
+            dirtyClusters = null;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * This file is part of the Illarion Client.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Client.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.client.util;
+
+import illarion.common.types.Location;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+
+/**
+ * This interface is used for a class that is able to receive the route calculated by the pathfinder for destinations
+ * that are too far away for a regular path.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+public interface RouteReceiver {
+    /**
+     * Handle the generated route.
+     *
+     * @param waypoints the waypoints of the route, the last one is the destination
+     */
+    void handleRoute(@Nonnull List<Location> waypoints);
+}
@@ -0,0 +1,42 @@
+/*
+ * This file is part of the Illarion Client.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Client.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.client.util;
+
+/**
+ * This is the source of the tiles the searches of the {@link Pathfinder} work on. It hides where the tiles come from,
+ * so the searches are able to run on the game map as well as on any other map.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+interface SearchMap {
+    /**
+     * The movement cost returned for tiles that can't be entered.
+     */
+    int BLOCKED = -1;
+
+    /**
+     * Get the cost of stepping onto a tile.
+     *
+     * @param x     the x coordinate of the tile
+     * @param y     the y coordinate of the tile
+     * @param level the level of the tile
+     * @return the movement cost of the tile or {@link #BLOCKED} in case the tile can't be entered
+     */
+    int getMovementCost(int x, int y, int level);
+}
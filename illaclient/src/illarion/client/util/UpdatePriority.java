@@ -0,0 +1,47 @@
+/*
+ * This file is part of the Illarion Client.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Client.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.client.util;
+
+/**
+ * This enumeration contains the priorities of the tasks executed by the {@link UpdateTaskManager}. The tasks with a
+ * higher priority are executed first.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+public enum UpdatePriority {
+    /**
+     * Tasks that respond directly to the input of the player. They are always executed in the next update.
+     */
+    Input,
+
+    /**
+     * Tasks that change the state of the game world.
+     */
+    World,
+
+    /**
+     * Tasks that update the graphical user interface.
+     */
+    Gui,
+
+    /**
+     * Tasks that only effect the appearance of the game, like sounds and chat bubbles.
+     */
+    Cosmetic
+}
@@ -24,17 +24,29 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class stores a list of tasks that are supposed to be executed during the next update cycle of the game.
+ * <p />
+ * Each task has a {@link UpdatePriority}. The tasks are executed ordered by their priority and in the order they were
+ * added within the same priority. The tasks of a update share a time budget. Once the budget is used up, the remaining
+ * tasks are deferred to the next update. The only exceptions are the tasks of the {@link UpdatePriority#Input}
+ * priority, that are always executed, and the first task of every other priority, so no priority starves.
  *
  * @author Martin Karing &lt;nitram@illarion.org&gt;
  */
 public final class UpdateTaskManager {
     /**
-     * The task queue.
+     * The time in nanoseconds the tasks of one update are allowed to take.
      */
-    private final Queue<UpdateTask> taskQueue;
+    private static final long UPDATE_BUDGET = TimeUnit.MILLISECONDS.toNanos(4L);
+
+    /**
+     * The task queues, one for each priority.
+     */
+    @Nonnull
+    private final Queue<UpdateTask>[] taskQueues;
 
     /**
      * This value is set {@code true} while the updates are executed.
@@ -58,11 +70,26 @@ public final class UpdateTaskManager {
     @Nullable
     private Thread currentThread;
 
+    /**
+     * The amount of tasks that were deferred to the next update at the end of the last update.
+     */
+    private int lastDeferredCount;
+
+    /**
+     * The total amount of updates that deferred tasks.
+     */
+    private long deferringUpdates;
+
     /**
      * The default constructor that prepares the internal structures.
      */
+    @SuppressWarnings("unchecked")
     public UpdateTaskManager() {
-        taskQueue = new ConcurrentLinkedQueue<UpdateTask>();
+        final UpdatePriority[] priorities = UpdatePriority.values();
+        taskQueues = new Queue[priorities.length];
+        for (int i = 0; i < priorities.length; i++) {
+            taskQueues[i] = new ConcurrentLinkedQueue<UpdateTask>();
+        }
     }
 
     /**
@@ -77,13 +104,29 @@ public final class UpdateTaskManager {
         currentThread = Thread.currentThread();
         isInUpdateCall = true;
         try {
-            while (true) {
-                @Nullable final UpdateTask task = taskQueue.poll();
-                if (task == null) {
-                    return;
-                }
+            final long deadline = System.nanoTime() + UPDATE_BUDGET;
+            final int inputQueue = UpdatePriority.Input.ordinal();
+            int deferred = 0;
+            for (int i = 0; i < taskQueues.length; i++) {
+                final Queue<UpdateTask> queue = taskQueues[i];
+                boolean firstTask = true;
+                while (true) {
+                    if (!firstTask && (i != inputQueue) && (System.nanoTime() > deadline)) {
+                        deferred += queue.size();
+                        break;
+                    }
+                    @Nullable final UpdateTask task = queue.poll();
+                    if (task == null) {
+                        break;
+                    }
+                    firstTask = false;
 
-                task.onUpdateGame(container, delta);
+                    task.onUpdateGame(container, delta);
+                }
+            }
+            lastDeferredCount = deferred;
+            if (deferred > 0) {
+                deferringUpdates++;
             }
         } finally {
             isInUpdateCall = false;
@@ -92,15 +135,57 @@ public final class UpdateTaskManager {
     }
 
     /**
-     * Add a task to the list of tasks executed during the next update.
+     * Add a task with the {@link UpdatePriority#Gui} priority to the list of tasks executed during the next update.
      *
      * @param task the task to execute
      */
     public void addTask(@Nonnull final UpdateTask task) {
+        addTask(task, UpdatePriority.Gui);
+    }
+
+    /**
+     * Add a task to the list of tasks executed during the next update.
+     *
+     * @param task     the task to execute
+     * @param priority the priority of the task
+     */
+    public void addTask(@Nonnull final UpdateTask task, @Nonnull final UpdatePriority priority) {
         if (isInUpdateCall && (currentThread == Thread.currentThread()) && (currentContainer != null)) {
             task.onUpdateGame(currentContainer, currentDelta);
         } else {
-            taskQueue.offer(task);
+            taskQueues[priority.ordinal()].offer(task);
         }
     }
+
+    /**
+     * Get the amount of tasks that are waiting to be executed. This operation needs to count the tasks and should
+     * only be used for diagnostics.
+     *
+     * @return the amount of queued tasks
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (final Queue<UpdateTask> queue : taskQueues) {
+            depth += queue.size();
+        }
+        return depth;
+    }
+
+    /**
+     * Get the amount of tasks that were deferred to the next update at the end of the last update.
+     *
+     * @return the amount of deferred tasks
+     */
+    public int getLastDeferredCount() {
+        return lastDeferredCount;
+    }
+
+    /**
+     * Get the total amount of updates that ran out of time and deferred tasks.
+     *
+     * @return the amount of updates that deferred tasks
+     */
+    public long getDeferringUpdates() {
+        return deferringUpdates;
+    }
 }
@@ -24,7 +24,10 @@ import illarion.client.graphics.AvatarClothManager;
 import illarion.client.graphics.MoveAnimation;
 import illarion.client.net.server.events.AttributeUpdateReceivedEvent;
 import illarion.client.resources.ItemFactory;
+import illarion.client.util.EventDispatcher;
+import illarion.client.util.EventHandler;
 import illarion.client.util.Lang;
+import illarion.client.util.Pathfinder;
 import illarion.client.world.characters.CharacterAttribute;
 import illarion.client.world.events.CharMoveEvent;
 import illarion.client.world.events.CharVisibilityEvent;
@@ -35,9 +38,6 @@ import illarion.common.types.ItemId;
 import illarion.common.types.Location;
 import illarion.common.util.FastMath;
 import org.apache.log4j.Logger;
-import org.bushe.swing.event.EventBus;
-import org.bushe.swing.event.annotation.AnnotationProcessor;
-import org.bushe.swing.event.annotation.EventSubscriber;
 import org.illarion.engine.graphic.Color;
 import org.illarion.engine.graphic.LightSource;
 
@@ -270,6 +270,12 @@ public final class Char implements AnimatedMove {
     @Nullable
     private Reference<InteractiveChar> interactiveCharRef;
 
+    /**
+     * The handler that receives the attribute updates from the event dispatcher.
+     */
+    @Nonnull
+    private final EventHandler<AttributeUpdateReceivedEvent> attributeHandler;
+
     /**
      * Constructor to create a new character.
      */
@@ -283,7 +289,13 @@ public final class Char implements AnimatedMove {
         animation = CharAnimations.STAND;
         avatarId = -1;
 
-        AnnotationProcessor.process(this);
+        attributeHandler = new EventHandler<AttributeUpdateReceivedEvent>() {
+            @Override
+            public void handleEvent(@Nonnull final AttributeUpdateReceivedEvent event) {
+                onAttributeUpdateReceived(event);
+            }
+        };
+        EventDispatcher.getInstance().subscribe(AttributeUpdateReceivedEvent.class, attributeHandler);
     }
 
     static {
@@ -306,8 +318,12 @@ public final class Char implements AnimatedMove {
         return 0;
     }
 
-    @EventSubscriber
-    public void onAttributeUpdateReceived(@Nonnull final AttributeUpdateReceivedEvent event) {
+    /**
+     * This function receives the attribute updates and stores the values that belong to this character.
+     *
+     * @param event the received event
+     */
+    private void onAttributeUpdateReceived(@Nonnull final AttributeUpdateReceivedEvent event) {
         if (!event.getTargetCharId().equals(getCharId())) {
             return;
         }
@@ -670,12 +686,13 @@ public final class Char implements AnimatedMove {
      */
     public void markAsRemoved() {
         removedCharacter = true;
+        Pathfinder.reportChangedTile(charLocation.getKey());
 
         move.stop();
         resetLight();
         releaseAvatar();
 
-        AnnotationProcessor.unprocess(this);
+        EventDispatcher.getInstance().unsubscribe(attributeHandler);
     }
 
     /**
@@ -900,13 +917,15 @@ public final class Char implements AnimatedMove {
             return;
         }
         // get old position
-        final Location tempLoc = new Location();
-        tempLoc.set(charLocation);
+        final long oldKey = charLocation.getKey();
         charLocation.set(newPos);
+        final long newKey = charLocation.getKey();
 
-        if (tempLoc.equals(charLocation)) {
+        if (oldKey == newKey) {
             return;
         }
+        Pathfinder.reportChangedTile(oldKey);
+        Pathfinder.reportChangedTile(newKey);
 
         updateLight(charLocation);
 
@@ -914,7 +933,7 @@ public final class Char implements AnimatedMove {
         setVisible(World.getPlayer().canSee(this));
         if (visible && (avatar != null)) {
             // calculate movement direction
-            final int dir = tempLoc.getDirection(charLocation);
+            final int dir = Location.getKeyDirection(oldKey, newKey);
 
             // turn only when animating, not when pushed
             if ((mode != CharMovementMode.Push) && (dir != Location.DIR_ZERO)) {
@@ -932,13 +951,13 @@ public final class Char implements AnimatedMove {
             }
 
             // start animations only if reasonable distance
-            if ((charLocation.getDistance(tempLoc) <= range) && (speed > 0) && (dir != Location.DIR_ZERO) && (mode != CharMovementMode.Push)) {
+            if ((Location.getKeyDistance(oldKey, newKey) <= range) && (speed > 0) && (dir != Location.DIR_ZERO) && (mode != CharMovementMode.Push)) {
                 if (mode == CharMovementMode.Walk) {
                     startAnimation(CharAnimations.WALK, speed);
                 } else if (mode == CharMovementMode.Run) {
                     startAnimation(CharAnimations.RUN, speed);
                 }
-                move.start(tempLoc.getDcX() - charLocation.getDcX(), tempLoc.getDcY() - fromElevation - charLocation.getDcY(), 0, 0,
+                move.start(Location.getKeyDcX(oldKey) - charLocation.getDcX(), Location.getKeyDcY(oldKey) - fromElevation - charLocation.getDcY(), 0, 0,
                         -elevation, 0, speed);
             } else {
                 // reset last animation result
@@ -949,10 +968,10 @@ public final class Char implements AnimatedMove {
             }
             updateLight(LIGHT_SOFT);
 
-            EventBus.publish(new CharMoveEvent(characterId, charLocation));
+            EventDispatcher.getInstance().publish(new CharMoveEvent(characterId, charLocation));
         }
 
-        final MapTile oldTile = World.getMap().getMapAt(tempLoc);
+        final MapTile oldTile = World.getMap().getMapAt(oldKey);
         if (oldTile != null) {
             oldTile.updateQuestMarkerElevation();
         }
@@ -1009,7 +1028,7 @@ public final class Char implements AnimatedMove {
                 tile.updateQuestMarkerElevation();
             }
 
-            EventBus.publish(new CharVisibilityEvent(characterId, visibility));
+            EventDispatcher.getInstance().publish(new CharVisibilityEvent(characterId, visibility));
         }
     }
 
@@ -1228,10 +1247,12 @@ public final class Char implements AnimatedMove {
         if (charLocation.equals(newLoc)) {
             return;
         }
+        Pathfinder.reportChangedTile(charLocation.getKey());
+        Pathfinder.reportChangedTile(newLoc.getKey());
         charLocation.set(newLoc);
         elevation = World.getMap().getElevationAt(charLocation);
         updatePosition(-elevation);
-        EventBus.publish(new CharMoveEvent(characterId, charLocation));
+        EventDispatcher.getInstance().publish(new CharMoveEvent(characterId, charLocation));
     }
 
     /**
@@ -26,14 +26,13 @@ import illarion.client.crash.MapProcessorCrashHandler;
 import illarion.client.graphics.QuestMarker;
 import illarion.client.gui.MiniMapGui;
 import illarion.client.net.server.TileUpdate;
+import illarion.client.util.Pathfinder;
 import illarion.client.world.interactive.InteractiveMap;
-import illarion.common.config.ConfigChangedEvent;
+import illarion.common.config.ConfigKey;
 import illarion.common.graphics.ItemInfo;
 import illarion.common.types.Location;
 import illarion.common.util.Stoppable;
 import illarion.common.util.StoppableStorage;
-import org.bushe.swing.event.annotation.AnnotationProcessor;
-import org.bushe.swing.event.annotation.EventTopicPatternSubscriber;
 import org.illarion.engine.Engine;
 import org.illarion.engine.EngineException;
 import org.illarion.engine.graphic.Color;
@@ -265,14 +264,16 @@ public final class GameMap implements LightingMap, Stoppable {
     private final Map<Location, MiniMapGui.Pointer> inactiveQuestTargetLocations;
 
     /**
-     * This is set {@code true} in case the quest markers are supposed to be displayed on the mini map.
+     * The configuration handle of the setting if the quest markers are supposed to be displayed on the mini map.
      */
-    private boolean showQuestsOnMiniMap;
+    @Nonnull
+    private final ConfigKey showQuestsOnMiniMap;
 
     /**
-     * This is set {@code true} in case the quest markers are supposed to be displayed on the game map.
+     * The configuration handle of the setting if the quest markers are supposed to be displayed on the game map.
      */
-    private boolean showQuestsOnGameMap;
+    @Nonnull
+    private final ConfigKey showQuestsOnGameMap;
 
     /**
      * Default constructor of the map handler.
@@ -291,20 +292,10 @@ public final class GameMap implements LightingMap, Stoppable {
         miniMap = new GameMiniMap(engine);
         restartMapProcessor();
 
-        showQuestsOnMiniMap = IllaClient.getCfg().getBoolean("showQuestsOnMiniMap");
-        showQuestsOnGameMap = IllaClient.getCfg().getBoolean("showQuestsOnGameMap");
+        showQuestsOnMiniMap = IllaClient.getCfg().getKey("showQuestsOnMiniMap");
+        showQuestsOnGameMap = IllaClient.getCfg().getKey("showQuestsOnGameMap");
 
         StoppableStorage.getInstance().add(this);
-        AnnotationProcessor.process(this);
-    }
-
-    @EventTopicPatternSubscriber(topicPattern = "showQuestsOn.+Map")
-    public void onQuestMarkerSettingsChanged(@Nonnull final String topic, @Nonnull final ConfigChangedEvent event) {
-        if ("showQuestsOnMiniMap".equals(topic)) {
-            showQuestsOnMiniMap = event.getConfig().getBoolean("showQuestsOnMiniMap");
-        } else if ("showQuestsOnGameMap".equals(topic)) {
-            showQuestsOnMiniMap = event.getConfig().getBoolean("showQuestsOnGameMap");
-        }
     }
 
     public void applyQuestTargetLocations(@Nonnull final Iterable<Location> targets) {
@@ -318,14 +309,14 @@ public final class GameMap implements LightingMap, Stoppable {
             } else {
                 final MapTile tile = getMapAt(markerLocation);
                 @Nullable final MiniMapGui.Pointer targetPointer;
-                if (showQuestsOnMiniMap) {
+                if (showQuestsOnMiniMap.getBoolean()) {
                     targetPointer = World.getGameGui().getMiniMapGui().createTargetPointer();
                     targetPointer.setTarget(markerLocation);
                     World.getGameGui().getMiniMapGui().addPointer(targetPointer);
                 } else {
                     targetPointer = null;
                 }
-                if ((tile != null) && showQuestsOnGameMap) {
+                if ((tile != null) && showQuestsOnGameMap.getBoolean()) {
                     final QuestMarker newMarker = new QuestMarker(QuestMarker.QuestMarkerType.Target, tile);
                     newMarker.setAvailability(QuestMarker.QuestMarkerAvailability.Available);
                     activeQuestTargetMarkers.put(markerLocation, new QuestMarkerCarrier(newMarker, targetPointer));
@@ -386,7 +377,7 @@ public final class GameMap implements LightingMap, Stoppable {
                     if (tile != null) {
                         final MiniMapGui gui = World.getGameGui().getMiniMapGui();
                         final QuestMarker newMarker;
-                        if (showQuestsOnGameMap) {
+                        if (showQuestsOnGameMap.getBoolean()) {
                             newMarker = new QuestMarker(QuestMarker.QuestMarkerType.Start, tile);
                             newMarker.setAvailability(availability);
                             newMarker.show();
@@ -395,7 +386,7 @@ public final class GameMap implements LightingMap, Stoppable {
                         }
 
                         final MiniMapGui.Pointer pointer;
-                        if (showQuestsOnMiniMap) {
+                        if (showQuestsOnMiniMap.getBoolean()) {
                             pointer = gui.createStartPointer(availability == QuestMarker.QuestMarkerAvailability.Available);
                             pointer.setTarget(markerLocation);
                             gui.addPointer(pointer);
@@ -685,6 +676,7 @@ public final class GameMap implements LightingMap, Stoppable {
             }
 
             removedTile.markAsRemoved();
+            Pathfinder.reportChangedTile(key);
         }
     }
 
@@ -786,9 +778,11 @@ public final class GameMap implements LightingMap, Stoppable {
      * @param tile the tile to check again
      */
     public void updateTile(@Nonnull final MapTile tile) {
+        final long key = tile.getLocation().getKey();
         if (processor != null) {
-            processor.reportUnchecked(tile.getLocation().getKey());
+            processor.reportUnchecked(key);
         }
+        Pathfinder.reportChangedTile(key);
     }
 
     /**
@@ -870,6 +864,7 @@ public final class GameMap implements LightingMap, Stoppable {
             if (processor != null) {
                 processor.reportUnchecked(locKey);
             }
+            Pathfinder.reportChangedTile(locKey);
 
             // remember real map tile for use with overview map
             updateData.setMapTile(tile);
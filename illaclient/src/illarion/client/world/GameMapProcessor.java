@@ -21,6 +21,7 @@ package illarion.client.world;
 import illarion.client.graphics.MapDisplayManager;
 import illarion.common.types.Location;
 import org.apache.log4j.Logger;
+import org.illarion.engine.profiler.FrameProfiler;
 
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.ThreadSafe;
@@ -135,9 +136,9 @@ public final class GameMapProcessor extends Thread {
         }
 
         // clipping check
-        if (checkClipping(tile, key)) {
-            return;
-        }
+        final long clippingStart = FrameProfiler.getInstance().start();
+        checkClipping(tile, key);
+        FrameProfiler.getInstance().recordSpan("Map processor", clippingStart);
     }
 
     /**
@@ -21,6 +21,7 @@ package illarion.client.world;
 import illarion.client.net.server.TileUpdate;
 import illarion.client.resources.TileFactory;
 import illarion.client.util.GlobalExecutorService;
+import illarion.client.util.Pathfinder;
 import illarion.common.graphics.TileInfo;
 import illarion.common.types.Location;
 import org.apache.log4j.Logger;
@@ -46,6 +47,7 @@ import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
@@ -407,9 +409,18 @@ public final class GameMiniMap implements WorldMapDataProvider {
         while (executionInProgress) {
             executionInProgress = false;
             try {
-                GlobalExecutorService.getService().invokeAll(updateList);
+                GlobalExecutorService.getIoService().invokeAll(updateList);
             } catch (@Nonnull final InterruptedException ignored) {
                 executionInProgress = true;
+            } catch (@Nonnull final RejectedExecutionException ignored) {
+                /* The executor services are shut down already, so the maps are updated by this thread. */
+                for (@Nonnull final Callable<Void> task : updateList) {
+                    try {
+                        task.call();
+                    } catch (@Nonnull final Exception e) {
+                        LOGGER.error("Failed to update the mini map.", e);
+                    }
+                }
             }
         }
     }
@@ -467,7 +478,43 @@ public final class GameMiniMap implements WorldMapDataProvider {
         }
     }
 
-    private static Location getOriginLocation(@Nonnull final Location playerLoc) {
+    /**
+     * Copy the passable tiles of one level of the currently load mini map. A tile is passable in case it was explored
+     * already and is not blocked. The bit of a tile is stored at the index {@code y * WORLDMAP_WIDTH + x} with x and y
+     * relative to the origin of the map.
+     *
+     * @param level  the level to copy
+     * @param target the bit set that receives the passable tiles, it is cleared before
+     * @return the origin of the copied map or {@code null} in case the data of the level is not load
+     */
+    @Nullable
+    public Location copyPassableTiles(final int level, @Nonnull final BitSet target) {
+        final Location origin = new Location(getMapOriginX(), getMapOriginY(), level);
+        final ByteBuffer mapData = getMapDataStorage(origin);
+        if (mapData == null) {
+            return null;
+        }
+        target.clear();
+        synchronized (mapData) {
+            final int tileCount = WORLDMAP_WIDTH * WORLDMAP_HEIGHT;
+            for (int i = 0; i < tileCount; i++) {
+                final int tileData = mapData.getShort(i * BYTES_PER_TILE);
+                if ((tileData != 0) && ((tileData & MASK_BLOCKED) == 0)) {
+                    target.set(i);
+                }
+            }
+        }
+        return origin;
+    }
+
+    /**
+     * Get the origin of the mini map that contains a location.
+     *
+     * @param playerLoc the location
+     * @return the origin of the mini map
+     */
+    @Nonnull
+    public static Location getOriginLocation(@Nonnull final Location playerLoc) {
         final int newMapLevel = playerLoc.getScZ();
 
         final int newMapOriginX;
@@ -643,7 +690,7 @@ public final class GameMiniMap implements WorldMapDataProvider {
      * Once this function is called the mini map will be rendered completely again.
      */
     public void performFullUpdate() {
-        GlobalExecutorService.getService().submit(new Runnable() {
+        GlobalExecutorService.getComputeService().submit(new Runnable() {
             @Override
             public void run() {
                 worldMap.setMapChanged();
@@ -662,6 +709,7 @@ public final class GameMiniMap implements WorldMapDataProvider {
         if (isLocationOnMap(tileLoc)) {
             if (saveTile(tileLoc, updateData.getTileId(), updateData.isBlocked())) {
                 worldMap.setTileChanged(tileLoc);
+                Pathfinder.reportMiniMapChange(tileLoc);
             }
         }
     }
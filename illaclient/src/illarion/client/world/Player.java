@@ -642,5 +642,6 @@ public final class Player {
     public void shutdown() {
         character.markAsRemoved();
         movementHandler.shutdown();
+        chatLog.shutdown();
     }
 }
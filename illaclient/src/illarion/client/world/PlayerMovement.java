@@ -27,6 +27,7 @@ import illarion.client.util.Path;
 import illarion.client.util.PathNode;
 import illarion.client.util.PathReceiver;
 import illarion.client.util.Pathfinder;
+import illarion.client.util.RouteReceiver;
 import illarion.common.types.CharacterId;
 import illarion.common.types.Location;
 import illarion.common.util.FastMath;
@@ -39,6 +40,8 @@ import org.illarion.engine.input.Key;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * The player movement class takes and handles all move requests and orders that are needed to move the player
@@ -48,7 +51,7 @@ import javax.annotation.concurrent.NotThreadSafe;
  */
 @SuppressWarnings({"ClassWithTooManyFields", "ClassWithTooManyMethods", "OverlyComplexClass"})
 @NotThreadSafe
-public final class PlayerMovement implements AnimatedMove, PathReceiver {
+public final class PlayerMovement implements AnimatedMove, PathReceiver, RouteReceiver {
     /**
      * This value is the relation of the distance from the character location to the location of the cursor to the
      * plain x or y offset. In case the relation is smaller or equal to this the character will move straight
@@ -103,6 +106,13 @@ public final class PlayerMovement implements AnimatedMove, PathReceiver {
     @Nullable
     private Path autoPath;
 
+    /**
+     * The waypoints of a long distance route that were not reached yet. The automated walking walks from one waypoint
+     * to the next using regular paths.
+     */
+    @Nullable
+    private List<Location> routeWaypoints;
+
     /**
      * The last move that was allowed by the server but yet not performed.
      */
@@ -320,7 +330,7 @@ public final class PlayerMovement implements AnimatedMove, PathReceiver {
 
     @Override
     public void handlePath(@Nonnull final Path path) {
-        cancelAutoWalk();
+        resetAutoPath();
         autoPath = path;
         autoDestination = autoPath.getDestination();
         autoPath.nextStep();
@@ -339,7 +349,11 @@ public final class PlayerMovement implements AnimatedMove, PathReceiver {
         final PathNode node = autoPath.nextStep();
         // reached target
         if (node == null) {
-            cancelAutoWalk();
+            if ((routeWaypoints != null) && !routeWaypoints.isEmpty()) {
+                walkNextSegment();
+            } else {
+                cancelAutoWalk();
+            }
             return;
         }
 
@@ -349,9 +363,11 @@ public final class PlayerMovement implements AnimatedMove, PathReceiver {
 
         // check whether path is clear
         if ((tile == null) || tile.isBlocked() || (loc.getDistance(stepDestination) > 1)) {
-            // recalculate route if blocked or char is off route
-            if (autoDestination != null) {
-                walkTo(autoDestination);
+            // repair the route if blocked or char is off route
+            final Location destination = autoDestination;
+            resetAutoPath();
+            if (destination != null) {
+                Pathfinder.getInstance().repairPath(loc, destination, this);
             }
             return;
         }
@@ -365,12 +381,56 @@ public final class PlayerMovement implements AnimatedMove, PathReceiver {
      * Stop the automated walking.
      */
     public void cancelAutoWalk() {
+        resetAutoPath();
+        routeWaypoints = null;
+    }
+
+    /**
+     * Stop following the current path, but keep the waypoints of the route.
+     */
+    private void resetAutoPath() {
         autoPath = null;
         autoDestination = null;
     }
 
+    @Override
+    public void handleRoute(@Nonnull final List<Location> waypoints) {
+        cancelAutoWalk();
+        routeWaypoints = new ArrayList<Location>(waypoints);
+        walkNextSegment();
+    }
+
     /**
-     * Make the character automatically walking to a target location.
+     * Search the path to the next waypoint of the route. This picks the farthest waypoint that is in reach of the
+     * pathfinder and on the part of the map that is load already. The waypoints before it are skipped.
+     */
+    private void walkNextSegment() {
+        final List<Location> waypoints = routeWaypoints;
+        if (waypoints == null) {
+            return;
+        }
+        final Location loc = parentPlayer.getLocation();
+        final int reach = (Pathfinder.getMaxLength() * 2) / 3;
+        int nextIndex = -1;
+        for (int i = 0; i < waypoints.size(); i++) {
+            final Location waypoint = waypoints.get(i);
+            if ((loc.getDistance(waypoint) <= reach) && (World.getMap().getMapAt(waypoint) != null)) {
+                nextIndex = i;
+            }
+        }
+        if (nextIndex == -1) {
+            LOGGER.debug("No waypoint of the route in reach, stopping automated walking.");
+            cancelAutoWalk();
+            return;
+        }
+        final Location target = waypoints.get(nextIndex);
+        waypoints.subList(0, nextIndex + 1).clear();
+        Pathfinder.getInstance().findPath(loc, target, this);
+    }
+
+    /**
+     * Make the character automatically walking to a target location. In case the location is too far away for a
+     * regular path or not load yet, a route is searched on the mini map instead.
      *
      * @param destination the location the character shall walk to
      */
@@ -378,9 +438,16 @@ public final class PlayerMovement implements AnimatedMove, PathReceiver {
         cancelAutoWalk();
 
         final Location loc = parentPlayer.getLocation();
+        if (destination.getScZ() != loc.getScZ()) {
+            return;
+        }
         final MapTile walkTarget = World.getMap().getMapAt(destination);
-        if ((walkTarget != null) && (destination.getScZ() == loc.getScZ()) && !walkTarget.isObstacle()) {
-            Pathfinder.getInstance().findPath(loc, destination, this);
+        if ((walkTarget != null) && (loc.getDistance(destination) <= Pathfinder.getMaxLength())) {
+            if (!walkTarget.isObstacle()) {
+                Pathfinder.getInstance().findPath(loc, destination, this);
+            }
+        } else {
+            Pathfinder.getInstance().findRoute(loc, destination, this);
         }
     }
 
@@ -589,15 +656,14 @@ public final class PlayerMovement implements AnimatedMove, PathReceiver {
             case Push:
                 throw new IllegalArgumentException("mode");
             case Walk:
-                final Location locAfterStep = new Location(World.getPlayer().getLocation(), direction);
-                return isLocationFree(locAfterStep);
+                final long keyAfterStep = Location.getNeighbourKey(World.getPlayer().getLocation().getKey(), direction);
+                return isLocationFree(keyAfterStep);
             case Run:
-                final Location newLoc = new Location(World.getPlayer().getLocation(), direction);
-                if (!isLocationFree(newLoc)) {
+                final long newKey = Location.getNeighbourKey(World.getPlayer().getLocation().getKey(), direction);
+                if (!isLocationFree(newKey)) {
                     return false;
                 }
-                newLoc.moveSC(direction);
-                return isLocationFree(newLoc);
+                return isLocationFree(Location.getNeighbourKey(newKey, direction));
         }
         throw new IllegalStateException("isStepPossible reached invalid state.");
     }
@@ -605,11 +671,11 @@ public final class PlayerMovement implements AnimatedMove, PathReceiver {
     /**
      * Check if its possible to step on a specified location.
      *
-     * @param loc the location to test
+     * @param key the key of the location to test
      * @return {@code true} in case the character is able to step onto the location
      */
-    private static boolean isLocationFree(@Nonnull final Location loc) {
-        final MapTile tile = World.getMap().getMapAt(loc);
+    private static boolean isLocationFree(final long key) {
+        final MapTile tile = World.getMap().getMapAt(key);
         return (tile != null) && !tile.isBlocked();
     }
 
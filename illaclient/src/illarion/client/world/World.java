@@ -24,6 +24,7 @@ import illarion.client.gui.GameGui;
 import illarion.client.gui.controller.GameScreenController;
 import illarion.client.net.NetComm;
 import illarion.client.util.ChatHandler;
+import illarion.client.util.GlobalExecutorService;
 import illarion.client.util.UpdateTaskManager;
 import illarion.client.world.interactive.InteractionManager;
 import illarion.common.util.StoppableStorage;
@@ -330,7 +331,7 @@ public final class World {
         INSTANCE.clock = new Clock();
         INSTANCE.map = new GameMap(engine);
         //noinspection ConstantConditions
-        INSTANCE.lights = new LightTracer(INSTANCE.map);
+        INSTANCE.lights = new LightTracer(INSTANCE.map, GlobalExecutorService.getComputeService());
         INSTANCE.mapDisplay = new MapDisplayManager(engine);
         INSTANCE.musicBox = new MusicBox(engine);
         INSTANCE.net = new NetComm();
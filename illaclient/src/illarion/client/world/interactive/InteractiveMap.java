@@ -79,13 +79,12 @@ public final class InteractiveMap {
 
     @Nullable
     public MapTile getTileOnDisplayLoc(final int displayX, final int displayY) {
-        final Location helpLoc = new Location();
-        helpLoc.setDC(displayX, displayY);
+        final long displayKey = Location.getKeyOfDisplayCoordinates(displayX, displayY);
 
         final int playerBase = World.getPlayer().getBaseLevel();
         final int base = playerBase - 2;
-        final int lowX = helpLoc.getScX() - (base * TILE_PERSPECTIVE_OFFSET);
-        final int lowY = helpLoc.getScY() + (base * TILE_PERSPECTIVE_OFFSET);
+        final int lowX = Location.getKeyX(displayKey) - (base * TILE_PERSPECTIVE_OFFSET);
+        final int lowY = Location.getKeyY(displayKey) + (base * TILE_PERSPECTIVE_OFFSET);
 
         for (int i = 4; i >= 0; --i) {
             final int levelOffset = TILE_PERSPECTIVE_OFFSET * i;
@@ -96,10 +95,11 @@ public final class InteractiveMap {
 
             @Nullable final MapTile foundElevatedTile = parentMap.getMapAt(tilePosX - 1, tilePosY + 1, tilePosZ);
             if ((foundElevatedTile != null) && (foundElevatedTile.getElevation() > 0)) {
-                helpLoc.setDC(displayX, displayY + foundElevatedTile.getElevation());
+                final long elevatedKey = Location.getKeyOfDisplayCoordinates(displayX,
+                        displayY + foundElevatedTile.getElevation());
 
-                final int elevatedX = helpLoc.getScX() - (tilePosZ * TILE_PERSPECTIVE_OFFSET);
-                final int elevatedY = helpLoc.getScY() + (tilePosZ * TILE_PERSPECTIVE_OFFSET);
+                final int elevatedX = Location.getKeyX(elevatedKey) - (tilePosZ * TILE_PERSPECTIVE_OFFSET);
+                final int elevatedY = Location.getKeyY(elevatedKey) + (tilePosZ * TILE_PERSPECTIVE_OFFSET);
 
                 if ((elevatedX == (tilePosX - 1)) && (elevatedY == (tilePosY + 1))) {
                     return foundElevatedTile;
@@ -0,0 +1,413 @@
+/*
+ * This file is part of the Illarion Client.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Client.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.client.graphics;
+
+import illarion.client.world.World;
+import org.apache.log4j.Logger;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.annotation.Nonnull;
+import java.lang.reflect.Field;
+import java.util.Random;
+
+/**
+ * This test verifies that the {@link AnimationClock} runs only while it is used and counts the animation work done
+ * for every frame on a map that is mostly covered by water. The shared clocks are compared with the shared frame
+ * animations the tiles and items used before, that pushed every frame change to every visible entity.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+public class AnimationClockTest {
+    /**
+     * The logger that provides the logging output of this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(AnimationClockTest.class);
+
+    /**
+     * The time in milliseconds between two frames.
+     */
+    private static final int FRAME_DELTA = 16;
+
+    /**
+     * The amount of frames rendered by the measurement.
+     */
+    private static final int MEASURED_FRAMES = 600;
+
+    /**
+     * The amount of rounds of the measurement.
+     */
+    private static final int MEASURE_ROUNDS = 5;
+
+    /**
+     * The amount of columns and rows of tiles visible on the screen.
+     */
+    private static final int VISIBLE_SIZE = 40;
+
+    /**
+     * The share of the visible tiles that are water.
+     */
+    private static final double WATER_RATIO = 0.8;
+
+    /**
+     * The amount of animated items visible on the screen, like torches and fountains.
+     */
+    private static final int ANIMATED_ITEMS = 60;
+
+    /**
+     * The frames and the speed of the animated water tiles.
+     */
+    private static final int[][] WATER_TEMPLATES = {{8, 5}, {8, 6}, {4, 4}};
+
+    /**
+     * The frames and the speed of the animated items.
+     */
+    private static final int[][] ITEM_TEMPLATES = {{4, 2}, {6, 3}};
+
+    /**
+     * The animation manager the animations register with.
+     */
+    private AnimationManager manager;
+
+    /**
+     * Put a new animation manager in place for each test. The world is not initialized by the tests, so the
+     * animation manager is set directly.
+     *
+     * @throws Exception in case the animation manager can't be set
+     */
+    @BeforeMethod
+    public void prepareManager() throws Exception {
+        manager = new AnimationManager();
+        setWorldAnimationManager(manager);
+    }
+
+    /**
+     * Remove the animation manager from the world again.
+     *
+     * @throws Exception in case the animation manager can't be removed
+     */
+    @AfterClass
+    public void cleanWorld() throws Exception {
+        setWorldAnimationManager(null);
+    }
+
+    @Test
+    public void testRunsOnlyWhileUsed() {
+        final AnimationClock clock = new AnimationClock(4, 2);
+        Assert.assertFalse(clock.isRunning());
+
+        clock.acquire();
+        clock.acquire();
+        Assert.assertTrue(clock.isRunning());
+        manager.animate(FRAME_DELTA);
+        Assert.assertEquals(manager.getLastAnimatedCount(), 1);
+
+        clock.release();
+        Assert.assertTrue(clock.isRunning(), "The clock stopped while it is still used.");
+        clock.release();
+        Assert.assertFalse(clock.isRunning());
+        manager.animate(FRAME_DELTA);
+        manager.animate(FRAME_DELTA);
+        Assert.assertEquals(manager.getLastAnimatedCount(), 0);
+
+        clock.release();
+        clock.acquire();
+        Assert.assertTrue(clock.isRunning(), "A release without user broke the clock.");
+        clock.release();
+    }
+
+    @Test
+    public void testSingleFrameIsNotAnimated() {
+        final AnimationClock clock = new AnimationClock(1, 2);
+        clock.acquire();
+
+        Assert.assertFalse(clock.isRunning());
+        Assert.assertEquals(clock.getCurrentFrame(), 0);
+        clock.release();
+    }
+
+    @Test
+    public void testFramesLoop() {
+        final int frames = 4;
+        final int speed = 2;
+        final AnimationClock clock = new AnimationClock(frames, speed);
+        clock.acquire();
+        final int duration = speed * AbstractAnimation.ANIMATION_FRAME;
+
+        int lastFrame = clock.getCurrentFrame();
+        Assert.assertEquals(lastFrame, 0);
+        int changes = 0;
+        for (int time = 0; time < (duration * 3); time += FRAME_DELTA) {
+            manager.animate(FRAME_DELTA);
+            final int frame = clock.getCurrentFrame();
+            Assert.assertTrue((frame >= 0) && (frame < frames), "Frame " + frame + " is out of range.");
+            if (frame != lastFrame) {
+                Assert.assertEquals(frame, (lastFrame + 1) % frames, "A frame was skipped.");
+                changes++;
+            }
+            lastFrame = frame;
+        }
+        clock.release();
+
+        Assert.assertTrue(changes >= ((frames * 3) - 1), "The clock did not loop three times.");
+    }
+
+    /**
+     * Show the tiles and items of a screen that is mostly covered by water and count the work of the animations for
+     * every frame. This is done with the shared frame animations the templates used before and with the shared
+     * animation clocks. The times of the last round are reported, the rounds before warm up the code.
+     *
+     * @throws Exception in case the animation manager can't be set
+     */
+    @Test(groups = "benchmark")
+    public void measureWaterHeavyMap() throws Exception {
+        final Random random = new Random(42L);
+        final int[] templates = new int[(VISIBLE_SIZE * VISIBLE_SIZE) + ANIMATED_ITEMS];
+        int animatedEntities = 0;
+        for (int i = 0; i < templates.length; i++) {
+            if (i >= (VISIBLE_SIZE * VISIBLE_SIZE)) {
+                templates[i] = WATER_TEMPLATES.length + random.nextInt(ITEM_TEMPLATES.length);
+                animatedEntities++;
+            } else if (random.nextDouble() < WATER_RATIO) {
+                templates[i] = random.nextInt(WATER_TEMPLATES.length);
+                animatedEntities++;
+            } else {
+                templates[i] = -1;
+            }
+        }
+
+        FrameResult before = null;
+        FrameResult after = null;
+        for (int round = 0; round < MEASURE_ROUNDS; round++) {
+            prepareManager();
+            before = measureFrameAnimations(templates);
+            prepareManager();
+            after = measureAnimationClocks(templates);
+        }
+        assert (before != null) && (after != null);
+
+        LOGGER.info(animatedEntities + " animated entities of " + (WATER_TEMPLATES.length + ITEM_TEMPLATES.length) +
+                " templates visible, " + MEASURED_FRAMES + " frames: shared frame animations " + before +
+                ", shared animation clocks " + after);
+        Assert.assertEquals(before.animatedPerFrame, after.animatedPerFrame, 0.001);
+        Assert.assertEquals(after.framePushes, 0L);
+        Assert.assertTrue(before.framePushes > 0L);
+    }
+
+    /**
+     * Show the entities with one shared frame animation per template that pushes the frame changes to its targets,
+     * the way the templates worked before the animation clocks.
+     *
+     * @param templates the template of each entity or {@code -1} for entities that are not animated
+     * @return the result of the measurement
+     */
+    @Nonnull
+    private FrameResult measureFrameAnimations(@Nonnull final int[] templates) {
+        final int[][] setup = getTemplateSetup();
+        final FrameAnimation[] animations = new FrameAnimation[setup.length];
+        for (int i = 0; i < setup.length; i++) {
+            animations[i] = new FrameAnimation(null);
+            animations[i].setup(setup[i][0], 0, setup[i][1], FrameAnimation.LOOPED);
+        }
+
+        final CountingEntity[] entities = new CountingEntity[templates.length];
+        final long showStart = System.nanoTime();
+        for (int i = 0; i < templates.length; i++) {
+            if (templates[i] != -1) {
+                entities[i] = new CountingEntity();
+                animations[templates[i]].addTarget(entities[i], true);
+            }
+        }
+        final long showTime = System.nanoTime() - showStart;
+
+        final FrameResult result = new FrameResult(showTime);
+        for (final CountingEntity entity : entities) {
+            if (entity != null) {
+                entity.frameChanges = 0L;
+            }
+        }
+        final long animateStart = System.nanoTime();
+        for (int frame = 0; frame < MEASURED_FRAMES; frame++) {
+            manager.animate(FRAME_DELTA);
+            result.animated += manager.getLastAnimatedCount();
+        }
+        result.animateTime = System.nanoTime() - animateStart;
+        for (final CountingEntity entity : entities) {
+            if (entity != null) {
+                result.framePushes += entity.frameChanges;
+            }
+        }
+        result.finish();
+
+        for (int i = 0; i < templates.length; i++) {
+            if (templates[i] != -1) {
+                animations[templates[i]].removeTarget(entities[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Show the entities with one shared animation clock per template the entities read the frame from when they are
+     * rendered.
+     *
+     * @param templates the template of each entity or {@code -1} for entities that are not animated
+     * @return the result of the measurement
+     */
+    @Nonnull
+    private FrameResult measureAnimationClocks(@Nonnull final int[] templates) {
+        final int[][] setup = getTemplateSetup();
+        final AnimationClock[] clocks = new AnimationClock[setup.length];
+        for (int i = 0; i < setup.length; i++) {
+            clocks[i] = new AnimationClock(setup[i][0], setup[i][1]);
+        }
+
+        final long showStart = System.nanoTime();
+        for (final int template : templates) {
+            if (template != -1) {
+                clocks[template].acquire();
+            }
+        }
+        final long showTime = System.nanoTime() - showStart;
+
+        final FrameResult result = new FrameResult(showTime);
+        final long animateStart = System.nanoTime();
+        for (int frame = 0; frame < MEASURED_FRAMES; frame++) {
+            manager.animate(FRAME_DELTA);
+            result.animated += manager.getLastAnimatedCount();
+        }
+        result.animateTime = System.nanoTime() - animateStart;
+        result.finish();
+
+        for (final int template : templates) {
+            if (template != -1) {
+                clocks[template].release();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the frames and speeds of all animated templates, first the water tiles, then the items.
+     *
+     * @return the frames and the speed of each template
+     */
+    @Nonnull
+    private static int[][] getTemplateSetup() {
+        final int[][] setup = new int[WATER_TEMPLATES.length + ITEM_TEMPLATES.length][];
+        System.arraycopy(WATER_TEMPLATES, 0, setup, 0, WATER_TEMPLATES.length);
+        System.arraycopy(ITEM_TEMPLATES, 0, setup, WATER_TEMPLATES.length, ITEM_TEMPLATES.length);
+        return setup;
+    }
+
+    /**
+     * Set the animation manager of the world.
+     *
+     * @param animationManager the animation manager or {@code null} to remove it
+     * @throws Exception in case the field of the world can't be accessed
+     */
+    private static void setWorldAnimationManager(final AnimationManager animationManager) throws Exception {
+        final Field instanceField = World.class.getDeclaredField("INSTANCE");
+        instanceField.setAccessible(true);
+        final Field managerField = World.class.getDeclaredField("aniManager");
+        managerField.setAccessible(true);
+        managerField.set(instanceField.get(null), animationManager);
+    }
+
+    /**
+     * This is the stand-in of a tile or item that counts the frame changes pushed to it.
+     */
+    private static final class CountingEntity implements AnimatedFrame {
+        /**
+         * The amount of frame changes pushed to this entity.
+         */
+        private long frameChanges;
+
+        @Override
+        public void setFrame(final int frame) {
+            frameChanges++;
+        }
+
+        @Override
+        public void animationStarted() {
+            // nothing to do
+        }
+
+        @Override
+        public void animationFinished(final boolean finished) {
+            // nothing to do
+        }
+    }
+
+    /**
+     * The result of one measurement.
+     */
+    private static final class FrameResult {
+        /**
+         * The time in nanoseconds needed to show all entities.
+         */
+        private final long showTime;
+
+        /**
+         * The time in nanoseconds needed to update the animations of all frames.
+         */
+        private long animateTime;
+
+        /**
+         * The sum of the animations updated by the manager over all frames.
+         */
+        private long animated;
+
+        /**
+         * The sum of the frame changes pushed to the entities over all frames.
+         */
+        private long framePushes;
+
+        /**
+         * The average amount of animations updated per frame.
+         */
+        private double animatedPerFrame;
+
+        /**
+         * Create a new result.
+         *
+         * @param showTime the time in nanoseconds needed to show all entities
+         */
+        FrameResult(final long showTime) {
+            this.showTime = showTime;
+        }
+
+        /**
+         * Calculate the averages once all frames are counted.
+         */
+        void finish() {
+            animatedPerFrame = (double) animated / MEASURED_FRAMES;
+        }
+
+        @Nonnull
+        @Override
+        public String toString() {
+            return String.format("%.1f animations updated and %.1f frame changes pushed per frame, showing %dus, " +
+                    "animating %dus", animatedPerFrame, (double) framePushes / MEASURED_FRAMES, showTime / 1000L,
+                    animateTime / 1000L);
+        }
+    }
+}
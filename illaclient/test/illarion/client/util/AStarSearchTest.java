@@ -0,0 +1,348 @@
+/*
+ * This file is part of the Illarion Client.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Client.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.client.util;
+
+import illarion.common.types.Location;
+import org.apache.log4j.Logger;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This test verifies that the {@link AStarSearch} finds the cheapest paths and respects the maximal length of a path.
+ * It also measures the time needed to search paths on maps with randomly placed obstacles.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+public class AStarSearchTest {
+    /**
+     * The logger that provides the logging output of this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(AStarSearchTest.class);
+
+    /**
+     * The maximal amount of steps of the paths searched on the small maps.
+     */
+    private static final int SMALL_MAP_STEPS = 30;
+
+    /**
+     * The size of the maps used by the benchmark.
+     */
+    private static final int BENCHMARK_MAP_SIZE = 200;
+
+    /**
+     * The amount of maps generated for the benchmark.
+     */
+    private static final int BENCHMARK_MAPS = 4;
+
+    /**
+     * The amount of paths searched on each map of the benchmark.
+     */
+    private static final int BENCHMARK_SEARCHES = 50;
+
+    /**
+     * The amount of rounds of the benchmark that are executed before the time is measured.
+     */
+    private static final int BENCHMARK_WARMUP_ROUNDS = 3;
+
+    /**
+     * The amount of rounds of the benchmark that are measured.
+     */
+    private static final int BENCHMARK_ROUNDS = 5;
+
+    @Test
+    public void testStraightPath() {
+        final String[] rows = {
+                "S....D"
+        };
+        final List<PathNode> steps = assertOptimalPath(rows);
+        Assert.assertEquals(steps.size(), 6);
+    }
+
+    @Test
+    public void testDiagonalPath() {
+        final String[] rows = {
+                "S....",
+                ".....",
+                ".....",
+                ".....",
+                "....D"
+        };
+        final List<PathNode> steps = assertOptimalPath(rows);
+        Assert.assertEquals(steps.size(), 5);
+        Assert.assertEquals(steps.get(steps.size() - 1).getCost(), 4 * 11);
+    }
+
+    @Test
+    public void testPathAroundWall() {
+        final String[] rows = {
+                ".......",
+                ".#####.",
+                "S#...#D",
+                ".#.#.#.",
+                "...#..."
+        };
+        assertOptimalPath(rows);
+    }
+
+    @Test
+    public void testPathAroundExpensiveTiles() {
+        final String[] rows = {
+                ".........",
+                ".~~~~~~~.",
+                "S~~~~~~~D",
+                ".~~~~~~~.",
+                "........."
+        };
+        final List<PathNode> steps = assertOptimalPath(rows);
+        for (final PathNode step : steps) {
+            Assert.assertTrue(step.getLocation().getScY() != 2 || step.getLocation().getScX() == 0 ||
+                    step.getLocation().getScX() == 8, "The path crosses the expensive tiles.");
+        }
+    }
+
+    @Test
+    public void testPathThroughExpensiveTiles() {
+        final String[] rows = {
+                "##########",
+                "S...~...D#",
+                "##########"
+        };
+        assertOptimalPath(rows);
+    }
+
+    @Test
+    public void testBlockedDestination() {
+        final TestSearchMap map = TestSearchMap.parse("S..#");
+        Assert.assertNull(new AStarSearch(map).search(new Location(0, 0, 0), new Location(3, 0, 0),
+                SMALL_MAP_STEPS));
+    }
+
+    @Test
+    public void testUnreachableDestination() {
+        final String[] rows = {
+                "S.#..",
+                "..#.D",
+                "###.."
+        };
+        final TestSearchMap map = TestSearchMap.parse(rows);
+        Assert.assertNull(new AStarSearch(map).search(TestSearchMap.find(rows, 'S'), TestSearchMap.find(rows, 'D'),
+                SMALL_MAP_STEPS));
+    }
+
+    @Test
+    public void testDifferentLevels() {
+        final TestSearchMap map = new TestSearchMap(0, 0, 5, 5);
+        Assert.assertNull(new AStarSearch(map).search(new Location(0, 0, 0), new Location(2, 2, 1),
+                SMALL_MAP_STEPS));
+    }
+
+    @Test
+    public void testGeneratedSmallMaps() {
+        final Random random = new Random(4711L);
+        for (int i = 0; i < 200; i++) {
+            final TestSearchMap map = TestSearchMap.generate(random, 15, 15, 0.3, 0.2);
+            final AStarSearch mapSearch = new AStarSearch(map);
+            final Location start = map.pickFreeLocation(random);
+            final Location dest = map.pickFreeLocation(random);
+            final int expectedCost = map.getCheapestCost(start, dest);
+            final Path path = mapSearch.search(start, dest, SMALL_MAP_STEPS);
+            if (expectedCost == -1) {
+                Assert.assertNull(path, "Found a path on map " + i + " where none exists.");
+            } else {
+                Assert.assertNotNull(path, "No path found on map " + i + '.');
+                final List<PathNode> steps = map.verifyPath(path, start, dest);
+                Assert.assertEquals(steps.get(steps.size() - 1).getCost(), expectedCost,
+                        "The path on map " + i + " is not the cheapest one.");
+            }
+        }
+    }
+
+    @Test
+    public void testSearchReusedOnSameMap() {
+        final Random random = new Random(1234L);
+        final TestSearchMap map = TestSearchMap.generate(random, 40, 40, 0.25, 0.2);
+        final AStarSearch search = new AStarSearch(map);
+        for (int i = 0; i < 100; i++) {
+            final Location start = map.pickFreeLocation(random);
+            final Location dest = map.pickFreeLocation(random);
+            final int expectedCost = map.getCheapestCost(start, dest);
+            final Path path = search.search(start, dest, Pathfinder.LIMIT_MAX_LENGTH);
+            if (expectedCost == -1) {
+                Assert.assertNull(path, "Found a path for search " + i + " where none exists.");
+            } else {
+                Assert.assertNotNull(path, "No path found for search " + i + '.');
+                final List<PathNode> steps = map.verifyPath(path, start, dest);
+                Assert.assertEquals(steps.get(steps.size() - 1).getCost(), expectedCost,
+                        "The path of search " + i + " is not the cheapest one.");
+            }
+        }
+    }
+
+    @Test
+    public void testLongestAllowedPath() {
+        final int maxSteps = Pathfinder.LIMIT_MAX_LENGTH;
+        final TestSearchMap map = new TestSearchMap(0, 0, maxSteps + 1, 1);
+        final Location start = new Location(0, 0, 0);
+        final Location dest = new Location(maxSteps, 0, 0);
+
+        final Path path = new AStarSearch(map).search(start, dest, maxSteps);
+
+        Assert.assertNotNull(path);
+        final List<PathNode> steps = map.verifyPath(path, start, dest);
+        Assert.assertEquals(steps.size(), maxSteps + 1);
+        Assert.assertEquals(steps.get(steps.size() - 1).getCost(), maxSteps * TestSearchMap.PLAIN_COST);
+    }
+
+    @Test
+    public void testDestinationTooFarAway() {
+        final int maxSteps = Pathfinder.LIMIT_MAX_LENGTH;
+        final TestSearchMap map = new TestSearchMap(0, 0, maxSteps + 2, 1);
+
+        Assert.assertNull(new AStarSearch(map).search(new Location(0, 0, 0), new Location(maxSteps + 1, 0, 0),
+                maxSteps));
+    }
+
+    @Test
+    public void testDetourWithinLimit() {
+        final int maxSteps = Pathfinder.LIMIT_MAX_LENGTH;
+        final TestSearchMap map = createDetourMap(maxSteps, 90);
+        final Location start = new Location(0, 0, 0);
+        final Location dest = new Location(0, 10, 0);
+
+        final Path path = new AStarSearch(map).search(start, dest, maxSteps);
+
+        Assert.assertNotNull(path);
+        final List<PathNode> steps = map.verifyPath(path, start, dest);
+        Assert.assertTrue(steps.size() <= (maxSteps + 1), "The path is longer then allowed.");
+        Assert.assertEquals(steps.get(steps.size() - 1).getCost(), map.getCheapestCost(start, dest));
+    }
+
+    @Test
+    public void testDetourBeyondLimit() {
+        final int maxSteps = Pathfinder.LIMIT_MAX_LENGTH;
+        final TestSearchMap map = createDetourMap(maxSteps, 150);
+
+        Assert.assertNull(new AStarSearch(map).search(new Location(0, 0, 0), new Location(0, 10, 0), maxSteps));
+    }
+
+    /**
+     * Search paths between random locations on large maps with randomly placed obstacles. The time of the A* search
+     * is compared to the time of the plain Dijkstra search of the test map.
+     */
+    @Test(groups = "benchmark")
+    public void benchmarkGeneratedObstacleMaps() {
+        final Random random = new Random(42L);
+        final TestSearchMap[] maps = new TestSearchMap[BENCHMARK_MAPS];
+        final Location[][] starts = new Location[BENCHMARK_MAPS][BENCHMARK_SEARCHES];
+        final Location[][] destinations = new Location[BENCHMARK_MAPS][BENCHMARK_SEARCHES];
+        for (int i = 0; i < BENCHMARK_MAPS; i++) {
+            maps[i] = TestSearchMap.generate(random, BENCHMARK_MAP_SIZE, BENCHMARK_MAP_SIZE, 0.25, 0.2);
+            for (int j = 0; j < BENCHMARK_SEARCHES; j++) {
+                starts[i][j] = maps[i].pickFreeLocation(random);
+                do {
+                    destinations[i][j] = maps[i].pickFreeLocation(random);
+                } while (starts[i][j].getDistance(destinations[i][j]) > Pathfinder.LIMIT_MAX_LENGTH);
+            }
+        }
+
+        long bestSearchTime = Long.MAX_VALUE;
+        long bestReferenceTime = Long.MAX_VALUE;
+        int foundPaths = 0;
+        long expandedNodes = 0L;
+        for (int round = 0; round < (BENCHMARK_WARMUP_ROUNDS + BENCHMARK_ROUNDS); round++) {
+            foundPaths = 0;
+            expandedNodes = 0L;
+            long referenceTime = 0L;
+            long searchTime = 0L;
+            for (int i = 0; i < BENCHMARK_MAPS; i++) {
+                final AStarSearch search = new AStarSearch(maps[i]);
+                for (int j = 0; j < BENCHMARK_SEARCHES; j++) {
+                    final long searchStart = System.nanoTime();
+                    final Path path = search.search(starts[i][j], destinations[i][j], Pathfinder.LIMIT_MAX_LENGTH);
+                    searchTime += System.nanoTime() - searchStart;
+                    expandedNodes += search.getExpandedNodes();
+
+                    final long referenceStart = System.nanoTime();
+                    final int expectedCost = maps[i].getCheapestCost(starts[i][j], destinations[i][j]);
+                    referenceTime += System.nanoTime() - referenceStart;
+
+                    if (path != null) {
+                        foundPaths++;
+                        final List<PathNode> steps = maps[i].verifyPath(path, starts[i][j], destinations[i][j]);
+                        Assert.assertEquals(steps.get(steps.size() - 1).getCost(), expectedCost);
+                    }
+                }
+            }
+            if (round >= BENCHMARK_WARMUP_ROUNDS) {
+                bestSearchTime = Math.min(bestSearchTime, searchTime);
+                bestReferenceTime = Math.min(bestReferenceTime, referenceTime);
+            }
+        }
+
+        final int searches = BENCHMARK_MAPS * BENCHMARK_SEARCHES;
+        LOGGER.info("Searching " + searches + " paths on " + BENCHMARK_MAPS + " maps of " + BENCHMARK_MAP_SIZE + 'x' +
+                BENCHMARK_MAP_SIZE + " tiles: A* " + (bestSearchTime / 1000L) + "us (" + (expandedNodes / searches) +
+                " expanded nodes per search), Dijkstra " + (bestReferenceTime / 1000L) + "us, " + foundPaths +
+                " paths found");
+        Assert.assertTrue(foundPaths > 0, "The benchmark did not find any path.");
+    }
+
+    /**
+     * Create a map with a wall between the start at {@code (0, 0)} and the destination at {@code (0, 10)}. The wall
+     * spans the entire search window except for a gap at its eastern end.
+     *
+     * @param maxSteps the maximal amount of steps of the path
+     * @param gapX     the x coordinate of the first tile of the gap in the wall
+     * @return the map
+     */
+    @Nonnull
+    private static TestSearchMap createDetourMap(final int maxSteps, final int gapX) {
+        final int size = (maxSteps * 2) + 1;
+        final TestSearchMap map = new TestSearchMap(-maxSteps, -maxSteps, size, size);
+        for (int x = -maxSteps; x < gapX; x++) {
+            map.setMovementCost(x, 5, SearchMap.BLOCKED);
+        }
+        return map;
+    }
+
+    /**
+     * Search the path between the {@code S} and the {@code D} of a drawing of a map and check that it is the cheapest
+     * one.
+     *
+     * @param rows the rows of the map
+     * @return the steps of the path
+     */
+    @Nonnull
+    private static List<PathNode> assertOptimalPath(@Nonnull final String[] rows) {
+        final TestSearchMap map = TestSearchMap.parse(rows);
+        final Location start = TestSearchMap.find(rows, 'S');
+        final Location dest = TestSearchMap.find(rows, 'D');
+
+        final Path path = new AStarSearch(map).search(start, dest, SMALL_MAP_STEPS);
+
+        Assert.assertNotNull(path);
+        final List<PathNode> steps = map.verifyPath(path, start, dest);
+        Assert.assertEquals(steps.get(steps.size() - 1).getCost(), map.getCheapestCost(start, dest));
+        return steps;
+    }
+}
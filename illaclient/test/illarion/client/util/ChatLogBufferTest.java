@@ -0,0 +1,143 @@
+/*
+ * This file is part of the Illarion Client.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Client.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.client.util;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * This test verifies that the {@link ChatLogBuffer} hands out the lines in the order they were added, that it drops
+ * lines once its full and that no line gets lost or duplicated while several threads add lines at the same time.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+public class ChatLogBufferTest {
+    /**
+     * The amount of threads that add lines in the concurrent test.
+     */
+    private static final int PRODUCERS = 4;
+
+    /**
+     * The amount of lines each thread adds in the concurrent test.
+     */
+    private static final int LINES_PER_PRODUCER = 50000;
+
+    @Test
+    public void testOrder() {
+        final ChatLogBuffer buffer = new ChatLogBuffer(8);
+        Assert.assertNull(buffer.poll());
+
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 5; i++) {
+                Assert.assertTrue(buffer.offer("line " + round + '.' + i));
+            }
+            Assert.assertEquals(buffer.size(), 5);
+            for (int i = 0; i < 5; i++) {
+                Assert.assertEquals(buffer.poll(), "line " + round + '.' + i);
+            }
+            Assert.assertNull(buffer.poll());
+            Assert.assertEquals(buffer.size(), 0);
+        }
+    }
+
+    @Test
+    public void testFullBuffer() {
+        final ChatLogBuffer buffer = new ChatLogBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(buffer.offer("line " + i));
+        }
+        Assert.assertFalse(buffer.offer("dropped"));
+        Assert.assertEquals(buffer.size(), 4);
+
+        Assert.assertEquals(buffer.poll(), "line 0");
+        Assert.assertTrue(buffer.offer("line 4"));
+        Assert.assertFalse(buffer.offer("dropped"));
+
+        final List<String> lines = new ArrayList<String>();
+        Assert.assertEquals(buffer.drainTo(lines, 3), 3);
+        Assert.assertEquals(buffer.drainTo(lines, 3), 1);
+        Assert.assertEquals(buffer.drainTo(lines, 3), 0);
+        Assert.assertEquals(lines.size(), 4);
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(lines.get(i), "line " + (i + 1));
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testIllegalSize() {
+        new ChatLogBuffer(100);
+    }
+
+    @Test
+    public void testConcurrentProducers() throws InterruptedException {
+        final ChatLogBuffer buffer = new ChatLogBuffer(1024);
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        final Thread[] producers = new Thread[PRODUCERS];
+        for (int i = 0; i < PRODUCERS; i++) {
+            final int producer = i;
+            producers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startSignal.await();
+                    } catch (@Nonnull final InterruptedException e) {
+                        return;
+                    }
+                    for (int line = 0; line < LINES_PER_PRODUCER; line++) {
+                        final String text = producer + ":" + line;
+                        while (!buffer.offer(text)) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+            producers[i].start();
+        }
+        startSignal.countDown();
+
+        final int[] nextLines = new int[PRODUCERS];
+        int received = 0;
+        final long end = System.currentTimeMillis() + 30000L;
+        while ((received < (PRODUCERS * LINES_PER_PRODUCER)) && (System.currentTimeMillis() < end)) {
+            final String text = buffer.poll();
+            if (text == null) {
+                Thread.yield();
+                continue;
+            }
+            final int separator = text.indexOf(':');
+            final int producer = Integer.parseInt(text.substring(0, separator));
+            final int line = Integer.parseInt(text.substring(separator + 1));
+            Assert.assertEquals(line, nextLines[producer], "Line of producer " + producer + " out of order.");
+            nextLines[producer]++;
+            received++;
+        }
+        for (final Thread producer : producers) {
+            producer.join(1000L);
+        }
+
+        Assert.assertEquals(received, PRODUCERS * LINES_PER_PRODUCER);
+        Assert.assertNull(buffer.poll());
+        Assert.assertEquals(buffer.size(), 0);
+    }
+}
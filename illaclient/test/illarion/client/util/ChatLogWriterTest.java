@@ -0,0 +1,378 @@
+/*
+ * This file is part of the Illarion Client.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Client.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.client.util;
+
+import illarion.common.config.ConfigKey;
+import illarion.common.config.ConfigSystem;
+import org.apache.log4j.DailyRollingFileAppender;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * This test verifies that the {@link ChatLogWriter} writes all lines in the order they were logged, that it counts
+ * the lines it drops and that it rotates and compresses the log of a earlier month. It also compares the time the
+ * threads that log chat spend on logging with the time they spent with the log4j appender that was used before.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+public class ChatLogWriterTest {
+    /**
+     * The logger that provides the logging output of this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(ChatLogWriterTest.class);
+
+    /**
+     * The amount of lines the buffer of the writer is able to store.
+     */
+    private static final int BUFFER_SIZE = 4096;
+
+    /**
+     * The amount of threads that log chat in the benchmark.
+     */
+    private static final int BENCHMARK_THREADS = 4;
+
+    /**
+     * The amount of lines each thread logs in one round of the benchmark. All lines of a round fit into the buffer.
+     */
+    private static final int BENCHMARK_LINES = 1000;
+
+    /**
+     * The amount of rounds of the benchmark that are executed before the time is measured.
+     */
+    private static final int BENCHMARK_WARMUP_ROUNDS = 5;
+
+    /**
+     * The amount of rounds of the benchmark that are measured.
+     */
+    private static final int BENCHMARK_ROUNDS = 10;
+
+    /**
+     * The directory the log files of the current test are written to.
+     */
+    private File directory;
+
+    /**
+     * The configuration handle of the sync interval.
+     */
+    private ConfigKey syncInterval;
+
+    /**
+     * Prepare a empty directory and a configuration for each test.
+     *
+     * @throws IOException in case creating the directory fails
+     */
+    @BeforeMethod
+    public void prepareDirectory() throws IOException {
+        directory = createDirectory();
+        final ConfigSystem config = new ConfigSystem((File) null);
+        config.set(ChatLog.CFG_TEXTLOG_SYNC, 0);
+        syncInterval = config.getKey(ChatLog.CFG_TEXTLOG_SYNC);
+    }
+
+    /**
+     * Remove the directory of the last test.
+     */
+    @AfterMethod
+    public void removeDirectory() {
+        deleteDirectory(directory);
+    }
+
+    @Test
+    public void testLinesInOrder() throws IOException {
+        final ChatLogWriter writer = new ChatLogWriter(directory, syncInterval);
+        writer.start();
+        final List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 3000; i++) {
+            final String line = "line " + i;
+            writer.log(line);
+            expected.add(line);
+        }
+        writer.log("");
+        expected.add("");
+        writer.saveShutdown();
+
+        Assert.assertFalse(writer.isAlive());
+        Assert.assertEquals(readLines(new File(directory, "illarion.log")), expected);
+        Assert.assertEquals(writer.getWrittenLines(), (long) expected.size());
+        Assert.assertEquals(writer.getDroppedLines(), 0L);
+        Assert.assertEquals(writer.getQueuedLines(), 0);
+    }
+
+    @Test
+    public void testAppendToExistingLog() throws IOException {
+        for (int session = 0; session < 2; session++) {
+            final ChatLogWriter writer = new ChatLogWriter(directory, syncInterval);
+            writer.start();
+            writer.log("session " + session);
+            writer.saveShutdown();
+        }
+
+        final List<String> lines = readLines(new File(directory, "illarion.log"));
+        Assert.assertEquals(lines.size(), 2);
+        Assert.assertEquals(lines.get(0), "session 0");
+        Assert.assertEquals(lines.get(1), "session 1");
+    }
+
+    @Test
+    public void testDroppedLines() throws IOException {
+        final ChatLogWriter writer = new ChatLogWriter(directory, syncInterval);
+        for (int i = 0; i < (BUFFER_SIZE + 10); i++) {
+            writer.log("line " + i);
+        }
+        Assert.assertEquals(writer.getQueuedLines(), BUFFER_SIZE);
+        Assert.assertEquals(writer.getDroppedLines(), 10L);
+        Assert.assertEquals(writer.getEarlyWakeups(), 1L);
+
+        writer.start();
+        writer.saveShutdown();
+
+        final List<String> lines = readLines(new File(directory, "illarion.log"));
+        Assert.assertEquals(lines.size(), BUFFER_SIZE);
+        Assert.assertEquals(lines.get(BUFFER_SIZE - 1), "line " + (BUFFER_SIZE - 1));
+        Assert.assertEquals(writer.getWrittenLines(), (long) BUFFER_SIZE);
+    }
+
+    @Test
+    public void testRotateLogOfEarlierMonth() throws IOException, InterruptedException {
+        final ChatLogWriter oldWriter = new ChatLogWriter(directory, syncInterval);
+        oldWriter.start();
+        oldWriter.log("old line");
+        oldWriter.saveShutdown();
+
+        final Calendar calendar = Calendar.getInstance();
+        calendar.add(Calendar.MONTH, -2);
+        final File logFile = new File(directory, "illarion.log");
+        Assert.assertTrue(logFile.setLastModified(calendar.getTimeInMillis()));
+        final String monthName = new SimpleDateFormat("yyyy-MM").format(calendar.getTime());
+
+        final ChatLogWriter writer = new ChatLogWriter(directory, syncInterval);
+        writer.start();
+        writer.log("new line");
+        writer.saveShutdown();
+
+        final File compressedFile = new File(directory, "illarion.log." + monthName + ".log.gz");
+        final long end = System.currentTimeMillis() + 5000L;
+        while (!compressedFile.isFile() || new File(directory, "illarion.log." + monthName + ".log").exists()) {
+            Assert.assertTrue(System.currentTimeMillis() < end, "The rotated log was not compressed.");
+            Thread.sleep(10L);
+        }
+
+        Assert.assertEquals(readLines(logFile).size(), 1);
+        Assert.assertEquals(readLines(logFile).get(0), "new line");
+        final List<String> oldLines = readLines(new GZIPInputStream(new FileInputStream(compressedFile)));
+        Assert.assertEquals(oldLines.size(), 1);
+        Assert.assertEquals(oldLines.get(0), "old line");
+    }
+
+    /**
+     * Log the same lines from several threads, once with the writer and once with a daily rolling log4j appender
+     * set up the same way the chat log did before. The time is measured from the start of the threads until all
+     * threads logged their lines. For the writer the time until the lines are on the disk is measured as well.
+     *
+     * @throws IOException in case creating the directories fails
+     */
+    @Test(groups = "benchmark")
+    public void benchmarkAgainstAppender() throws IOException {
+        final String[] lines = new String[BENCHMARK_LINES];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = "Someone says: this is chat line number " + i + " of the benchmark.";
+        }
+
+        long bestWriterTime = Long.MAX_VALUE;
+        long bestWriterDiskTime = Long.MAX_VALUE;
+        long bestAppenderTime = Long.MAX_VALUE;
+        for (int round = 0; round < (BENCHMARK_WARMUP_ROUNDS + BENCHMARK_ROUNDS); round++) {
+            final File writerDirectory = createDirectory();
+            final File appenderDirectory = createDirectory();
+            try {
+                final ChatLogWriter writer = new ChatLogWriter(writerDirectory, syncInterval);
+                writer.start();
+                final long writerStart = System.nanoTime();
+                logFromThreads(lines, writer, null);
+                final long writerTime = System.nanoTime() - writerStart;
+                writer.saveShutdown();
+                final long writerDiskTime = System.nanoTime() - writerStart;
+                Assert.assertEquals(writer.getWrittenLines(), (long) BENCHMARK_THREADS * BENCHMARK_LINES);
+
+                final DailyRollingFileAppender appender = new DailyRollingFileAppender();
+                appender.setDatePattern("'.'yyyy-MM'.log'");
+                appender.setFile(new File(appenderDirectory, "illarion.log").getAbsolutePath());
+                appender.setLayout(new PatternLayout("%m%n"));
+                appender.setAppend(true);
+                appender.activateOptions();
+                final Logger chatLogger = Logger.getLogger("CHAT.benchmark" + round);
+                chatLogger.setAdditivity(false);
+                chatLogger.setLevel(Level.ALL);
+                chatLogger.addAppender(appender);
+                final long appenderStart = System.nanoTime();
+                logFromThreads(lines, null, chatLogger);
+                final long appenderTime = System.nanoTime() - appenderStart;
+                chatLogger.removeAllAppenders();
+                appender.close();
+                Assert.assertEquals(readLines(new File(appenderDirectory, "illarion.log")).size(),
+                        BENCHMARK_THREADS * BENCHMARK_LINES);
+
+                if (round >= BENCHMARK_WARMUP_ROUNDS) {
+                    bestWriterTime = Math.min(bestWriterTime, writerTime);
+                    bestWriterDiskTime = Math.min(bestWriterDiskTime, writerDiskTime);
+                    bestAppenderTime = Math.min(bestAppenderTime, appenderTime);
+                }
+            } finally {
+                deleteDirectory(writerDirectory);
+                deleteDirectory(appenderDirectory);
+            }
+        }
+
+        LOGGER.info("Logging " + BENCHMARK_LINES + " lines from each of " + BENCHMARK_THREADS + " threads: writer " +
+                (bestWriterTime / 1000L) + "us (" + (bestWriterDiskTime / 1000L) + "us until written), appender " +
+                (bestAppenderTime / 1000L) + "us");
+        Assert.assertTrue(bestWriterTime < bestAppenderTime, "Logging with the writer is slower then the appender.");
+    }
+
+    /**
+     * Log the lines from several threads and wait until all threads are done.
+     *
+     * @param lines  the lines each thread logs
+     * @param writer the writer used to log the lines or {@code null} to use the logger
+     * @param logger the logger used to log the lines in case no writer is set
+     */
+    private static void logFromThreads(@Nonnull final String[] lines, @Nullable final ChatLogWriter writer,
+                                       @Nullable final Logger logger) {
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        final Thread[] threads = new Thread[BENCHMARK_THREADS];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startSignal.await();
+                    } catch (@Nonnull final InterruptedException e) {
+                        return;
+                    }
+                    for (final String line : lines) {
+                        if (writer != null) {
+                            writer.log(line);
+                        } else if (logger != null) {
+                            logger.info(line);
+                        }
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        startSignal.countDown();
+        for (final Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (@Nonnull final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Create a new empty directory for log files.
+     *
+     * @return the directory
+     * @throws IOException in case creating the directory fails
+     */
+    @Nonnull
+    private static File createDirectory() throws IOException {
+        final File newDirectory = File.createTempFile("chatlog", "test");
+        if (!newDirectory.delete() || !newDirectory.mkdir()) {
+            throw new IOException("Failed to create the directory for the chat log.");
+        }
+        return newDirectory;
+    }
+
+    /**
+     * Remove a directory with all its files.
+     *
+     * @param target the directory
+     */
+    private static void deleteDirectory(@Nonnull final File target) {
+        @Nullable final File[] files = target.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                if (!file.delete()) {
+                    file.deleteOnExit();
+                }
+            }
+        }
+        if (!target.delete()) {
+            target.deleteOnExit();
+        }
+    }
+
+    /**
+     * Read all lines of a log file.
+     *
+     * @param file the log file
+     * @return the lines of the file
+     * @throws IOException in case reading the file fails
+     */
+    @Nonnull
+    private static List<String> readLines(@Nonnull final File file) throws IOException {
+        return readLines(new FileInputStream(file));
+    }
+
+    /**
+     * Read all lines of a stream and close it.
+     *
+     * @param in the stream
+     * @return the lines of the stream
+     * @throws IOException in case reading the stream fails
+     */
+    @Nonnull
+    private static List<String> readLines(@Nonnull final InputStream in) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+        try {
+            final List<String> lines = new ArrayList<String>();
+            String line = reader.readLine();
+            while (line != null) {
+                lines.add(line);
+                line = reader.readLine();
+            }
+            return lines;
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * This file is part of the Illarion Client.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Client.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.client.util;
+
+import illarion.common.types.Location;
+import org.apache.log4j.Logger;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This test verifies that the paths the {@link DStarLiteSearch} repairs after tiles changed are as cheap as the paths
+ * of a planner that starts over. It also measures the time needed to repair the paths compared to searching them
+ * again.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+public class DStarLiteSearchTest {
+    /**
+     * The logger that provides the logging output of this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(DStarLiteSearchTest.class);
+
+    /**
+     * The size of the maps used by the benchmark.
+     */
+    private static final int BENCHMARK_MAP_SIZE = 120;
+
+    /**
+     * The amount of obstacles that move around the map during the benchmark.
+     */
+    private static final int BENCHMARK_OBSTACLES = 30;
+
+    /**
+     * The amount of rounds of the benchmark that are executed before the time is measured.
+     */
+    private static final int BENCHMARK_WARMUP_ROUNDS = 3;
+
+    /**
+     * The amount of rounds of the benchmark that are measured.
+     */
+    private static final int BENCHMARK_ROUNDS = 5;
+
+    @Test
+    public void testInitializeFindsCheapestPath() {
+        final Random random = new Random(4711L);
+        for (int i = 0; i < 100; i++) {
+            final TestSearchMap map = TestSearchMap.generate(random, 20, 20, 0.3, 0.2);
+            final Location start = map.pickFreeLocation(random);
+            final Location dest = map.pickFreeLocation(random);
+            final DStarLiteSearch planner = new DStarLiteSearch(map);
+
+            Assert.assertTrue(planner.initialize(start, dest, Pathfinder.LIMIT_MAX_LENGTH));
+
+            Assert.assertEquals(getPathCost(map, planner.extractPath(), start, dest), map.getCheapestCost(start, dest),
+                    "The path on map " + i + " is not the cheapest one.");
+        }
+    }
+
+    @Test
+    public void testUpdateAfterPathBlocked() {
+        final String[] rows = {
+                "~~~~~~~~~",
+                "S.......D",
+                "~~~~~~~~~"
+        };
+        final TestSearchMap map = TestSearchMap.parse(rows);
+        final Location start = TestSearchMap.find(rows, 'S');
+        final Location dest = TestSearchMap.find(rows, 'D');
+        final DStarLiteSearch planner = new DStarLiteSearch(map);
+        Assert.assertTrue(planner.initialize(start, dest, Pathfinder.LIMIT_MAX_LENGTH));
+        Assert.assertEquals(getPathCost(map, planner.extractPath(), start, dest), 8 * TestSearchMap.PLAIN_COST);
+
+        map.setMovementCost(4, 1, SearchMap.BLOCKED);
+        Assert.assertTrue(planner.update(start, new long[]{Location.getKey(4, 1, 0)}, 1));
+        final int blockedCost = getPathCost(map, planner.extractPath(), start, dest);
+        Assert.assertEquals(blockedCost, map.getCheapestCost(start, dest));
+        Assert.assertTrue(blockedCost > (8 * TestSearchMap.PLAIN_COST));
+
+        map.setMovementCost(4, 1, TestSearchMap.PLAIN_COST);
+        Assert.assertTrue(planner.update(start, new long[]{Location.getKey(4, 1, 0)}, 1));
+        Assert.assertEquals(getPathCost(map, planner.extractPath(), start, dest), 8 * TestSearchMap.PLAIN_COST);
+    }
+
+    @Test
+    public void testUpdateWithMovingObstacles() {
+        final Random random = new Random(1234L);
+        for (int scenario = 0; scenario < 10; scenario++) {
+            final TestSearchMap map = TestSearchMap.generate(random, 30, 30, 0.2, 0.2);
+            final MovingObstacles obstacles = new MovingObstacles(map, random, 15);
+            Location player = map.pickFreeLocation(random);
+            final Location dest = map.pickFreeLocation(random);
+            final DStarLiteSearch planner = new DStarLiteSearch(map);
+            final DStarLiteSearch freshPlanner = new DStarLiteSearch(map);
+            Assert.assertTrue(planner.initialize(player, dest, Pathfinder.LIMIT_MAX_LENGTH));
+            Path path = planner.extractPath();
+
+            for (int move = 0; (move < 40) && !player.equals(dest); move++) {
+                player = getNextLocation(path, player);
+                final int changedCount = obstacles.move(player, dest);
+
+                Assert.assertTrue(planner.update(player, obstacles.changedTiles, changedCount));
+                path = planner.extractPath();
+                Assert.assertTrue(freshPlanner.initialize(player, dest, Pathfinder.LIMIT_MAX_LENGTH));
+
+                final int expectedCost = getPathCost(map, freshPlanner.extractPath(), player, dest);
+                Assert.assertEquals(expectedCost, map.getCheapestCost(player, dest));
+                Assert.assertEquals(getPathCost(map, planner.extractPath(), player, dest), expectedCost,
+                        "The repaired path of scenario " + scenario + " after move " + move +
+                                " is not as cheap as a new path.");
+            }
+        }
+    }
+
+    @Test
+    public void testUpdateOutsideOfWindow() {
+        final TestSearchMap map = new TestSearchMap(0, 0, 30, 1);
+        final DStarLiteSearch planner = new DStarLiteSearch(map);
+        Assert.assertTrue(planner.initialize(new Location(5, 0, 0), new Location(0, 0, 0), 10));
+
+        Assert.assertFalse(planner.update(new Location(11, 0, 0), new long[0], 0));
+    }
+
+    /**
+     * Let a player walk towards a destination while obstacles move around the map. After each step, the time needed
+     * to repair the path is compared to the time needed to plan it again and to search it with the A* search.
+     */
+    @Test(groups = "benchmark")
+    public void benchmarkMovingObstacles() {
+        long bestUpdateTime = Long.MAX_VALUE;
+        long bestInitializeTime = Long.MAX_VALUE;
+        long bestSearchTime = Long.MAX_VALUE;
+        int steps = 0;
+        long updateExpanded = 0L;
+        long initializeExpanded = 0L;
+        for (int round = 0; round < (BENCHMARK_WARMUP_ROUNDS + BENCHMARK_ROUNDS); round++) {
+            final Random random = new Random(42L);
+            final TestSearchMap map = TestSearchMap.generate(random, BENCHMARK_MAP_SIZE, BENCHMARK_MAP_SIZE, 0.15, 0.2);
+            Location player = new Location(0, 0, 0);
+            final Location dest = new Location(BENCHMARK_MAP_SIZE - 1, BENCHMARK_MAP_SIZE - 1, 0);
+            map.setMovementCost(player.getScX(), player.getScY(), TestSearchMap.PLAIN_COST);
+            map.setMovementCost(dest.getScX(), dest.getScY(), TestSearchMap.PLAIN_COST);
+            final MovingObstacles obstacles = new MovingObstacles(map, random, BENCHMARK_OBSTACLES);
+            final DStarLiteSearch planner = new DStarLiteSearch(map);
+            final DStarLiteSearch freshPlanner = new DStarLiteSearch(map);
+            final AStarSearch search = new AStarSearch(map);
+
+            Assert.assertTrue(planner.initialize(player, dest, Pathfinder.LIMIT_MAX_LENGTH));
+            Path path = planner.extractPath();
+            Assert.assertNotNull(path, "The benchmark map has no path.");
+
+            steps = 0;
+            updateExpanded = 0L;
+            initializeExpanded = 0L;
+            long updateTime = 0L;
+            long initializeTime = 0L;
+            long searchTime = 0L;
+            while (!player.equals(dest) && (steps < (BENCHMARK_MAP_SIZE * 2))) {
+                player = getNextLocation(path, player);
+                final int changedCount = obstacles.move(player, dest);
+                steps++;
+
+                long start = System.nanoTime();
+                planner.update(player, obstacles.changedTiles, changedCount);
+                path = planner.extractPath();
+                updateTime += System.nanoTime() - start;
+                updateExpanded += planner.getExpandedNodes();
+
+                start = System.nanoTime();
+                freshPlanner.initialize(player, dest, Pathfinder.LIMIT_MAX_LENGTH);
+                final Path freshPath = freshPlanner.extractPath();
+                initializeTime += System.nanoTime() - start;
+                initializeExpanded += freshPlanner.getExpandedNodes();
+
+                start = System.nanoTime();
+                search.search(player, dest, Pathfinder.LIMIT_MAX_LENGTH);
+                searchTime += System.nanoTime() - start;
+
+                Assert.assertEquals(getPathCost(map, planner.extractPath(), player, dest),
+                        getPathCost(map, freshPath, player, dest));
+            }
+            if (round >= BENCHMARK_WARMUP_ROUNDS) {
+                bestUpdateTime = Math.min(bestUpdateTime, updateTime);
+                bestInitializeTime = Math.min(bestInitializeTime, initializeTime);
+                bestSearchTime = Math.min(bestSearchTime, searchTime);
+            }
+        }
+
+        LOGGER.info("Walking " + steps + " steps on a map of " + BENCHMARK_MAP_SIZE + 'x' + BENCHMARK_MAP_SIZE +
+                " tiles with " + BENCHMARK_OBSTACLES + " moving obstacles: repairing " + (bestUpdateTime / 1000L) +
+                "us (" + (updateExpanded / steps) + " expanded nodes per step), planning again " +
+                (bestInitializeTime / 1000L) + "us (" + (initializeExpanded / steps) +
+                " expanded nodes per step), A* search " + (bestSearchTime / 1000L) + "us");
+        Assert.assertTrue(steps > 0, "The benchmark did not walk.");
+    }
+
+    /**
+     * Get the location the player reaches with the next step of a path.
+     *
+     * @param path   the path or {@code null} in case there is no path
+     * @param player the current location of the player
+     * @return the next location of the player
+     */
+    @Nonnull
+    private static Location getNextLocation(@Nullable final Path path, @Nonnull final Location player) {
+        if (path == null) {
+            return player;
+        }
+        path.nextStep();
+        final PathNode next = path.nextStep();
+        if (next == null) {
+            return player;
+        }
+        return next.getLocation();
+    }
+
+    /**
+     * Check a path and get its cost.
+     *
+     * @param map   the map
+     * @param path  the path or {@code null} in case there is no path
+     * @param start the location the path is expected to start at
+     * @param dest  the location the path is expected to end at
+     * @return the cost of the path or {@code -1} in case there is no path
+     */
+    private static int getPathCost(@Nonnull final TestSearchMap map, @Nullable final Path path,
+                                   @Nonnull final Location start, @Nonnull final Location dest) {
+        if (path == null) {
+            return -1;
+        }
+        final List<PathNode> steps = map.verifyPath(path, start, dest);
+        return steps.get(steps.size() - 1).getCost();
+    }
+
+    /**
+     * This class moves obstacles around a map and records the tiles that changed.
+     */
+    private static final class MovingObstacles {
+        /**
+         * The map the obstacles are placed on.
+         */
+        @Nonnull
+        private final TestSearchMap map;
+
+        /**
+         * The source of the random values.
+         */
+        @Nonnull
+        private final Random random;
+
+        /**
+         * The locations of the obstacles.
+         */
+        @Nonnull
+        private final Location[] locations;
+
+        /**
+         * The movement costs of the tiles below the obstacles.
+         */
+        @Nonnull
+        private final int[] coveredCosts;
+
+        /**
+         * The keys of the tiles changed by the last move.
+         */
+        @Nonnull
+        private final long[] changedTiles;
+
+        /**
+         * Place the obstacles on random tiles that are not blocked.
+         *
+         * @param map    the map the obstacles are placed on
+         * @param random the source of the random values
+         * @param count  the amount of obstacles
+         */
+        MovingObstacles(@Nonnull final TestSearchMap map, @Nonnull final Random random, final int count) {
+            this.map = map;
+            this.random = random;
+            locations = new Location[count];
+            coveredCosts = new int[count];
+            changedTiles = new long[count * 2];
+            for (int i = 0; i < count; i++) {
+                locations[i] = map.pickFreeLocation(random);
+                coveredCosts[i] = map.getMovementCost(locations[i].getScX(), locations[i].getScY(), 0);
+                map.setMovementCost(locations[i].getScX(), locations[i].getScY(), SearchMap.BLOCKED);
+            }
+        }
+
+        /**
+         * Move each obstacle to a random neighbour tile that is not blocked. The obstacles never move onto the player
+         * or the destination.
+         *
+         * @param player the location of the player
+         * @param dest   the destination of the player
+         * @return the amount of changed tiles stored in {@link #changedTiles}
+         */
+        int move(@Nonnull final Location player, @Nonnull final Location dest) {
+            int changedCount = 0;
+            for (int i = 0; i < locations.length; i++) {
+                final Location next = new Location(locations[i], random.nextInt(Location.DIR_MOVE8));
+                final int nextCost = map.getMovementCost(next.getScX(), next.getScY(), 0);
+                if ((nextCost == SearchMap.BLOCKED) || next.equals(player) || next.equals(dest)) {
+                    continue;
+                }
+                map.setMovementCost(locations[i].getScX(), locations[i].getScY(), coveredCosts[i]);
+                changedTiles[changedCount++] = locations[i].getKey();
+                map.setMovementCost(next.getScX(), next.getScY(), SearchMap.BLOCKED);
+                changedTiles[changedCount++] = next.getKey();
+                coveredCosts[i] = nextCost;
+                locations[i] = next;
+            }
+            return changedCount;
+        }
+    }
+}
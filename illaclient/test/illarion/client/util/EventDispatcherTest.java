@@ -0,0 +1,346 @@
+/*
+ * This file is part of the Illarion Client.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Client.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.client.util;
+
+import org.apache.log4j.Logger;
+import org.bushe.swing.event.EventService;
+import org.bushe.swing.event.EventSubscriber;
+import org.bushe.swing.event.ThreadSafeEventService;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This test verifies the delivery of the events by the {@link EventDispatcher} and compares the time needed to
+ * publish the events with the event bus.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+public class EventDispatcherTest {
+    /**
+     * The logger that provides the logging output of this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(EventDispatcherTest.class);
+
+    /**
+     * The amount of subscribers used by the benchmark.
+     */
+    private static final int BENCHMARK_SUBSCRIBERS = 50;
+
+    /**
+     * The amount of events published by each round of the benchmark.
+     */
+    private static final int BENCHMARK_EVENTS = 20000;
+
+    /**
+     * The amount of rounds of the benchmark that are executed before the time is measured.
+     */
+    private static final int BENCHMARK_WARMUP_ROUNDS = 5;
+
+    /**
+     * The amount of rounds of the benchmark that are measured.
+     */
+    private static final int BENCHMARK_ROUNDS = 10;
+
+    /**
+     * The handlers subscribed by the current test. They are removed once the test is done.
+     */
+    @Nonnull
+    private final List<EventHandler<?>> subscribedHandlers = new ArrayList<EventHandler<?>>();
+
+    /**
+     * The objects processed by the current test. They are removed once the test is done.
+     */
+    @Nonnull
+    private final List<Object> processedSubscribers = new ArrayList<Object>();
+
+    /**
+     * Remove all handlers of the last test from the dispatcher.
+     */
+    @AfterMethod
+    public void removeHandlers() {
+        for (final EventHandler<?> handler : subscribedHandlers) {
+            EventDispatcher.getInstance().unsubscribe(handler);
+        }
+        subscribedHandlers.clear();
+        for (final Object subscriber : processedSubscribers) {
+            EventDispatcher.getInstance().unprocess(subscriber);
+        }
+        processedSubscribers.clear();
+    }
+
+    @Test
+    public void testTypedHandler() {
+        final CountingHandler handler = subscribe(TestEvent.class, new CountingHandler());
+
+        EventDispatcher.getInstance().publish(new TestEvent(1));
+        EventDispatcher.getInstance().publish(new TestEvent(2));
+
+        Assert.assertEquals(handler.count, 2);
+        Assert.assertEquals(handler.sum, 3);
+    }
+
+    @Test
+    public void testSuperClassHandler() {
+        final CountingHandler handler = subscribe(TestEvent.class, new CountingHandler());
+        final List<Object> received = new ArrayList<Object>();
+        subscribe(Object.class, new EventHandler<Object>() {
+            @Override
+            public void handleEvent(@Nonnull final Object event) {
+                received.add(event);
+            }
+        });
+
+        final TestEvent event = new SubTestEvent(5);
+        EventDispatcher.getInstance().publish(event);
+        EventDispatcher.getInstance().publish("other event");
+
+        Assert.assertEquals(handler.count, 1);
+        Assert.assertEquals(received.size(), 2);
+        Assert.assertSame(received.get(0), event);
+    }
+
+    @Test
+    public void testUnsubscribe() {
+        final CountingHandler handler = subscribe(TestEvent.class, new CountingHandler());
+
+        EventDispatcher.getInstance().publish(new TestEvent(1));
+        EventDispatcher.getInstance().unsubscribe(handler);
+        EventDispatcher.getInstance().publish(new TestEvent(1));
+
+        Assert.assertEquals(handler.count, 1);
+    }
+
+    @Test
+    public void testFailingHandler() {
+        subscribe(TestEvent.class, new EventHandler<TestEvent>() {
+            @Override
+            public void handleEvent(@Nonnull final TestEvent event) {
+                throw new IllegalStateException("Expected failure of the test.");
+            }
+        });
+        final CountingHandler handler = subscribe(TestEvent.class, new CountingHandler());
+
+        EventDispatcher.getInstance().publish(new TestEvent(1));
+
+        Assert.assertEquals(handler.count, 1);
+    }
+
+    @Test
+    public void testProcessAndUnprocess() {
+        final AnnotatedSubscriber subscriber = new AnnotatedSubscriber();
+        EventDispatcher.getInstance().process(subscriber);
+        processedSubscribers.add(subscriber);
+
+        EventDispatcher.getInstance().publish(new TestEvent(1));
+        EventDispatcher.getInstance().unprocess(subscriber);
+        EventDispatcher.getInstance().publish(new TestEvent(1));
+
+        Assert.assertEquals(subscriber.count, 1);
+    }
+
+    /**
+     * Publish the same events to the same amount of subscribers with the dispatcher and with the event bus. The event
+     * bus is set up the same way the client does it.
+     */
+    @Test(groups = "benchmark")
+    public void benchmarkAgainstEventBus() {
+        final TestEvent[] events = new TestEvent[BENCHMARK_EVENTS];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = new TestEvent(i);
+        }
+
+        final CountingHandler[] handlers = new CountingHandler[BENCHMARK_SUBSCRIBERS];
+        final AnnotatedSubscriber[] annotatedSubscribers = new AnnotatedSubscriber[BENCHMARK_SUBSCRIBERS];
+        final EventService eventBus = new ThreadSafeEventService();
+        for (int i = 0; i < BENCHMARK_SUBSCRIBERS; i++) {
+            handlers[i] = new CountingHandler();
+            annotatedSubscribers[i] = new AnnotatedSubscriber();
+            eventBus.subscribeStrongly(TestEvent.class, new BusSubscriber(handlers[i]));
+        }
+
+        for (int i = 0; i < BENCHMARK_SUBSCRIBERS; i++) {
+            subscribe(TestEvent.class, handlers[i]);
+        }
+        final long dispatcherTime = measure(events, null);
+        removeHandlers();
+
+        for (int i = 0; i < BENCHMARK_SUBSCRIBERS; i++) {
+            EventDispatcher.getInstance().process(annotatedSubscribers[i]);
+            processedSubscribers.add(annotatedSubscribers[i]);
+        }
+        final long bridgeTime = measure(events, null);
+        removeHandlers();
+
+        final long eventBusTime = measure(events, eventBus);
+
+        LOGGER.info("Publishing " + BENCHMARK_EVENTS + " events to " + BENCHMARK_SUBSCRIBERS + " subscribers: " +
+                "dispatcher " + (dispatcherTime / 1000L) + "us, dispatcher with annotated methods " +
+                (bridgeTime / 1000L) + "us, event bus " + (eventBusTime / 1000L) + "us");
+
+        final long expectedCount = (long) (BENCHMARK_WARMUP_ROUNDS + BENCHMARK_ROUNDS) * BENCHMARK_EVENTS * 2L;
+        for (int i = 0; i < BENCHMARK_SUBSCRIBERS; i++) {
+            Assert.assertEquals(handlers[i].count, expectedCount);
+        }
+        Assert.assertTrue(dispatcherTime < eventBusTime, "Dispatcher is slower then the event bus.");
+    }
+
+    /**
+     * Publish the events of the benchmark and measure the time of the best round.
+     *
+     * @param events   the events to publish
+     * @param eventBus the event bus used to publish the events or {@code null} to use the dispatcher
+     * @return the time in nanoseconds of the fastest round
+     */
+    private static long measure(@Nonnull final TestEvent[] events, final EventService eventBus) {
+        long bestTime = Long.MAX_VALUE;
+        for (int round = 0; round < (BENCHMARK_WARMUP_ROUNDS + BENCHMARK_ROUNDS); round++) {
+            final long start = System.nanoTime();
+            if (eventBus == null) {
+                for (final TestEvent event : events) {
+                    EventDispatcher.getInstance().publish(event);
+                }
+            } else {
+                for (final TestEvent event : events) {
+                    eventBus.publish(event);
+                }
+            }
+            final long time = System.nanoTime() - start;
+            if (round >= BENCHMARK_WARMUP_ROUNDS) {
+                bestTime = Math.min(bestTime, time);
+            }
+        }
+        return bestTime;
+    }
+
+    /**
+     * Subscribe a handler to the dispatcher and remember it, so it is removed once the test is done.
+     *
+     * @param eventClass the class of the events
+     * @param handler    the handler
+     * @param <T>        the type of the events
+     * @param <H>        the type of the handler
+     * @return the handler
+     */
+    @Nonnull
+    private <T, H extends EventHandler<? super T>> H subscribe(@Nonnull final Class<T> eventClass,
+                                                                @Nonnull final H handler) {
+        EventDispatcher.getInstance().subscribe(eventClass, handler);
+        subscribedHandlers.add(handler);
+        return handler;
+    }
+
+    /**
+     * The event used by the tests.
+     */
+    private static class TestEvent {
+        /**
+         * The value transported by the event.
+         */
+        private final int value;
+
+        /**
+         * Create a new event.
+         *
+         * @param value the value transported by the event
+         */
+        TestEvent(final int value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * A sub class of the event used by the tests.
+     */
+    private static final class SubTestEvent extends TestEvent {
+        /**
+         * Create a new event.
+         *
+         * @param value the value transported by the event
+         */
+        SubTestEvent(final int value) {
+            super(value);
+        }
+    }
+
+    /**
+     * This handler counts the received events.
+     */
+    private static final class CountingHandler implements EventHandler<TestEvent> {
+        /**
+         * The amount of received events.
+         */
+        private long count;
+
+        /**
+         * The sum of the values of the received events.
+         */
+        private long sum;
+
+        @Override
+        public void handleEvent(@Nonnull final TestEvent event) {
+            count++;
+            sum += event.value;
+        }
+    }
+
+    /**
+     * This subscriber of the event bus forwards the events to a counting handler.
+     */
+    private static final class BusSubscriber implements EventSubscriber<TestEvent> {
+        /**
+         * The handler that counts the events.
+         */
+        @Nonnull
+        private final CountingHandler handler;
+
+        /**
+         * Create a new subscriber.
+         *
+         * @param handler the handler that counts the events
+         */
+        BusSubscriber(@Nonnull final CountingHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void onEvent(@Nonnull final TestEvent event) {
+            handler.handleEvent(event);
+        }
+    }
+
+    /**
+     * This subscriber receives the events with a annotated method.
+     */
+    public static final class AnnotatedSubscriber {
+        /**
+         * The amount of received events.
+         */
+        private long count;
+
+        @org.bushe.swing.event.annotation.EventSubscriber(eventClass = TestEvent.class)
+        public void onEvent(@Nonnull final Object event) {
+            count++;
+        }
+    }
+}
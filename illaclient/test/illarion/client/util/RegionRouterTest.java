@@ -0,0 +1,325 @@
+/*
+ * This file is part of the Illarion Client.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Client.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.client.util;
+
+import illarion.common.types.Location;
+import org.apache.log4j.Logger;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This test verifies that the {@link RegionRouter} finds a route whenever the destination is reachable on the mini
+ * map, that every waypoint of the route is reachable from the one before and that the routes are not much more
+ * expensive then the cheapest walk. It also verifies that changed tiles are picked up and compares the time needed
+ * to find a route with a A* search over all tiles of the mini map.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+public class RegionRouterTest {
+    /**
+     * The logger that provides the logging output of this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(RegionRouterTest.class);
+
+    /**
+     * The origin of the mini map used by the tests.
+     */
+    @Nonnull
+    private static final Location ORIGIN = new Location(2048, 1024, 0);
+
+    /**
+     * The width and height of the clusters the router splits the map into.
+     */
+    private static final int CLUSTER_SIZE = 32;
+
+    /**
+     * The factor the cost of a route may exceed the cost of the cheapest walk.
+     */
+    private static final double MAX_COST_FACTOR = 1.25;
+
+    /**
+     * The amount of maps with random obstacles used by the tests.
+     */
+    private static final int RANDOM_MAPS = 3;
+
+    /**
+     * The amount of routes searched on each map with random obstacles.
+     */
+    private static final int RANDOM_ROUTES = 20;
+
+    /**
+     * The amount of routes searched by the benchmark.
+     */
+    private static final int BENCHMARK_ROUTES = 50;
+
+    @Test
+    public void testOpenMap() {
+        final TestRegionMap map = new TestRegionMap(ORIGIN);
+        final RegionRouter router = new RegionRouter(map);
+
+        assertRoute(map, router, 5, 5, 1000, 700);
+        assertRoute(map, router, 1000, 1000, 10, 40);
+        assertRoute(map, router, 0, 1023, 1023, 0);
+        Assert.assertEquals(map.getCopyCount(), 1, "The graph was not cached.");
+    }
+
+    @Test
+    public void testSameCluster() {
+        final TestRegionMap map = new TestRegionMap(ORIGIN);
+        final RegionRouter router = new RegionRouter(map);
+
+        final List<Location> route = router.route(map.getLocation(3, 3), map.getLocation(20, 25));
+
+        Assert.assertNotNull(route);
+        Assert.assertEquals(route.size(), 1);
+        Assert.assertEquals(route.get(0), map.getLocation(20, 25));
+    }
+
+    @Test
+    public void testWallWithGap() {
+        final TestRegionMap map = new TestRegionMap(ORIGIN);
+        map.setBlocked(500, 0, 3, TestRegionMap.SIZE);
+        map.setPassable(500, 900, true);
+        map.setPassable(501, 900, true);
+        map.setPassable(502, 900, true);
+        final RegionRouter router = new RegionRouter(map);
+
+        final List<Location> route = assertRoute(map, router, 100, 100, 900, 100);
+        Assert.assertTrue(getCost(map, 100, 100, 900, 100) > 16000, "The wall does not force a detour.");
+        boolean passesGap = false;
+        for (final Location waypoint : route) {
+            if ((Math.abs(waypoint.getScX() - ORIGIN.getScX() - 501) <= CLUSTER_SIZE) &&
+                    (Math.abs(waypoint.getScY() - ORIGIN.getScY() - 900) <= CLUSTER_SIZE)) {
+                passesGap = true;
+            }
+        }
+        Assert.assertTrue(passesGap, "The route does not pass the gap in the wall.");
+    }
+
+    @Test
+    public void testUnreachable() {
+        final TestRegionMap map = new TestRegionMap(ORIGIN);
+        map.setBlocked(600, 600, 50, 50);
+        map.setPassable(620, 620, true);
+        map.setPassable(300, 300, false);
+        final RegionRouter router = new RegionRouter(map);
+
+        Assert.assertNull(router.route(map.getLocation(10, 10), map.getLocation(620, 620)));
+        Assert.assertNull(router.route(map.getLocation(620, 620), map.getLocation(10, 10)));
+        Assert.assertNull(router.route(map.getLocation(10, 10), map.getLocation(300, 300)));
+        Assert.assertNull(router.route(map.getLocation(10, 10), new Location(ORIGIN.getScX() + 20,
+                ORIGIN.getScY() + 20, ORIGIN.getScZ() + 1)));
+        Assert.assertNull(router.route(map.getLocation(10, 10), new Location(ORIGIN.getScX() + 1100,
+                ORIGIN.getScY() + 20, ORIGIN.getScZ())));
+
+        final Location otherLevel = new Location(ORIGIN.getScX(), ORIGIN.getScY(), ORIGIN.getScZ() + 1);
+        Assert.assertNull(router.route(otherLevel, new Location(ORIGIN.getScX() + 500, ORIGIN.getScY() + 500,
+                ORIGIN.getScZ() + 1)));
+    }
+
+    @Test
+    public void testChangedTiles() {
+        final TestRegionMap map = new TestRegionMap(ORIGIN);
+        map.setBlocked(500, 0, 1, TestRegionMap.SIZE);
+        map.setPassable(500, 900, true);
+        final RegionRouter router = new RegionRouter(map);
+
+        assertRoute(map, router, 100, 100, 900, 100);
+        assertRoute(map, router, 100, 200, 900, 200);
+        Assert.assertEquals(map.getCopyCount(), 1);
+
+        map.setPassable(500, 900, false);
+        router.reportChangedTile(map.getLocation(500, 900));
+        Assert.assertNull(router.route(map.getLocation(100, 100), map.getLocation(900, 100)));
+        Assert.assertEquals(map.getCopyCount(), 2);
+
+        map.setPassable(500, 40, true);
+        router.reportChangedTile(map.getLocation(500, 40));
+        final List<Location> route = assertRoute(map, router, 100, 100, 900, 100);
+        Assert.assertTrue(map.getRouteCost(map.getLocation(100, 100), route) < 9000,
+                "The route does not use the new gap.");
+
+        router.reportChangedTile(new Location(ORIGIN.getScX() - 10, ORIGIN.getScY(), ORIGIN.getScZ()));
+        assertRoute(map, router, 100, 100, 900, 100);
+        Assert.assertEquals(map.getCopyCount(), 3);
+    }
+
+    @Test
+    public void testRandomMaps() {
+        final Random random = new Random(11L);
+        int foundRoutes = 0;
+        double worstFactor = 1.0;
+        for (int mapIndex = 0; mapIndex < RANDOM_MAPS; mapIndex++) {
+            final TestRegionMap map = TestRegionMap.generate(ORIGIN, random, 300, 20000);
+            final RegionRouter router = new RegionRouter(map);
+            for (int i = 0; i < RANDOM_ROUTES; i++) {
+                final int startTile = map.pickPassableTile(random);
+                final int destTile = map.pickPassableTile(random);
+                final int startX = startTile % TestRegionMap.SIZE;
+                final int startY = startTile / TestRegionMap.SIZE;
+                final int destX = destTile % TestRegionMap.SIZE;
+                final int destY = destTile / TestRegionMap.SIZE;
+                final int cheapestCost = getCost(map, startX, startY, destX, destY);
+                if (cheapestCost == TestRegionMap.UNREACHABLE) {
+                    Assert.assertNull(router.route(map.getLocation(startX, startY), map.getLocation(destX, destY)));
+                    continue;
+                }
+                final List<Location> route = assertRoute(map, router, startX, startY, destX, destY);
+                final int routeCost = map.getRouteCost(map.getLocation(startX, startY), route);
+                worstFactor = Math.max(worstFactor, (double) routeCost / cheapestCost);
+                foundRoutes++;
+            }
+        }
+        LOGGER.info("Found " + foundRoutes + " routes on maps with random obstacles, worst cost factor " +
+                worstFactor);
+        Assert.assertTrue(foundRoutes > (RANDOM_MAPS * RANDOM_ROUTES / 2), "Too few routes were tested.");
+    }
+
+    /**
+     * Search long routes on a map with random obstacles, once with the router and once with a A* search over all
+     * tiles of the mini map. The time to build the graph of the router is measured separately.
+     */
+    @Test(groups = "benchmark")
+    public void benchmarkAgainstFullSearch() {
+        final Random random = new Random(5L);
+        final TestRegionMap map = TestRegionMap.generate(ORIGIN, random, 300, 20000);
+        final int[] starts = new int[BENCHMARK_ROUTES];
+        final int[] destinations = new int[BENCHMARK_ROUTES];
+        for (int i = 0; i < BENCHMARK_ROUTES; i++) {
+            do {
+                starts[i] = map.pickPassableTile(random);
+                destinations[i] = map.pickPassableTile(random);
+            } while (getDistance(starts[i], destinations[i]) < 400);
+        }
+
+        final RegionRouter router = new RegionRouter(map);
+        final long buildStart = System.nanoTime();
+        router.route(getLocation(map, starts[0]), getLocation(map, starts[0]));
+        final long buildTime = System.nanoTime() - buildStart;
+
+        long routerTime = Long.MAX_VALUE;
+        long expandedNodes = 0L;
+        int routes = 0;
+        for (int round = 0; round < 3; round++) {
+            expandedNodes = 0L;
+            routes = 0;
+            final long start = System.nanoTime();
+            for (int i = 0; i < BENCHMARK_ROUTES; i++) {
+                if (router.route(getLocation(map, starts[i]), getLocation(map, destinations[i])) != null) {
+                    routes++;
+                }
+                expandedNodes += router.getExpandedNodes();
+            }
+            routerTime = Math.min(routerTime, System.nanoTime() - start);
+        }
+
+        final long fullStart = System.nanoTime();
+        int fullRoutes = 0;
+        for (int i = 0; i < BENCHMARK_ROUTES; i++) {
+            final int cost = map.getCheapestCost(starts[i] % TestRegionMap.SIZE, starts[i] / TestRegionMap.SIZE,
+                    destinations[i] % TestRegionMap.SIZE, destinations[i] / TestRegionMap.SIZE);
+            if (cost != TestRegionMap.UNREACHABLE) {
+                fullRoutes++;
+            }
+        }
+        final long fullTime = System.nanoTime() - fullStart;
+
+        LOGGER.info("Routing " + BENCHMARK_ROUTES + " walks of at least 400 tiles: graph built in " +
+                (buildTime / 1000000L) + "ms, router " + (routerTime / 1000000L) + "ms with " +
+                (expandedNodes / BENCHMARK_ROUTES) + " expanded nodes per route, full A* " + (fullTime / 1000000L) +
+                "ms");
+        Assert.assertEquals(routes, fullRoutes);
+        Assert.assertTrue(routerTime < fullTime, "The router is slower then the full search.");
+    }
+
+    /**
+     * Search a route and check that it is found, that it ends at the destination, that every waypoint is reachable
+     * from the one before and that it is not too expensive.
+     *
+     * @param map    the map
+     * @param router the router
+     * @param startX the x coordinate of the start relative to the origin
+     * @param startY the y coordinate of the start relative to the origin
+     * @param destX  the x coordinate of the destination relative to the origin
+     * @param destY  the y coordinate of the destination relative to the origin
+     * @return the route
+     */
+    @Nonnull
+    private static List<Location> assertRoute(@Nonnull final TestRegionMap map, @Nonnull final RegionRouter router,
+                                              final int startX, final int startY, final int destX,
+                                              final int destY) {
+        final Location start = map.getLocation(startX, startY);
+        final Location dest = map.getLocation(destX, destY);
+        @Nullable final List<Location> route = router.route(start, dest);
+        Assert.assertNotNull(route, "No route from " + start + " to " + dest);
+        Assert.assertEquals(route.get(route.size() - 1), dest);
+
+        final int routeCost = map.getRouteCost(start, route);
+        Assert.assertTrue(routeCost != TestRegionMap.UNREACHABLE, "A waypoint of the route can't be reached.");
+        final int cheapestCost = getCost(map, startX, startY, destX, destY);
+        Assert.assertTrue(routeCost >= cheapestCost);
+        Assert.assertTrue(routeCost <= (cheapestCost * MAX_COST_FACTOR), "The route costs " + routeCost +
+                ", the cheapest walk costs " + cheapestCost);
+        return route;
+    }
+
+    /**
+     * Get the cost of the cheapest walk between two tiles.
+     *
+     * @param map    the map
+     * @param startX the x coordinate of the start relative to the origin
+     * @param startY the y coordinate of the start relative to the origin
+     * @param destX  the x coordinate of the destination relative to the origin
+     * @param destY  the y coordinate of the destination relative to the origin
+     * @return the cost
+     */
+    private static int getCost(@Nonnull final TestRegionMap map, final int startX, final int startY,
+                               final int destX, final int destY) {
+        return map.getCheapestCost(startX, startY, destX, destY);
+    }
+
+    /**
+     * Get the location of a tile.
+     *
+     * @param map  the map
+     * @param tile the index of the tile
+     * @return the location
+     */
+    @Nonnull
+    private static Location getLocation(@Nonnull final TestRegionMap map, final int tile) {
+        return map.getLocation(tile % TestRegionMap.SIZE, tile / TestRegionMap.SIZE);
+    }
+
+    /**
+     * Get the amount of steps between two tiles on a map without obstacles.
+     *
+     * @param firstTile  the index of the first tile
+     * @param secondTile the index of the second tile
+     * @return the amount of steps
+     */
+    private static int getDistance(final int firstTile, final int secondTile) {
+        return Math.max(Math.abs((firstTile % TestRegionMap.SIZE) - (secondTile % TestRegionMap.SIZE)),
+                Math.abs((firstTile / TestRegionMap.SIZE) - (secondTile / TestRegionMap.SIZE)));
+    }
+}
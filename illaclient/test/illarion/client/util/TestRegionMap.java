@@ -0,0 +1,396 @@
+/*
+ * This file is part of the Illarion Client.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Client.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.client.util;
+
+import illarion.client.world.GameMiniMap;
+import illarion.common.types.Location;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This is the mini map the tests of the {@link RegionRouter} work on. Next to the map itself, this class calculates
+ * the cheapest cost of a walk between two tiles on the full map with a plain A* search, so the tests are able to
+ * verify the routes.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+final class TestRegionMap implements RegionMap {
+    /**
+     * The length of one side of the map.
+     */
+    static final int SIZE = GameMiniMap.WORLDMAP_WIDTH;
+
+    /**
+     * The cost of a straight step.
+     */
+    static final int STRAIGHT_COST = 10;
+
+    /**
+     * The cost of a diagonal step.
+     */
+    static final int DIAGONAL_COST = 11;
+
+    /**
+     * The cost returned in case there is no walk between two tiles.
+     */
+    static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    /**
+     * The offsets on the x axis of the eight neighbours of a tile.
+     */
+    private static final int[] NEIGHBOUR_X = {0, 1, 1, 1, 0, -1, -1, -1};
+
+    /**
+     * The offsets on the y axis of the eight neighbours of a tile.
+     */
+    private static final int[] NEIGHBOUR_Y = {-1, -1, 0, 1, 1, 1, 0, -1};
+
+    /**
+     * The origin of the map.
+     */
+    @Nonnull
+    private final Location origin;
+
+    /**
+     * The passable tiles of the map.
+     */
+    @Nonnull
+    private final BitSet passable;
+
+    /**
+     * The amount of times the router copied the passable tiles.
+     */
+    private int copyCount;
+
+    /**
+     * The costs calculated by the last search, indexed by the tile.
+     */
+    @Nonnull
+    private final int[] searchCost;
+
+    /**
+     * The binary heap used by the search.
+     */
+    @Nonnull
+    private final int[] heap;
+
+    /**
+     * The position of each tile in {@link #heap} or {@code -1} in case it is not in the heap.
+     */
+    @Nonnull
+    private final int[] heapPosition;
+
+    /**
+     * The tile of the destination of the current search.
+     */
+    private int goalTile;
+
+    /**
+     * Create a new map that is passable everywhere.
+     *
+     * @param origin the origin of the map
+     */
+    TestRegionMap(@Nonnull final Location origin) {
+        this.origin = new Location(origin);
+        passable = new BitSet(SIZE * SIZE);
+        passable.set(0, SIZE * SIZE);
+        searchCost = new int[SIZE * SIZE];
+        heap = new int[SIZE * SIZE];
+        heapPosition = new int[SIZE * SIZE];
+    }
+
+    /**
+     * Create a map with random obstacles. The obstacles are rectangles of random size and single blocked tiles.
+     *
+     * @param origin      the origin of the map
+     * @param random      the source of random values
+     * @param rectangles  the amount of blocked rectangles
+     * @param singleTiles the amount of single blocked tiles
+     * @return the map
+     */
+    @Nonnull
+    static TestRegionMap generate(@Nonnull final Location origin, @Nonnull final Random random, final int rectangles,
+                                  final int singleTiles) {
+        final TestRegionMap map = new TestRegionMap(origin);
+        for (int i = 0; i < rectangles; i++) {
+            final int width = 1 + random.nextInt(60);
+            final int height = 1 + random.nextInt(60);
+            map.setBlocked(random.nextInt(SIZE - width), random.nextInt(SIZE - height), width, height);
+        }
+        for (int i = 0; i < singleTiles; i++) {
+            map.setPassable(random.nextInt(SIZE), random.nextInt(SIZE), false);
+        }
+        return map;
+    }
+
+    @Nullable
+    @Override
+    public Location copyPassableTiles(final int level, @Nonnull final BitSet target) {
+        if (level != origin.getScZ()) {
+            return null;
+        }
+        copyCount++;
+        target.clear();
+        target.or(passable);
+        return new Location(origin);
+    }
+
+    /**
+     * Get the amount of times the router copied the passable tiles.
+     *
+     * @return the amount of copies
+     */
+    int getCopyCount() {
+        return copyCount;
+    }
+
+    /**
+     * Get the location of a tile.
+     *
+     * @param x the x coordinate relative to the origin
+     * @param y the y coordinate relative to the origin
+     * @return the location
+     */
+    @Nonnull
+    Location getLocation(final int x, final int y) {
+        return new Location(origin.getScX() + x, origin.getScY() + y, origin.getScZ());
+    }
+
+    /**
+     * Check if a tile is passable.
+     *
+     * @param x the x coordinate relative to the origin
+     * @param y the y coordinate relative to the origin
+     * @return {@code true} in case the tile is passable
+     */
+    boolean isPassable(final int x, final int y) {
+        return (x >= 0) && (y >= 0) && (x < SIZE) && (y < SIZE) && passable.get((y * SIZE) + x);
+    }
+
+    /**
+     * Change if a tile is passable.
+     *
+     * @param x    the x coordinate relative to the origin
+     * @param y    the y coordinate relative to the origin
+     * @param open {@code true} in case the tile is passable
+     */
+    void setPassable(final int x, final int y, final boolean open) {
+        passable.set((y * SIZE) + x, open);
+    }
+
+    /**
+     * Block a rectangle of tiles.
+     *
+     * @param x      the x coordinate of the first column relative to the origin
+     * @param y      the y coordinate of the first row relative to the origin
+     * @param width  the amount of columns
+     * @param height the amount of rows
+     */
+    void setBlocked(final int x, final int y, final int width, final int height) {
+        for (int row = y; row < (y + height); row++) {
+            passable.clear((row * SIZE) + x, (row * SIZE) + x + width);
+        }
+    }
+
+    /**
+     * Pick a random passable tile.
+     *
+     * @param random the source of random values
+     * @return the index of the tile
+     */
+    int pickPassableTile(@Nonnull final Random random) {
+        while (true) {
+            final int tile = random.nextInt(SIZE * SIZE);
+            if (passable.get(tile)) {
+                return tile;
+            }
+        }
+    }
+
+    /**
+     * Get the cost of a walk along a route. Each waypoint of the route is reached from the one before using the
+     * cheapest walk.
+     *
+     * @param start the location the route starts at
+     * @param route the waypoints of the route
+     * @return the cost of the walk or {@link #UNREACHABLE} in case a waypoint can't be reached
+     */
+    int getRouteCost(@Nonnull final Location start, @Nonnull final List<Location> route) {
+        int total = 0;
+        Location last = start;
+        for (final Location waypoint : route) {
+            final int cost = getCheapestCost(last.getScX() - origin.getScX(), last.getScY() - origin.getScY(),
+                    waypoint.getScX() - origin.getScX(), waypoint.getScY() - origin.getScY());
+            if (cost == UNREACHABLE) {
+                return UNREACHABLE;
+            }
+            total += cost;
+            last = waypoint;
+        }
+        return total;
+    }
+
+    /**
+     * Calculate the cost of the cheapest walk between two tiles with a A* search over all tiles of the map.
+     *
+     * @param startX the x coordinate of the start relative to the origin
+     * @param startY the y coordinate of the start relative to the origin
+     * @param destX  the x coordinate of the destination relative to the origin
+     * @param destY  the y coordinate of the destination relative to the origin
+     * @return the cost or {@link #UNREACHABLE} in case there is no walk
+     */
+    int getCheapestCost(final int startX, final int startY, final int destX, final int destY) {
+        if (!isPassable(startX, startY) || !isPassable(destX, destY)) {
+            return UNREACHABLE;
+        }
+        Arrays.fill(searchCost, UNREACHABLE);
+        Arrays.fill(heapPosition, -1);
+        goalTile = (destY * SIZE) + destX;
+        final int startTile = (startY * SIZE) + startX;
+        searchCost[startTile] = 0;
+        int heapSize = push(0, startTile);
+        while (heapSize > 0) {
+            final int current = heap[0];
+            if (current == goalTile) {
+                return searchCost[current];
+            }
+            heapSize = pop(heapSize);
+            final int currentX = current % SIZE;
+            final int currentY = current / SIZE;
+            for (int dir = 0; dir < NEIGHBOUR_X.length; dir++) {
+                final int nextX = currentX + NEIGHBOUR_X[dir];
+                final int nextY = currentY + NEIGHBOUR_Y[dir];
+                if (!isPassable(nextX, nextY)) {
+                    continue;
+                }
+                final int next = (nextY * SIZE) + nextX;
+                final boolean diagonal = (NEIGHBOUR_X[dir] != 0) && (NEIGHBOUR_Y[dir] != 0);
+                final int newCost = searchCost[current] + (diagonal ? DIAGONAL_COST : STRAIGHT_COST);
+                if (newCost >= searchCost[next]) {
+                    continue;
+                }
+                searchCost[next] = newCost;
+                if (heapPosition[next] == -1) {
+                    heapSize = push(heapSize, next);
+                } else if (heapPosition[next] >= 0) {
+                    siftUp(heapPosition[next]);
+                }
+            }
+        }
+        return UNREACHABLE;
+    }
+
+    /**
+     * Get the estimated cost from a tile to the destination of the current search.
+     *
+     * @param tile the tile
+     * @return the estimated cost
+     */
+    private int getEstimate(final int tile) {
+        final int distX = Math.abs((tile % SIZE) - (goalTile % SIZE));
+        final int distY = Math.abs((tile / SIZE) - (goalTile / SIZE));
+        return (STRAIGHT_COST * Math.max(distX, distY)) +
+                ((DIAGONAL_COST - STRAIGHT_COST) * Math.min(distX, distY));
+    }
+
+    /**
+     * Get the key a tile is sorted by in the heap.
+     *
+     * @param tile the tile
+     * @return the cost of the tile plus the estimated remaining cost
+     */
+    private int getKey(final int tile) {
+        return searchCost[tile] + getEstimate(tile);
+    }
+
+    /**
+     * Add a tile to the heap.
+     *
+     * @param heapSize the current size of the heap
+     * @param tile     the tile
+     * @return the new size of the heap
+     */
+    private int push(final int heapSize, final int tile) {
+        heap[heapSize] = tile;
+        heapPosition[tile] = heapSize;
+        siftUp(heapSize);
+        return heapSize + 1;
+    }
+
+    /**
+     * Remove the first tile from the heap.
+     *
+     * @param heapSize the current size of the heap
+     * @return the new size of the heap
+     */
+    private int pop(final int heapSize) {
+        final int newSize = heapSize - 1;
+        heapPosition[heap[0]] = -2;
+        if (newSize > 0) {
+            final int tile = heap[newSize];
+            final int key = getKey(tile);
+            int current = 0;
+            while (true) {
+                int child = (current * 2) + 1;
+                if (child >= newSize) {
+                    break;
+                }
+                if (((child + 1) < newSize) && (getKey(heap[child + 1]) < getKey(heap[child]))) {
+                    child++;
+                }
+                if (getKey(heap[child]) >= key) {
+                    break;
+                }
+                heap[current] = heap[child];
+                heapPosition[heap[current]] = current;
+                current = child;
+            }
+            heap[current] = tile;
+            heapPosition[tile] = current;
+        }
+        return newSize;
+    }
+
+    /**
+     * Move a entry of the heap towards the root until the heap is valid again.
+     *
+     * @param position the position of the entry in the heap
+     */
+    private void siftUp(final int position) {
+        final int tile = heap[position];
+        final int key = getKey(tile);
+        int current = position;
+        while (current > 0) {
+            final int parentPosition = (current - 1) >>> 1;
+            if (getKey(heap[parentPosition]) <= key) {
+                break;
+            }
+            heap[current] = heap[parentPosition];
+            heapPosition[heap[current]] = current;
+            current = parentPosition;
+        }
+        heap[current] = tile;
+        heapPosition[tile] = current;
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * This file is part of the Illarion Client.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Client.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.client.util;
+
+import illarion.common.types.Location;
+import org.testng.Assert;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * This is the rectangular map the tests of the path searches work on. Everything outside of the rectangle is blocked.
+ * Next to the map itself, this class calculates the cheapest cost of a path with a plain Dijkstra search, so the
+ * tests are able to verify the results of the searches.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+final class TestSearchMap implements SearchMap {
+    /**
+     * The movement cost of a plain tile.
+     */
+    static final int PLAIN_COST = 10;
+
+    /**
+     * The movement cost of a expensive tile.
+     */
+    static final int ROUGH_COST = 25;
+
+    /**
+     * The offsets on the x axis of the eight neighbours of a tile.
+     */
+    private static final int[] NEIGHBOUR_X = {0, 1, 1, 1, 0, -1, -1, -1};
+
+    /**
+     * The offsets on the y axis of the eight neighbours of a tile.
+     */
+    private static final int[] NEIGHBOUR_Y = {-1, -1, 0, 1, 1, 1, 0, -1};
+
+    /**
+     * The x coordinate of the first column of the map.
+     */
+    private final int originX;
+
+    /**
+     * The y coordinate of the first row of the map.
+     */
+    private final int originY;
+
+    /**
+     * The amount of columns of the map.
+     */
+    private final int width;
+
+    /**
+     * The amount of rows of the map.
+     */
+    private final int height;
+
+    /**
+     * The movement costs of the tiles, stored row by row.
+     */
+    @Nonnull
+    private final int[] costs;
+
+    /**
+     * Create a new map that is filled with plain tiles.
+     *
+     * @param originX the x coordinate of the first column of the map
+     * @param originY the y coordinate of the first row of the map
+     * @param width   the amount of columns of the map
+     * @param height  the amount of rows of the map
+     */
+    TestSearchMap(final int originX, final int originY, final int width, final int height) {
+        this.originX = originX;
+        this.originY = originY;
+        this.width = width;
+        this.height = height;
+        costs = new int[width * height];
+        Arrays.fill(costs, PLAIN_COST);
+    }
+
+    /**
+     * Create a map from a drawing. Each string is a row of the map, starting at {@code (0, 0)}. A {@code #} marks a
+     * blocked tile, a {@code ~} marks a expensive tile and every other character marks a plain tile.
+     *
+     * @param rows the rows of the map
+     * @return the map
+     */
+    @Nonnull
+    static TestSearchMap parse(@Nonnull final String... rows) {
+        final TestSearchMap map = new TestSearchMap(0, 0, rows[0].length(), rows.length);
+        for (int y = 0; y < rows.length; y++) {
+            for (int x = 0; x < rows[y].length(); x++) {
+                final char tile = rows[y].charAt(x);
+                if (tile == '#') {
+                    map.setMovementCost(x, y, BLOCKED);
+                } else if (tile == '~') {
+                    map.setMovementCost(x, y, ROUGH_COST);
+                }
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Find a character in a drawing of a map.
+     *
+     * @param rows the rows of the map
+     * @param mark the character to look for
+     * @return the location of the character
+     */
+    @Nonnull
+    static Location find(@Nonnull final String[] rows, final char mark) {
+        for (int y = 0; y < rows.length; y++) {
+            final int x = rows[y].indexOf(mark);
+            if (x != -1) {
+                return new Location(x, y, 0);
+            }
+        }
+        throw new IllegalArgumentException("Mark " + mark + " not found");
+    }
+
+    /**
+     * Create a map with randomly placed obstacles and expensive tiles.
+     *
+     * @param random        the source of the random values
+     * @param width         the amount of columns of the map
+     * @param height        the amount of rows of the map
+     * @param obstacleRatio the share of the tiles that are blocked
+     * @param roughRatio    the share of the tiles that are expensive
+     * @return the map
+     */
+    @Nonnull
+    static TestSearchMap generate(@Nonnull final Random random, final int width, final int height,
+                                  final double obstacleRatio, final double roughRatio) {
+        final TestSearchMap map = new TestSearchMap(0, 0, width, height);
+        for (int i = 0; i < map.costs.length; i++) {
+            final double value = random.nextDouble();
+            if (value < obstacleRatio) {
+                map.costs[i] = BLOCKED;
+            } else if (value < (obstacleRatio + roughRatio)) {
+                map.costs[i] = ROUGH_COST;
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Pick a random tile of the map that is not blocked.
+     *
+     * @param random the source of the random values
+     * @return the location of the tile
+     */
+    @Nonnull
+    Location pickFreeLocation(@Nonnull final Random random) {
+        while (true) {
+            final int x = originX + random.nextInt(width);
+            final int y = originY + random.nextInt(height);
+            if (getMovementCost(x, y, 0) != BLOCKED) {
+                return new Location(x, y, 0);
+            }
+        }
+    }
+
+    /**
+     * Change the movement cost of a tile.
+     *
+     * @param x    the x coordinate of the tile
+     * @param y    the y coordinate of the tile
+     * @param cost the new movement cost or {@link #BLOCKED}
+     */
+    void setMovementCost(final int x, final int y, final int cost) {
+        costs[getIndex(x, y)] = cost;
+    }
+
+    @Override
+    public int getMovementCost(final int x, final int y, final int level) {
+        if ((level != 0) || (x < originX) || (y < originY) || (x >= (originX + width)) ||
+                (y >= (originY + height))) {
+            return BLOCKED;
+        }
+        return costs[getIndex(x, y)];
+    }
+
+    /**
+     * Get the cost of a step onto a tile. Diagonal steps cost ten percent more, the same way the searches calculate
+     * them.
+     *
+     * @param x        the x coordinate of the tile that is entered
+     * @param y        the y coordinate of the tile that is entered
+     * @param diagonal {@code true} in case the step is diagonal
+     * @return the cost of the step or {@link #BLOCKED}
+     */
+    int getStepCost(final int x, final int y, final boolean diagonal) {
+        final int cost = getMovementCost(x, y, 0);
+        if ((cost == BLOCKED) || !diagonal) {
+            return cost;
+        }
+        return (cost * 11) / 10;
+    }
+
+    /**
+     * Calculate the cost of the cheapest path between two locations with a plain Dijkstra search over the entire map.
+     *
+     * @param start the location the path starts at
+     * @param dest  the location the path ends at
+     * @return the cost of the cheapest path or {@code -1} in case there is no path
+     */
+    int getCheapestCost(@Nonnull final Location start, @Nonnull final Location dest) {
+        final int[] distance = new int[costs.length];
+        Arrays.fill(distance, Integer.MAX_VALUE);
+        final PriorityQueue<Long> queue = new PriorityQueue<Long>();
+        final int startIndex = getIndex(start.getScX(), start.getScY());
+        final int destIndex = getIndex(dest.getScX(), dest.getScY());
+        distance[startIndex] = 0;
+        queue.add((long) startIndex);
+        while (!queue.isEmpty()) {
+            final long entry = queue.poll();
+            final int index = (int) (entry & 0xFFFFFFFFL);
+            final int cost = (int) (entry >>> 32);
+            if (cost > distance[index]) {
+                continue;
+            }
+            if (index == destIndex) {
+                return cost;
+            }
+            final int x = originX + (index % width);
+            final int y = originY + (index / width);
+            for (int dir = 0; dir < NEIGHBOUR_X.length; dir++) {
+                final int nextX = x + NEIGHBOUR_X[dir];
+                final int nextY = y + NEIGHBOUR_Y[dir];
+                final int stepCost = getStepCost(nextX, nextY, (NEIGHBOUR_X[dir] != 0) && (NEIGHBOUR_Y[dir] != 0));
+                if (stepCost == BLOCKED) {
+                    continue;
+                }
+                final int next = getIndex(nextX, nextY);
+                if ((cost + stepCost) < distance[next]) {
+                    distance[next] = cost + stepCost;
+                    queue.add(((long) distance[next] << 32) | next);
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Check that a path leads from the start to the destination over tiles that are not blocked, with one step to a
+     * neighbour tile at a time, and that the costs stored in the path match the costs of the map.
+     *
+     * @param path  the path
+     * @param start the location the path is expected to start at
+     * @param dest  the location the path is expected to end at
+     * @return the steps of the path, including the start
+     */
+    @Nonnull
+    List<PathNode> verifyPath(@Nonnull final Path path, @Nonnull final Location start,
+                              @Nonnull final Location dest) {
+        final List<PathNode> steps = new ArrayList<PathNode>();
+        PathNode node = path.nextStep();
+        while (node != null) {
+            steps.add(node);
+            node = path.nextStep();
+        }
+        Assert.assertFalse(steps.isEmpty(), "The path is empty.");
+        Assert.assertEquals(steps.get(0).getLocation(), start, "The path does not start at the start.");
+        Assert.assertEquals(steps.get(0).getCost(), 0);
+        Assert.assertEquals(steps.get(steps.size() - 1).getLocation(), dest,
+                "The path does not end at the destination.");
+        for (int i = 1; i < steps.size(); i++) {
+            final Location from = steps.get(i - 1).getLocation();
+            final Location to = steps.get(i).getLocation();
+            final int diffX = to.getScX() - from.getScX();
+            final int diffY = to.getScY() - from.getScY();
+            Assert.assertTrue(((diffX != 0) || (diffY != 0)) && (Math.abs(diffX) <= 1) && (Math.abs(diffY) <= 1),
+                    "Step " + i + " of the path does not lead to a neighbour tile.");
+            final int stepCost = getStepCost(to.getScX(), to.getScY(), (diffX != 0) && (diffY != 0));
+            Assert.assertTrue(stepCost != BLOCKED, "Step " + i + " of the path enters a blocked tile.");
+            Assert.assertEquals(steps.get(i).getCost(), steps.get(i - 1).getCost() + stepCost,
+                    "The cost of step " + i + " of the path is wrong.");
+        }
+        return steps;
+    }
+
+    /**
+     * Get the index of a tile in the array of costs.
+     *
+     * @param x the x coordinate of the tile
+     * @param y the y coordinate of the tile
+     * @return the index
+     */
+    private int getIndex(final int x, final int y) {
+        return ((y - originY) * width) + (x - originX);
+    }
+}
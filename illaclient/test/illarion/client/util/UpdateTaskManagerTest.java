@@ -0,0 +1,210 @@
+/*
+ * This file is part of the Illarion Client.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Client.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.client.util;
+
+import org.illarion.engine.GameContainer;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.annotation.Nonnull;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This test verifies the order the {@link UpdateTaskManager} executes the tasks in and that the time budget of a
+ * update does not starve any priority.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+public class UpdateTaskManagerTest {
+    /**
+     * The time in milliseconds a slow task keeps the update busy. This is more then the budget of a update.
+     */
+    private static final long SLOW_TASK_TIME = 5L;
+
+    /**
+     * The container handed to the update manager. None of its functions are used by the tests.
+     */
+    @Nonnull
+    private static final GameContainer CONTAINER = (GameContainer) Proxy.newProxyInstance(
+            UpdateTaskManagerTest.class.getClassLoader(), new Class<?>[]{GameContainer.class},
+            new InvocationHandler() {
+                @Override
+                public Object invoke(final Object proxy, @Nonnull final Method method, final Object[] args) {
+                    throw new UnsupportedOperationException(method.getName());
+                }
+            });
+
+    /**
+     * The manager that is tested.
+     */
+    private UpdateTaskManager manager;
+
+    /**
+     * The names of the tasks in the order they were executed.
+     */
+    private List<String> executed;
+
+    /**
+     * Prepare a new manager for each test.
+     */
+    @BeforeMethod
+    public void prepareManager() {
+        manager = new UpdateTaskManager();
+        executed = new ArrayList<String>();
+    }
+
+    @Test
+    public void testFifoWithinPriority() {
+        for (int i = 0; i < 100; i++) {
+            manager.addTask(new RecordingTask("world" + i, 0L), UpdatePriority.World);
+            manager.addTask(new RecordingTask("cosmetic" + i, 0L), UpdatePriority.Cosmetic);
+        }
+
+        manager.onUpdateGame(CONTAINER, 16);
+
+        Assert.assertEquals(executed.size(), 200);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(executed.get(i), "world" + i);
+            Assert.assertEquals(executed.get(100 + i), "cosmetic" + i);
+        }
+        Assert.assertEquals(manager.getQueueDepth(), 0);
+        Assert.assertEquals(manager.getLastDeferredCount(), 0);
+    }
+
+    @Test
+    public void testPriorityOrder() {
+        manager.addTask(new RecordingTask("cosmetic", 0L), UpdatePriority.Cosmetic);
+        manager.addTask(new RecordingTask("gui", 0L));
+        manager.addTask(new RecordingTask("world", 0L), UpdatePriority.World);
+        manager.addTask(new RecordingTask("input", 0L), UpdatePriority.Input);
+
+        manager.onUpdateGame(CONTAINER, 16);
+
+        Assert.assertEquals(executed, Arrays.asList("input", "world", "gui", "cosmetic"));
+    }
+
+    @Test
+    public void testNoStarvationUnderBudget() {
+        for (int i = 0; i < 3; i++) {
+            manager.addTask(new RecordingTask("input" + i, SLOW_TASK_TIME), UpdatePriority.Input);
+        }
+        for (final UpdatePriority priority : new UpdatePriority[]{UpdatePriority.World, UpdatePriority.Gui,
+                UpdatePriority.Cosmetic}) {
+            for (int i = 0; i < 3; i++) {
+                manager.addTask(new RecordingTask(priority.name() + i, SLOW_TASK_TIME), priority);
+            }
+        }
+
+        manager.onUpdateGame(CONTAINER, 16);
+
+        Assert.assertEquals(executed, Arrays.asList("input0", "input1", "input2", "World0", "Gui0",
+                "Cosmetic0"));
+        Assert.assertEquals(manager.getLastDeferredCount(), 6);
+        Assert.assertEquals(manager.getQueueDepth(), 6);
+        Assert.assertEquals(manager.getDeferringUpdates(), 1L);
+
+        manager.onUpdateGame(CONTAINER, 16);
+        manager.onUpdateGame(CONTAINER, 16);
+
+        Assert.assertEquals(executed.subList(6, executed.size()), Arrays.asList("World1", "Gui1",
+                "Cosmetic1", "World2", "Gui2", "Cosmetic2"));
+        Assert.assertEquals(manager.getLastDeferredCount(), 0);
+        Assert.assertEquals(manager.getQueueDepth(), 0);
+        Assert.assertEquals(manager.getDeferringUpdates(), 2L);
+    }
+
+    @Test
+    public void testFifoAcrossDeferredUpdates() {
+        for (int i = 0; i < 10; i++) {
+            manager.addTask(new RecordingTask("slow" + i, SLOW_TASK_TIME), UpdatePriority.World);
+        }
+
+        int updates = 0;
+        while (manager.getQueueDepth() > 0) {
+            manager.onUpdateGame(CONTAINER, 16);
+            updates++;
+            Assert.assertTrue(updates <= 10, "The queue was not drained by one task per update.");
+        }
+
+        Assert.assertEquals(executed.size(), 10);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(executed.get(i), "slow" + i);
+        }
+    }
+
+    @Test
+    public void testTaskAddedDuringUpdate() {
+        manager.addTask(new UpdateTask() {
+            @Override
+            public void onUpdateGame(@Nonnull final GameContainer container, final int delta) {
+                executed.add("outer");
+                manager.addTask(new RecordingTask("inner", 0L), UpdatePriority.Cosmetic);
+                executed.add("outer done");
+            }
+        }, UpdatePriority.World);
+        manager.addTask(new RecordingTask("gui", 0L));
+
+        manager.onUpdateGame(CONTAINER, 16);
+
+        Assert.assertEquals(executed, Arrays.asList("outer", "inner", "outer done", "gui"));
+    }
+
+    /**
+     * This task records its name when it is executed and keeps the update busy for a while.
+     */
+    private final class RecordingTask implements UpdateTask {
+        /**
+         * The name of the task.
+         */
+        @Nonnull
+        private final String name;
+
+        /**
+         * The time in milliseconds the task keeps the update busy.
+         */
+        private final long busyTime;
+
+        /**
+         * Create a new task.
+         *
+         * @param name     the name of the task
+         * @param busyTime the time in milliseconds the task keeps the update busy
+         */
+        RecordingTask(@Nonnull final String name, final long busyTime) {
+            this.name = name;
+            this.busyTime = busyTime;
+        }
+
+        @Override
+        public void onUpdateGame(@Nonnull final GameContainer container, final int delta) {
+            executed.add(name);
+            final long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(busyTime);
+            while (System.nanoTime() < end) {
+                Thread.yield();
+            }
+        }
+    }
+}
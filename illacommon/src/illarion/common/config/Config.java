@@ -18,6 +18,7 @@
  */
 package illarion.common.config;
 
+import javax.annotation.Nonnull;
 import java.io.File;
 
 /**
@@ -140,6 +141,26 @@ public interface Config {
      */
     String getString(String key);
 
+    /**
+     * Get the handle of a entry of the configuration. Reading a value using
+     * the handle does not require to look up the key, so values that are read
+     * very often should be read using a handle that is fetched once.
+     *
+     * @param key the key of the entry
+     * @return the handle of the entry
+     */
+    @Nonnull
+    ConfigKey getKey(@Nonnull String key);
+
+    /**
+     * Get the current snapshot of the configuration. The snapshot does not
+     * change, so several values read from it are consistent with each other.
+     *
+     * @return the current snapshot
+     */
+    @Nonnull
+    ConfigSnapshot getSnapshot();
+
     /**
      * Save the current state of the configuration.
      */
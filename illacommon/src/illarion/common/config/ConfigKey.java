@@ -0,0 +1,147 @@
+/*
+ * This file is part of the Illarion Common Library.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Common Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Common Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Common Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.common.config;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * This is a handle to one entry of a {@link ConfigSystem}. The handle knows the slot of the entry in the
+ * {@link ConfigSnapshot}, so reading the value is a volatile read of the current snapshot and a array access. This
+ * makes the handles the preferred way to read configuration values that are needed for every frame or every event.
+ * <p />
+ * The handles are created by {@link Config#getKey(String)} and are supposed to be stored and reused. The getters
+ * expect the entry to be of the matching type. A getter that does not match the type of the entry returns
+ * {@code 0}, {@code false} or {@code null}.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+@ThreadSafe
+public final class ConfigKey {
+    /**
+     * The configuration this handle belongs to.
+     */
+    @Nonnull
+    private final Config config;
+
+    /**
+     * The key of the entry.
+     */
+    @Nonnull
+    private final String name;
+
+    /**
+     * The slot of the entry in the snapshots of the configuration.
+     */
+    private final int slot;
+
+    /**
+     * Create a new handle.
+     *
+     * @param config the configuration this handle belongs to
+     * @param name   the key of the entry
+     * @param slot   the slot of the entry in the snapshots
+     */
+    ConfigKey(@Nonnull final Config config, @Nonnull final String name, final int slot) {
+        this.config = config;
+        this.name = name;
+        this.slot = slot;
+    }
+
+    /**
+     * Get the key of the entry.
+     *
+     * @return the key
+     */
+    @Nonnull
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the slot of the entry in the snapshots.
+     *
+     * @return the slot
+     */
+    int getSlot() {
+        return slot;
+    }
+
+    /**
+     * Get the current value of the entry as boolean.
+     *
+     * @return the value or {@code false} in case the entry is not set
+     */
+    public boolean getBoolean() {
+        return config.getSnapshot().getBoolean(this);
+    }
+
+    /**
+     * Get the current value of the entry as integer.
+     *
+     * @return the value or {@code 0} in case the entry is not set
+     */
+    public int getInteger() {
+        return config.getSnapshot().getInteger(this);
+    }
+
+    /**
+     * Get the current value of the entry as long.
+     *
+     * @return the value or {@code 0} in case the entry is not set
+     */
+    public long getLong() {
+        return config.getSnapshot().getLong(this);
+    }
+
+    /**
+     * Get the current value of the entry as float.
+     *
+     * @return the value or {@code 0} in case the entry is not set
+     */
+    public float getFloat() {
+        return config.getSnapshot().getFloat(this);
+    }
+
+    /**
+     * Get the current value of the entry as double.
+     *
+     * @return the value or {@code 0} in case the entry is not set
+     */
+    public double getDouble() {
+        return config.getSnapshot().getDouble(this);
+    }
+
+    /**
+     * Get the current value of the entry as string.
+     *
+     * @return the value or {@code null} in case the entry is not set
+     */
+    @Nullable
+    public String getString() {
+        return config.getSnapshot().getString(this);
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return "ConfigKey(" + name + ')';
+    }
+}
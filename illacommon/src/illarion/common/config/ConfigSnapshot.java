@@ -0,0 +1,208 @@
+/*
+ * This file is part of the Illarion Common Library.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Common Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Common Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Common Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.common.config;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This is a immutable copy of all entries of a {@link ConfigSystem}. The configuration system creates a new
+ * snapshot for every change and publishes it with a single volatile write, so reading the configuration does not
+ * require any locking.
+ * <p />
+ * Next to the plain entries the snapshot stores the values of all {@link ConfigKey} handles in primitive arrays that
+ * are indexed by the slot of the handle. Reading a value using a handle is just a array access that does not need to
+ * look up the key or unbox the value.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+@Immutable
+public final class ConfigSnapshot {
+    /**
+     * The copy of all entries of the configuration.
+     */
+    @Nonnull
+    private final Map<String, Object> entries;
+
+    /**
+     * The values of the boolean and integer handles. Booleans are stored as {@code 1} and {@code 0}.
+     */
+    @Nonnull
+    private final long[] integralValues;
+
+    /**
+     * The values of the floating point handles.
+     */
+    @Nonnull
+    private final double[] decimalValues;
+
+    /**
+     * The values of all handles as they are stored in the configuration.
+     */
+    @Nonnull
+    private final Object[] objectValues;
+
+    /**
+     * Create a new snapshot.
+     *
+     * @param configEntries the entries of the configuration, the map is copied
+     * @param slotKeys      the keys of the handles, indexed by the slot of the handle
+     * @param slotCount     the amount of slots that are in use
+     */
+    ConfigSnapshot(@Nonnull final Map<String, Object> configEntries, @Nonnull final String[] slotKeys,
+                   final int slotCount) {
+        entries = Collections.unmodifiableMap(new HashMap<String, Object>(configEntries));
+        integralValues = new long[slotCount];
+        decimalValues = new double[slotCount];
+        objectValues = new Object[slotCount];
+
+        for (int i = 0; i < slotCount; i++) {
+            final Object value = entries.get(slotKeys[i]);
+            objectValues[i] = value;
+            if (value instanceof Boolean) {
+                integralValues[i] = (Boolean) value ? 1L : 0L;
+            } else if ((value instanceof Float) || (value instanceof Double)) {
+                decimalValues[i] = ((Number) value).doubleValue();
+            } else if (value instanceof Number) {
+                integralValues[i] = ((Number) value).longValue();
+            }
+        }
+    }
+
+    /**
+     * Get the value of a entry.
+     *
+     * @param key the key of the entry
+     * @return the value or {@code null} in case there is no entry with this key
+     */
+    @Nullable
+    public Object getObject(@Nonnull final String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Get the value of a handle as boolean.
+     *
+     * @param key the handle
+     * @return the value or {@code false} in case the entry is not set or not a boolean
+     */
+    public boolean getBoolean(@Nonnull final ConfigKey key) {
+        return getIntegral(key.getSlot()) != 0L;
+    }
+
+    /**
+     * Get the value of a handle as integer.
+     *
+     * @param key the handle
+     * @return the value or {@code 0} in case the entry is not set or not a integer number
+     */
+    public int getInteger(@Nonnull final ConfigKey key) {
+        return (int) getIntegral(key.getSlot());
+    }
+
+    /**
+     * Get the value of a handle as long.
+     *
+     * @param key the handle
+     * @return the value or {@code 0} in case the entry is not set or not a integer number
+     */
+    public long getLong(@Nonnull final ConfigKey key) {
+        return getIntegral(key.getSlot());
+    }
+
+    /**
+     * Get the value of a handle as float.
+     *
+     * @param key the handle
+     * @return the value or {@code 0} in case the entry is not set or not a floating point number
+     */
+    public float getFloat(@Nonnull final ConfigKey key) {
+        return (float) getDecimal(key.getSlot());
+    }
+
+    /**
+     * Get the value of a handle as double.
+     *
+     * @param key the handle
+     * @return the value or {@code 0} in case the entry is not set or not a floating point number
+     */
+    public double getDouble(@Nonnull final ConfigKey key) {
+        return getDecimal(key.getSlot());
+    }
+
+    /**
+     * Get the value of a handle as string.
+     *
+     * @param key the handle
+     * @return the value or {@code null} in case the entry is not set or not a string
+     */
+    @Nullable
+    public String getString(@Nonnull final ConfigKey key) {
+        final Object value = getObject(key);
+        if (value instanceof String) {
+            return (String) value;
+        }
+        return null;
+    }
+
+    /**
+     * Get the value of a handle as it is stored in the configuration.
+     *
+     * @param key the handle
+     * @return the value or {@code null} in case the entry is not set
+     */
+    @Nullable
+    public Object getObject(@Nonnull final ConfigKey key) {
+        final int slot = key.getSlot();
+        if (slot >= objectValues.length) {
+            return entries.get(key.getName());
+        }
+        return objectValues[slot];
+    }
+
+    /**
+     * Get the integral value of a slot.
+     *
+     * @param slot the slot
+     * @return the value of the slot or {@code 0} in case the handle was created after this snapshot
+     */
+    private long getIntegral(final int slot) {
+        if (slot >= integralValues.length) {
+            return 0L;
+        }
+        return integralValues[slot];
+    }
+
+    /**
+     * Get the floating point value of a slot.
+     *
+     * @param slot the slot
+     * @return the value of the slot or {@code 0} in case the handle was created after this snapshot
+     */
+    private double getDecimal(final int slot) {
+        if (slot >= decimalValues.length) {
+            return 0.d;
+        }
+        return decimalValues[slot];
+    }
+}
@@ -30,7 +30,10 @@ import org.bushe.swing.event.EventBus;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
 import java.io.*;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -41,12 +44,12 @@ import java.util.zip.GZIPOutputStream;
  * This is the main class for the configuration system. It contains the storage
  * for the configuration values and allows to apply changes to those values.
  * <p>
- * This class is fully thread save as the access is synchronized using a
- * read/write lock. So reading access will work mostly without synchronization.
- * How ever in case there are any changes done to the configuration or the
- * configuration is saved or load the other parts of the application can't
- * access the data of this configuration and are blocked until its save to read
- * again.
+ * This class is fully thread save. Changes, saving and loading the
+ * configuration are synchronized using a read/write lock. Every change creates
+ * a new {@link ConfigSnapshot} that is published using a volatile reference
+ * before the listeners are notified. Reading the configuration only reads this
+ * snapshot and never blocks. Values that are read very often should be read
+ * using a {@link ConfigKey} handle.
  * </p>
  *
  * @author Martin Karing &lt;nitram@illarion.org&gt;
@@ -115,6 +118,26 @@ public class ConfigSystem implements Config {
     @Nonnull
     private final ReadWriteLock lock;
 
+    /**
+     * The slots of the handles that were created for this configuration.
+     */
+    @Nonnull
+    @GuardedBy("lock")
+    private final Map<String, ConfigKey> keys;
+
+    /**
+     * The keys of the handles, indexed by the slot of the handle.
+     */
+    @Nonnull
+    @GuardedBy("lock")
+    private String[] slotKeys;
+
+    /**
+     * The current snapshot of the configuration. This is replaced with every change.
+     */
+    @Nonnull
+    private volatile ConfigSnapshot snapshot;
+
     /**
      * Create a configuration object with a file as source. The configuration
      * system will try to load the data from this source.
@@ -139,6 +162,9 @@ public class ConfigSystem implements Config {
         binding.setAlias(FastMap.class, "fastmap");
 
         lock = new ReentrantReadWriteLock();
+        keys = new HashMap<String, ConfigKey>();
+        slotKeys = new String[16];
+        snapshot = new ConfigSnapshot(configEntries, slotKeys, 0);
 
         loadConfig();
         changed = false;
@@ -394,13 +420,7 @@ public class ConfigSystem implements Config {
      */
     @Nullable
     public Object getObject(final String key) {
-        lock.readLock().lock();
-        Object value;
-        try {
-            value = configEntries.get(key);
-        } finally {
-            lock.readLock().unlock();
-        }
+        final Object value = snapshot.getObject(key);
 
         if (value == null) {
             LOGGER.warn("No config entry found for: " + key);
@@ -470,7 +490,56 @@ public class ConfigSystem implements Config {
      */
     @Override
     public void remove(final String key) {
-        configEntries.remove(key);
+        lock.writeLock().lock();
+        try {
+            if (configEntries.remove(key) != null) {
+                updateSnapshot();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get the handle of a entry of the configuration. Reading a value with the handle is a lot faster then reading it
+     * with the key, so the handle should be fetched once and stored for values that are read very often. The entry
+     * does not need to exist when the handle is created.
+     *
+     * @param key the key of the entry
+     * @return the handle of the entry
+     */
+    @Nonnull
+    @Override
+    public ConfigKey getKey(@Nonnull final String key) {
+        lock.writeLock().lock();
+        try {
+            ConfigKey handle = keys.get(key);
+            if (handle == null) {
+                final int slot = keys.size();
+                if (slot == slotKeys.length) {
+                    slotKeys = Arrays.copyOf(slotKeys, slot * 2);
+                }
+                slotKeys[slot] = key;
+                handle = new ConfigKey(this, key, slot);
+                keys.put(key, handle);
+                updateSnapshot();
+            }
+            return handle;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get the current snapshot of the configuration. The snapshot does not change, so it can be used to read several
+     * values that are consistent with each other.
+     *
+     * @return the current snapshot
+     */
+    @Nonnull
+    @Override
+    public ConfigSnapshot getSnapshot() {
+        return snapshot;
     }
 
     /**
@@ -698,6 +767,7 @@ public class ConfigSystem implements Config {
             }
 
             configEntries.put(key, value);
+            updateSnapshot();
             reportChangedKey(key);
         } finally {
             lock.writeLock().unlock();
@@ -740,7 +810,7 @@ public class ConfigSystem implements Config {
      * @param value the value that is stored along with the key
      */
     public void setDefault(final String key, final boolean value) {
-        if (!(configEntries.get(key) instanceof Boolean)) {
+        if (!(snapshot.getObject(key) instanceof Boolean)) {
             set(key, value);
         }
     }
@@ -757,7 +827,7 @@ public class ConfigSystem implements Config {
      * @param value the value that is stored along with the key
      */
     public void setDefault(final String key, final byte value) {
-        if (!(configEntries.get(key) instanceof Byte)) {
+        if (!(snapshot.getObject(key) instanceof Byte)) {
             set(key, value);
         }
     }
@@ -774,7 +844,7 @@ public class ConfigSystem implements Config {
      * @param value the value that is stored along with the key
      */
     public void setDefault(final String key, final double value) {
-        if (!(configEntries.get(key) instanceof Double)) {
+        if (!(snapshot.getObject(key) instanceof Double)) {
             set(key, value);
         }
     }
@@ -791,7 +861,7 @@ public class ConfigSystem implements Config {
      * @param value the value that is stored along with the key
      */
     public void setDefault(final String key, @Nonnull final File value) {
-        if (!(configEntries.get(key) instanceof String)) {
+        if (!(snapshot.getObject(key) instanceof String)) {
             set(key, value);
         }
     }
@@ -808,7 +878,7 @@ public class ConfigSystem implements Config {
      * @param value the value that is stored along with the key
      */
     public void setDefault(final String key, final float value) {
-        if (!(configEntries.get(key) instanceof Float)) {
+        if (!(snapshot.getObject(key) instanceof Float)) {
             set(key, value);
         }
     }
@@ -825,7 +895,7 @@ public class ConfigSystem implements Config {
      * @param value the value that is stored along with the key
      */
     public void setDefault(final String key, final int value) {
-        if (!(configEntries.get(key) instanceof Integer)) {
+        if (!(snapshot.getObject(key) instanceof Integer)) {
             set(key, value);
         }
     }
@@ -842,7 +912,7 @@ public class ConfigSystem implements Config {
      * @param value the value that is stored along with the key
      */
     public void setDefault(final String key, final long value) {
-        if (!(configEntries.get(key) instanceof Long)) {
+        if (!(snapshot.getObject(key) instanceof Long)) {
             set(key, value);
         }
     }
@@ -859,7 +929,7 @@ public class ConfigSystem implements Config {
      * @param value the value that is stored along with the key
      */
     public void setDefault(final String key, final short value) {
-        if (!(configEntries.get(key) instanceof Short)) {
+        if (!(snapshot.getObject(key) instanceof Short)) {
             set(key, value);
         }
     }
@@ -876,7 +946,7 @@ public class ConfigSystem implements Config {
      * @param value the value that is stored along with the key
      */
     public void setDefault(final String key, final String value) {
-        if (!(configEntries.get(key) instanceof String)) {
+        if (!(snapshot.getObject(key) instanceof String)) {
             set(key, value);
         }
     }
@@ -911,6 +981,7 @@ public class ConfigSystem implements Config {
             }
 
             configEntries.putAll(loadedMap);
+            updateSnapshot();
 
             loadedMap.clear();
             if (loadedMap instanceof FastMap) {
@@ -937,6 +1008,15 @@ public class ConfigSystem implements Config {
         }
     }
 
+    /**
+     * Create a new snapshot of the configuration and publish it. This has to be called while the write lock is held
+     * and before the listeners are notified about the change, so the listeners already read the new values.
+     */
+    @GuardedBy("lock")
+    private void updateSnapshot() {
+        snapshot = new ConfigSnapshot(configEntries, slotKeys, keys.size());
+    }
+
     /**
      * Report the change of a entry of the configuration to all listeners set in
      * this configuration.
@@ -38,6 +38,10 @@ import java.util.Map;
  * This class contains the abstract implementation of all texture loaders. This implementation does not favor a
  * specified way to load the textures. It just provides the facilities to find and load the texture files that are
  * provided with the resources for all applications.
+ * <p />
+ * In case a directory contains a {@link SpriteAtlasIndex}, the atlas files are created from the index using
+ * {@link #createTextureAtlas(String, SpriteAtlasIndex, int)}. The XML definitions of the atlas files are only used in
+ * case there is no index or the implementation does not support it.
  *
  * @param <A> the texture atlas type that is used to maintain this class
  * @param <I> the texture type that is used
@@ -111,6 +115,19 @@ public abstract class AbstractTextureLoader<A extends TextureAtlas<I>, I> {
     @Nonnull
     private final String[] rootDirectories;
 
+    /**
+     * The sprite atlas index of every root directory. The entries are {@code null} in case there is no index or it
+     * was not load yet.
+     */
+    @Nonnull
+    private final SpriteAtlasIndex[] atlasIndices;
+
+    /**
+     * The flags that mark the root directories that were already searched for a sprite atlas index.
+     */
+    @Nonnull
+    private final boolean[] atlasIndexChecked;
+
     /**
      * Create a new texture loader. This will try loading the textures from all resource directories.
      */
@@ -135,6 +152,9 @@ public abstract class AbstractTextureLoader<A extends TextureAtlas<I>, I> {
         Arrays.fill(expectedAtlasCount, -1);
 
         loadedSheets = (Map<String, A>[]) Array.newInstance(Map.class, getRootDirectoryCount());
+
+        atlasIndices = new SpriteAtlasIndex[rootDirectories.length];
+        atlasIndexChecked = new boolean[rootDirectories.length];
     }
 
     /**
@@ -479,6 +499,65 @@ public abstract class AbstractTextureLoader<A extends TextureAtlas<I>, I> {
     @Nullable
     protected abstract A createTextureAtlas(String image, String xmlDefinition);
 
+    /**
+     * This function has to create a texture atlas using the binary sprite atlas index. The default implementation
+     * does not support the index and returns {@code null}, so the XML definition is used.
+     *
+     * @param image       the reference string to the image file
+     * @param index       the sprite atlas index of the root directory
+     * @param atlasNumber the number of the atlas
+     * @return the created texture atlas or {@code null} in case the index is not supported
+     */
+    @Nullable
+    protected A createTextureAtlas(@Nonnull final String image, @Nonnull final SpriteAtlasIndex index,
+                                   final int atlasNumber) {
+        return null;
+    }
+
+    /**
+     * Get the sprite atlas index of a root directory.
+     *
+     * @param resourceDirIndex the index of the root directory
+     * @return the sprite atlas index or {@code null} in case the directory does not contain one
+     */
+    @Nullable
+    private SpriteAtlasIndex getAtlasIndex(final int resourceDirIndex) {
+        if (!atlasIndexChecked[resourceDirIndex]) {
+            atlasIndexChecked[resourceDirIndex] = true;
+            try {
+                atlasIndices[resourceDirIndex] = SpriteAtlasIndex.load(getRootDirectory(resourceDirIndex) +
+                        SpriteAtlasIndex.FILE_NAME);
+            } catch (@Nonnull final IOException e) {
+                LOGGER.error("Failed to read the sprite atlas index of: " + getRootDirectory(resourceDirIndex), e);
+            }
+        }
+        return atlasIndices[resourceDirIndex];
+    }
+
+    /**
+     * Load a numbered texture atlas. The sprite atlas index is used in case its available.
+     *
+     * @param resourceDirIndex the index of the root directory
+     * @param atlasNumber      the number of the atlas
+     * @return the created texture atlas or {@code null} in case loading the atlas failed
+     */
+    @Nullable
+    private A loadAtlasSheet(final int resourceDirIndex, final int atlasNumber) {
+        final String resource = createAtlasResourceName(atlasNumber);
+        final SpriteAtlasIndex index = getAtlasIndex(resourceDirIndex);
+        if (index != null) {
+            final String imageName = buildSheetName(resourceDirIndex, resource) + ".png";
+            if (Thread.currentThread().getContextClassLoader().getResource(imageName) != null) {
+                final A textureAtlas = createTextureAtlas(imageName, index, atlasNumber);
+                if (textureAtlas != null) {
+                    getSheetMapForDir(resourceDirIndex).put(resource, textureAtlas);
+                    return textureAtlas;
+                }
+            }
+        }
+        return loadTextureSheet(resourceDirIndex, resource);
+    }
+
     /**
      * Load the next texture atlas inside the specified resource directory.
      *
@@ -499,8 +578,7 @@ public abstract class AbstractTextureLoader<A extends TextureAtlas<I>, I> {
 
         lastAtlasIndex[resourceDirIndex]++;
 
-        final A textureAtlas = loadTextureSheet(resourceDirIndex,
-                createAtlasResourceName(lastAtlasIndex[resourceDirIndex]));
+        final A textureAtlas = loadAtlasSheet(resourceDirIndex, lastAtlasIndex[resourceDirIndex]);
         if (textureAtlas == null) {
             LOGGER.error("Corrupted resources detected. Not enough texture files in: " +
                     getRootDirectory(resourceDirIndex));
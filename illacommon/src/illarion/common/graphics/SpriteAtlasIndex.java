@@ -0,0 +1,375 @@
+/*
+ * This file is part of the Illarion Common Library.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Common Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Common Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Common Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.common.graphics;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.io.*;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * This is the binary index of all sprites on the texture atlas files of one directory. It replaces the XML definition
+ * files of the atlas files for loaders that support it.
+ * <p />
+ * The index is made of a header and fixed-width records that are sorted by the hash of the sprite name. A lookup is a
+ * binary search on the buffer that holds the file, so neither the names of the sprites nor any other objects are
+ * created for the entries. In case the index file is a plain file, it is memory mapped.
+ * <p />
+ * The header contains the magic number, the version of the format and the amount of records. Each record contains the
+ * 64-bit hash of the sprite name, the number of the atlas and the x and y coordinate, width and height of the sprite
+ * on the atlas. All values are stored big-endian.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+@Immutable
+public final class SpriteAtlasIndex {
+    /**
+     * The name of the index file inside a texture directory.
+     */
+    @SuppressWarnings("nls")
+    public static final String FILE_NAME = "atlas.index";
+
+    /**
+     * The value returned in case a sprite is not part of the index.
+     */
+    public static final int NOT_FOUND = -1;
+
+    /**
+     * The magic number at the start of every index file.
+     */
+    private static final int MAGIC = 0x494C4149;
+
+    /**
+     * The version of the file format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The size of the header in bytes.
+     */
+    private static final int HEADER_SIZE = 12;
+
+    /**
+     * The size of one record in bytes.
+     */
+    private static final int RECORD_SIZE = 28;
+
+    /**
+     * The offset basis of the FNV-1a hash.
+     */
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    /**
+     * The prime of the FNV-1a hash.
+     */
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * The buffer that contains the entire index file.
+     */
+    @Nonnull
+    private final ByteBuffer buffer;
+
+    /**
+     * The amount of records in the index.
+     */
+    private final int recordCount;
+
+    /**
+     * Create a index from the buffer holding the index file.
+     *
+     * @param buffer the buffer
+     * @throws IOException in case the buffer does not contain a valid index
+     */
+    private SpriteAtlasIndex(@Nonnull final ByteBuffer buffer) throws IOException {
+        if ((buffer.capacity() < HEADER_SIZE) || (buffer.getInt(0) != MAGIC)) {
+            throw new IOException("Invalid sprite atlas index.");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported version of the sprite atlas index: " + buffer.getInt(4));
+        }
+        recordCount = buffer.getInt(8);
+        if ((recordCount < 0) || (buffer.capacity() < (HEADER_SIZE + ((long) recordCount * RECORD_SIZE)))) {
+            throw new IOException("Sprite atlas index is truncated.");
+        }
+        this.buffer = buffer;
+    }
+
+    /**
+     * Load the index from a resource.
+     *
+     * @param resource the path to the resource
+     * @return the loaded index or {@code null} in case the resource does not exist
+     * @throws IOException in case reading the index fails or the index is invalid
+     */
+    @Nullable
+    public static SpriteAtlasIndex load(@Nonnull final String resource) throws IOException {
+        final URL url = Thread.currentThread().getContextClassLoader().getResource(resource);
+        if (url == null) {
+            return null;
+        }
+
+        if ("file".equals(url.getProtocol())) {
+            RandomAccessFile file = null;
+            try {
+                file = new RandomAccessFile(new File(url.toURI()), "r");
+                final FileChannel channel = file.getChannel();
+                return new SpriteAtlasIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            } catch (@Nonnull final URISyntaxException e) {
+                throw new IOException(e);
+            } finally {
+                if (file != null) {
+                    file.close();
+                }
+            }
+        }
+
+        InputStream in = null;
+        try {
+            in = url.openStream();
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] readBuffer = new byte[8192];
+            int read = in.read(readBuffer);
+            while (read > -1) {
+                out.write(readBuffer, 0, read);
+                read = in.read(readBuffer);
+            }
+            return new SpriteAtlasIndex(ByteBuffer.wrap(out.toByteArray()));
+        } finally {
+            if (in != null) {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * Calculate the hash of a sprite name.
+     *
+     * @param name  the text that contains the name of the sprite
+     * @param start the index of the first character of the name in the text
+     * @return the hash of the name
+     */
+    public static long hashName(@Nonnull final CharSequence name, final int start) {
+        long hash = FNV_OFFSET_BASIS;
+        final int length = name.length();
+        for (int i = start; i < length; i++) {
+            final char c = name.charAt(i);
+            hash ^= c & 0xFF;
+            hash *= FNV_PRIME;
+            hash ^= c >>> 8;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Get the amount of sprites in the index.
+     *
+     * @return the amount of sprites
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Find the record of a sprite.
+     *
+     * @param name  the text that contains the name of the sprite
+     * @param start the index of the first character of the name in the text
+     * @return the index of the record or {@link #NOT_FOUND}
+     */
+    public int find(@Nonnull final CharSequence name, final int start) {
+        return find(hashName(name, start));
+    }
+
+    /**
+     * Find the record of a sprite.
+     *
+     * @param hash the hash of the sprite name
+     * @return the index of the record or {@link #NOT_FOUND}
+     */
+    public int find(final long hash) {
+        int low = 0;
+        int high = recordCount - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final long midHash = buffer.getLong(HEADER_SIZE + (mid * RECORD_SIZE));
+            if (midHash < hash) {
+                low = mid + 1;
+            } else if (midHash > hash) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Get the number of the atlas that contains a sprite.
+     *
+     * @param record the index of the record
+     * @return the number of the atlas
+     */
+    public int getAtlas(final int record) {
+        return buffer.getInt(HEADER_SIZE + (record * RECORD_SIZE) + 8);
+    }
+
+    /**
+     * Get the x coordinate of a sprite on its atlas.
+     *
+     * @param record the index of the record
+     * @return the x coordinate
+     */
+    public int getX(final int record) {
+        return buffer.getInt(HEADER_SIZE + (record * RECORD_SIZE) + 12);
+    }
+
+    /**
+     * Get the y coordinate of a sprite on its atlas.
+     *
+     * @param record the index of the record
+     * @return the y coordinate
+     */
+    public int getY(final int record) {
+        return buffer.getInt(HEADER_SIZE + (record * RECORD_SIZE) + 16);
+    }
+
+    /**
+     * Get the width of a sprite.
+     *
+     * @param record the index of the record
+     * @return the width
+     */
+    public int getWidth(final int record) {
+        return buffer.getInt(HEADER_SIZE + (record * RECORD_SIZE) + 20);
+    }
+
+    /**
+     * Get the height of a sprite.
+     *
+     * @param record the index of the record
+     * @return the height
+     */
+    public int getHeight(final int record) {
+        return buffer.getInt(HEADER_SIZE + (record * RECORD_SIZE) + 24);
+    }
+
+    /**
+     * This class is used to create a index file.
+     */
+    public static final class Writer {
+        /**
+         * The names of the sprites added so far.
+         */
+        @Nonnull
+        private String[] names = new String[256];
+
+        /**
+         * The hashes of the names of the sprites.
+         */
+        @Nonnull
+        private long[] hashes = new long[256];
+
+        /**
+         * The atlas number and the bounds of every sprite.
+         */
+        @Nonnull
+        private int[] values = new int[256 * 5];
+
+        /**
+         * The amount of sprites added so far.
+         */
+        private int count;
+
+        /**
+         * Add a sprite to the index.
+         *
+         * @param name   the name of the sprite relative to the texture directory
+         * @param atlas  the number of the atlas that contains the sprite
+         * @param x      the x coordinate of the sprite on the atlas
+         * @param y      the y coordinate of the sprite on the atlas
+         * @param width  the width of the sprite
+         * @param height the height of the sprite
+         */
+        public void add(@Nonnull final String name, final int atlas, final int x, final int y, final int width,
+                        final int height) {
+            if (count == names.length) {
+                names = Arrays.copyOf(names, count * 2);
+                hashes = Arrays.copyOf(hashes, count * 2);
+                values = Arrays.copyOf(values, count * 2 * 5);
+            }
+            names[count] = name;
+            hashes[count] = hashName(name, 0);
+            final int offset = count * 5;
+            values[offset] = atlas;
+            values[offset + 1] = x;
+            values[offset + 2] = y;
+            values[offset + 3] = width;
+            values[offset + 4] = height;
+            count++;
+        }
+
+        /**
+         * Write the index.
+         *
+         * @param out the stream the index is written to
+         * @throws IOException           in case writing the index fails
+         * @throws IllegalStateException in case two different sprite names result in the same hash
+         */
+        public void write(@Nonnull final OutputStream out) throws IOException {
+            final Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(final Integer o1, final Integer o2) {
+                    final long hash1 = hashes[o1];
+                    final long hash2 = hashes[o2];
+                    return (hash1 < hash2) ? -1 : ((hash1 == hash2) ? 0 : 1);
+                }
+            });
+
+            final DataOutputStream dOut = new DataOutputStream(out);
+            dOut.writeInt(MAGIC);
+            dOut.writeInt(VERSION);
+            dOut.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                final int entry = order[i];
+                if ((i > 0) && (hashes[order[i - 1]] == hashes[entry])) {
+                    throw new IllegalStateException("Sprite names share the same hash: " + names[order[i - 1]] +
+                            " and " + names[entry]);
+                }
+                dOut.writeLong(hashes[entry]);
+                final int offset = entry * 5;
+                for (int j = 0; j < 5; j++) {
+                    dOut.writeInt(values[offset + j]);
+                }
+            }
+            dOut.flush();
+        }
+    }
+}
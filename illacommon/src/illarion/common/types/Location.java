@@ -32,6 +32,11 @@ import java.io.Serializable;
 
 /**
  * Storage for the server map and all recalculation function for the Client screen representations.
+ * <p />
+ * Next to the location objects this class offers static functions that work on the keys created by
+ * {@link #getKey(int, int, int)}. Those keys store the server coordinates in a single {@code long}, so loops that run
+ * for every frame are able to work with locations without creating any objects. The keys are only valid for x and y
+ * coordinates in the range of a signed 16 bit value.
  *
  * @author Nop
  * @author Martin Karing &lt;nitram@illarion.org&gt;
@@ -334,6 +339,173 @@ public class Location implements Serializable {
         return (z * KEY_MOD_Z) + (x * KEY_MOD_X) + (y * KEY_MOD_Y);
     }
 
+    /**
+     * Get the X-Coordinate of the server coordinates stored in a key.
+     *
+     * @param key the key
+     * @return the X-Coordinate of the server coordinates
+     */
+    public static int getKeyX(final long key) {
+        return (short) ((key - getKeyY(key)) / KEY_MOD_X);
+    }
+
+    /**
+     * Get the Y-Coordinate of the server coordinates stored in a key.
+     *
+     * @param key the key
+     * @return the Y-Coordinate of the server coordinates
+     */
+    public static int getKeyY(final long key) {
+        return (short) key;
+    }
+
+    /**
+     * Get the Z-Coordinate of the server coordinates stored in a key.
+     *
+     * @param key the key
+     * @return the Z-Coordinate of the server coordinates
+     */
+    public static int getKeyZ(final long key) {
+        return (int) ((key - (getKeyX(key) * KEY_MOD_X) - getKeyY(key)) / KEY_MOD_Z);
+    }
+
+    /**
+     * Add an offset to the server coordinates stored in a key.
+     *
+     * @param key the key
+     * @param x   Value to add to the X-Coordinate of the server location
+     * @param y   Value to add to the Y-Coordinate of the server location
+     * @param z   Value to add to the Z-Coordinate of the server location
+     * @return the key of the moved location
+     */
+    public static long addToKey(final long key, final int x, final int y, final int z) {
+        return key + (z * KEY_MOD_Z) + (x * KEY_MOD_X) + (y * KEY_MOD_Y);
+    }
+
+    /**
+     * Get the key of the neighbour location in a direction, using the 8 direction system.
+     *
+     * @param key       the key
+     * @param direction the direction
+     * @return the key of the neighbour or the key itself in case the direction is {@link #DIR_ZERO}
+     */
+    public static long getNeighbourKey(final long key, final int direction) {
+        if (direction == DIR_ZERO) {
+            return key;
+        }
+        return addToKey(key, MOVE8[0][direction], MOVE8[1][direction], 0);
+    }
+
+    /**
+     * Get the distance in needed steps between the locations stored in two keys.
+     *
+     * @param key       the key of the first location
+     * @param targetKey the key of the second location
+     * @return the amount of steps needed to get from the first location to the second location in case there are not
+     *         blocked tiles on the way
+     */
+    public static int getKeyDistance(final long key, final long targetKey) {
+        final int diffX = Math.abs(getKeyX(targetKey) - getKeyX(key));
+        final int diffY = Math.abs(getKeyY(targetKey) - getKeyY(key));
+        return Math.max(diffX, diffY);
+    }
+
+    /**
+     * Determine the direction needed to get from the location of the first key to the location of the second key
+     * using the 8 direction system.
+     *
+     * @param key       the key of the first location
+     * @param targetKey the key of the second location
+     * @return the direction needed to get from the first location to the second location
+     */
+    public static int getKeyDirection(final long key, final long targetKey) {
+        return getDirectionOfOffset(getKeyX(targetKey) - getKeyX(key), getKeyY(targetKey) - getKeyY(key));
+    }
+
+    /**
+     * Get the column on the client map of the location stored in a key.
+     *
+     * @param key the key
+     * @return the column on the client map
+     */
+    public static int getKeyCol(final long key) {
+        return getKeyX(key) + getKeyY(key);
+    }
+
+    /**
+     * Get the row on the client map of the location stored in a key.
+     *
+     * @param key the key
+     * @return the row on the client map
+     */
+    public static int getKeyRow(final long key) {
+        return getKeyX(key) - getKeyY(key);
+    }
+
+    /**
+     * Get the X-Coordinate of the display coordinates of the location stored in a key.
+     *
+     * @param key the key
+     * @return the X-Coordinate of the display coordinates
+     */
+    public static int getKeyDcX(final long key) {
+        return getKeyCol(key) * MapConstants.STEP_X;
+    }
+
+    /**
+     * Get the Y-Coordinate of the display coordinates of the location stored in a key.
+     *
+     * @param key the key
+     * @return the Y-Coordinate of the display coordinates
+     */
+    public static int getKeyDcY(final long key) {
+        return -((getKeyRow(key) * MapConstants.STEP_Y) + (DISPLAY_Z_OFFSET_MOD * getKeyZ(key) * MapConstants.STEP_Y));
+    }
+
+    /**
+     * Get the Z-Coordinate of the display coordinates of the location stored in a key.
+     *
+     * @param key the key
+     * @return the Z-Coordinate of the display coordinates
+     */
+    public static int getKeyDcZ(final long key) {
+        return (getKeyRow(key) - (getKeyZ(key) * Layers.LEVEL)) * Layers.DISTANCE;
+    }
+
+    /**
+     * Get the key of the location on level 0 that is displayed at some display coordinates.
+     *
+     * @param x X-Coordinate of the display coordinates
+     * @param y Y-Coordinate of the display coordinates
+     * @return the key of the location
+     */
+    public static long getKeyOfDisplayCoordinates(final int x, final int y) {
+        final float col = x / (float) MapConstants.STEP_X;
+        final float row = -y / (float) MapConstants.STEP_Y;
+        return getKey(FastMath.round((row + col) / 2.f), FastMath.round((col - row) / 2.f), 0);
+    }
+
+    /**
+     * Get the direction of a offset using the 8 direction system.
+     *
+     * @param x the offset on the X-Coordinate
+     * @param y the offset on the Y-Coordinate
+     * @return the direction of the offset
+     */
+    private static int getDirectionOfOffset(final int x, final int y) {
+        // normalize distances, just to be sure
+        final int dirX = Integer.signum(x);
+        final int dirY = Integer.signum(y);
+
+        for (int i = 0; i < MOVE8[0].length; ++i) {
+            if ((MOVE8[0][i] == dirX) && (MOVE8[1][i] == dirY)) {
+                return i;
+            }
+        }
+
+        return DIR_ZERO;
+    }
+
     /**
      * Add an offset to the display location. The calculation to map and server coordinates is triggered automatically.
      *
@@ -492,27 +664,7 @@ public class Location implements Serializable {
         if (dirtySC) {
             toServerCoordinates();
         }
-        // Calculate relative movement
-        int dirX = x - scX;
-        int dirY = y - scY;
-        final int lenX = Math.abs(dirX);
-        final int lenY = Math.abs(dirY);
-
-        // normalize distances, just to be sure
-        if (dirX != 0) {
-            dirX /= lenX;
-        }
-        if (dirY != 0) {
-            dirY /= lenY;
-        }
-
-        for (int i = 0; i < MOVE8[0].length; ++i) {
-            if ((MOVE8[0][i] == dirX) && (MOVE8[1][i] == dirY)) {
-                return i;
-            }
-        }
-
-        return DIR_ZERO;
+        return getDirectionOfOffset(x - scX, y - scY);
     }
 
     /**
@@ -769,8 +921,7 @@ public class Location implements Serializable {
      * @param key the key used to set the server coordinates of the location
      */
     public void setKey(final long key) {
-        setSC((int) (((key % KEY_MOD_Z) / KEY_MOD_X) - (KEY_MOD_X / 2)), (int) (key % KEY_MOD_Z % KEY_MOD_X),
-                (int) ((key / KEY_MOD_Z) - (KEY_MOD_Z / 2)));
+        setSC(getKeyX(key), getKeyY(key), getKeyZ(key));
     }
 
     /**
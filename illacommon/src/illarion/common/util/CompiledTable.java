@@ -0,0 +1,381 @@
+/*
+ * This file is part of the Illarion Common Library.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Common Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Common Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Common Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.common.util;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This is a resource table that was tokenized and typed at build time. The values are stored column by column.
+ * Columns that only contain integer values are stored as primitive arrays, so reading them does not require to parse
+ * or to allocate anything. All other columns are stored as strings.
+ * <p />
+ * The compiled tables are stored next to the regular tables with the file extension {@link #EXTENSION} and are
+ * encrypted the same way. The {@link TableLoader} prefers them over the regular tables and reads them using the
+ * same getters, so the sinks of the tables do not need to know what kind of table is read.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+@Immutable
+public final class CompiledTable {
+    /**
+     * The file extension of the compiled tables.
+     */
+    @SuppressWarnings("nls")
+    public static final String EXTENSION = ".cdat";
+
+    /**
+     * The value at the start of every compiled table.
+     */
+    private static final int MAGIC = 0x494C4354;
+
+    /**
+     * The version of the format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The type of a column that stores integer values.
+     */
+    private static final byte TYPE_INT = 1;
+
+    /**
+     * The type of a column that stores long values.
+     */
+    private static final byte TYPE_LONG = 2;
+
+    /**
+     * The type of a column that stores strings.
+     */
+    private static final byte TYPE_STRING = 3;
+
+    /**
+     * This flag is {@code true} in case the table was compiled from a NDSC table.
+     */
+    private final boolean ndsc;
+
+    /**
+     * The delimiter the table was compiled with.
+     */
+    @Nonnull
+    private final String delimiter;
+
+    /**
+     * The amount of values in each row.
+     */
+    @Nonnull
+    private final int[] rowLengths;
+
+    /**
+     * The types of the columns.
+     */
+    @Nonnull
+    private final byte[] columnTypes;
+
+    /**
+     * The values of the integer columns. The entry is {@code null} for columns of other types.
+     */
+    @Nonnull
+    private final int[][] intColumns;
+
+    /**
+     * The values of the long columns. The entry is {@code null} for columns of other types.
+     */
+    @Nonnull
+    private final long[][] longColumns;
+
+    /**
+     * The values of the string columns. The entry is {@code null} for columns of other types.
+     */
+    @Nonnull
+    private final String[][] stringColumns;
+
+    /**
+     * Read a compiled table.
+     *
+     * @param in the stream that supplies the decrypted table
+     * @throws IOException in case reading the table fails or the table is invalid
+     */
+    public CompiledTable(@Nonnull final InputStream in) throws IOException {
+        final DataInputStream dIn = new DataInputStream(new BufferedInputStream(in));
+        if (dIn.readInt() != MAGIC) {
+            throw new IOException("Invalid compiled table.");
+        }
+        final int version = dIn.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported version of the compiled table: " + version);
+        }
+        ndsc = dIn.readBoolean();
+        delimiter = dIn.readUTF();
+
+        final int rowCount = dIn.readInt();
+        rowLengths = new int[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            rowLengths[i] = dIn.readUnsignedShort();
+        }
+
+        final int columnCount = dIn.readInt();
+        columnTypes = new byte[columnCount];
+        intColumns = new int[columnCount][];
+        longColumns = new long[columnCount][];
+        stringColumns = new String[columnCount][];
+        for (int column = 0; column < columnCount; column++) {
+            columnTypes[column] = dIn.readByte();
+            switch (columnTypes[column]) {
+                case TYPE_INT:
+                    final int[] intValues = new int[rowCount];
+                    for (int row = 0; row < rowCount; row++) {
+                        intValues[row] = dIn.readInt();
+                    }
+                    intColumns[column] = intValues;
+                    break;
+                case TYPE_LONG:
+                    final long[] longValues = new long[rowCount];
+                    for (int row = 0; row < rowCount; row++) {
+                        longValues[row] = dIn.readLong();
+                    }
+                    longColumns[column] = longValues;
+                    break;
+                case TYPE_STRING:
+                    final String[] stringValues = new String[rowCount];
+                    for (int row = 0; row < rowCount; row++) {
+                        if (column < rowLengths[row]) {
+                            stringValues[row] = dIn.readUTF();
+                        }
+                    }
+                    stringColumns[column] = stringValues;
+                    break;
+                default:
+                    throw new IOException("Invalid column type: " + columnTypes[column]);
+            }
+        }
+    }
+
+    /**
+     * Check if the table was compiled with specified settings.
+     *
+     * @param tableNdsc  {@code true} in case the table is supposed to be a NDSC table
+     * @param tableDelim the delimiter the table is supposed to use
+     * @return {@code true} in case the table was compiled with the settings
+     */
+    public boolean isCompiledWith(final boolean tableNdsc, @Nonnull final String tableDelim) {
+        return (ndsc == tableNdsc) && delimiter.equals(tableDelim);
+    }
+
+    /**
+     * Get the delimiter the table was compiled with.
+     *
+     * @return the delimiter
+     */
+    @Nonnull
+    public String getDelimiter() {
+        return delimiter;
+    }
+
+    /**
+     * Get the amount of rows in this table.
+     *
+     * @return the amount of rows
+     */
+    public int getRowCount() {
+        return rowLengths.length;
+    }
+
+    /**
+     * Get the amount of values in a row.
+     *
+     * @param row the index of the row
+     * @return the amount of values
+     */
+    public int getRowLength(final int row) {
+        return rowLengths[row];
+    }
+
+    /**
+     * Get a value as string.
+     *
+     * @param row    the index of the row
+     * @param column the index of the column, it has to be less then the length of the row
+     * @return the value
+     */
+    @Nonnull
+    public String getString(final int row, final int column) {
+        switch (columnTypes[column]) {
+            case TYPE_INT:
+                return Integer.toString(intColumns[column][row]);
+            case TYPE_LONG:
+                return Long.toString(longColumns[column][row]);
+            default:
+                return stringColumns[column][row];
+        }
+    }
+
+    /**
+     * Get a value as integer.
+     *
+     * @param row    the index of the row
+     * @param column the index of the column, it has to be less then the length of the row
+     * @return the value
+     * @throws NumberFormatException in case the value is not a integer
+     */
+    public int getInt(final int row, final int column) {
+        if (columnTypes[column] == TYPE_INT) {
+            return intColumns[column][row];
+        }
+        return Integer.parseInt(getString(row, column));
+    }
+
+    /**
+     * Get a value as long.
+     *
+     * @param row    the index of the row
+     * @param column the index of the column, it has to be less then the length of the row
+     * @return the value
+     * @throws NumberFormatException in case the value is not a long
+     */
+    public long getLong(final int row, final int column) {
+        switch (columnTypes[column]) {
+            case TYPE_INT:
+                return intColumns[column][row];
+            case TYPE_LONG:
+                return longColumns[column][row];
+            default:
+                return Long.parseLong(stringColumns[column][row]);
+        }
+    }
+
+    /**
+     * Get a value as boolean. The value is {@code true} for everything but {@code 0}.
+     *
+     * @param row    the index of the row
+     * @param column the index of the column, it has to be less then the length of the row
+     * @return the value
+     */
+    @SuppressWarnings("nls")
+    public boolean getBoolean(final int row, final int column) {
+        switch (columnTypes[column]) {
+            case TYPE_INT:
+                return intColumns[column][row] != 0;
+            case TYPE_LONG:
+                return longColumns[column][row] != 0L;
+            default:
+                return !"0".equals(stringColumns[column][row]);
+        }
+    }
+
+    /**
+     * Compile a table. The table is read exactly the way the {@link TableLoader} reads it.
+     *
+     * @param table      the stream that supplies the table, it is closed once the table is read
+     * @param ndsc       {@code true} in case the table is a NDSC table
+     * @param tableDelim the delimiter of the table
+     * @param out        the stream that receives the compiled table
+     * @throws IOException in case writing the compiled table fails
+     */
+    public static void compile(@Nonnull final InputStream table, final boolean ndsc, @Nonnull final String tableDelim,
+                               @Nonnull final OutputStream out) throws IOException {
+        final List<String[]> rows = new ArrayList<String[]>();
+        new TableLoader(table, ndsc, new TableLoaderSink<TableLoader>() {
+            @Override
+            public boolean processRecord(final int line, @Nonnull final TableLoader loader) {
+                final String[] row = new String[loader.getTokenCount()];
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = loader.get(i);
+                }
+                rows.add(row);
+                return true;
+            }
+        }, tableDelim);
+
+        int columnCount = 0;
+        for (final String[] row : rows) {
+            if (row.length > 0xFFFF) {
+                throw new IOException("Row has too many values: " + row.length);
+            }
+            columnCount = Math.max(columnCount, row.length);
+        }
+
+        final DataOutputStream dOut = new DataOutputStream(new BufferedOutputStream(out));
+        dOut.writeInt(MAGIC);
+        dOut.writeInt(VERSION);
+        dOut.writeBoolean(ndsc);
+        dOut.writeUTF(tableDelim);
+        dOut.writeInt(rows.size());
+        for (final String[] row : rows) {
+            dOut.writeShort(row.length);
+        }
+
+        dOut.writeInt(columnCount);
+        for (int column = 0; column < columnCount; column++) {
+            final byte type = getColumnType(rows, column);
+            dOut.writeByte(type);
+            for (final String[] row : rows) {
+                @Nullable final String value = (column < row.length) ? row[column] : null;
+                switch (type) {
+                    case TYPE_INT:
+                        dOut.writeInt((value == null) ? 0 : Integer.parseInt(value));
+                        break;
+                    case TYPE_LONG:
+                        dOut.writeLong((value == null) ? 0L : Long.parseLong(value));
+                        break;
+                    default:
+                        if (value != null) {
+                            dOut.writeUTF(value);
+                        }
+                }
+            }
+        }
+        dOut.flush();
+    }
+
+    /**
+     * Get the type a column is stored with. Numeric types are only used in case every value of the column is
+     * written exactly the way the number would be turned into a string, so reading the value as string returns the
+     * same text as the regular table.
+     *
+     * @param rows   the rows of the table
+     * @param column the index of the column
+     * @return the type of the column
+     */
+    private static byte getColumnType(@Nonnull final List<String[]> rows, final int column) {
+        boolean fitsInt = true;
+        for (final String[] row : rows) {
+            if (column >= row.length) {
+                continue;
+            }
+            final String value = row[column];
+            try {
+                final long longValue = Long.parseLong(value);
+                if (!Long.toString(longValue).equals(value)) {
+                    return TYPE_STRING;
+                }
+                if ((longValue < Integer.MIN_VALUE) || (longValue > Integer.MAX_VALUE)) {
+                    fitsInt = false;
+                }
+            } catch (@Nonnull final NumberFormatException e) {
+                return TYPE_STRING;
+            }
+        }
+        return fitsInt ? TYPE_INT : TYPE_LONG;
+    }
+}
@@ -23,12 +23,19 @@ import javax.annotation.Nullable;
 import javax.crypto.*;
 import java.io.*;
 import java.security.*;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Class to handle the encryption of the files that are stored by the client.
  * The encryption created by this class bases on a private and a public key.
+ * <p/>
+ * Decrypting is done by streams that use their own cipher instances, so any
+ * amount of resources can be decrypted at the same time. The buffers of those
+ * streams are shared using a small pool.
  *
  * @author Nop
  * @author Martin Karing &lt;nitram@illarion.org&gt;
@@ -65,6 +72,34 @@ public final class Crypto {
      */
     private static final String RSA = "RSA"; //$NON-NLS-1$
 
+    /**
+     * The size of the buffers used to decrypt and encrypt the data.
+     */
+    private static final int BUFFER_SIZE = 16384;
+
+    /**
+     * The maximal amount of buffers kept in the pool.
+     */
+    private static final int MAX_POOLED_BUFFERS = 8;
+
+    /**
+     * The buffers that are currently not used by any stream.
+     */
+    @Nonnull
+    private static final Queue<byte[]> BUFFER_POOL = new ConcurrentLinkedQueue<byte[]>();
+
+    /**
+     * The amount of bytes decrypted so far.
+     */
+    @Nonnull
+    private static final AtomicLong DECRYPTED_BYTES = new AtomicLong();
+
+    /**
+     * The time spent on decrypting data so far in nanoseconds.
+     */
+    @Nonnull
+    private static final AtomicLong DECRYPTION_TIME = new AtomicLong();
+
     /**
      * The private key instance that was loaded into the this class.
      */
@@ -88,14 +123,61 @@ public final class Crypto {
     @SuppressWarnings("nls")
     public boolean decrypt(final InputStream src, @Nonnull final OutputStream dst) {
         try {
-            final DataInputStream in = new DataInputStream(src);
-            final int length = in.readInt();
-            final byte[] wrappedKey = new byte[length];
-            int readPos = 0;
-            while (readPos < length) {
-                readPos += in.read(wrappedKey, readPos, length - readPos);
+            final DecryptingInputStream in = openDecryptingStream(src);
+            final byte[] buffer = acquireBuffer();
+            try {
+                int read = in.read(buffer);
+                while (read > -1) {
+                    dst.write(buffer, 0, read);
+                    read = in.read(buffer);
+                }
+                dst.flush();
+            } finally {
+                releaseBuffer(buffer);
+                in.release();
             }
+        } catch (@Nonnull final Exception e) {
+            LOGGER.log(Level.SEVERE, "Decryping the resource failed.", e);
+            return false;
+        }
+        return true;
+    }
 
+    /**
+     * Decrypt a input stream using the public key used by this class. The
+     * wrapped key at the start of the stream is read right away, the data is
+     * decrypted while its read from the returned stream. Closing the returned
+     * stream closes the source stream as well.
+     *
+     * @param src the input stream
+     * @return the input stream that supplies the decrypted data
+     * @throws IOException in case reading the key fails or the key is invalid
+     */
+    @Nonnull
+    public InputStream decryptedStream(@Nonnull final InputStream src) throws IOException {
+        return openDecryptingStream(src);
+    }
+
+    /**
+     * Read the wrapped key from the start of a stream and create the stream
+     * that decrypts the data following the key.
+     *
+     * @param src the input stream
+     * @return the decrypting stream
+     * @throws IOException in case reading the key fails or the key is invalid
+     */
+    @Nonnull
+    @SuppressWarnings("nls")
+    private DecryptingInputStream openDecryptingStream(@Nonnull final InputStream src) throws IOException {
+        final DataInputStream in = new DataInputStream(src);
+        final int length = in.readInt();
+        if (length <= 0) {
+            throw new IOException("Invalid length of the wrapped key: " + length);
+        }
+        final byte[] wrappedKey = new byte[length];
+        in.readFully(wrappedKey);
+
+        try {
             // unwrap with RSA key
             Cipher cipher = Cipher.getInstance(RSA);
             cipher.init(Cipher.UNWRAP_MODE, publicKey);
@@ -104,33 +186,56 @@ public final class Crypto {
             // decode data
             cipher = Cipher.getInstance(CRYPTMODE);
             cipher.init(Cipher.DECRYPT_MODE, key);
-
-            pumpData(in, dst, cipher);
-        } catch (@Nonnull final Exception e) {
-            LOGGER.log(Level.SEVERE, "Decryping the resource failed.", e);
-            return false;
+            return new DecryptingInputStream(src, cipher);
+        } catch (@Nonnull final GeneralSecurityException e) {
+            throw new IOException("Unwrapping the key failed.", e);
         }
-        return true;
     }
 
     /**
-     * Decrypt a input stream using the public key used by this class.
+     * Get the amount of bytes that were decrypted so far by all instances of
+     * this class.
      *
-     * @param src the input stream
-     * @return the input stream that supplies the descripted data
+     * @return the amount of decrypted bytes
+     */
+    public static long getDecryptedBytes() {
+        return DECRYPTED_BYTES.get();
+    }
+
+    /**
+     * Get the time spent on decrypting data so far by all instances of this
+     * class. This includes the time spent on reading the encrypted data.
+     *
+     * @return the time in nanoseconds
+     */
+    public static long getDecryptionTime() {
+        return DECRYPTION_TIME.get();
+    }
+
+    /**
+     * Get a buffer from the pool. A new buffer is created in case the pool
+     * is empty.
+     *
+     * @return the buffer
      */
     @Nonnull
-    @SuppressWarnings("nls")
-    public InputStream decryptedStream(final InputStream src) {
-        Cipher cipher = null;
-        try {
-            cipher = Cipher.getInstance(RSA);
-            cipher.init(Cipher.DECRYPT_MODE, publicKey);
-        } catch (@Nonnull final Exception e) {
-            LOGGER.log(Level.SEVERE, "Creating Cipher failed.", e);
+    private static byte[] acquireBuffer() {
+        @Nullable final byte[] buffer = BUFFER_POOL.poll();
+        if (buffer == null) {
+            return new byte[BUFFER_SIZE];
         }
+        return buffer;
+    }
 
-        return new CipherInputStream(src, cipher);
+    /**
+     * Return a buffer to the pool.
+     *
+     * @param buffer the buffer
+     */
+    private static void releaseBuffer(@Nonnull final byte[] buffer) {
+        if (BUFFER_POOL.size() < MAX_POOLED_BUFFERS) {
+            BUFFER_POOL.offer(buffer);
+        }
     }
 
     /**
@@ -395,29 +500,182 @@ public final class Crypto {
      */
     private static void pumpData(@Nonnull final InputStream in, @Nonnull final OutputStream out,
                                  @Nonnull final Cipher cipher) throws IOException, GeneralSecurityException {
-        final int blockSize = cipher.getBlockSize();
-        final int outputSize = cipher.getOutputSize(blockSize);
-        final byte[] inBytes = new byte[blockSize];
-        byte[] outBytes = new byte[outputSize];
-
-        int inLength = 0;
-        boolean more = true;
-        while (more) {
-            inLength = in.read(inBytes);
-            if (inLength == blockSize) {
-                final int outLength =
-                        cipher.update(inBytes, 0, blockSize, outBytes);
+        final byte[] inBytes = acquireBuffer();
+        try {
+            final int maxRead = BUFFER_SIZE - (2 * cipher.getBlockSize());
+            byte[] outBytes = new byte[cipher.getOutputSize(maxRead)];
+            int inLength = in.read(inBytes, 0, maxRead);
+            while (inLength > -1) {
+                final int outLength = cipher.update(inBytes, 0, inLength, outBytes);
                 out.write(outBytes, 0, outLength);
-            } else {
-                more = false;
+                inLength = in.read(inBytes, 0, maxRead);
             }
-        }
-        if (inLength > 0) {
-            outBytes = cipher.doFinal(inBytes, 0, inLength);
-        } else {
             outBytes = cipher.doFinal();
+            out.write(outBytes);
+            out.flush();
+        } finally {
+            releaseBuffer(inBytes);
+        }
+    }
+
+    /**
+     * This stream decrypts the data of a source stream while its read. The
+     * buffers of the stream are taken from the pool and returned once the
+     * stream is closed.
+     */
+    private static final class DecryptingInputStream extends InputStream {
+        /**
+         * The stream that supplies the encrypted data.
+         */
+        @Nonnull
+        private final InputStream source;
+
+        /**
+         * The cipher that decrypts the data. This instance is only used by
+         * this stream.
+         */
+        @Nonnull
+        private final Cipher cipher;
+
+        /**
+         * The buffer that receives the encrypted data or {@code null} once
+         * the stream is closed.
+         */
+        @Nullable
+        private byte[] inBuffer;
+
+        /**
+         * The buffer that holds the decrypted data or {@code null} once the
+         * stream is closed.
+         */
+        @Nullable
+        private byte[] outBuffer;
+
+        /**
+         * The position of the next byte in the output buffer.
+         */
+        private int outPos;
+
+        /**
+         * The amount of valid bytes in the output buffer.
+         */
+        private int outLimit;
+
+        /**
+         * This flag is {@code true} once the source stream is read
+         * completely.
+         */
+        private boolean finished;
+
+        /**
+         * The amount of bytes decrypted by this stream.
+         */
+        private long decryptedBytes;
+
+        /**
+         * The time spent by this stream on decrypting in nanoseconds.
+         */
+        private long decryptionTime;
+
+        /**
+         * Create a new decrypting stream.
+         *
+         * @param source the stream that supplies the encrypted data
+         * @param cipher the cipher that decrypts the data
+         */
+        DecryptingInputStream(@Nonnull final InputStream source, @Nonnull final Cipher cipher) {
+            this.source = source;
+            this.cipher = cipher;
+            inBuffer = acquireBuffer();
+            outBuffer = acquireBuffer();
+        }
+
+        /**
+         * Decrypt the next chunk of data.
+         *
+         * @return {@code false} in case the end of the data is reached
+         * @throws IOException in case reading or decrypting the data failed
+         */
+        private boolean fill() throws IOException {
+            if ((inBuffer == null) || (outBuffer == null)) {
+                throw new IOException("Stream closed");
+            }
+            final long start = System.nanoTime();
+            try {
+                while (!finished) {
+                    final int read = source.read(inBuffer, 0, BUFFER_SIZE - (2 * cipher.getBlockSize()));
+                    if (read == -1) {
+                        finished = true;
+                        outLimit = cipher.doFinal(outBuffer, 0);
+                    } else {
+                        outLimit = cipher.update(inBuffer, 0, read, outBuffer, 0);
+                    }
+                    outPos = 0;
+                    if (outLimit > 0) {
+                        decryptedBytes += outLimit;
+                        return true;
+                    }
+                }
+                return false;
+            } catch (@Nonnull final GeneralSecurityException e) {
+                throw new IOException("Decrypting the data failed.", e);
+            } finally {
+                decryptionTime += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            if ((outPos >= outLimit) && !fill()) {
+                return -1;
+            }
+            assert outBuffer != null;
+            return outBuffer[outPos++] & 0xFF;
+        }
+
+        @Override
+        public int read(@Nonnull final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if ((outPos >= outLimit) && !fill()) {
+                return -1;
+            }
+            assert outBuffer != null;
+            final int count = Math.min(len, outLimit - outPos);
+            System.arraycopy(outBuffer, outPos, b, off, count);
+            outPos += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return outLimit - outPos;
+        }
+
+        @Override
+        public void close() throws IOException {
+            release();
+            source.close();
+        }
+
+        /**
+         * Return the buffers of this stream to the pool and record the
+         * throughput of this stream. The source stream remains open.
+         */
+        void release() {
+            if (inBuffer != null) {
+                releaseBuffer(inBuffer);
+                inBuffer = null;
+            }
+            if (outBuffer != null) {
+                releaseBuffer(outBuffer);
+                outBuffer = null;
+                outPos = 0;
+                outLimit = 0;
+                DECRYPTED_BYTES.addAndGet(decryptedBytes);
+                DECRYPTION_TIME.addAndGet(decryptionTime);
+            }
         }
-        out.write(outBytes);
-        out.flush();
     }
 }
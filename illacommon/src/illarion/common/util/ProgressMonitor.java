@@ -32,8 +32,9 @@ import java.util.List;
 public final class ProgressMonitor {
     /**
      * The progress of this monitor. This value does not apply in case there are any children applied to this class.
+     * The value is volatile, because the progress is usually reported by a different thread than the one that reads it.
      */
-    private float progress;
+    private volatile float progress;
 
     /**
      * The weight of this loading operation. This applies in case this monitor is a child to another progress monitor,
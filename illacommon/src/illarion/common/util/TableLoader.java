@@ -21,7 +21,9 @@ package illarion.common.util;
 import org.apache.log4j.Logger;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.*;
+import java.net.URL;
 import java.util.ArrayList;
 
 /**
@@ -29,6 +31,12 @@ import java.util.ArrayList;
  * NDSC table type that is created by the config tool. The data is tokenized and
  * distributed to a callback class that is allowed to parse the values by the
  * functions offered by this class line by line.
+ * <p/>
+ * Tables that are load from the resources are read from their {@link CompiledTable} in case the resources contain
+ * one. In this case the values are not tokenized at all and the numeric values are read without parsing them.
+ * <p/>
+ * In case a {@link TableSnapshot} is set, the tables are read from the snapshot as long as the resources did not
+ * change. Tables that are not found in the snapshot are added to it.
  *
  * @author Nop
  * @author Martin Karing &lt;nitram@illarion.org&gt;
@@ -46,6 +54,13 @@ public class TableLoader {
      */
     private static Crypto crypto;
 
+    /**
+     * The snapshot the tables load from the resources are cached in or {@code null} in case the tables are not
+     * cached.
+     */
+    @Nullable
+    private static TableSnapshot snapshot;
+
     /**
      * The error and debug logger of the client.
      */
@@ -62,6 +77,17 @@ public class TableLoader {
     @Nonnull
     private final ArrayList<String> tokens;
 
+    /**
+     * The compiled table that is currently read or {@code null} in case the table is tokenized.
+     */
+    @Nullable
+    private CompiledTable compiledTable;
+
+    /**
+     * The row of the compiled table that is currently read.
+     */
+    private int compiledRow;
+
     /**
      * Construct a table loader that loads the table from the file system. With
      * this constructor the table loader takes a <code>,</code> as delimiter.
@@ -150,6 +176,20 @@ public class TableLoader {
         }
     }
 
+    /**
+     * Read a table that was compiled already. The rows of the table are handed to the callback the same way the rows
+     * of a regular table are.
+     *
+     * @param table    the compiled table
+     * @param callback the call back class that is allowed to parse the values
+     *                 this table loader reads
+     */
+    public <T extends TableLoader> TableLoader(@Nonnull final CompiledTable table,
+                                               @Nonnull final TableLoaderSink<T> callback) {
+        this(table.getDelimiter());
+        readCompiledTable(table, callback);
+    }
+
     /**
      * Load a table from the jar file resources. The table needs to be in the
      * {@link #DATA_DIR} and its file name ending is <code>.dat</code>. The file
@@ -173,23 +213,42 @@ public class TableLoader {
                                                @Nonnull final TableLoaderSink<T> callback, final String tableDelim) {
         this(tableDelim);
 
+        final ClassLoader classLoader = getClass().getClassLoader();
+        @Nullable final URL compiledResource = classLoader.getResource(DATA_DIR + table + CompiledTable.EXTENSION);
+        if ((compiledResource != null) && loadCompiledTable(table, compiledResource, ndsc, callback)) {
+            return;
+        }
+
         // read table via class loader
-        final InputStream rsc =
-                getClass().getClassLoader().getResourceAsStream(
-                        DATA_DIR + table + ".dat");
-        if (rsc == null) {
+        @Nullable final URL resource = classLoader.getResource(DATA_DIR + table + ".dat");
+        if (resource == null) {
             throw new NoResourceException("Missing table " + table);
         }
+
+        final String snapshotName = DATA_DIR + table + ".dat";
+        final long checksum = getSnapshotChecksum(resource);
+        @Nullable final TableSnapshot currentSnapshot = snapshot;
+        if (currentSnapshot != null) {
+            @Nullable final CompiledTable cachedTable = currentSnapshot.getTable(snapshotName, checksum);
+            if ((cachedTable != null) && cachedTable.isCompiledWith(ndsc, delim)) {
+                readCompiledTable(cachedTable, callback);
+                return;
+            }
+        }
+
         try {
-            // decode data
-            final ByteArrayOutputStream dst = new ByteArrayOutputStream(1000);
-            crypto.decrypt(rsc, dst);
-            rsc.close();
-
-            // load data
-            final InputStream decryptedStream =
-                    new ByteArrayInputStream(dst.toByteArray());
-            loadTable(decryptedStream, ndsc, callback);
+            // decode data while its read
+            final InputStream decryptedStream = crypto.decryptedStream(resource.openStream());
+
+            if ((currentSnapshot != null) && (checksum != TableSnapshot.NO_CHECKSUM)) {
+                final byte[] decryptedData = readFully(decryptedStream);
+                final ByteArrayOutputStream compiledData = new ByteArrayOutputStream(decryptedData.length);
+                CompiledTable.compile(new ByteArrayInputStream(decryptedData), ndsc, delim, compiledData);
+                currentSnapshot.putTable(snapshotName, checksum, compiledData.toByteArray());
+                loadTable(new ByteArrayInputStream(decryptedData), ndsc, callback);
+            } else {
+                loadTable(decryptedStream, ndsc, callback);
+            }
         } catch (@Nonnull final IOException e) {
             LOGGER.error("Error reading table " + table, e);
             throw new NoResourceException("Error reading table " + table);
@@ -240,6 +299,41 @@ public class TableLoader {
         crypto = newCrypto;
     }
 
+    /**
+     * Set the snapshot that is used to cache the tables that are load from the
+     * resources. The snapshot needs to be set before the first table is load.
+     *
+     * @param newSnapshot the snapshot or {@code null} to disable caching
+     */
+    public static void setSnapshot(@Nullable final TableSnapshot newSnapshot) {
+        snapshot = newSnapshot;
+    }
+
+    /**
+     * Get the snapshot that is used to cache the tables that are load from
+     * the resources.
+     *
+     * @return the snapshot or {@code null} in case the tables are not cached
+     */
+    @Nullable
+    public static TableSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Get the checksum of a resource in case a snapshot is used.
+     *
+     * @param resource the resource
+     * @return the checksum or {@link TableSnapshot#NO_CHECKSUM} in case there is no snapshot or the resource can't
+     *         be cached
+     */
+    private static long getSnapshotChecksum(@Nonnull final URL resource) {
+        if (snapshot == null) {
+            return TableSnapshot.NO_CHECKSUM;
+        }
+        return TableSnapshot.getChecksum(resource);
+    }
+
     /**
      * Return the string representation of a token that was read in the last
      * line with a given index.
@@ -249,6 +343,13 @@ public class TableLoader {
      */
     @SuppressWarnings("nls")
     public String get(final int index) {
+        if (compiledTable != null) {
+            if (index < compiledTable.getRowLength(compiledRow)) {
+                return compiledTable.getString(compiledRow, index);
+            }
+            LOGGER.error("Missing element in line " + compiledRow + " of the compiled table");
+            return "<missing>";
+        }
         if (index < tokens.size()) {
             return tokens.get(index);
         }
@@ -268,6 +369,10 @@ public class TableLoader {
      */
     @SuppressWarnings("nls")
     public boolean getBoolean(final int index) {
+        if (isCompiledValue(index)) {
+            assert compiledTable != null;
+            return compiledTable.getBoolean(compiledRow, index);
+        }
         final String tokenValue = get(index);
         return !tokenValue.equals("0");
     }
@@ -280,6 +385,10 @@ public class TableLoader {
      * @return the integer value of the token
      */
     public int getInt(final int index) {
+        if (isCompiledValue(index)) {
+            assert compiledTable != null;
+            return compiledTable.getInt(compiledRow, index);
+        }
         final String tokenValue = get(index);
         return Integer.parseInt(tokenValue);
     }
@@ -292,6 +401,10 @@ public class TableLoader {
      * @return the long value of the token
      */
     public long getLong(final int index) {
+        if (isCompiledValue(index)) {
+            assert compiledTable != null;
+            return compiledTable.getLong(compiledRow, index);
+        }
         final String tokenValue = get(index);
         return Long.parseLong(tokenValue);
     }
@@ -307,6 +420,128 @@ public class TableLoader {
         return get(index);
     }
 
+    /**
+     * Check if a value of the current line can be read from the compiled table.
+     *
+     * @param index the index of the value
+     * @return {@code true} in case a compiled table is read and the current line contains the value
+     */
+    private boolean isCompiledValue(final int index) {
+        return (compiledTable != null) && (index < compiledTable.getRowLength(compiledRow));
+    }
+
+    /**
+     * Get the amount of tokens in the current line.
+     *
+     * @return the amount of tokens
+     */
+    int getTokenCount() {
+        if (compiledTable != null) {
+            return compiledTable.getRowLength(compiledRow);
+        }
+        return tokens.size();
+    }
+
+    /**
+     * Load the compiled version of a table from the resources or the snapshot. The compiled table is only used in
+     * case it was compiled with the same settings.
+     *
+     * @param table    the name of the table
+     * @param resource the resource of the compiled table
+     * @param ndsc     true in case the table is a NDSC table
+     * @param callback the callback class that is allowed to parse the values this table loader reads
+     * @return {@code true} in case the compiled table was read, {@code false} in case the regular table needs to be
+     *         read
+     */
+    private <T extends TableLoader> boolean loadCompiledTable(final String table, @Nonnull final URL resource,
+                                                              final boolean ndsc,
+                                                              @Nonnull final TableLoaderSink<T> callback) {
+        final String snapshotName = DATA_DIR + table + CompiledTable.EXTENSION;
+        final long checksum = getSnapshotChecksum(resource);
+        @Nullable final TableSnapshot currentSnapshot = snapshot;
+        @Nullable CompiledTable compiled = null;
+        if (currentSnapshot != null) {
+            compiled = currentSnapshot.getTable(snapshotName, checksum);
+        }
+
+        if (compiled == null) {
+            InputStream rsc = null;
+            try {
+                rsc = crypto.decryptedStream(resource.openStream());
+                if ((currentSnapshot != null) && (checksum != TableSnapshot.NO_CHECKSUM)) {
+                    final byte[] compiledData = readFully(rsc);
+                    compiled = new CompiledTable(new ByteArrayInputStream(compiledData));
+                    currentSnapshot.putTable(snapshotName, checksum, compiledData);
+                } else {
+                    compiled = new CompiledTable(rsc);
+                }
+            } catch (@Nonnull final IOException e) {
+                LOGGER.warn("Error reading compiled table " + table, e);
+                return false;
+            } finally {
+                try {
+                    if (rsc != null) {
+                        rsc.close();
+                    }
+                } catch (@Nonnull final IOException e) {
+                    LOGGER.error("Unable to close compiled table " + table, e);
+                }
+            }
+        }
+        if (!compiled.isCompiledWith(ndsc, delim)) {
+            return false;
+        }
+
+        readCompiledTable(compiled, callback);
+        return true;
+    }
+
+    /**
+     * Read all data from a stream and close it.
+     *
+     * @param in the stream
+     * @return the data read from the stream
+     * @throws IOException in case reading the stream fails
+     */
+    @Nonnull
+    private static byte[] readFully(@Nonnull final InputStream in) throws IOException {
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(16384);
+            final byte[] buffer = new byte[4096];
+            int read = in.read(buffer);
+            while (read > -1) {
+                out.write(buffer, 0, read);
+                read = in.read(buffer);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Hand all rows of a compiled table to the callback.
+     *
+     * @param compiled the compiled table
+     * @param callback the callback class that is allowed to parse the values this table loader reads
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends TableLoader> void readCompiledTable(@Nonnull final CompiledTable compiled,
+                                                           @Nonnull final TableLoaderSink<T> callback) {
+        compiledTable = compiled;
+        try {
+            final int rowCount = compiled.getRowCount();
+            for (int row = 0; row < rowCount; row++) {
+                compiledRow = row;
+                if (!callback.processRecord(row, (T) this)) {
+                    break;
+                }
+            }
+        } finally {
+            compiledTable = null;
+        }
+    }
+
     /**
      * Load a table from the stream and close the ressource stream after the
      * reading operations.
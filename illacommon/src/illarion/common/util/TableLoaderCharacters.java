@@ -133,6 +133,11 @@ public final class TableLoaderCharacters extends TableLoader {
         super(table, ndsc, callback, tableDelim);
     }
 
+    public TableLoaderCharacters(@Nonnull final CompiledTable table,
+                                 @Nonnull final TableLoaderSink<TableLoaderCharacters> callback) {
+        super(table, callback);
+    }
+
     /**
      * Get the ID of this avatar.
      *
@@ -175,6 +175,11 @@ public final class TableLoaderItems extends TableLoader {
         super(resource, true, callback, ",");
     }
 
+    public TableLoaderItems(@Nonnull final CompiledTable table,
+                            @Nonnull final TableLoaderSink<TableLoaderItems> callback) {
+        super(table, callback);
+    }
+
     /**
      * Get the speed of the animation of this item.
      *
@@ -113,6 +113,11 @@ public final class TableLoaderTiles extends TableLoader {
         super(table, ndsc, callback, tableDelim);
     }
 
+    public TableLoaderTiles(@Nonnull final CompiledTable table,
+                            @Nonnull final TableLoaderSink<TableLoaderTiles> callback) {
+        super(table, callback);
+    }
+
     /**
      * Get the animation speed of this item.
      *
@@ -0,0 +1,317 @@
+/*
+ * This file is part of the Illarion Common Library.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Common Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Common Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Common Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.common.util;
+
+import org.apache.log4j.Logger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.*;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.zip.CRC32;
+
+/**
+ * This is a local cache of the decrypted and compiled resource tables. The snapshot is stored in a single file that
+ * is read at once at startup. Tables found in the snapshot are neither decrypted nor parsed again.
+ * <p />
+ * Every table in the snapshot is stored along with the checksum of the resource it was created from. The checksum
+ * is taken from the entry of the resource jar that contains the table, so a changed resource jar invalidates the
+ * tables stored for it and those tables are read from the jar again. Tables that are not stored in a jar file are
+ * never cached.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+@ThreadSafe
+public final class TableSnapshot {
+    /**
+     * The value that marks the value of a resource that can't be cached.
+     */
+    public static final long NO_CHECKSUM = -1L;
+
+    /**
+     * The value at the start of the snapshot file.
+     */
+    private static final int MAGIC = 0x494C5453;
+
+    /**
+     * The version of the snapshot format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The logger that provides the logging output of this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(TableSnapshot.class);
+
+    /**
+     * The file the snapshot is stored in.
+     */
+    @Nonnull
+    private final File file;
+
+    /**
+     * The tables that were read from the snapshot file and were not requested yet.
+     */
+    @Nonnull
+    private final Map<String, Entry> storedTables;
+
+    /**
+     * The tables that were requested or added during this session. Only those tables are written back to the file.
+     */
+    @Nonnull
+    private final Map<String, Entry> usedTables;
+
+    /**
+     * This flag is {@code true} in case the snapshot changed and needs to be written to the file.
+     */
+    private boolean changed;
+
+    /**
+     * Create a new snapshot and read the tables from the snapshot file. In case the file is missing or broken, the
+     * snapshot starts empty.
+     *
+     * @param file the file the snapshot is stored in
+     */
+    public TableSnapshot(@Nonnull final File file) {
+        this.file = file;
+        storedTables = new HashMap<String, Entry>();
+        usedTables = new HashMap<String, Entry>();
+
+        if (file.isFile()) {
+            try {
+                read();
+            } catch (@Nonnull final IOException e) {
+                LOGGER.warn("Table snapshot is invalid and will be rebuild.", e);
+                storedTables.clear();
+                changed = true;
+            }
+        }
+    }
+
+    /**
+     * Get the checksum of a resource. The checksum is calculated from the CRC value and the size that is stored for
+     * the resource in the jar file. Fetching it only requires the directory of the jar file.
+     *
+     * @param resource the URL of the resource
+     * @return the checksum or {@link #NO_CHECKSUM} in case the resource is not stored in a jar file
+     */
+    public static long getChecksum(@Nonnull final URL resource) {
+        if (!"jar".equals(resource.getProtocol())) {
+            return NO_CHECKSUM;
+        }
+        try {
+            final URLConnection connection = resource.openConnection();
+            if (!(connection instanceof JarURLConnection)) {
+                return NO_CHECKSUM;
+            }
+            @Nullable final JarEntry entry = ((JarURLConnection) connection).getJarEntry();
+            if ((entry == null) || (entry.getCrc() == -1L) || (entry.getSize() == -1L)) {
+                return NO_CHECKSUM;
+            }
+            return (entry.getCrc() << 32) | (entry.getSize() & 0xFFFFFFFFL);
+        } catch (@Nonnull final IOException e) {
+            return NO_CHECKSUM;
+        }
+    }
+
+    /**
+     * Get a table from the snapshot.
+     *
+     * @param name     the name of the table
+     * @param checksum the checksum of the resource the table is read from
+     * @return the table or {@code null} in case the snapshot does not contain the table or the checksum does not
+     *         match
+     */
+    @Nullable
+    public synchronized CompiledTable getTable(@Nonnull final String name, final long checksum) {
+        if (checksum == NO_CHECKSUM) {
+            return null;
+        }
+        @Nullable final Entry entry = storedTables.remove(name);
+        if ((entry == null) || (entry.checksum != checksum)) {
+            return null;
+        }
+        try {
+            final CompiledTable table = new CompiledTable(new ByteArrayInputStream(entry.data));
+            usedTables.put(name, entry);
+            return table;
+        } catch (@Nonnull final IOException e) {
+            LOGGER.warn("Table " + name + " in the snapshot is invalid.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Store a table in the snapshot.
+     *
+     * @param name     the name of the table
+     * @param checksum the checksum of the resource the table was read from
+     * @param data     the compiled table
+     */
+    public synchronized void putTable(@Nonnull final String name, final long checksum, @Nonnull final byte[] data) {
+        if (checksum == NO_CHECKSUM) {
+            return;
+        }
+        storedTables.remove(name);
+        usedTables.put(name, new Entry(checksum, data));
+        changed = true;
+    }
+
+    /**
+     * Write the snapshot to its file in case it changed. The file is replaced at once, so a interrupted write does
+     * not leave a broken snapshot behind.
+     */
+    public synchronized void save() {
+        if (!changed && storedTables.isEmpty()) {
+            return;
+        }
+
+        final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        final DataOutputStream payloadOut = new DataOutputStream(payload);
+        try {
+            payloadOut.writeInt(usedTables.size());
+            for (final Map.Entry<String, Entry> table : usedTables.entrySet()) {
+                payloadOut.writeUTF(table.getKey());
+                payloadOut.writeLong(table.getValue().checksum);
+                payloadOut.writeInt(table.getValue().data.length);
+                payloadOut.write(table.getValue().data);
+            }
+            payloadOut.flush();
+        } catch (@Nonnull final IOException e) {
+            LOGGER.error("Failed to build the table snapshot.", e);
+            return;
+        }
+
+        final byte[] payloadData = payload.toByteArray();
+        final CRC32 crc = new CRC32();
+        crc.update(payloadData);
+
+        final File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(crc.getValue());
+            out.writeInt(payloadData.length);
+            out.write(payloadData);
+            out.close();
+            out = null;
+
+            if (file.exists() && !file.delete()) {
+                LOGGER.warn("Failed to remove the old table snapshot.");
+            }
+            if (!tempFile.renameTo(file)) {
+                LOGGER.warn("Failed to store the table snapshot.");
+                return;
+            }
+            storedTables.clear();
+            changed = false;
+        } catch (@Nonnull final IOException e) {
+            LOGGER.error("Failed to write the table snapshot.", e);
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (@Nonnull final IOException ignored) {
+                    // nothing to do
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the snapshot file. The whole file is read at once and verified before any table is taken from it. The
+     * file is not mapped, because a mapped file can't be replaced on some systems until the mapping is collected.
+     *
+     * @throws IOException in case reading the file fails or the file is invalid
+     */
+    private void read() throws IOException {
+        final ByteBuffer buffer;
+        final RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            final byte[] fileData = new byte[(int) input.length()];
+            input.readFully(fileData);
+            buffer = ByteBuffer.wrap(fileData);
+        } finally {
+            input.close();
+        }
+
+        if ((buffer.remaining() < 20) || (buffer.getInt() != MAGIC) || (buffer.getInt() != VERSION)) {
+            throw new IOException("Snapshot header is invalid.");
+        }
+        final long expectedCrc = buffer.getLong();
+        final int payloadLength = buffer.getInt();
+        if ((payloadLength < 0) || (payloadLength != buffer.remaining())) {
+            throw new IOException("Snapshot is truncated.");
+        }
+
+        final byte[] payloadData = new byte[payloadLength];
+        buffer.get(payloadData);
+        final CRC32 crc = new CRC32();
+        crc.update(payloadData);
+        if (crc.getValue() != expectedCrc) {
+            throw new IOException("Snapshot checksum does not match.");
+        }
+
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(payloadData));
+        final int tableCount = in.readInt();
+        for (int i = 0; i < tableCount; i++) {
+            final String name = in.readUTF();
+            final long checksum = in.readLong();
+            final byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+            storedTables.put(name, new Entry(checksum, data));
+        }
+    }
+
+    /**
+     * This is a table stored in the snapshot.
+     */
+    private static final class Entry {
+        /**
+         * The checksum of the resource the table was read from.
+         */
+        private final long checksum;
+
+        /**
+         * The compiled table.
+         */
+        @Nonnull
+        private final byte[] data;
+
+        /**
+         * Create a new entry.
+         *
+         * @param checksum the checksum of the resource
+         * @param data     the compiled table
+         */
+        Entry(final long checksum, @Nonnull final byte[] data) {
+            this.checksum = checksum;
+            this.data = data;
+        }
+    }
+}
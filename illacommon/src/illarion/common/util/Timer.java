@@ -57,8 +57,26 @@ public final class Timer {
     /**
      * This is the next timer in the list. This variable is used to implement a linked list the timers are stored with.
      */
+    @Nullable
     private Timer nextTimer;
 
+    /**
+     * This is the previous timer in the list. Together with {@link #nextTimer} it allows to remove the timer from the
+     * list without searching it.
+     */
+    @Nullable
+    private Timer previousTimer;
+
+    /**
+     * The index of the bucket of the timer queue that stores this timer or {@code -1} in case the timer is not queued.
+     */
+    private int bucket = -1;
+
+    /**
+     * The tick of the timer queue this timer is supposed to be called at.
+     */
+    private long deadlineTick;
+
     /**
      * The repeat flag. When set to {@code true} the timer will call the events more then just once.
      */
@@ -244,10 +262,39 @@ public final class Timer {
      *
      * @return the next timer
      */
+    @Nullable
     Timer getNextTimer() {
         return nextTimer;
     }
 
+    /**
+     * Get the previous timer in the list.
+     *
+     * @return the previous timer
+     */
+    @Nullable
+    Timer getPreviousTimer() {
+        return previousTimer;
+    }
+
+    /**
+     * Get the index of the bucket of the timer queue this timer is stored in.
+     *
+     * @return the index of the bucket or {@code -1} in case the timer is not queued
+     */
+    int getBucket() {
+        return bucket;
+    }
+
+    /**
+     * Get the tick of the timer queue this timer is supposed to be called at.
+     *
+     * @return the tick
+     */
+    long getDeadlineTick() {
+        return deadlineTick;
+    }
+
     /**
      * Fire a event of this timer. This function is only expected to be called
      * by the timer queue. Calling this will result in all listeners to receive
@@ -276,4 +323,31 @@ public final class Timer {
     void setNextTimer(@Nullable final Timer next) {
         nextTimer = next;
     }
+
+    /**
+     * Set the previous timer in list of timers.
+     *
+     * @param previous the previous timer in the list
+     */
+    void setPreviousTimer(@Nullable final Timer previous) {
+        previousTimer = previous;
+    }
+
+    /**
+     * Set the bucket of the timer queue this timer is stored in.
+     *
+     * @param index the index of the bucket or {@code -1} in case the timer is not queued
+     */
+    void setBucket(final int index) {
+        bucket = index;
+    }
+
+    /**
+     * Set the tick of the timer queue this timer is supposed to be called at.
+     *
+     * @param tick the tick
+     */
+    void setDeadlineTick(final long tick) {
+        deadlineTick = tick;
+    }
 }
@@ -20,30 +20,85 @@ package illarion.common.util;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * This class is the timer queue that stores all instances of timers and regularly calls this instances from a single
  * thread.
+ * <p />
+ * The timers are stored in a hashed timing wheel. The time is split into ticks of a fixed length and each tick maps
+ * to one bucket of the wheel. A timer is stored in the bucket of the tick it expires at, so adding and removing a
+ * timer does not depend on the amount of queued timers. All timers that expire during the same tick are called with
+ * a single wakeup of the thread and the thread sleeps until the next tick that holds a timer.
+ * <p />
+ * The length of a tick is read from the system property {@code illarion.common.timer.tick} in milliseconds.
  *
  * @author Martin Karing &lt;nitram@illarion.org&gt;
  */
 public final class TimerQueue
         implements Runnable {
+    /**
+     * The name of the system property that stores the length of a tick in milliseconds.
+     */
+    @SuppressWarnings("nls")
+    private static final String TICK_PROPERTY = "illarion.common.timer.tick";
+
+    /**
+     * The default length of a tick in milliseconds.
+     */
+    private static final int DEFAULT_TICK = 10;
+
+    /**
+     * The amount of buckets of the wheel. This has to be a power of two.
+     */
+    private static final int WHEEL_SIZE = 512;
+
+    /**
+     * The mask used to get the bucket of a tick.
+     */
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
     /**
      * The singleton instance of this timer queue.
      */
     private static final TimerQueue INSTANCE = new TimerQueue();
 
     /**
-     * The list of timers handled by this queue.
+     * The first timer of each bucket of the wheel.
      */
-    private Timer firstTimer;
+    @GuardedBy("this")
+    @Nonnull
+    private final Timer[] buckets;
+
+    /**
+     * The length of a tick in milliseconds.
+     */
+    private final int tickLength;
+
+    /**
+     * The time the wheel started at.
+     */
+    private final long startTime;
+
+    /**
+     * The last tick that was processed.
+     */
+    @GuardedBy("this")
+    private long currentTick;
 
     /**
-     * The last timer in the list. This entry is needed to perform a high speed check if a timer is part of this queue.
+     * The tick the thread is waiting for. Adding a timer that expires before this tick wakes up the thread.
      */
-    @Nullable
-    private Timer lastTimer;
+    @GuardedBy("this")
+    private long wakeTick;
+
+    /**
+     * The amount of timers in the wheel.
+     */
+    @GuardedBy("this")
+    private int timerCount;
 
     /**
      * The running flag. This is set to {@code true} in case the thread that updates this queue is set in place and
@@ -55,9 +110,24 @@ public final class TimerQueue
      * Constructor for TimerQueue.
      */
     private TimerQueue() {
+        this(Integer.getInteger(TICK_PROPERTY, DEFAULT_TICK));
+    }
+
+    /**
+     * Create a timer queue with a specified tick length and start its thread. Outside of the singleton instance, this
+     * is only used by the tests.
+     *
+     * @param tick the length of a tick in milliseconds
+     */
+    TimerQueue(final int tick) {
         super();
         running = false;
 
+        buckets = new Timer[WHEEL_SIZE];
+        tickLength = Math.max(1, tick);
+        startTime = System.currentTimeMillis();
+        wakeTick = Long.MIN_VALUE;
+
         start();
     }
 
@@ -71,29 +141,51 @@ public final class TimerQueue
         return INSTANCE;
     }
 
+    /**
+     * Get the length of a tick.
+     *
+     * @return the length of a tick in milliseconds
+     */
+    int getTickLength() {
+        return tickLength;
+    }
+
+    /**
+     * Get the time the wheel started at. The ticks are counted from this time on.
+     *
+     * @return the start time in milliseconds
+     */
+    long getStartTime() {
+        return startTime;
+    }
+
     /**
      * The main loop of the timer queue. That functions constantly calls the timers based upon their settings.
      */
     @Override
     public void run() {
-
+        final List<Timer> expiredTimers = new ArrayList<Timer>();
         try {
             while (running) {
-                final long timeToWait = postExpiredTimers();
                 synchronized (this) {
-                    try {
-                        wait(timeToWait);
-                    } catch (@Nonnull final InterruptedException ie) {
-                        // nothing to do
+                    collectExpiredTimers(expiredTimers);
+                    if (expiredTimers.isEmpty()) {
+                        waitForNextTick();
+                        continue;
                     }
                 }
+                postExpiredTimers(expiredTimers);
             }
         } catch (@Nonnull final ThreadDeath td) {
             running = false;
 
             // remove all queued timers.
-            while (firstTimer != null) {
-                removeTimer(firstTimer);
+            synchronized (this) {
+                for (int i = 0; i < WHEEL_SIZE; i++) {
+                    while (buckets[i] != null) {
+                        removeTimer(buckets[i]);
+                    }
+                }
             }
             throw td;
         }
@@ -106,39 +198,31 @@ public final class TimerQueue
      * @param expirationTime the time stamp of the next time this timer is supposed to be called
      */
     void addTimer(@Nonnull final Timer timer, final long expirationTime) {
-
         synchronized (this) {
             // If the Timer is already in the queue, then ignore the add.
             if (containsTimer(timer)) {
                 return;
             }
 
-            Timer previousTimer = null;
-            Timer nextTimer = firstTimer;
-
-            while (nextTimer != null) {
-                if (nextTimer.getExpirationTime() > expirationTime) {
-                    break;
-                }
-
-                previousTimer = nextTimer;
-                nextTimer = nextTimer.getNextTimer();
-            }
-
-            if (previousTimer == null) {
-                firstTimer = timer;
-            } else {
-                previousTimer.setNextTimer(timer);
-            }
+            final long elapsed = expirationTime - startTime;
+            final long deadlineTick = Math.max(currentTick + 1, (elapsed + tickLength - 1) / tickLength);
+            final int bucket = (int) (deadlineTick & WHEEL_MASK);
 
+            final Timer nextTimer = buckets[bucket];
             timer.setExpirationTime(expirationTime);
+            timer.setDeadlineTick(deadlineTick);
+            timer.setBucket(bucket);
+            timer.setPreviousTimer(null);
             timer.setNextTimer(nextTimer);
-
-            if (nextTimer == null) {
-                lastTimer = timer;
+            if (nextTimer != null) {
+                nextTimer.setPreviousTimer(timer);
             }
+            buckets[bucket] = timer;
+            timerCount++;
 
-            notify();
+            if (deadlineTick < wakeTick) {
+                notify();
+            }
         }
     }
 
@@ -149,51 +233,84 @@ public final class TimerQueue
      * @return {@code true} in case the timer is in this timer queue
      */
     boolean containsTimer(@Nonnull final Timer timer) {
-        return timer.equals(firstTimer) || timer.equals(lastTimer) || (timer.getNextTimer() != null);
+        return timer.getBucket() != -1;
     }
 
     /**
-     * Send a update to all timers that are now supposed to be updated.
+     * Remove all timers from the wheel that expired until now. The ticks that passed since the last call are
+     * processed one after another.
      *
-     * @return the time in milliseconds to wait until the next call is needed
+     * @param expiredTimers the list that receives the expired timers
      */
-    long postExpiredTimers() {
-        long timeToWait;
-
-        do {
-            final Timer timer;
-            synchronized (this) {
-                timer = firstTimer;
-                try {
-                    wait(1);
-                } catch (@Nonnull final InterruptedException e) {
-                    // nothing to do
+    @GuardedBy("this")
+    private void collectExpiredTimers(@Nonnull final List<Timer> expiredTimers) {
+        final long nowTick = (System.currentTimeMillis() - startTime) / tickLength;
+        while ((currentTick < nowTick) && (timerCount > 0)) {
+            currentTick++;
+            Timer timer = buckets[(int) (currentTick & WHEEL_MASK)];
+            while (timer != null) {
+                final Timer nextTimer = timer.getNextTimer();
+                if (timer.getDeadlineTick() <= currentTick) {
+                    unlinkTimer(timer);
+                    expiredTimers.add(timer);
                 }
+                timer = nextTimer;
             }
+        }
+        if (currentTick < nowTick) {
+            currentTick = nowTick;
+        }
+    }
 
-            if (timer == null) {
-                return 0;
+    /**
+     * Wait until the next tick that holds a timer or until a timer is added that expires earlier.
+     */
+    @GuardedBy("this")
+    private void waitForNextTick() {
+        try {
+            if (timerCount == 0) {
+                wakeTick = Long.MAX_VALUE;
+                wait();
+            } else {
+                long nextTick = currentTick + 1;
+                while (buckets[(int) (nextTick & WHEEL_MASK)] == null) {
+                    nextTick++;
+                }
+                wakeTick = nextTick;
+                final long timeToWait = (startTime + (nextTick * tickLength)) - System.currentTimeMillis();
+                if (timeToWait > 0) {
+                    wait(timeToWait);
+                }
             }
+        } catch (@Nonnull final InterruptedException e) {
+            // nothing to do
+        } finally {
+            wakeTick = Long.MIN_VALUE;
+        }
+    }
 
-            final long currentTime = System.currentTimeMillis();
-            timeToWait = timer.getExpirationTime() - currentTime;
-
-            if (timeToWait <= 0) {
-                timer.post();
-
-                // Remove the timer from the queue
-                removeTimer(timer);
-
-                // This tries to keep the interval uniform at
-                // the cost of drift.
-                if (timer.isRepeats()) {
-                    addTimer(timer, currentTime + timer.getDelay());
+    /**
+     * Send a update to all timers that expired and queue the repeating timers again.
+     *
+     * @param expiredTimers the timers that expired, the list is cleared afterwards
+     */
+    private void postExpiredTimers(@Nonnull final List<Timer> expiredTimers) {
+        for (final Timer timer : expiredTimers) {
+            timer.post();
+
+            if (timer.isRepeats() && timer.isRunning()) {
+                // The next call is scheduled based on the expiration time to avoid that the delays of the queue add
+                // up. In case the timer is that late that it missed the next call already, it is scheduled based
+                // on the current time to avoid a burst of calls.
+                final long currentTime = System.currentTimeMillis();
+                long nextExpiration = timer.getExpirationTime() + timer.getDelay();
+                if (nextExpiration <= currentTime) {
+                    nextExpiration = currentTime + timer.getDelay();
                 }
-
+                addTimer(timer, nextExpiration);
             }
-        } while (timeToWait <= 0);
-
-        return timeToWait;
+        }
+        expiredTimers.clear();
     }
 
     /**
@@ -202,43 +319,38 @@ public final class TimerQueue
      * @param timer the timer to remove from the list
      */
     void removeTimer(@Nonnull final Timer timer) {
-
         synchronized (this) {
             if (!containsTimer(timer)) {
                 return;
             }
-
-            Timer previousTimer = null;
-            Timer nextTimer = firstTimer;
-            boolean found = false;
-
-            while (nextTimer != null) {
-                if (nextTimer == timer) {
-                    found = true;
-                    break;
-                }
-
-                previousTimer = nextTimer;
-                nextTimer = nextTimer.getNextTimer();
-            }
-
-            if (found) {
-                if (previousTimer == null) {
-                    firstTimer = timer.getNextTimer();
-                } else {
-                    previousTimer.setNextTimer(timer.getNextTimer());
-                }
-
-                if (timer.getNextTimer() == null) {
-                    lastTimer = previousTimer;
-                }
-            }
-
+            unlinkTimer(timer);
             timer.setExpirationTime(0L);
-            timer.setNextTimer(null);
         }
     }
 
+    /**
+     * Remove a timer from its bucket.
+     *
+     * @param timer the timer to remove, it has to be stored in the wheel
+     */
+    @GuardedBy("this")
+    private void unlinkTimer(@Nonnull final Timer timer) {
+        @Nullable final Timer previousTimer = timer.getPreviousTimer();
+        @Nullable final Timer nextTimer = timer.getNextTimer();
+        if (previousTimer == null) {
+            buckets[timer.getBucket()] = nextTimer;
+        } else {
+            previousTimer.setNextTimer(nextTimer);
+        }
+        if (nextTimer != null) {
+            nextTimer.setPreviousTimer(previousTimer);
+        }
+        timer.setNextTimer(null);
+        timer.setPreviousTimer(null);
+        timer.setBucket(-1);
+        timerCount--;
+    }
+
     /**
      * Start the thread that manages this queue and all the timers stored in it.
      *
@@ -0,0 +1,290 @@
+/*
+ * This file is part of the Illarion Common Library.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Common Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Common Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Common Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.common.config;
+
+import javolution.util.FastMap;
+import org.apache.log4j.Logger;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This test verifies that the {@link ConfigKey} handles and the {@link ConfigSnapshot} read the values that were
+ * stored in the {@link ConfigSystem} and that the listeners already see the new values. It also compares the time
+ * needed to read a value with a handle, with the key and with the read lock the configuration used before.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+public class ConfigSystemTest {
+    /**
+     * The logger that provides the logging output of this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(ConfigSystemTest.class);
+
+    /**
+     * The amount of changes the writer of the concurrent test applies.
+     */
+    private static final int CONCURRENT_CHANGES = 2000;
+
+    /**
+     * The amount of values read by each round of the benchmark.
+     */
+    private static final int BENCHMARK_READS = 5000000;
+
+    /**
+     * The amount of rounds of the benchmark that are executed before the time is measured.
+     */
+    private static final int BENCHMARK_WARMUP_ROUNDS = 5;
+
+    /**
+     * The amount of rounds of the benchmark that are measured.
+     */
+    private static final int BENCHMARK_ROUNDS = 10;
+
+    /**
+     * The configuration that is tested.
+     */
+    private ConfigSystem config;
+
+    /**
+     * Prepare a new configuration without a file for each test.
+     */
+    @BeforeMethod
+    public void prepareConfig() {
+        config = new ConfigSystem((File) null);
+    }
+
+    @Test
+    public void testTypedValues() {
+        config.set("boolean", true);
+        config.set("byte", (byte) -3);
+        config.set("short", (short) 300);
+        config.set("int", 123456);
+        config.set("long", 1L << 40);
+        config.set("float", 1.5f);
+        config.set("double", -2.25);
+        config.set("string", "value");
+
+        Assert.assertTrue(config.getKey("boolean").getBoolean());
+        Assert.assertEquals(config.getKey("byte").getInteger(), -3);
+        Assert.assertEquals(config.getKey("short").getInteger(), 300);
+        Assert.assertEquals(config.getKey("int").getInteger(), 123456);
+        Assert.assertEquals(config.getKey("long").getLong(), 1L << 40);
+        Assert.assertEquals(config.getKey("float").getFloat(), 1.5f, 0.f);
+        Assert.assertEquals(config.getKey("double").getDouble(), -2.25, 0.d);
+        Assert.assertEquals(config.getKey("string").getString(), "value");
+
+        config.set("boolean", false);
+        Assert.assertFalse(config.getKey("boolean").getBoolean());
+    }
+
+    @Test
+    public void testMismatchedType() {
+        config.set("int", 5);
+        config.set("string", "value");
+        config.set("float", 2.5f);
+
+        Assert.assertNull(config.getKey("int").getString());
+        Assert.assertEquals(config.getKey("string").getInteger(), 0);
+        Assert.assertFalse(config.getKey("string").getBoolean());
+        Assert.assertEquals(config.getKey("float").getInteger(), 0);
+        Assert.assertEquals(config.getKey("int").getDouble(), 0.d, 0.d);
+    }
+
+    @Test
+    public void testHandleBeforeEntry() {
+        final ConfigKey key = config.getKey("later");
+        Assert.assertEquals(key.getInteger(), 0);
+        Assert.assertNull(key.getString());
+
+        config.set("later", 42);
+        Assert.assertEquals(key.getInteger(), 42);
+        Assert.assertSame(config.getKey("later"), key);
+
+        config.remove("later");
+        Assert.assertEquals(key.getInteger(), 0);
+        Assert.assertNull(config.getSnapshot().getObject("later"));
+    }
+
+    @Test
+    public void testSnapshotDoesNotChange() {
+        final ConfigKey key = config.getKey("value");
+        config.set("value", 1);
+        final ConfigSnapshot oldSnapshot = config.getSnapshot();
+
+        config.set("value", 2);
+        config.set("other", "text");
+
+        Assert.assertEquals(oldSnapshot.getInteger(key), 1);
+        Assert.assertNull(oldSnapshot.getObject("other"));
+        Assert.assertEquals(config.getSnapshot().getInteger(key), 2);
+        Assert.assertEquals(config.getSnapshot().getObject("other"), "text");
+    }
+
+    @Test
+    public void testHandleCreatedAfterSnapshot() {
+        config.set("value", 7);
+        final ConfigSnapshot oldSnapshot = config.getSnapshot();
+        final ConfigKey key = config.getKey("value");
+
+        Assert.assertEquals(oldSnapshot.getObject(key), 7);
+        Assert.assertEquals(oldSnapshot.getInteger(key), 0);
+        Assert.assertEquals(config.getSnapshot().getInteger(key), 7);
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testListenerReadsNewValue() {
+        final ConfigKey key = config.getKey("value");
+        final List<Integer> keyValues = new ArrayList<Integer>();
+        final List<Integer> configValues = new ArrayList<Integer>();
+        config.addListener("value", new ConfigChangeListener() {
+            @Override
+            public void configChanged(final Config cfg, final String changedKey) {
+                keyValues.add(key.getInteger());
+                configValues.add(cfg.getInteger(changedKey));
+            }
+        });
+
+        config.set("value", 1);
+        config.set("value", 2);
+        config.set("other", 3);
+
+        Assert.assertEquals(keyValues.size(), 2);
+        Assert.assertEquals(keyValues.get(0).intValue(), 1);
+        Assert.assertEquals(keyValues.get(1).intValue(), 2);
+        Assert.assertEquals(configValues, keyValues);
+    }
+
+    @Test
+    public void testConcurrentReads() throws InterruptedException {
+        final ConfigKey key = config.getKey("counter");
+        config.set("counter", 0);
+        final AtomicReference<String> failure = new AtomicReference<String>();
+        final Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                int lastValue = 0;
+                while (lastValue < CONCURRENT_CHANGES) {
+                    final int value = key.getInteger();
+                    if (value < lastValue) {
+                        failure.set("Read " + value + " after " + lastValue);
+                        return;
+                    }
+                    lastValue = value;
+                }
+            }
+        });
+        reader.start();
+
+        for (int i = 1; i <= CONCURRENT_CHANGES; i++) {
+            config.set("counter", i);
+            config.getKey("key" + (i % 50));
+        }
+        reader.join(10000L);
+
+        Assert.assertFalse(reader.isAlive(), "The reader did not see the last value.");
+        Assert.assertNull(failure.get(), failure.get());
+    }
+
+    /**
+     * Read a boolean and a integer value with the handles, with the keys and with a read lock around the entry map
+     * like the configuration did before it used snapshots.
+     */
+    @Test(groups = "benchmark")
+    public void benchmarkReads() {
+        config.set("flag", true);
+        config.set("number", 3);
+        final ConfigKey flagKey = config.getKey("flag");
+        final ConfigKey numberKey = config.getKey("number");
+
+        final ReadWriteLock lock = new ReentrantReadWriteLock();
+        final Map<String, Object> entries = new FastMap<String, Object>();
+        entries.put("flag", Boolean.TRUE);
+        entries.put("number", 3);
+
+        long bestKeyTime = Long.MAX_VALUE;
+        long bestNameTime = Long.MAX_VALUE;
+        long bestLockTime = Long.MAX_VALUE;
+        long sum = 0L;
+        for (int round = 0; round < (BENCHMARK_WARMUP_ROUNDS + BENCHMARK_ROUNDS); round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < BENCHMARK_READS; i++) {
+                if (flagKey.getBoolean()) {
+                    sum += numberKey.getInteger();
+                }
+            }
+            final long keyTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < BENCHMARK_READS; i++) {
+                if (config.getBoolean("flag")) {
+                    sum += config.getInteger("number");
+                }
+            }
+            final long nameTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < BENCHMARK_READS; i++) {
+                if (getLocked(lock, entries, "flag") == Boolean.TRUE) {
+                    sum += (Integer) getLocked(lock, entries, "number");
+                }
+            }
+            final long lockTime = System.nanoTime() - start;
+
+            if (round >= BENCHMARK_WARMUP_ROUNDS) {
+                bestKeyTime = Math.min(bestKeyTime, keyTime);
+                bestNameTime = Math.min(bestNameTime, nameTime);
+                bestLockTime = Math.min(bestLockTime, lockTime);
+            }
+        }
+
+        LOGGER.info("Reading " + BENCHMARK_READS + " boolean and integer pairs: handles " + (bestKeyTime / 1000L) +
+                "us, keys " + (bestNameTime / 1000L) + "us, keys with read lock " + (bestLockTime / 1000L) + "us");
+        Assert.assertEquals(sum, 3L * 3L * BENCHMARK_READS * (BENCHMARK_WARMUP_ROUNDS + BENCHMARK_ROUNDS));
+        Assert.assertTrue(bestKeyTime < bestLockTime, "Handles are slower then the read lock.");
+    }
+
+    /**
+     * Read a entry while holding the read lock.
+     *
+     * @param lock    the lock
+     * @param entries the entries
+     * @param key     the key of the entry
+     * @return the value of the entry
+     */
+    private static Object getLocked(@Nonnull final ReadWriteLock lock, @Nonnull final Map<String, Object> entries,
+                                    @Nonnull final String key) {
+        lock.readLock().lock();
+        try {
+            return entries.get(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * This file is part of the Illarion Common Library.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Common Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Common Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Common Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.common.types;
+
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import javax.annotation.Nonnull;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * This test verifies the static functions of {@link Location} that work on the packed keys against the functions of
+ * the location instances. It also checks that working with the keys does not allocate any objects.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+public class LocationTest {
+    /**
+     * The amount of iterations of the allocation check.
+     */
+    private static final int ALLOCATION_ITERATIONS = 100000;
+
+    /**
+     * Server coordinates that cover the signs of all axes and the limits of the coordinates.
+     *
+     * @return the coordinates
+     */
+    @Nonnull
+    @DataProvider(name = "coordinates")
+    public Object[][] createCoordinates() {
+        return new Object[][]{{0, 0, 0}, {1, 2, 3}, {-1, 0, 0}, {0, -1, 0}, {0, 0, -1}, {-1, -1, -1}, {5, -7, 2},
+                {-5, 7, -2}, {100, 200, -3}, {-1024, 512, 10}, {32767, -32768, 127}, {-32768, 32767, -128},
+                {12, -3, Short.MAX_VALUE}, {-12, 3, Short.MIN_VALUE}};
+    }
+
+    @Test(dataProvider = "coordinates")
+    public void testKeyRoundTrip(final int x, final int y, final int z) {
+        final long key = Location.getKey(x, y, z);
+        Assert.assertEquals(Location.getKeyX(key), x);
+        Assert.assertEquals(Location.getKeyY(key), y);
+        Assert.assertEquals(Location.getKeyZ(key), z);
+
+        final Location loc = new Location();
+        loc.setKey(key);
+        Assert.assertEquals(loc.getScX(), x);
+        Assert.assertEquals(loc.getScY(), y);
+        Assert.assertEquals(loc.getScZ(), z);
+        Assert.assertEquals(loc.getKey(), key);
+    }
+
+    @Test(dataProvider = "coordinates")
+    public void testKeyMapAndDisplayCoordinates(final int x, final int y, final int z) {
+        final long key = Location.getKey(x, y, z);
+        final Location loc = new Location(x, y, z);
+        Assert.assertEquals(Location.getKeyCol(key), loc.getCol());
+        Assert.assertEquals(Location.getKeyRow(key), loc.getRow());
+        Assert.assertEquals(Location.getKeyDcX(key), loc.getDcX());
+        Assert.assertEquals(Location.getKeyDcY(key), loc.getDcY());
+        Assert.assertEquals(Location.getKeyDcZ(key), loc.getDcZ());
+    }
+
+    @Test(dataProvider = "coordinates")
+    public void testKeyNeighbours(final int x, final int y, final int z) {
+        if ((Math.abs(x) == 32768) || (Math.abs(y) == 32768) || (x == 32767) || (y == 32767)) {
+            return;
+        }
+        final long key = Location.getKey(x, y, z);
+        final Location loc = new Location(x, y, z);
+        Assert.assertEquals(Location.getNeighbourKey(key, Location.DIR_ZERO), key);
+        for (int dir = 0; dir < Location.DIR_MOVE8; dir++) {
+            final long neighbourKey = Location.getNeighbourKey(key, dir);
+            final Location neighbour = new Location(loc, dir);
+            Assert.assertEquals(neighbourKey, neighbour.getKey(), "Neighbour in direction " + dir);
+            Assert.assertEquals(Location.getKeyDistance(key, neighbourKey), 1);
+            Assert.assertEquals(Location.getKeyDirection(key, neighbourKey), loc.getDirection(neighbour));
+            Assert.assertEquals(Location.getKeyZ(neighbourKey), z);
+        }
+    }
+
+    @Test
+    public void testKeyDistance() {
+        final long key = Location.getKey(-3, 4, -1);
+        Assert.assertEquals(Location.getKeyDistance(key, key), 0);
+        Assert.assertEquals(Location.getKeyDistance(key, Location.getKey(7, 2, -1)), 10);
+        Assert.assertEquals(Location.getKeyDistance(key, Location.getKey(-5, -8, 2)), 12);
+        Assert.assertEquals(Location.getKeyDistance(key, Location.addToKey(key, 3, -6, 1)), 6);
+    }
+
+    @Test
+    public void testAddToKey() {
+        final long key = Location.getKey(10, -10, 1);
+        final long moved = Location.addToKey(key, -15, 25, -3);
+        Assert.assertEquals(Location.getKeyX(moved), -5);
+        Assert.assertEquals(Location.getKeyY(moved), 15);
+        Assert.assertEquals(Location.getKeyZ(moved), -2);
+    }
+
+    @Test
+    public void testKeyOfDisplayCoordinates() {
+        for (int x = -20; x <= 20; x++) {
+            for (int y = -20; y <= 20; y++) {
+                final long key = Location.getKey(x, y, 0);
+                final long displayKey = Location.getKeyOfDisplayCoordinates(Location.getKeyDcX(key),
+                        Location.getKeyDcY(key));
+                Assert.assertEquals(displayKey, key, "Display coordinates of " + x + ", " + y);
+            }
+        }
+    }
+
+    @Test
+    public void testKeyFunctionsDoNotAllocate() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            throw new SkipException("Measuring the allocations of a thread is not supported.");
+        }
+        final com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+        if (!allocationBean.isThreadAllocatedMemorySupported() || !allocationBean.isThreadAllocatedMemoryEnabled()) {
+            throw new SkipException("Measuring the allocations of a thread is not enabled.");
+        }
+        final long threadId = Thread.currentThread().getId();
+
+        // warm up, so class loading and the measurement itself are not counted
+        long result = walkKeys(ALLOCATION_ITERATIONS);
+        allocationBean.getThreadAllocatedBytes(threadId);
+
+        final long before = allocationBean.getThreadAllocatedBytes(threadId);
+        result += walkKeys(ALLOCATION_ITERATIONS);
+        final long allocated = allocationBean.getThreadAllocatedBytes(threadId) - before;
+
+        Assert.assertTrue(result != 0L);
+        Assert.assertTrue(allocated < 1024L, "Working with keys allocated " + allocated + " bytes");
+    }
+
+    /**
+     * Perform the same operations on keys the client performs for every frame and every step.
+     *
+     * @param iterations the amount of iterations
+     * @return a value calculated from the results, so the operations are not optimized away
+     */
+    private static long walkKeys(final int iterations) {
+        long key = Location.getKey(-100, 100, 0);
+        final long target = Location.getKey(100, -100, 0);
+        long result = 0L;
+        for (int i = 0; i < iterations; i++) {
+            final int direction = Location.getKeyDirection(key, target);
+            key = Location.getNeighbourKey(key, direction);
+            if (key == target) {
+                key = Location.getKey(-100, 100, 0);
+            }
+            result += Location.getKeyDistance(key, target);
+            result += Location.getKeyDcX(key) + Location.getKeyDcY(key) + Location.getKeyDcZ(key);
+            result += Location.getKeyOfDisplayCoordinates(Location.getKeyDcX(key), Location.getKeyDcY(key));
+            result += Location.getKeyCol(key) - Location.getKeyRow(key);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,449 @@
+/*
+ * This file is part of the Illarion Common Library.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Common Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Common Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Common Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.common.util;
+
+import org.apache.log4j.Logger;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This test verifies that the rows of a {@link CompiledTable} read back identically to the rows the
+ * {@link TableLoader} reads from the regular table, for NDSC tables as well as for delimited tables. It also compares
+ * the time needed to load the item, tile and character tables from the regular and from the compiled tables.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+public class CompiledTableTest {
+    /**
+     * The logger that provides the logging output of this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(CompiledTableTest.class);
+
+    /**
+     * The amount of rows of the generated item table.
+     */
+    private static final int ITEM_ROWS = 6000;
+
+    /**
+     * The amount of rows of the generated tile table.
+     */
+    private static final int TILE_ROWS = 1500;
+
+    /**
+     * The amount of rows of the generated character table.
+     */
+    private static final int CHARACTER_ROWS = 4000;
+
+    /**
+     * The amount of rounds of the benchmark that are executed before the time is measured.
+     */
+    private static final int BENCHMARK_WARMUP_ROUNDS = 5;
+
+    /**
+     * The amount of rounds of the benchmark that are measured.
+     */
+    private static final int BENCHMARK_ROUNDS = 10;
+
+    /**
+     * The tables with the special cases of the regular format. Each entry contains the text of the table, the NDSC
+     * flag and the delimiter.
+     *
+     * @return the tables
+     */
+    @Nonnull
+    @DataProvider(name = "tables")
+    public Object[][] createTables() {
+        return new Object[][]{
+                {"id,color,value\n" +
+                        "# comment line\n" +
+                        "\n" +
+                        "1,0,12,\"Name\",-5,0,1\n" +
+                        "2,0,13,\"Other name\",2147483647,1,0,007\n" +
+                        "3,0,14,\"\",-2147483648,5,1,+5\n" +
+                        "4,0,15,\"Long\",2147483648,0,0,-0,\n" +
+                        "5,0,16,plain,-9223372036854775808,2,1,x,9223372036854775807\n", true, ","},
+                {"value;name;number\n" +
+                        "10;\"Ten\";100;;0\n" +
+                        "# comment line\n" +
+                        "11;\"Eleven\";abc;1;1;extra\n" +
+                        "12;Twelve;4294967296;2\n" +
+                        "13;\"Thirteen\";-1;\n", false, ";"},
+                {"a\tb\tc\n" +
+                        "1\t2\t3\n" +
+                        "4\t\"five\"\t6\t7\n" +
+                        "8\t9\n", false, "\t"},
+                {createItemTable(new Random(1L), 200), true, ","},
+                {createTileTable(new Random(2L), 200), true, ","},
+                {createCharacterTable(new Random(3L), 200), true, ","}
+        };
+    }
+
+    @Test(dataProvider = "tables")
+    public void testRoundTrip(@Nonnull final String table, final boolean ndsc, @Nonnull final String delim)
+            throws IOException {
+        final List<String> expected = new ArrayList<String>();
+        new TableLoader(toStream(table), ndsc, new RecordingSink(expected), delim);
+
+        final CompiledTable compiled = compile(table, ndsc, delim);
+        Assert.assertTrue(compiled.isCompiledWith(ndsc, delim));
+        Assert.assertFalse(compiled.isCompiledWith(!ndsc, delim));
+        Assert.assertEquals(compiled.getDelimiter(), delim);
+        final List<String> actual = new ArrayList<String>();
+        new TableLoader(compiled, new RecordingSink(actual));
+
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(actual, expected);
+    }
+
+    @Test
+    public void testSinkStopsReading() throws IOException {
+        final CompiledTable compiled = compile(createTileTable(new Random(4L), 20), true, ",");
+        final int[] rows = new int[1];
+        new TableLoader(compiled, new TableLoaderSink<TableLoader>() {
+            @Override
+            public boolean processRecord(final int line, @Nonnull final TableLoader loader) {
+                rows[0]++;
+                return line < 4;
+            }
+        });
+
+        Assert.assertEquals(rows[0], 5);
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testInvalidData() throws IOException {
+        new CompiledTable(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}));
+    }
+
+    /**
+     * Load the generated item, tile and character tables with their table loaders, once from the regular and once
+     * from the compiled table. Decrypting the tables is not part of the measurement, it is the same for both kinds.
+     *
+     * @throws IOException in case compiling the tables fails
+     */
+    @Test(groups = "benchmark")
+    public void benchmarkLoadTime() throws IOException {
+        final Random random = new Random(42L);
+        final byte[] items = createItemTable(random, ITEM_ROWS).getBytes("UTF-8");
+        final byte[] tiles = createTileTable(random, TILE_ROWS).getBytes("UTF-8");
+        final byte[] characters = createCharacterTable(random, CHARACTER_ROWS).getBytes("UTF-8");
+        final byte[] compiledItems = compileToBytes(items);
+        final byte[] compiledTiles = compileToBytes(tiles);
+        final byte[] compiledCharacters = compileToBytes(characters);
+
+        final long[] bestTimes = new long[6];
+        final long[] checksums = new long[6];
+        for (int i = 0; i < bestTimes.length; i++) {
+            bestTimes[i] = Long.MAX_VALUE;
+        }
+        for (int round = 0; round < (BENCHMARK_WARMUP_ROUNDS + BENCHMARK_ROUNDS); round++) {
+            final long[] times = new long[6];
+            for (int table = 0; table < 6; table++) {
+                final ChecksumSink sink = new ChecksumSink();
+                final long start = System.nanoTime();
+                switch (table) {
+                    case 0:
+                        new TableLoaderItems(new ByteArrayInputStream(items), sink.items);
+                        break;
+                    case 1:
+                        new TableLoaderItems(new CompiledTable(new ByteArrayInputStream(compiledItems)), sink.items);
+                        break;
+                    case 2:
+                        new TableLoaderTiles(new ByteArrayInputStream(tiles), true, sink.tiles, ",");
+                        break;
+                    case 3:
+                        new TableLoaderTiles(new CompiledTable(new ByteArrayInputStream(compiledTiles)), sink.tiles);
+                        break;
+                    case 4:
+                        new TableLoaderCharacters(new ByteArrayInputStream(characters), true, sink.characters, ",");
+                        break;
+                    default:
+                        new TableLoaderCharacters(new CompiledTable(new ByteArrayInputStream(compiledCharacters)),
+                                sink.characters);
+                }
+                times[table] = System.nanoTime() - start;
+                checksums[table] = sink.checksum;
+            }
+            if (round >= BENCHMARK_WARMUP_ROUNDS) {
+                for (int i = 0; i < times.length; i++) {
+                    bestTimes[i] = Math.min(bestTimes[i], times[i]);
+                }
+            }
+        }
+
+        LOGGER.info("Loading " + ITEM_ROWS + " items: regular " + (bestTimes[0] / 1000L) + "us, compiled " +
+                (bestTimes[1] / 1000L) + "us; " + TILE_ROWS + " tiles: regular " + (bestTimes[2] / 1000L) +
+                "us, compiled " + (bestTimes[3] / 1000L) + "us; " + CHARACTER_ROWS + " characters: regular " +
+                (bestTimes[4] / 1000L) + "us, compiled " + (bestTimes[5] / 1000L) + "us");
+        Assert.assertEquals(checksums[1], checksums[0], "The compiled item table reads different values.");
+        Assert.assertEquals(checksums[3], checksums[2], "The compiled tile table reads different values.");
+        Assert.assertEquals(checksums[5], checksums[4], "The compiled character table reads different values.");
+    }
+
+    /**
+     * Compile a table.
+     *
+     * @param table the text of the table
+     * @param ndsc  {@code true} in case the table is a NDSC table
+     * @param delim the delimiter of the table
+     * @return the compiled table read back from its binary form
+     * @throws IOException in case compiling the table fails
+     */
+    @Nonnull
+    private static CompiledTable compile(@Nonnull final String table, final boolean ndsc, @Nonnull final String delim)
+            throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompiledTable.compile(toStream(table), ndsc, delim, out);
+        return new CompiledTable(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    /**
+     * Compile a NDSC table that is delimited by commas.
+     *
+     * @param table the text of the table
+     * @return the binary form of the compiled table
+     * @throws IOException in case compiling the table fails
+     */
+    @Nonnull
+    private static byte[] compileToBytes(@Nonnull final byte[] table) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompiledTable.compile(new ByteArrayInputStream(table), true, ",", out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Get a stream that supplies the text of a table.
+     *
+     * @param table the text of the table
+     * @return the stream
+     * @throws UnsupportedEncodingException in case the encoding is not supported
+     */
+    @Nonnull
+    private static ByteArrayInputStream toStream(@Nonnull final String table) throws UnsupportedEncodingException {
+        return new ByteArrayInputStream(table.getBytes("UTF-8"));
+    }
+
+    /**
+     * Create a NDSC table with the columns of the item table.
+     *
+     * @param random the source of the random values
+     * @param rows   the amount of rows
+     * @return the text of the table
+     */
+    @Nonnull
+    private static String createItemTable(@Nonnull final Random random, final int rows) {
+        return createTable(random, rows, 26, new int[]{1}, new int[]{9, 15});
+    }
+
+    /**
+     * Create a NDSC table with the columns of the tile table.
+     *
+     * @param random the source of the random values
+     * @param rows   the amount of rows
+     * @return the text of the table
+     */
+    @Nonnull
+    private static String createTileTable(@Nonnull final Random random, final int rows) {
+        return createTable(random, rows, 13, new int[]{1, 10}, new int[]{12});
+    }
+
+    /**
+     * Create a NDSC table with the columns of the character table.
+     *
+     * @param random the source of the random values
+     * @param rows   the amount of rows
+     * @return the text of the table
+     */
+    @Nonnull
+    private static String createCharacterTable(@Nonnull final Random random, final int rows) {
+        return createTable(random, rows, 19, new int[]{1}, new int[]{14});
+    }
+
+    /**
+     * Create a NDSC table that is delimited by commas.
+     *
+     * @param random        the source of the random values
+     * @param rows          the amount of rows
+     * @param columns       the amount of columns
+     * @param nameColumns   the columns that contain quoted names
+     * @param switchColumns the columns that contain {@code 0} or {@code 1}
+     * @return the text of the table
+     */
+    @Nonnull
+    private static String createTable(@Nonnull final Random random, final int rows, final int columns,
+                                      @Nonnull final int[] nameColumns, @Nonnull final int[] switchColumns) {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("table,color");
+        for (int column = 0; column < columns; column++) {
+            builder.append(",column").append(column);
+        }
+        builder.append('\n');
+        for (int row = 0; row < rows; row++) {
+            builder.append(row).append(",0");
+            for (int column = 0; column < columns; column++) {
+                builder.append(',');
+                if (column == 0) {
+                    builder.append(row);
+                } else if (contains(nameColumns, column)) {
+                    builder.append("\"data.name").append(random.nextInt(100000)).append('"');
+                } else if (contains(switchColumns, column)) {
+                    builder.append(random.nextInt(2));
+                } else {
+                    builder.append(random.nextInt(2000) - 100);
+                }
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Check if a array contains a value.
+     *
+     * @param values the array
+     * @param value  the value
+     * @return {@code true} in case the array contains the value
+     */
+    private static boolean contains(@Nonnull final int[] values, final int value) {
+        for (final int entry : values) {
+            if (entry == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * This sink records every value of every row with all getters that accept the value.
+     */
+    private static final class RecordingSink implements TableLoaderSink<TableLoader> {
+        /**
+         * The list that receives the recorded values.
+         */
+        @Nonnull
+        private final List<String> values;
+
+        /**
+         * Create a new sink.
+         *
+         * @param values the list that receives the recorded values
+         */
+        RecordingSink(@Nonnull final List<String> values) {
+            this.values = values;
+        }
+
+        @Override
+        public boolean processRecord(final int line, @Nonnull final TableLoader loader) {
+            final int count = loader.getTokenCount();
+            values.add("line " + line + " with " + count + " values");
+            for (int i = 0; i < count; i++) {
+                final String value = loader.get(i);
+                values.add("get " + value);
+                values.add("string " + loader.getString(i));
+                values.add("boolean " + loader.getBoolean(i));
+                try {
+                    Integer.parseInt(value);
+                    values.add("int " + loader.getInt(i));
+                } catch (@Nonnull final NumberFormatException e) {
+                    values.add("no int");
+                }
+                try {
+                    Long.parseLong(value);
+                    values.add("long " + loader.getLong(i));
+                } catch (@Nonnull final NumberFormatException e) {
+                    values.add("no long");
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * This class provides sinks for the item, tile and character tables that read every value with the getters of
+     * the table loaders and sum them up.
+     */
+    private static final class ChecksumSink {
+        /**
+         * The sum of all values read.
+         */
+        private long checksum;
+
+        /**
+         * The sink of the item table.
+         */
+        @Nonnull
+        private final TableLoaderSink<TableLoaderItems> items = new TableLoaderSink<TableLoaderItems>() {
+            @Override
+            public boolean processRecord(final int line, @Nonnull final TableLoaderItems loader) {
+                checksum += loader.getItemId() + loader.getResourceName().hashCode() + loader.getFrameCount() +
+                        loader.getItemMode() + loader.getOffsetX() + loader.getOffsetY() +
+                        loader.getAnimationSpeed() + loader.getFace() + (loader.isMovable() ? 1 : 0) +
+                        loader.getShadowOffset() + loader.getSpecialFlag() + loader.getSizeVariance() +
+                        loader.getOpacity() + (loader.isObstacle() ? 1 : 0) + loader.getSurfaceLevel() +
+                        loader.getMapEditorGroup() + loader.getItemLight() + loader.getColorModRed() +
+                        loader.getColorModGreen() + loader.getColorModBlue() + loader.getColorModAlpha() +
+                        loader.getPaperdollingItemId();
+                return true;
+            }
+        };
+
+        /**
+         * The sink of the tile table.
+         */
+        @Nonnull
+        private final TableLoaderSink<TableLoaderTiles> tiles = new TableLoaderSink<TableLoaderTiles>() {
+            @Override
+            public boolean processRecord(final int line, @Nonnull final TableLoaderTiles loader) {
+                checksum += loader.getTileId() + loader.getResourceName().hashCode() + loader.getFrameCount() +
+                        loader.getTileMode() + loader.getAnimationSpeed() + loader.getTileColor() +
+                        loader.getMovementCost() + loader.getNameGerman().hashCode() +
+                        loader.getNameEnglish().hashCode() + (loader.isOpaque() ? 1 : 0);
+                return true;
+            }
+        };
+
+        /**
+         * The sink of the character table.
+         */
+        @Nonnull
+        private final TableLoaderSink<TableLoaderCharacters> characters =
+                new TableLoaderSink<TableLoaderCharacters>() {
+                    @Override
+                    public boolean processRecord(final int line, @Nonnull final TableLoaderCharacters loader) {
+                        checksum += loader.getAvatarId() + loader.getResourceName().hashCode() +
+                                loader.getFrameCount() + loader.getStillFrame() + loader.getOffsetX() +
+                                loader.getOffsetY() + loader.getShadowOffset() + (loader.isMirrored() ? 1 : 0) +
+                                loader.getDirection() + loader.getAppearance() + loader.getVisibilityMod() +
+                                loader.getAnimationId() + loader.getSkinColorRed() + loader.getSkinColorGreen() +
+                                loader.getSkinColorBlue();
+                        return true;
+                    }
+                };
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * This file is part of the Illarion Common Library.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Common Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Common Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Common Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.common.util;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import javax.annotation.Nonnull;
+import java.io.*;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This test verifies that the data encrypted by {@link Crypto#encrypt(InputStream, OutputStream)} is decrypted to
+ * the identical bytes by all decryption functions. The sizes of the data are chosen around the size of the internal
+ * buffers of the class.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+public class CryptoTest {
+    /**
+     * The size of the buffers used by the crypto class.
+     */
+    private static final int BUFFER_SIZE = 16384;
+
+    /**
+     * The crypto instance that is tested.
+     */
+    private Crypto crypto;
+
+    /**
+     * Prepare the crypto instance with a newly generated key pair.
+     *
+     * @throws Exception in case generating the keys fails
+     */
+    @BeforeClass
+    public void prepareKeys() throws Exception {
+        final KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(1024);
+        final KeyPair keys = generator.generateKeyPair();
+
+        crypto = new Crypto();
+        crypto.loadPrivateKey(new ByteArrayInputStream(serializeKey(keys.getPrivate())));
+        crypto.loadPublicKey(new ByteArrayInputStream(serializeKey(keys.getPublic())));
+        Assert.assertTrue(crypto.hasPrivateKey());
+        Assert.assertTrue(crypto.hasPublicKey());
+    }
+
+    /**
+     * The sizes of the data that is encrypted and decrypted again.
+     *
+     * @return the sizes
+     */
+    @Nonnull
+    @DataProvider(name = "sizes")
+    public Object[][] createSizes() {
+        return new Object[][]{{0}, {1}, {7}, {BUFFER_SIZE - 17}, {BUFFER_SIZE - 16}, {BUFFER_SIZE - 15},
+                {BUFFER_SIZE - 1}, {BUFFER_SIZE}, {BUFFER_SIZE + 1}, {(BUFFER_SIZE * 2) + 1},
+                {(1024 * 1024) + 3}};
+    }
+
+    @Test(dataProvider = "sizes")
+    public void testDecryptedStreamBulkRead(final int size) throws Exception {
+        final byte[] data = createData(size);
+        final InputStream in = crypto.decryptedStream(new ByteArrayInputStream(encrypt(data)));
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+            final byte[] buffer = new byte[4096];
+            int read = in.read(buffer);
+            while (read > -1) {
+                out.write(buffer, 0, read);
+                read = in.read(buffer);
+            }
+            Assert.assertTrue(Arrays.equals(out.toByteArray(), data), "Decrypted data differs for size " + size);
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test(dataProvider = "sizes")
+    public void testDecryptedStreamSmallReads(final int size) throws Exception {
+        final byte[] data = createData(size);
+        final InputStream in = crypto.decryptedStream(new ByteArrayInputStream(encrypt(data)));
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+            final byte[] buffer = new byte[7];
+            int read = in.read(buffer, 1, 5);
+            while (read > -1) {
+                out.write(buffer, 1, read);
+                read = in.read(buffer, 1, 5);
+            }
+            Assert.assertTrue(Arrays.equals(out.toByteArray(), data), "Decrypted data differs for size " + size);
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test(dataProvider = "sizes")
+    public void testDecryptedStreamSingleBytes(final int size) throws Exception {
+        final byte[] data = createData(size);
+        final InputStream in = crypto.decryptedStream(new ByteArrayInputStream(encrypt(data)));
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+            int value = in.read();
+            while (value > -1) {
+                out.write(value);
+                value = in.read();
+            }
+            Assert.assertTrue(Arrays.equals(out.toByteArray(), data), "Decrypted data differs for size " + size);
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test(dataProvider = "sizes")
+    public void testDecrypt(final int size) throws Exception {
+        final byte[] data = createData(size);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        Assert.assertTrue(crypto.decrypt(new ByteArrayInputStream(encrypt(data)), out));
+        Assert.assertTrue(Arrays.equals(out.toByteArray(), data), "Decrypted data differs for size " + size);
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testDecryptedStreamInvalidKeyLength() throws Exception {
+        crypto.decryptedStream(new ByteArrayInputStream(new byte[]{0, 0, 0, 0}));
+    }
+
+    /**
+     * Create the test data.
+     *
+     * @param size the amount of bytes
+     * @return the data
+     */
+    @Nonnull
+    private static byte[] createData(final int size) {
+        final byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * Encrypt data with the crypto instance.
+     *
+     * @param data the data to encrypt
+     * @return the encrypted data
+     * @throws Exception in case the encryption fails
+     */
+    @Nonnull
+    private byte[] encrypt(@Nonnull final byte[] data) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(data.length + 256);
+        crypto.encrypt(new ByteArrayInputStream(data), out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Serialize a key the same way the key files are stored.
+     *
+     * @param key the key
+     * @return the serialized key
+     * @throws IOException in case writing the key fails
+     */
+    @Nonnull
+    private static byte[] serializeKey(@Nonnull final Key key) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ObjectOutputStream objOut = new ObjectOutputStream(out);
+        objOut.writeObject(key);
+        objOut.close();
+        return out.toByteArray();
+    }
+}
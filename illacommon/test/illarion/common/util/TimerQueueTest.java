@@ -0,0 +1,486 @@
+/*
+ * This file is part of the Illarion Common Library.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Common Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Common Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Common Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package illarion.common.util;
+
+import org.apache.log4j.Logger;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import javax.annotation.Nonnull;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This test verifies how the {@link TimerQueue} rounds the expiration times of the timers to ticks, that repeating
+ * timers do not drift and that timers are able to be stopped and restarted. It also measures the queue with a large
+ * amount of timers that are scheduled at the same time.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+public class TimerQueueTest {
+    /**
+     * The logger that provides the logging output of this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(TimerQueueTest.class);
+
+    /**
+     * The length of a tick of the queue used to test the rounding.
+     */
+    private static final int TICK = 10;
+
+    /**
+     * A tick that is far enough in the future to not be reached while the test is running.
+     */
+    private static final long FAR_TICK = 100000L;
+
+    /**
+     * The delay between two calls of the repeating timer of the drift test.
+     */
+    private static final int DRIFT_DELAY = 100;
+
+    /**
+     * The amount of calls of the repeating timer of the drift test.
+     */
+    private static final int DRIFT_CALLS = 10;
+
+    /**
+     * The delay of the timers used by the tests that stop and restart timers.
+     */
+    private static final int STOP_DELAY = 100;
+
+    /**
+     * The amount of timers scheduled by the benchmark.
+     */
+    private static final int BENCHMARK_TIMERS = 10000;
+
+    /**
+     * The amount of threads that schedule the timers of the benchmark at the same time.
+     */
+    private static final int BENCHMARK_THREADS = 4;
+
+    /**
+     * The longest initial delay of the timers of the benchmark.
+     */
+    private static final int BENCHMARK_MAX_DELAY = 500;
+
+    /**
+     * The amount of rounds of the benchmark that are executed before the time is measured.
+     */
+    private static final int BENCHMARK_WARMUP_ROUNDS = 2;
+
+    /**
+     * The amount of rounds of the benchmark that are measured.
+     */
+    private static final int BENCHMARK_ROUNDS = 3;
+
+    @Test
+    public void testTickRounding() {
+        final TimerQueue queue = new TimerQueue(TICK);
+        final long farTime = queue.getStartTime() + (FAR_TICK * TICK);
+
+        assertDeadlineTick(queue, farTime, FAR_TICK);
+        assertDeadlineTick(queue, farTime - TICK + 1, FAR_TICK);
+        assertDeadlineTick(queue, farTime + 1, FAR_TICK + 1);
+        assertDeadlineTick(queue, farTime + TICK - 1, FAR_TICK + 1);
+        assertDeadlineTick(queue, farTime + TICK, FAR_TICK + 1);
+    }
+
+    @Test
+    public void testExpiredTimeRoundedToNextTick() {
+        final TimerQueue queue = new TimerQueue(TICK);
+        final Timer timer = new Timer(STOP_DELAY);
+
+        queue.addTimer(timer, queue.getStartTime() - 1000L);
+
+        final long nowTick = (System.currentTimeMillis() - queue.getStartTime()) / TICK;
+        Assert.assertTrue(timer.getDeadlineTick() > 0L, "The timer is scheduled before the start of the wheel.");
+        Assert.assertTrue(timer.getDeadlineTick() <= (nowTick + 1L), "The timer is not scheduled for the next tick.");
+        queue.removeTimer(timer);
+    }
+
+    @Test
+    public void testAddingTwiceIsIgnored() {
+        final TimerQueue queue = new TimerQueue(TICK);
+        final Timer timer = new Timer(STOP_DELAY);
+        final long farTime = queue.getStartTime() + (FAR_TICK * TICK);
+
+        queue.addTimer(timer, farTime);
+        queue.addTimer(timer, farTime + (TICK * 5));
+
+        Assert.assertEquals(timer.getDeadlineTick(), FAR_TICK);
+        Assert.assertEquals(timer.getExpirationTime(), farTime);
+        queue.removeTimer(timer);
+        Assert.assertFalse(queue.containsTimer(timer));
+    }
+
+    @Test
+    public void testRepeatingTimerDoesNotDrift() throws InterruptedException {
+        final long[] expirationTimes = new long[DRIFT_CALLS];
+        final long[] callTimes = new long[DRIFT_CALLS];
+        final CountDownLatch latch = new CountDownLatch(DRIFT_CALLS);
+        final Timer timer = new Timer(DRIFT_DELAY);
+        timer.addListener(new Runnable() {
+            private int calls;
+
+            @Override
+            public void run() {
+                if (calls < DRIFT_CALLS) {
+                    expirationTimes[calls] = timer.getExpirationTime();
+                    callTimes[calls] = System.currentTimeMillis();
+                    calls++;
+                    latch.countDown();
+                }
+            }
+        });
+
+        timer.start();
+        final boolean completed = latch.await(DRIFT_DELAY * DRIFT_CALLS * 5, TimeUnit.MILLISECONDS);
+        timer.stop();
+
+        Assert.assertTrue(completed, "The timer was not called often enough.");
+        for (int i = 0; i < DRIFT_CALLS; i++) {
+            Assert.assertTrue(callTimes[i] >= expirationTimes[i], "Call " + i + " happened before its time.");
+            if (i > 0) {
+                Assert.assertEquals(expirationTimes[i] - expirationTimes[i - 1], DRIFT_DELAY,
+                        "Call " + i + " was not scheduled based on the previous expiration time.");
+            }
+        }
+        final long lastDelay = callTimes[DRIFT_CALLS - 1] - expirationTimes[0] - ((DRIFT_CALLS - 1) * DRIFT_DELAY);
+        Assert.assertTrue(lastDelay < DRIFT_DELAY, "The delays of the calls added up to " + lastDelay + "ms.");
+    }
+
+    @Test
+    public void testStopAndRestart() throws InterruptedException {
+        final CountingListener listener = new CountingListener();
+        final Timer timer = new Timer(STOP_DELAY, listener);
+        timer.setRepeats(false);
+
+        timer.start();
+        Assert.assertTrue(timer.isRunning());
+        Assert.assertTrue(TimerQueue.getInstance().containsTimer(timer));
+        timer.stop();
+        Assert.assertFalse(timer.isRunning());
+        Assert.assertFalse(TimerQueue.getInstance().containsTimer(timer));
+        Thread.sleep(STOP_DELAY * 3);
+        Assert.assertEquals(listener.getCalls(), 0, "The stopped timer was called.");
+
+        timer.restart();
+        Assert.assertTrue(listener.awaitCall(), "The restarted timer was not called.");
+        Thread.sleep(STOP_DELAY * 3);
+        Assert.assertEquals(listener.getCalls(), 1, "The timer that does not repeat was called again.");
+
+        timer.restart();
+        Assert.assertTrue(listener.awaitCall(), "The timer was not called after the second restart.");
+        Assert.assertEquals(listener.getCalls(), 2);
+        timer.stop();
+    }
+
+    @Test
+    public void testStopFromListener() throws InterruptedException {
+        final AtomicInteger calls = new AtomicInteger();
+        final Timer timer = new Timer(TICK);
+        timer.addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (calls.incrementAndGet() == 3) {
+                    timer.stop();
+                }
+            }
+        });
+
+        timer.start();
+        final long end = System.currentTimeMillis() + (STOP_DELAY * 10);
+        while ((calls.get() < 3) && (System.currentTimeMillis() < end)) {
+            Thread.sleep(TICK);
+        }
+        Thread.sleep(STOP_DELAY);
+
+        Assert.assertEquals(calls.get(), 3);
+        Assert.assertFalse(timer.isRunning());
+        Assert.assertFalse(TimerQueue.getInstance().containsTimer(timer));
+    }
+
+    /**
+     * Schedule a large amount of timers from multiple threads at the same time and measure the time needed to
+     * schedule them and how late they are called. The same delays are scheduled with a scheduled executor for
+     * comparison.
+     */
+    @Test(groups = "benchmark")
+    public void benchmarkConcurrentTimers() throws InterruptedException {
+        final Random random = new Random(42L);
+        final int[] delays = new int[BENCHMARK_TIMERS];
+        for (int i = 0; i < delays.length; i++) {
+            delays[i] = random.nextInt(BENCHMARK_MAX_DELAY);
+        }
+
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        final Lateness timerLateness = new Lateness();
+        final Lateness executorLateness = new Lateness();
+        long bestTimerTime = Long.MAX_VALUE;
+        long bestExecutorTime = Long.MAX_VALUE;
+        try {
+            for (int round = 0; round < (BENCHMARK_WARMUP_ROUNDS + BENCHMARK_ROUNDS); round++) {
+                final Timer[] timers = new Timer[BENCHMARK_TIMERS];
+                for (int i = 0; i < timers.length; i++) {
+                    timers[i] = new Timer(delays[i], delays[i], null);
+                    timers[i].setRepeats(false);
+                    timers[i].addListener(new LatenessListener(timers[i], timerLateness));
+                }
+                timerLateness.reset();
+                final long timerTime = scheduleConcurrently(new ScheduleTask() {
+                    @Override
+                    public void schedule(final int index) {
+                        timers[index].start();
+                    }
+                });
+                Assert.assertTrue(timerLateness.await(), "Not all timers were called.");
+
+                executorLateness.reset();
+                final long executorTime = scheduleConcurrently(new ScheduleTask() {
+                    @Override
+                    public void schedule(final int index) {
+                        final long expirationTime = System.currentTimeMillis() + delays[index];
+                        executor.schedule(new Runnable() {
+                            @Override
+                            public void run() {
+                                executorLateness.record(System.currentTimeMillis() - expirationTime);
+                            }
+                        }, delays[index], TimeUnit.MILLISECONDS);
+                    }
+                });
+                Assert.assertTrue(executorLateness.await(), "Not all tasks of the executor were called.");
+
+                if (round >= BENCHMARK_WARMUP_ROUNDS) {
+                    bestTimerTime = Math.min(bestTimerTime, timerTime);
+                    bestExecutorTime = Math.min(bestExecutorTime, executorTime);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        LOGGER.info("Scheduling " + BENCHMARK_TIMERS + " timers from " + BENCHMARK_THREADS + " threads: timer queue " +
+                (bestTimerTime / 1000L) + "us (last round " + timerLateness + "), scheduled executor " +
+                (bestExecutorTime / 1000L) + "us (last round " + executorLateness + ')');
+    }
+
+    /**
+     * Add a timer to a queue and check the tick it was scheduled for.
+     *
+     * @param queue          the queue
+     * @param expirationTime the expiration time of the timer
+     * @param expectedTick   the tick the timer is expected to be scheduled for
+     */
+    private static void assertDeadlineTick(@Nonnull final TimerQueue queue, final long expirationTime,
+                                           final long expectedTick) {
+        final Timer timer = new Timer(STOP_DELAY);
+        queue.addTimer(timer, expirationTime);
+        Assert.assertTrue(queue.containsTimer(timer));
+        Assert.assertEquals(timer.getExpirationTime(), expirationTime);
+        Assert.assertEquals(timer.getDeadlineTick(), expectedTick, "Wrong tick for expiration time " +
+                (expirationTime - queue.getStartTime()) + "ms after the start");
+        Assert.assertEquals(timer.getBucket(), (int) (expectedTick % 512L));
+        queue.removeTimer(timer);
+        Assert.assertFalse(queue.containsTimer(timer));
+    }
+
+    /**
+     * Schedule all timers of the benchmark. The timers are split evenly between the threads that schedule them.
+     *
+     * @param task the task that schedules a single timer
+     * @return the time in nanoseconds needed until all threads scheduled their timers
+     * @throws InterruptedException in case the thread is interrupted while waiting for the scheduling threads
+     */
+    private static long scheduleConcurrently(@Nonnull final ScheduleTask task) throws InterruptedException {
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        final Thread[] threads = new Thread[BENCHMARK_THREADS];
+        for (int t = 0; t < threads.length; t++) {
+            final int firstIndex = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startSignal.await();
+                    } catch (@Nonnull final InterruptedException e) {
+                        return;
+                    }
+                    for (int i = firstIndex; i < BENCHMARK_TIMERS; i += BENCHMARK_THREADS) {
+                        task.schedule(i);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        final long start = System.nanoTime();
+        startSignal.countDown();
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * This task schedules a single timer of the benchmark.
+     */
+    private interface ScheduleTask {
+        /**
+         * Schedule a timer.
+         *
+         * @param index the index of the timer
+         */
+        void schedule(int index);
+    }
+
+    /**
+     * This class collects how late the timers of one round of the benchmark were called.
+     */
+    private static final class Lateness {
+        /**
+         * The sum of the lateness of all calls in milliseconds.
+         */
+        private final AtomicLong sum = new AtomicLong();
+
+        /**
+         * The largest lateness of a call in milliseconds.
+         */
+        private final AtomicLong max = new AtomicLong();
+
+        /**
+         * The latch that is released once all timers were called.
+         */
+        private CountDownLatch latch;
+
+        /**
+         * Prepare for the next round.
+         */
+        void reset() {
+            sum.set(0L);
+            max.set(0L);
+            latch = new CountDownLatch(BENCHMARK_TIMERS);
+        }
+
+        /**
+         * Record a call of a timer.
+         *
+         * @param lateness the time in milliseconds the call happened after the expiration time
+         */
+        void record(final long lateness) {
+            sum.addAndGet(lateness);
+            long currentMax = max.get();
+            while ((lateness > currentMax) && !max.compareAndSet(currentMax, lateness)) {
+                currentMax = max.get();
+            }
+            latch.countDown();
+        }
+
+        /**
+         * Wait until all timers of the round were called.
+         *
+         * @return {@code true} in case all timers were called
+         * @throws InterruptedException in case the thread is interrupted while waiting
+         */
+        boolean await() throws InterruptedException {
+            return latch.await(BENCHMARK_MAX_DELAY * 20, TimeUnit.MILLISECONDS);
+        }
+
+        @Nonnull
+        @Override
+        public String toString() {
+            return "lateness average " + (sum.get() / BENCHMARK_TIMERS) + "ms, max " + max.get() + "ms";
+        }
+    }
+
+    /**
+     * This listener records how late its timer was called.
+     */
+    private static final class LatenessListener implements Runnable {
+        /**
+         * The timer this listener is added to.
+         */
+        @Nonnull
+        private final Timer timer;
+
+        /**
+         * The collector of the lateness.
+         */
+        @Nonnull
+        private final Lateness lateness;
+
+        /**
+         * Create a new listener.
+         *
+         * @param timer    the timer this listener is added to
+         * @param lateness the collector of the lateness
+         */
+        LatenessListener(@Nonnull final Timer timer, @Nonnull final Lateness lateness) {
+            this.timer = timer;
+            this.lateness = lateness;
+        }
+
+        @Override
+        public void run() {
+            lateness.record(System.currentTimeMillis() - timer.getExpirationTime());
+        }
+    }
+
+    /**
+     * This listener counts its calls.
+     */
+    private static final class CountingListener implements Runnable {
+        /**
+         * A permit is released for every call.
+         */
+        private final Semaphore calls = new Semaphore(0);
+
+        /**
+         * The amount of calls.
+         */
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public void run() {
+            count.incrementAndGet();
+            calls.release();
+        }
+
+        /**
+         * Wait for a call.
+         *
+         * @return {@code true} in case the listener was called
+         * @throws InterruptedException in case the thread is interrupted while waiting
+         */
+        boolean awaitCall() throws InterruptedException {
+            return calls.tryAcquire(STOP_DELAY * 20, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Get the amount of calls.
+         *
+         * @return the amount of calls
+         */
+        int getCalls() {
+            return count.get();
+        }
+    }
+}
@@ -39,6 +39,15 @@ public interface TextureManager {
      */
     void addTextureDirectory(@Nonnull String directory);
 
+    /**
+     * Set the amount of texture memory the texture atlas files may use. In case a budget is set, the textures of the
+     * atlas files are only created once they are drawn and released again in case the budget is exceeded. This has to
+     * be set before the texture atlas files are loaded.
+     *
+     * @param budget the budget in bytes or {@code 0} to create the textures of all atlas files right away
+     */
+    void setStreamingBudget(long budget);
+
     /**
      * Get a specified texture.
      *
@@ -24,6 +24,8 @@ import com.badlogic.gdx.backends.lwjgl.LwjglApplicationConfiguration;
 import org.illarion.engine.DesktopGameContainer;
 import org.illarion.engine.GameListener;
 import org.illarion.engine.MouseCursor;
+import org.illarion.engine.backend.shared.AbstractRenderQueue;
+import org.illarion.engine.backend.shared.AbstractTextureManager;
 import org.illarion.engine.graphic.GraphicResolution;
 import org.lwjgl.LWJGLException;
 import org.lwjgl.input.Mouse;
@@ -227,7 +229,18 @@ public class ApplicationGameContainer implements DesktopGameContainer {
     @Nonnull
     @Override
     public CharSequence[] getDiagnosticLines() {
-        return new CharSequence[]{"Render calls: " + lastFrameRenderCalls};
+        if (engine == null) {
+            return new CharSequence[]{"Render calls: " + lastFrameRenderCalls};
+        }
+        final AbstractRenderQueue renderQueue = engine.getGraphics().getRenderQueue();
+        final AbstractTextureManager<?> textureManager = engine.getAssets().getTextureManager();
+        return new CharSequence[]{"Render calls: " + lastFrameRenderCalls,
+                "Sprites: " + renderQueue.getLastFrameSpriteCount(),
+                "Texture changes: " + renderQueue.getLastFrameTextureChanges() + " (" +
+                        renderQueue.getLastFrameUnsortedTextureChanges() + " unsorted, " +
+                        renderQueue.getSavedTextureChangesPercent() + "% saved)",
+                "Render queue: " + (renderQueue.isEnabled() ? "on" : "off"),
+                textureManager.getStreamingDiagnostic()};
     }
 
     @Override
@@ -20,6 +20,7 @@ package org.illarion.engine.backend.gdx;
 
 import com.badlogic.gdx.Files;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import org.illarion.engine.backend.shared.AbstractFontManager;
 import org.illarion.engine.graphic.Font;
 
@@ -64,7 +65,11 @@ class GdxFontManager extends AbstractFontManager {
         if (imageTexture == null) {
             throw new IOException("Failed to load required image: " + imageRoot + imageName);
         }
+        final TextureRegion imageRegion = imageTexture.getPinnedTextureRegion();
+        if (imageRegion == null) {
+            throw new IOException("Failed to load required image: " + imageRoot + imageName);
+        }
 
-        return new GdxFont(new BitmapFont(files.internal(fntRef), imageTexture.getTextureRegion(), true));
+        return new GdxFont(new BitmapFont(files.internal(fntRef), imageRegion, true));
     }
 }
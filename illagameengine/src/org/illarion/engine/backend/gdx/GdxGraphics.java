@@ -23,10 +23,12 @@ import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
 import com.badlogic.gdx.scenes.scene2d.utils.ScissorStack;
 import com.badlogic.gdx.utils.Pools;
 import illarion.common.types.Rectangle;
+import org.illarion.engine.backend.shared.AbstractRenderQueue;
 import org.illarion.engine.graphic.*;
 import org.illarion.engine.graphic.effects.TextureEffect;
 
@@ -39,6 +41,115 @@ import javax.annotation.Nullable;
  * @author Martin Karing &lt;nitram@illarion.org&gt;
  */
 class GdxGraphics implements Graphics {
+    /**
+     * The render queue implementation for libGDX. It stores a copy of the texture region and the location of every
+     * queued sprite.
+     */
+    private final class GdxRenderQueue extends AbstractRenderQueue {
+        /**
+         * The amount of sprites the queue can store.
+         */
+        private static final int CAPACITY = 1000;
+
+        /**
+         * The texture regions of the queued sprites.
+         */
+        @Nonnull
+        private final TextureRegion[] regions;
+
+        /**
+         * The x coordinates of the queued sprites.
+         */
+        @Nonnull
+        private final float[] posX;
+
+        /**
+         * The y coordinates of the queued sprites.
+         */
+        @Nonnull
+        private final float[] posY;
+
+        /**
+         * The x coordinates of the origins of the queued sprites.
+         */
+        @Nonnull
+        private final float[] originX;
+
+        /**
+         * The y coordinates of the origins of the queued sprites.
+         */
+        @Nonnull
+        private final float[] originY;
+
+        /**
+         * The widths of the queued sprites.
+         */
+        @Nonnull
+        private final float[] width;
+
+        /**
+         * The heights of the queued sprites.
+         */
+        @Nonnull
+        private final float[] height;
+
+        /**
+         * The packed colors of the queued sprites.
+         */
+        @Nonnull
+        private final float[] colors;
+
+        /**
+         * Create the render queue.
+         */
+        GdxRenderQueue() {
+            super(CAPACITY);
+            regions = new TextureRegion[CAPACITY];
+            for (int i = 0; i < CAPACITY; i++) {
+                regions[i] = new TextureRegion();
+            }
+            posX = new float[CAPACITY];
+            posY = new float[CAPACITY];
+            originX = new float[CAPACITY];
+            originY = new float[CAPACITY];
+            width = new float[CAPACITY];
+            height = new float[CAPACITY];
+            colors = new float[CAPACITY];
+        }
+
+        /**
+         * Add a sprite to the queue.
+         *
+         * @param region  the texture region of the sprite, the region is copied
+         * @param x       the x coordinate of the sprite
+         * @param y       the y coordinate of the sprite
+         * @param w       the width of the sprite
+         * @param h       the height of the sprite
+         * @param centerX the x coordinate of the origin of the sprite
+         * @param centerY the y coordinate of the origin of the sprite
+         * @param color   the color of the sprite
+         */
+        void add(@Nonnull final TextureRegion region, final int x, final int y, final int w, final int h,
+                 final float centerX, final float centerY, @Nonnull final com.badlogic.gdx.graphics.Color color) {
+            final int slot = enqueue(region.getTexture(), x, y, w, h);
+            regions[slot].setRegion(region);
+            posX[slot] = x;
+            posY[slot] = y;
+            originX[slot] = centerX;
+            originY[slot] = centerY;
+            width[slot] = w;
+            height[slot] = h;
+            colors[slot] = color.toFloatBits();
+        }
+
+        @Override
+        protected void drawEntry(final int slot) {
+            spriteBatch.setColor(colors[slot]);
+            spriteBatch.draw(regions[slot], posX[slot], posY[slot], originX[slot], originY[slot], width[slot],
+                    height[slot], 1.f, 1.f, 0.f);
+        }
+    }
+
     /**
      * The libGDX graphics instance that is used to display the graphics.
      */
@@ -126,6 +237,31 @@ class GdxGraphics implements Graphics {
      */
     private boolean activeClipping;
 
+    /**
+     * The queue that collects the sprites to sort them by their texture.
+     */
+    @Nonnull
+    private final GdxRenderQueue renderQueue;
+
+    /**
+     * The camera that is used while rendering into a render target.
+     */
+    @Nonnull
+    private final OrthographicCamera targetCamera;
+
+    /**
+     * The frame buffer of the render target that currently receives the render operations.
+     */
+    @Nullable
+    private FrameBuffer activeFrameBuffer;
+
+    /**
+     * The frame buffer the scene is rendered to while scene effects are active. Render targets bind this buffer
+     * again once they are done.
+     */
+    @Nullable
+    private FrameBuffer sceneFrameBuffer;
+
     /**
      * Create a new instance of the graphics engine that is using libGDX to render.
      *
@@ -142,10 +278,12 @@ class GdxGraphics implements Graphics {
         tempColor4 = new com.badlogic.gdx.graphics.Color();
         tempRegion = new TextureRegion();
         tempEngineRectangle = new Rectangle();
+        renderQueue = new GdxRenderQueue();
 
         camera = new OrthographicCamera();
         camera.zoom = 1.f;
         camera.setToOrtho(true);
+        targetCamera = new OrthographicCamera();
     }
 
     /**
@@ -213,6 +351,33 @@ class GdxGraphics implements Graphics {
     void endFrame() {
         flushAll();
         unsetClippingArea();
+        renderQueue.finishFrame();
+    }
+
+    /**
+     * Get the render queue of this graphics instance.
+     *
+     * @return the render queue
+     */
+    @Nonnull
+    AbstractRenderQueue getRenderQueue() {
+        return renderQueue;
+    }
+
+    @Override
+    public void setRenderQueueEnabled(final boolean enabled) {
+        flushRenderQueue();
+        renderQueue.setEnabled(enabled);
+    }
+
+    /**
+     * Draw all sprites that are waiting in the render queue.
+     */
+    private void flushRenderQueue() {
+        if (!renderQueue.isEmpty()) {
+            activateSpriteBatch();
+            renderQueue.flush();
+        }
     }
 
     /**
@@ -220,6 +385,7 @@ class GdxGraphics implements Graphics {
      * buffered data is flushed to the screen.
      */
     public void flushAll() {
+        flushRenderQueue();
         if (shapeRenderer.getCurrentType() != null) {
             shapeRenderer.end();
         }
@@ -248,25 +414,33 @@ class GdxGraphics implements Graphics {
             final double centerTransY = (gdxSprite.getHeight() * gdxSprite.getCenterY()) +
                     (gdxSprite.getOffsetY() * scale);
 
-            activateSpriteBatch();
+            @Nullable final TextureRegion frameRegion = gdxSprite.getFrame(frame).getTextureRegion();
+            if (frameRegion == null) {
+                return;
+            }
             transferColor(color, tempColor1);
+            tempRegion.setRegion(frameRegion);
+            tempRegion.flip(gdxSprite.isMirrored(), true);
 
-            @Nullable final GdxTextureEffect usedEffect;
-            if ((effects.length > 0) && (effects[0] instanceof GdxTextureEffect)) {
-                usedEffect = (GdxTextureEffect) effects[0];
-            } else {
-                usedEffect = null;
+            @Nullable final GdxTextureEffect usedEffect = getUsedEffect(effects);
+            if ((usedEffect == null) && (rotation == 0.0) && renderQueue.isEnabled()) {
+                renderQueue.add(tempRegion, tempEngineRectangle.getX(), tempEngineRectangle.getY(),
+                        tempEngineRectangle.getWidth(), tempEngineRectangle.getHeight(),
+                        (float) centerTransX, (float) centerTransY, tempColor1);
+                return;
             }
+
+            flushRenderQueue();
+            activateSpriteBatch();
             if (usedEffect != null) {
                 usedEffect.activateEffect(spriteBatch);
             }
             spriteBatch.setColor(tempColor1);
-            tempRegion.setRegion(gdxSprite.getFrame(frame).getTextureRegion());
-            tempRegion.flip(gdxSprite.isMirrored(), true);
             spriteBatch.draw(tempRegion, tempEngineRectangle.getX(), tempEngineRectangle.getY(),
                     (float) centerTransX, (float) centerTransY,
                     tempEngineRectangle.getWidth(), tempEngineRectangle.getHeight(),
                     1.f, 1.f, (float) rotation);
+            renderQueue.recordDraw(tempRegion.getTexture());
 
             if (usedEffect != null) {
                 usedEffect.disableEffect(spriteBatch);
@@ -274,11 +448,26 @@ class GdxGraphics implements Graphics {
         }
     }
 
+    /**
+     * Get the texture effect that is supposed to be applied.
+     *
+     * @param effects the effects handed to the drawing function
+     * @return the effect to apply or {@code null} in case there is none
+     */
+    @Nullable
+    private static GdxTextureEffect getUsedEffect(@Nonnull final TextureEffect... effects) {
+        if ((effects.length > 0) && (effects[0] instanceof GdxTextureEffect)) {
+            return (GdxTextureEffect) effects[0];
+        }
+        return null;
+    }
+
     @Override
     public void setBlendingMode(@Nonnull final BlendingMode mode) {
         if (lastBlendingMode == mode) {
             return;
         }
+        flushRenderQueue();
         switch (mode) {
             case AlphaBlend:
                 spriteBatch.setBlendFunction(GL10.GL_SRC_ALPHA, GL10.GL_ONE_MINUS_SRC_ALPHA);
@@ -312,6 +501,7 @@ class GdxGraphics implements Graphics {
     public void drawText(@Nonnull final Font font, @Nonnull final CharSequence text, @Nonnull final Color color,
                          final int x, final int y, final double scaleX, final double scaleY) {
         if (font instanceof GdxFont) {
+            flushRenderQueue();
             activateSpriteBatch();
             transferColor(color, tempColor1);
             final BitmapFont bitmapFont = ((GdxFont) font).getBitmapFont();
@@ -340,6 +530,7 @@ class GdxGraphics implements Graphics {
     public void drawRectangle(final int x, final int y, final int width, final int height,
                               @Nonnull final Color topLeftColor, @Nonnull final Color topRightColor,
                               @Nonnull final Color bottomLeftColor, @Nonnull final Color bottomRightColor) {
+        flushRenderQueue();
         activateShapeRenderer();
         transferColor(topLeftColor, tempColor1);
         transferColor(topRightColor, tempColor2);
@@ -357,24 +548,30 @@ class GdxGraphics implements Graphics {
             return;
         }
         if (texture instanceof GdxTexture) {
-            activateSpriteBatch();
+            @Nullable final TextureRegion textureRegion = ((GdxTexture) texture).getTextureRegion();
+            if (textureRegion == null) {
+                return;
+            }
             transferColor(color, tempColor1);
+            tempRegion.setRegion(textureRegion);
+            if (!tempRegion.isFlipY()) {
+                tempRegion.flip(false, true);
+            }
 
-            @Nullable final GdxTextureEffect usedEffect;
-            if ((effects.length > 0) && (effects[0] instanceof GdxTextureEffect)) {
-                usedEffect = (GdxTextureEffect) effects[0];
-            } else {
-                usedEffect = null;
+            @Nullable final GdxTextureEffect usedEffect = getUsedEffect(effects);
+            if ((usedEffect == null) && renderQueue.isEnabled()) {
+                renderQueue.add(tempRegion, x, y, width, height, 0.f, 0.f, tempColor1);
+                return;
             }
+
+            flushRenderQueue();
+            activateSpriteBatch();
             if (usedEffect != null) {
                 usedEffect.activateEffect(spriteBatch);
             }
             spriteBatch.setColor(tempColor1);
-            tempRegion.setRegion(((GdxTexture) texture).getTextureRegion());
-            if (!tempRegion.isFlipY()) {
-                tempRegion.flip(false, true);
-            }
             spriteBatch.draw(tempRegion, x, y, width, height);
+            renderQueue.recordDraw(tempRegion.getTexture());
 
             if (usedEffect != null) {
                 usedEffect.disableEffect(spriteBatch);
@@ -390,24 +587,30 @@ class GdxGraphics implements Graphics {
             return;
         }
         if (texture instanceof GdxTexture) {
-            activateSpriteBatch();
+            @Nullable final TextureRegion textureRegion = ((GdxTexture) texture).getTextureRegion();
+            if (textureRegion == null) {
+                return;
+            }
             transferColor(color, tempColor1);
+            tempRegion.setRegion(textureRegion, texX, texY, texWidth, texHeight);
+            if (!tempRegion.isFlipY()) {
+                tempRegion.flip(false, true);
+            }
 
-            @Nullable final GdxTextureEffect usedEffect;
-            if ((effects.length > 0) && (effects[0] instanceof GdxTextureEffect)) {
-                usedEffect = (GdxTextureEffect) effects[0];
-            } else {
-                usedEffect = null;
+            @Nullable final GdxTextureEffect usedEffect = getUsedEffect(effects);
+            if ((usedEffect == null) && renderQueue.isEnabled()) {
+                renderQueue.add(tempRegion, x, y, width, height, 0.f, 0.f, tempColor1);
+                return;
             }
+
+            flushRenderQueue();
+            activateSpriteBatch();
             if (usedEffect != null) {
                 usedEffect.activateEffect(spriteBatch);
             }
             spriteBatch.setColor(tempColor1);
-            tempRegion.setRegion(((GdxTexture) texture).getTextureRegion(), texX, texY, texWidth, texHeight);
-            if (!tempRegion.isFlipY()) {
-                tempRegion.flip(false, true);
-            }
             spriteBatch.draw(tempRegion, x, y, width, height);
+            renderQueue.recordDraw(tempRegion.getTexture());
 
             if (usedEffect != null) {
                 usedEffect.disableEffect(spriteBatch);
@@ -424,25 +627,30 @@ class GdxGraphics implements Graphics {
             return;
         }
         if (texture instanceof GdxTexture) {
-            activateSpriteBatch();
+            @Nullable final TextureRegion textureRegion = ((GdxTexture) texture).getTextureRegion();
+            if (textureRegion == null) {
+                return;
+            }
             transferColor(color, tempColor1);
+            tempRegion.setRegion(textureRegion, texX, texY, texWidth, texHeight);
+            if (!tempRegion.isFlipY()) {
+                tempRegion.flip(false, true);
+            }
 
-            @Nullable final GdxTextureEffect usedEffect;
-            if ((effects.length > 0) && (effects[0] instanceof GdxTextureEffect)) {
-                usedEffect = (GdxTextureEffect) effects[0];
-            } else {
-                usedEffect = null;
+            @Nullable final GdxTextureEffect usedEffect = getUsedEffect(effects);
+            if ((usedEffect == null) && (rotate == 0.0) && renderQueue.isEnabled()) {
+                renderQueue.add(tempRegion, x, y, width, height, centerX, centerY, tempColor1);
+                return;
             }
+
+            flushRenderQueue();
+            activateSpriteBatch();
             if (usedEffect != null) {
                 usedEffect.activateEffect(spriteBatch);
             }
-
             spriteBatch.setColor(tempColor1);
-            tempRegion.setRegion(((GdxTexture) texture).getTextureRegion(), texX, texY, texWidth, texHeight);
-            if (!tempRegion.isFlipY()) {
-                tempRegion.flip(false, true);
-            }
             spriteBatch.draw(tempRegion, x, y, centerX, centerY, width, height, 1.f, 1.f, (float) rotate);
+            renderQueue.recordDraw(tempRegion.getTexture());
 
             if (usedEffect != null) {
                 usedEffect.disableEffect(spriteBatch);
@@ -452,6 +660,7 @@ class GdxGraphics implements Graphics {
 
     @Override
     public void setClippingArea(final int x, final int y, final int width, final int height) {
+        flushRenderQueue();
         if (activeClipping) {
             unsetClippingArea();
         }
@@ -489,6 +698,7 @@ class GdxGraphics implements Graphics {
      * @param offsetY the y component of the offset
      */
     void applyOffset(final int offsetX, final int offsetY) {
+        flushRenderQueue();
         camera.position.set((camera.viewportWidth / 2.f) + offsetX, (camera.viewportHeight / 2.f) + offsetY, 0.f);
         camera.update();
 
@@ -502,4 +712,81 @@ class GdxGraphics implements Graphics {
     void resetOffset() {
         applyOffset(0, 0);
     }
+
+    /**
+     * Set the frame buffer the scene is currently rendered to. This has to be set while the scene renders into a
+     * frame buffer to apply its effects, so render targets can return to this buffer once they are done.
+     *
+     * @param frameBuffer the frame buffer of the scene or {@code null} in case the scene renders to the screen
+     */
+    void setSceneFrameBuffer(@Nullable final FrameBuffer frameBuffer) {
+        sceneFrameBuffer = frameBuffer;
+    }
+
+    @Nullable
+    @Override
+    public RenderTarget createRenderTarget(final int width, final int height) {
+        try {
+            return new GdxRenderTarget(width, height);
+        } catch (@Nonnull final IllegalStateException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void beginRenderTarget(@Nonnull final RenderTarget target, final int x, final int y, final int width,
+                                  final int height) {
+        if (!(target instanceof GdxRenderTarget)) {
+            throw new IllegalArgumentException("Illegal render target implementation.");
+        }
+        if (activeFrameBuffer != null) {
+            throw new IllegalStateException("Render targets can't be nested.");
+        }
+        flushAll();
+
+        final FrameBuffer frameBuffer = ((GdxRenderTarget) target).getFrameBuffer();
+        frameBuffer.begin();
+        activeFrameBuffer = frameBuffer;
+
+        /* The frame buffer is rendered upside down, so the rows of the texture end up in the same order as the rows of
+         * the textures loaded from the resources. */
+        targetCamera.setToOrtho(false, frameBuffer.getWidth(), frameBuffer.getHeight());
+        spriteBatch.setProjectionMatrix(targetCamera.combined);
+        shapeRenderer.setProjectionMatrix(targetCamera.combined);
+
+        gdxGraphics.getGLCommon().glEnable(GL10.GL_SCISSOR_TEST);
+        gdxGraphics.getGLCommon().glScissor(x, y, width, height);
+        gdxGraphics.getGLCommon().glClearColor(0.f, 0.f, 0.f, 0.f);
+        gdxGraphics.getGLCommon().glClear(GL10.GL_COLOR_BUFFER_BIT);
+
+        /* The clipping area of the scene does not apply to the render target. It is restored once the render target
+         * is done. */
+        gdxGraphics.getGLCommon().glDisable(GL10.GL_SCISSOR_TEST);
+    }
+
+    @Override
+    public void endRenderTarget() {
+        if (activeFrameBuffer == null) {
+            throw new IllegalStateException("No render target is active.");
+        }
+        flushAll();
+        activeFrameBuffer.end();
+        activeFrameBuffer = null;
+
+        /* Ending the frame buffer binds the screen again. In case the scene is rendered into a frame buffer, this
+         * buffer and its viewport need to be bound again. */
+        if (sceneFrameBuffer != null) {
+            sceneFrameBuffer.begin();
+        }
+
+        if (activeClipping) {
+            final com.badlogic.gdx.math.Rectangle scissor = ScissorStack.peekScissors();
+            gdxGraphics.getGLCommon().glEnable(GL10.GL_SCISSOR_TEST);
+            gdxGraphics.getGLCommon().glScissor((int) scissor.x, (int) scissor.y, (int) scissor.width,
+                    (int) scissor.height);
+        }
+
+        spriteBatch.setProjectionMatrix(camera.combined);
+        shapeRenderer.setProjectionMatrix(camera.combined);
+    }
 }
@@ -0,0 +1,88 @@
+/*
+ * This file is part of the Illarion Game Engine.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Game Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Game Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Game Engine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.illarion.engine.backend.gdx;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import org.illarion.engine.graphic.RenderTarget;
+import org.illarion.engine.graphic.Texture;
+
+import javax.annotation.Nonnull;
+
+/**
+ * This is the render target implementation of libGDX. It is backed by a frame buffer object.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+class GdxRenderTarget implements RenderTarget {
+    /**
+     * The frame buffer that receives the render operations.
+     */
+    @Nonnull
+    private final FrameBuffer frameBuffer;
+
+    /**
+     * The texture that wraps the color buffer of the frame buffer.
+     */
+    @Nonnull
+    private final GdxTexture texture;
+
+    /**
+     * Create a new render target.
+     *
+     * @param width  the width of the render target
+     * @param height the height of the render target
+     */
+    GdxRenderTarget(final int width, final int height) {
+        frameBuffer = new FrameBuffer(Pixmap.Format.RGBA8888, width, height, false);
+        texture = new GdxTexture(new TextureRegion(frameBuffer.getColorBufferTexture()));
+    }
+
+    /**
+     * Get the frame buffer of this render target.
+     *
+     * @return the frame buffer
+     */
+    @Nonnull
+    FrameBuffer getFrameBuffer() {
+        return frameBuffer;
+    }
+
+    @Nonnull
+    @Override
+    public Texture getTexture() {
+        return texture;
+    }
+
+    @Override
+    public int getWidth() {
+        return frameBuffer.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return frameBuffer.getHeight();
+    }
+
+    @Override
+    public void dispose() {
+        frameBuffer.dispose();
+    }
+}
@@ -102,14 +102,18 @@ class GdxScene extends AbstractScene<GdxSceneEffect> {
             renderScene(graphics);
             gdxGraphics.resetOffset();
         } else {
-            gdxGraphics.endFrame();
+            gdxGraphics.flushAll();
+            gdxGraphics.unsetClippingArea();
             FrameBuffer currentFrameBuffer = getNextFrameBuffer(container.getWidth(), container.getHeight());
             currentFrameBuffer.begin();
+            gdxGraphics.setSceneFrameBuffer(currentFrameBuffer);
             gdxGraphics.beginFrame();
             gdxGraphics.applyOffset(offsetX, offsetY);
             renderScene(graphics);
             gdxGraphics.resetOffset();
             gdxGraphics.flushAll();
+            gdxGraphics.unsetClippingArea();
+            gdxGraphics.setSceneFrameBuffer(null);
             currentFrameBuffer.end();
 
             final SpriteBatch renderBatch = gdxGraphics.getSpriteBatch();
@@ -19,24 +19,83 @@
 package org.illarion.engine.backend.gdx;
 
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import org.illarion.engine.backend.shared.StreamedAtlas;
 import org.illarion.engine.graphic.Texture;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 /**
  * This is the implementation of a texture that stores a libGDX texture.
+ * <p />
+ * Textures that show a part of a streamed atlas only know their location on the atlas. The texture region is created
+ * once the atlas is resident and created again every time the atlas gets a new texture.
  *
  * @author Martin Karing &lt;nitram@illarion.org&gt;
  */
 class GdxTexture implements Texture {
     /**
-     * The internal texture that is wrapped by this engine texture.
+     * The internal texture that is wrapped by this engine texture. For streamed textures this is {@code null} until
+     * the atlas was resident for the first time.
      */
-    @Nonnull
-    private final TextureRegion backingTexture;
+    @Nullable
+    private TextureRegion backingTexture;
+
+    /**
+     * The streamed atlas this texture is a part of or {@code null} in case this texture is not streamed.
+     */
+    @Nullable
+    private final StreamedAtlas atlas;
+
+    /**
+     * The x coordinate of this texture on the streamed atlas.
+     */
+    private final int atlasX;
+
+    /**
+     * The y coordinate of this texture on the streamed atlas.
+     */
+    private final int atlasY;
+
+    /**
+     * The width of this texture.
+     */
+    private final int width;
+
+    /**
+     * The height of this texture.
+     */
+    private final int height;
+
+    /**
+     * The generation of the streamed atlas the backing texture was created for.
+     */
+    private int atlasGeneration;
 
     GdxTexture(@Nonnull final TextureRegion backingTexture) {
         this.backingTexture = backingTexture;
+        atlas = null;
+        atlasX = 0;
+        atlasY = 0;
+        width = backingTexture.getRegionWidth();
+        height = backingTexture.getRegionHeight();
+    }
+
+    /**
+     * Create a texture that shows a part of a streamed atlas.
+     *
+     * @param atlas  the streamed atlas
+     * @param x      the x coordinate of the texture on the atlas
+     * @param y      the y coordinate of the texture on the atlas
+     * @param width  the width of the texture
+     * @param height the height of the texture
+     */
+    GdxTexture(@Nonnull final StreamedAtlas atlas, final int x, final int y, final int width, final int height) {
+        this.atlas = atlas;
+        atlasX = x;
+        atlasY = y;
+        this.width = width;
+        this.height = height;
     }
 
     @Override
@@ -47,20 +106,70 @@ class GdxTexture implements Texture {
     @Nonnull
     @Override
     public Texture getSubTexture(final int x, final int y, final int width, final int height) {
+        if (atlas != null) {
+            return new GdxTexture(atlas, atlasX + x, atlasY + y, width, height);
+        }
+        assert backingTexture != null;
         return new GdxTexture(new TextureRegion(backingTexture, x, y, width, height));
     }
 
     @Override
     public int getHeight() {
-        return backingTexture.getRegionHeight();
+        return height;
     }
 
     @Override
     public int getWidth() {
-        return backingTexture.getRegionWidth();
+        return width;
     }
 
+    /**
+     * Get the texture region in order to draw it.
+     *
+     * @return the texture region or {@code null} in case the streamed atlas of this texture is not resident
+     */
+    @Nullable
     public TextureRegion getTextureRegion() {
+        if (atlas == null) {
+            return backingTexture;
+        }
+        return resolveRegion(atlas.use());
+    }
+
+    /**
+     * Get the texture region in order to hand it to another library that keeps it. In case this texture is streamed,
+     * the atlas is load right away and never released.
+     *
+     * @return the texture region or {@code null} in case loading the streamed atlas failed
+     */
+    @Nullable
+    public TextureRegion getPinnedTextureRegion() {
+        if (atlas == null) {
+            return backingTexture;
+        }
+        return resolveRegion(atlas.require());
+    }
+
+    /**
+     * Get the texture region on the texture of the streamed atlas.
+     *
+     * @param atlasTexture the texture of the streamed atlas
+     * @return the texture region or {@code null} in case the atlas has no texture
+     */
+    @Nullable
+    private TextureRegion resolveRegion(@Nullable final Texture atlasTexture) {
+        if (!(atlasTexture instanceof GdxTexture)) {
+            return null;
+        }
+        assert atlas != null;
+        if ((backingTexture == null) || (atlasGeneration != atlas.getGeneration())) {
+            final TextureRegion atlasRegion = ((GdxTexture) atlasTexture).getTextureRegion();
+            if (atlasRegion == null) {
+                return null;
+            }
+            backingTexture = new TextureRegion(atlasRegion, atlasX, atlasY, width, height);
+            atlasGeneration = atlas.getGeneration();
+        }
         return backingTexture;
     }
 }
@@ -19,25 +19,44 @@
 package org.illarion.engine.backend.gdx;
 
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.TextureData;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.FileTextureData;
 import com.badlogic.gdx.utils.GdxRuntimeException;
 import org.illarion.engine.backend.shared.AbstractTextureManager;
+import org.illarion.engine.backend.shared.StreamedAtlas;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 /**
  * This is the texture manager that takes care of loading and storing textures that were created for libGDX.
+ * <p />
+ * The image data is decoded into a pixmap that is wrapped in managed texture data, so the texture can be reloaded
+ * from the file in case the graphics context is lost.
  *
  * @author Martin Karing &lt;nitram@illarion.org&gt;
  */
-class GdxTextureManager extends AbstractTextureManager {
+class GdxTextureManager extends AbstractTextureManager<TextureData> {
     @Nullable
     @Override
-    protected GdxTexture loadTexture(@Nonnull final String resource) {
+    protected TextureData loadTextureData(@Nonnull final String resource) {
         try {
-            final Texture tex = new Texture(Gdx.files.internal(resource), false);
+            final FileHandle file = Gdx.files.internal(resource);
+            return new FileTextureData(file, new Pixmap(file), null, false);
+        } catch (@Nonnull final GdxRuntimeException e) {
+            return null;
+        }
+    }
+
+    @Nullable
+    @Override
+    protected GdxTexture createTexture(@Nonnull final TextureData data) {
+        try {
+            final Texture tex = new Texture(data);
             tex.setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
             final TextureRegion region = new TextureRegion(tex);
             region.flip(false, false);
@@ -46,4 +65,21 @@ class GdxTextureManager extends AbstractTextureManager {
             return null;
         }
     }
+
+    @Nonnull
+    @Override
+    protected GdxTexture createStreamedTexture(@Nonnull final StreamedAtlas atlas, final int x, final int y,
+                                               final int width, final int height) {
+        return new GdxTexture(atlas, x, y, width, height);
+    }
+
+    @Override
+    protected void disposeTexture(@Nonnull final org.illarion.engine.graphic.Texture texture) {
+        if (texture instanceof GdxTexture) {
+            final TextureRegion region = ((GdxTexture) texture).getTextureRegion();
+            if (region != null) {
+                region.getTexture().dispose();
+            }
+        }
+    }
 }
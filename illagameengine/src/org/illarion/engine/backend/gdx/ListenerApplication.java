@@ -22,6 +22,8 @@ import com.badlogic.gdx.ApplicationListener;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import org.illarion.engine.GameListener;
+import org.illarion.engine.profiler.FrameProfiler;
+import org.illarion.engine.profiler.ProfilerSection;
 
 import javax.annotation.Nonnull;
 
@@ -32,6 +34,12 @@ import javax.annotation.Nonnull;
  * @author Martin Karing &lt;nitram@illarion.org&gt;
  */
 class ListenerApplication implements ApplicationListener {
+    /**
+     * The profiler section that measures the flushing of the graphics at the end of the frame.
+     */
+    @Nonnull
+    private static final ProfilerSection BACKEND_FLUSH = FrameProfiler.getInstance().getSection("Backend flush");
+
     /**
      * This is the game listener of the engine that has to receive the information regarding the game.
      */
@@ -68,16 +76,23 @@ class ListenerApplication implements ApplicationListener {
 
     @Override
     public void render() {
+        final FrameProfiler profiler = FrameProfiler.getInstance();
+        profiler.beginFrame();
         listener.update(container, Math.round(Gdx.graphics.getDeltaTime() * 1000.f));
 
-        final GdxGraphics graphics = ((GdxEngine) container.getEngine()).getGraphics();
+        final GdxEngine engine = (GdxEngine) container.getEngine();
+        final GdxGraphics graphics = engine.getGraphics();
         graphics.beginFrame();
         listener.render(container);
+        final long flushStart = BACKEND_FLUSH.start();
         graphics.endFrame();
+        engine.getAssets().getTextureManager().finishFrame();
+        BACKEND_FLUSH.stop(flushStart);
 
         final SpriteBatch batch = container.getEngine().getGraphics().getSpriteBatch();
         container.setLastFrameRenderCalls(batch.totalRenderCalls);
         batch.totalRenderCalls = 0;
+        profiler.endFrame();
     }
 
     /**
@@ -0,0 +1,381 @@
+/*
+ * This file is part of the Illarion Game Engine.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Game Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Game Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Game Engine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.illarion.engine.backend.shared;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+
+/**
+ * This is the shared implementation of the render queue. The queue collects draw operations and sorts them by the
+ * texture they use once its flushed. A operation is only drawn ahead of its turn in case it does not overlap any of
+ * the operations it skips, so the result on the screen is the same as with drawing them in order.
+ * <p />
+ * The backend implementations store the actual data of the draw operation in a slot that is assigned by this class
+ * and perform the actual drawing in {@link #drawEntry(int)}.
+ * <p />
+ * The queue also keeps track of the amount of sprites drawn and the amount of texture changes during a frame. This
+ * happens regardless if the queue is enabled or not, so the two modes can be compared. Next to the texture changes
+ * that actually happened, the queue counts the texture changes that would have happened in case the sprites were
+ * drawn in the order they were submitted. That way the reduction achieved by the queue is visible on any scene.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+@NotThreadSafe
+public abstract class AbstractRenderQueue {
+    /**
+     * The maximal amount of operations that are skipped while searching for operations that use the same texture.
+     * This limits the time needed to sort the queue.
+     */
+    private static final int MAX_SKIPPED_ENTRIES = 32;
+
+    /**
+     * The textures used by the queued operations.
+     */
+    @Nonnull
+    private final Object[] textures;
+
+    /**
+     * The left borders of the areas covered by the queued operations.
+     */
+    @Nonnull
+    private final int[] areaLeft;
+
+    /**
+     * The top borders of the areas covered by the queued operations.
+     */
+    @Nonnull
+    private final int[] areaTop;
+
+    /**
+     * The right borders of the areas covered by the queued operations.
+     */
+    @Nonnull
+    private final int[] areaRight;
+
+    /**
+     * The bottom borders of the areas covered by the queued operations.
+     */
+    @Nonnull
+    private final int[] areaBottom;
+
+    /**
+     * The flags that mark the operations that were already drawn during a flush.
+     */
+    @Nonnull
+    private final boolean[] drawn;
+
+    /**
+     * The slots of the operations that got skipped during the current search.
+     */
+    @Nonnull
+    private final int[] skipped;
+
+    /**
+     * The amount of operations in the queue.
+     */
+    private int count;
+
+    /**
+     * This flag is {@code true} in case the queue is enabled.
+     */
+    private boolean enabled;
+
+    /**
+     * The texture that was drawn last.
+     */
+    @Nullable
+    private Object lastTexture;
+
+    /**
+     * The texture of the sprite that was submitted last.
+     */
+    @Nullable
+    private Object lastSubmittedTexture;
+
+    /**
+     * The amount of sprites drawn during the current frame.
+     */
+    private int frameSpriteCount;
+
+    /**
+     * The amount of texture changes during the current frame.
+     */
+    private int frameTextureChanges;
+
+    /**
+     * The amount of texture changes in the order the sprites were submitted during the current frame.
+     */
+    private int frameUnsortedTextureChanges;
+
+    /**
+     * The amount of sprites drawn during the last frame.
+     */
+    private int lastFrameSpriteCount;
+
+    /**
+     * The amount of texture changes during the last frame.
+     */
+    private int lastFrameTextureChanges;
+
+    /**
+     * The amount of texture changes in the order the sprites were submitted during the last frame.
+     */
+    private int lastFrameUnsortedTextureChanges;
+
+    /**
+     * The amount of texture changes of all finished frames.
+     */
+    private long totalTextureChanges;
+
+    /**
+     * The amount of texture changes in the order the sprites were submitted of all finished frames.
+     */
+    private long totalUnsortedTextureChanges;
+
+    /**
+     * Create a new render queue.
+     *
+     * @param capacity the amount of operations the queue can store before it has to be flushed
+     */
+    protected AbstractRenderQueue(final int capacity) {
+        textures = new Object[capacity];
+        areaLeft = new int[capacity];
+        areaTop = new int[capacity];
+        areaRight = new int[capacity];
+        areaBottom = new int[capacity];
+        drawn = new boolean[capacity];
+        skipped = new int[MAX_SKIPPED_ENTRIES];
+    }
+
+    /**
+     * Check if the queue is enabled.
+     *
+     * @return {@code true} in case the queue is enabled
+     */
+    public final boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enable or disable the queue. In case the queue is disabled, all pending operations are drawn.
+     *
+     * @param enabled {@code true} to enable the queue
+     */
+    public final void setEnabled(final boolean enabled) {
+        if (!enabled) {
+            flush();
+        }
+        this.enabled = enabled;
+    }
+
+    /**
+     * Check if there are any operations waiting in the queue.
+     *
+     * @return {@code true} in case the queue is not empty
+     */
+    public final boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Add a operation to the queue. In case the queue is full, it is flushed first.
+     *
+     * @param texture the texture that is used by this operation
+     * @param x       the x coordinate of the area covered by the operation
+     * @param y       the y coordinate of the area covered by the operation
+     * @param width   the width of the area covered by the operation
+     * @param height  the height of the area covered by the operation
+     * @return the slot the backend has to store the data of this operation in
+     */
+    protected final int enqueue(@Nonnull final Object texture, final int x, final int y, final int width,
+                                final int height) {
+        if (count == textures.length) {
+            flush();
+        }
+        recordSubmission(texture);
+        final int slot = count;
+        textures[slot] = texture;
+        areaLeft[slot] = x;
+        areaTop[slot] = y;
+        areaRight[slot] = x + width;
+        areaBottom[slot] = y + height;
+        count++;
+        return slot;
+    }
+
+    /**
+     * Draw all operations in the queue.
+     */
+    public final void flush() {
+        if (count == 0) {
+            return;
+        }
+
+        int first = 0;
+        while (first < count) {
+            if (drawn[first]) {
+                first++;
+                continue;
+            }
+
+            final Object texture = textures[first];
+            int skippedCount = 0;
+            for (int i = first; i < count; i++) {
+                if (drawn[i]) {
+                    continue;
+                }
+                if ((textures[i] == texture) && !isOverlappingSkipped(i, skippedCount)) {
+                    drawn[i] = true;
+                    countDraw(texture);
+                    drawEntry(i);
+                } else {
+                    if (skippedCount == MAX_SKIPPED_ENTRIES) {
+                        break;
+                    }
+                    skipped[skippedCount++] = i;
+                }
+            }
+        }
+
+        Arrays.fill(drawn, 0, count, false);
+        Arrays.fill(textures, 0, count, null);
+        count = 0;
+    }
+
+    /**
+     * Check if a operation overlaps any of the skipped operations.
+     *
+     * @param slot         the slot of the operation
+     * @param skippedCount the amount of skipped operations
+     * @return {@code true} in case the operation overlaps at least one of the skipped operations
+     */
+    private boolean isOverlappingSkipped(final int slot, final int skippedCount) {
+        for (int i = 0; i < skippedCount; i++) {
+            final int other = skipped[i];
+            if ((areaLeft[slot] < areaRight[other]) && (areaLeft[other] < areaRight[slot]) &&
+                    (areaTop[slot] < areaBottom[other]) && (areaTop[other] < areaBottom[slot])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Record that a sprite was drawn. This has to be called by the backend for every operation that is drawn without
+     * using the queue.
+     *
+     * @param texture the texture the sprite was drawn with
+     */
+    public final void recordDraw(@Nonnull final Object texture) {
+        recordSubmission(texture);
+        countDraw(texture);
+    }
+
+    /**
+     * Count a sprite in the order it was submitted to the graphics.
+     *
+     * @param texture the texture of the sprite
+     */
+    private void recordSubmission(@Nonnull final Object texture) {
+        if (texture != lastSubmittedTexture) {
+            frameUnsortedTextureChanges++;
+            lastSubmittedTexture = texture;
+        }
+    }
+
+    /**
+     * Count a sprite in the order it was drawn.
+     *
+     * @param texture the texture of the sprite
+     */
+    private void countDraw(@Nonnull final Object texture) {
+        frameSpriteCount++;
+        if (texture != lastTexture) {
+            frameTextureChanges++;
+            lastTexture = texture;
+        }
+    }
+
+    /**
+     * Finish the current frame. This draws all pending operations and stores the statistics of the frame.
+     */
+    public final void finishFrame() {
+        flush();
+        lastFrameSpriteCount = frameSpriteCount;
+        lastFrameTextureChanges = frameTextureChanges;
+        lastFrameUnsortedTextureChanges = frameUnsortedTextureChanges;
+        totalTextureChanges += frameTextureChanges;
+        totalUnsortedTextureChanges += frameUnsortedTextureChanges;
+        frameSpriteCount = 0;
+        frameTextureChanges = 0;
+        frameUnsortedTextureChanges = 0;
+        lastTexture = null;
+        lastSubmittedTexture = null;
+    }
+
+    /**
+     * Get the amount of sprites that were drawn during the last frame.
+     *
+     * @return the amount of sprites drawn
+     */
+    public final int getLastFrameSpriteCount() {
+        return lastFrameSpriteCount;
+    }
+
+    /**
+     * Get the amount of times the texture changed between two sprites during the last frame.
+     *
+     * @return the amount of texture changes
+     */
+    public final int getLastFrameTextureChanges() {
+        return lastFrameTextureChanges;
+    }
+
+    /**
+     * Get the amount of times the texture would have changed during the last frame in case the sprites were drawn in
+     * the order they were submitted.
+     *
+     * @return the amount of texture changes without sorting
+     */
+    public final int getLastFrameUnsortedTextureChanges() {
+        return lastFrameUnsortedTextureChanges;
+    }
+
+    /**
+     * Get the share of the texture changes that were saved by sorting the sprites, measured over all frames drawn so
+     * far.
+     *
+     * @return the saved texture changes in percent
+     */
+    public final int getSavedTextureChangesPercent() {
+        if (totalUnsortedTextureChanges == 0L) {
+            return 0;
+        }
+        return (int) (((totalUnsortedTextureChanges - totalTextureChanges) * 100L) / totalUnsortedTextureChanges);
+    }
+
+    /**
+     * Draw the operation that is stored in a slot.
+     *
+     * @param slot the slot
+     */
+    protected abstract void drawEntry(int slot);
+}
@@ -18,10 +18,12 @@
  */
 package org.illarion.engine.backend.shared;
 
+import illarion.common.types.Rectangle;
 import illarion.common.util.FastMath;
 import org.apache.log4j.Logger;
 import org.illarion.engine.GameContainer;
 import org.illarion.engine.graphic.Graphics;
+import org.illarion.engine.graphic.PointerSceneEvent;
 import org.illarion.engine.graphic.Scene;
 import org.illarion.engine.graphic.SceneElement;
 import org.illarion.engine.graphic.SceneEvent;
@@ -75,6 +77,91 @@ public abstract class AbstractScene<T extends SceneEffect> implements Scene, Com
      */
     private int workingArraySize;
 
+    /**
+     * The additional space around the viewport in pixels that is still treated as visible.
+     */
+    static final int VIEWPORT_MARGIN = 100;
+
+    /**
+     * The amount of frames between two updates of elements outside of the viewport.
+     */
+    private static final int OFF_SCREEN_UPDATE_INTERVAL = 8;
+
+    /**
+     * The viewport of the scene.
+     */
+    @Nonnull
+    private final Rectangle viewport;
+
+    /**
+     * The grid that stores the elements inside the viewport.
+     */
+    @Nonnull
+    private final SceneGrid grid;
+
+    /**
+     * The indices of the elements in the working array that are inside the viewport. This list is sorted in the same
+     * order as the working array.
+     */
+    @Nonnull
+    private int[] visibleIndices = new int[0];
+
+    /**
+     * The amount of valid entries in the {@link #visibleIndices} array.
+     */
+    private int visibleCount;
+
+    /**
+     * The grid that stores the event areas of the elements inside the viewport. It is used to find the elements that
+     * may handle a pointer event.
+     */
+    @Nonnull
+    private final SceneGrid eventGrid;
+
+    /**
+     * The indices of the visible elements that accept pointer events anywhere on the screen. This list is sorted
+     * in the same order as the working array.
+     */
+    @Nonnull
+    private int[] unboundedEventIndices = new int[0];
+
+    /**
+     * The amount of valid entries in the {@link #unboundedEventIndices} array.
+     */
+    private int unboundedEventCount;
+
+    /**
+     * This flag is {@code true} in case the event grid was build during the last snapshot of the scene.
+     */
+    private boolean eventGridValid;
+
+    /**
+     * The time values of the last updates. Needed to report the correct time to the elements outside of the
+     * viewport.
+     */
+    @Nonnull
+    private final int[] recentDeltas;
+
+    /**
+     * The counter of the updates performed on this scene.
+     */
+    private int updateCounter;
+
+    /**
+     * The amount of elements that received a update during the last update.
+     */
+    private int visitedElementCount;
+
+    /**
+     * The amount of elements outside of the viewport during the last update.
+     */
+    private int culledElementCount;
+
+    /**
+     * The amount of elements rendered during the last render operation.
+     */
+    private int drawnElementCount;
+
     /**
      * Create a new scene and setup the internal structures.
      */
@@ -82,6 +169,10 @@ public abstract class AbstractScene<T extends SceneEffect> implements Scene, Com
         sceneElements = new ArrayList<SceneElement>();
         eventQueue = new ConcurrentLinkedQueue<SceneEvent>();
         sceneEffects = new ArrayList<T>();
+        viewport = new Rectangle();
+        grid = new SceneGrid();
+        eventGrid = new SceneGrid();
+        recentDeltas = new int[OFF_SCREEN_UPDATE_INTERVAL];
     }
 
     @Override
@@ -116,8 +207,30 @@ public abstract class AbstractScene<T extends SceneEffect> implements Scene, Com
         }
     }
 
+    @Override
+    public final void setViewport(final int x, final int y, final int width, final int height) {
+        viewport.set(x, y, width, height);
+    }
+
+    @Override
+    public final int getVisitedElementCount() {
+        return visitedElementCount;
+    }
+
+    @Override
+    public final int getCulledElementCount() {
+        return culledElementCount;
+    }
+
+    @Override
+    public final int getDrawnElementCount() {
+        return drawnElementCount;
+    }
+
     /**
-     * This function performs the actual calling of the update functions for all scene elements.
+     * This function performs the actual calling of the update functions for all scene elements. Elements inside the
+     * viewport receive a full update every time. The elements outside of the viewport only receive the reduced
+     * update every {@link #OFF_SCREEN_UPDATE_INTERVAL} calls of this function.
      *
      * @param container the game container that is forwarded to the scene elements
      * @param delta     the time since the last update that is reported to the elements
@@ -128,39 +241,170 @@ public abstract class AbstractScene<T extends SceneEffect> implements Scene, Com
             workingArray = sceneElements.toArray(workingArray);
             workingArraySize = sceneElements.size();
         }
+        buildVisibleElements();
 
         @Nullable SceneEvent event = eventQueue.poll();
         while (event != null) {
-            boolean notProcessed = true;
-            for (int i = workingArraySize - 1; i >= 0; i--) {
-                final SceneElement element = workingArray[i];
-                if (element.isEventProcessed(container, delta, event)) {
-                    notProcessed = false;
-                    break;
-                }
+            final boolean processed;
+            if (eventGridValid && (event instanceof PointerSceneEvent)) {
+                processed = dispatchPointerEvent(container, delta, (PointerSceneEvent) event);
+            } else {
+                processed = dispatchEvent(container, delta, event);
             }
-            if (notProcessed) {
+            if (!processed) {
                 event.notHandled();
             }
             event = eventQueue.poll();
         }
 
+        for (int i = 0; i < visibleCount; i++) {
+            workingArray[visibleIndices[i]].update(container, delta);
+        }
+
+        updateCounter++;
+        final int slot = updateCounter % OFF_SCREEN_UPDATE_INTERVAL;
+        recentDeltas[slot] = delta;
+        culledElementCount = workingArraySize - visibleCount;
+        visitedElementCount = visibleCount;
+        if (culledElementCount > 0) {
+            int offScreenDelta = 0;
+            for (final int recentDelta : recentDeltas) {
+                offScreenDelta += recentDelta;
+            }
+
+            int nextVisible = 0;
+            for (int i = slot; i < workingArraySize; i += OFF_SCREEN_UPDATE_INTERVAL) {
+                while ((nextVisible < visibleCount) && (visibleIndices[nextVisible] < i)) {
+                    nextVisible++;
+                }
+                if ((nextVisible < visibleCount) && (visibleIndices[nextVisible] == i)) {
+                    continue;
+                }
+                workingArray[i].updateOffScreen(container, offScreenDelta);
+                visitedElementCount++;
+            }
+        }
+    }
+
+    /**
+     * Offer a event to all elements of the scene, starting with the element that is rendered last.
+     *
+     * @param container the game container that is forwarded to the scene elements
+     * @param delta     the time since the last update that is reported to the elements
+     * @param event     the event
+     * @return {@code true} in case one of the elements handled the event
+     */
+    private boolean dispatchEvent(@Nonnull final GameContainer container, final int delta,
+                                  @Nonnull final SceneEvent event) {
+        for (int i = workingArraySize - 1; i >= 0; i--) {
+            if (workingArray[i].isEventProcessed(container, delta, event)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Offer a pointer event to the elements with a event area that contains the location of the event. The elements
+     * are called in the same order as {@link #dispatchEvent(GameContainer, int, SceneEvent)} does.
+     *
+     * @param container the game container that is forwarded to the scene elements
+     * @param delta     the time since the last update that is reported to the elements
+     * @param event     the event
+     * @return {@code true} in case one of the elements handled the event
+     */
+    private boolean dispatchPointerEvent(@Nonnull final GameContainer container, final int delta,
+                                         @Nonnull final PointerSceneEvent event) {
+        final int x = event.getPointerX() + viewport.getX();
+        final int y = event.getPointerY() + viewport.getY();
+
+        int entry = eventGrid.getFirstEntry(x, y);
+        int unbounded = unboundedEventCount - 1;
+        while ((entry != SceneGrid.NO_ENTRY) || (unbounded >= 0)) {
+            final int index;
+            if ((entry == SceneGrid.NO_ENTRY) ||
+                    ((unbounded >= 0) && (unboundedEventIndices[unbounded] > eventGrid.getElementIndex(entry)))) {
+                index = unboundedEventIndices[unbounded];
+                unbounded--;
+            } else {
+                index = eventGrid.getElementIndex(entry);
+                entry = eventGrid.getNextEntry(entry);
+                if (!workingArray[index].getEventArea().isInside(x, y)) {
+                    continue;
+                }
+            }
+            if (workingArray[index].isEventProcessed(container, delta, event)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Rebuild the grid of the scene and the list of elements that are inside the viewport. Elements with a unknown
+     * display area are always treated as visible.
+     */
+    private void buildVisibleElements() {
+        if (visibleIndices.length < workingArraySize) {
+            visibleIndices = new int[workingArray.length];
+        }
+        visibleCount = 0;
+
+        final boolean cullingEnabled = !viewport.isEmpty();
+        if (cullingEnabled) {
+            grid.reset(viewport.getX() - VIEWPORT_MARGIN, viewport.getY() - VIEWPORT_MARGIN,
+                    viewport.getWidth() + (2 * VIEWPORT_MARGIN), viewport.getHeight() + (2 * VIEWPORT_MARGIN));
+        }
+
         for (int i = 0; i < workingArraySize; i++) {
-            final SceneElement element = workingArray[i];
-            element.update(container, delta);
+            if (cullingEnabled) {
+                final Rectangle bounds = workingArray[i].getDisplayRect();
+                if (!bounds.isEmpty() && !grid.insert(i, bounds)) {
+                    continue;
+                }
+            }
+            visibleIndices[visibleCount++] = i;
+        }
+
+        eventGridValid = cullingEnabled;
+        if (cullingEnabled) {
+            buildEventGrid();
+        }
+    }
+
+    /**
+     * Rebuild the grid of the event areas of all elements inside the viewport. Elements outside of the viewport are
+     * not able to handle pointer events, as the pointer is always inside the viewport.
+     */
+    private void buildEventGrid() {
+        if (unboundedEventIndices.length < visibleCount) {
+            unboundedEventIndices = new int[visibleIndices.length];
+        }
+        unboundedEventCount = 0;
+        eventGrid.reset(viewport.getX(), viewport.getY(), viewport.getWidth(), viewport.getHeight());
+
+        for (int i = 0; i < visibleCount; i++) {
+            final int index = visibleIndices[i];
+            final Rectangle eventArea = workingArray[index].getEventArea();
+            if (eventArea.isEmpty()) {
+                unboundedEventIndices[unboundedEventCount++] = index;
+            } else {
+                eventGrid.insert(index, eventArea);
+            }
         }
     }
 
     /**
-     * This function performs the actual render operation for all elements of the scene.
+     * This function performs the actual render operation for all elements of the scene that are inside the
+     * viewport.
      *
      * @param graphics the graphics instance that is used to render the game
      */
     protected final void renderScene(@Nonnull final Graphics graphics) {
-        for (int i = 0; i < workingArraySize; i++) {
-            final SceneElement element = workingArray[i];
-            element.render(graphics);
+        for (int i = 0; i < visibleCount; i++) {
+            workingArray[visibleIndices[i]].render(graphics);
         }
+        drawnElementCount = visibleCount;
     }
 
     @Override
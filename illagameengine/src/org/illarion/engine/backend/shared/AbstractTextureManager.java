@@ -18,6 +18,7 @@
  */
 package org.illarion.engine.backend.shared;
 
+import illarion.common.graphics.SpriteAtlasIndex;
 import org.apache.log4j.Logger;
 import org.illarion.engine.assets.TextureManager;
 import org.illarion.engine.graphic.Texture;
@@ -32,17 +33,49 @@ import java.io.Closeable;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This is the shared code of the texture manager that is used by all backend implementations in a similar way.
+ * <p />
+ * The texture atlas files are decoded by a pool of worker threads. This covers reading the image into memory and
+ * parsing the atlas definition. Only creating the actual textures from the decoded image data is done by the thread
+ * that calls {@link #loadRemaining()}. This part is limited to a time budget for each call, so the loading screen
+ * stays responsive.
+ * <p />
+ * In case a streaming budget is set, only the definitions of the atlas files are loaded by {@link #loadRemaining()}.
+ * The texture of a atlas is created once a sprite of the atlas is drawn for the first time and released again once
+ * the atlas was not drawn for a while and the textures exceed the budget. Until the texture is available, the sprites
+ * of the atlas are simply not drawn, so the frame never waits for a atlas to load.
+ * <p />
+ * In case a directory contains a {@link SpriteAtlasIndex}, the XML definitions of the atlas files are not read at all.
+ * The textures of the sprites are created from the index once they are requested.
+ * <p />
+ * Textures may be requested by other threads once {@link #loadRemaining()} reported that all atlas files are load.
+ * Those threads only receive textures that do not require the graphics context to be created, everything else is
+ * only load for the thread that calls {@link #loadRemaining()}.
  *
+ * @param <T> the type of the decoded image data used by the backend
  * @author Martin Karing &gt;nitram@illarion.org&lt;
  */
-public abstract class AbstractTextureManager implements TextureManager {
+public abstract class AbstractTextureManager<T> implements TextureManager {
     /**
      * The base name of the atlas files.
      */
@@ -51,6 +84,18 @@ public abstract class AbstractTextureManager implements TextureManager {
     private static final String ATLAS_DEF_EXTENSION = ".xml";
     private static final String IMAGE_EXTENSION = ".png";
 
+    /**
+     * The time one call of {@link #loadRemaining()} may spend on creating textures from decoded atlas files in
+     * nanoseconds. At least one texture is created with each call, regardless of this budget.
+     */
+    private static final long UPLOAD_TIME_BUDGET = TimeUnit.MILLISECONDS.toNanos(8);
+
+    /**
+     * The time {@link #finishFrame()} may spend on creating the textures of streamed atlas files in nanoseconds. At
+     * least one texture is created with each frame, regardless of this budget.
+     */
+    private static final long STREAMING_UPLOAD_TIME_BUDGET = TimeUnit.MILLISECONDS.toNanos(4);
+
     /**
      * The logger that provides the logging output of this class.
      */
@@ -63,7 +108,7 @@ public abstract class AbstractTextureManager implements TextureManager {
     private final List<Integer> expectedAtlasCount;
 
     /**
-     * The index of the last atlas that was load. One list entry for each root directory.
+     * The index of the last atlas that was load or scheduled to be decoded. One list entry for each root directory.
      */
     @Nonnull
     private final List<Integer> lastAtlasIndex;
@@ -79,6 +124,115 @@ public abstract class AbstractTextureManager implements TextureManager {
      */
     private final Map<String, Texture> textures;
 
+    /**
+     * The sprite atlas indices of the root directories. The entry is {@code null} in case the directory has no index.
+     */
+    @Nonnull
+    private final List<SpriteAtlasIndex> atlasIndices;
+
+    /**
+     * The textures of the atlas files that were load for the sprite atlas indices. One entry for each root
+     * directory, created once the first atlas of the directory is load.
+     */
+    @Nonnull
+    private final List<Texture[]> atlasTextures;
+
+    /**
+     * The streamed atlas files that were created for the sprite atlas indices. One entry for each root directory,
+     * created once the first sprite of the directory is requested.
+     */
+    @Nonnull
+    private final List<StreamedAtlas[]> streamedAtlases;
+
+    /**
+     * The atlas files that were handed to the decoding threads and still need to be turned into textures. They are
+     * stored in the order they were scheduled.
+     */
+    @Nonnull
+    private final Queue<AtlasTask> pendingAtlases;
+
+    /**
+     * The executor that runs the decoding threads. This is {@code null} while no atlas files are decoded.
+     */
+    @Nullable
+    private ExecutorService decodeService;
+
+    /**
+     * The size in bytes of all the atlas files that were turned into textures already.
+     */
+    private long loadedBytes;
+
+    /**
+     * The size in bytes of all the atlas files in the {@link #pendingAtlases} queue.
+     */
+    private long pendingBytes;
+
+    /**
+     * The time in nanoseconds the atlas files were first handed to the decoding threads. {@code 0} in case no atlas
+     * files are decoded right now.
+     */
+    private long loadingStart;
+
+    /**
+     * The amount of atlas files handed to the decoding threads since {@link #loadingStart}.
+     */
+    private int loadingAtlasCount;
+
+    /**
+     * The size in bytes of the atlas files handed to the decoding threads since {@link #loadingStart}.
+     */
+    private long loadingBytes;
+
+    /**
+     * The time in nanoseconds the calls of {@link #loadRemaining()} took since {@link #loadingStart}. This is the time
+     * the render thread spent on loading the atlas files.
+     */
+    private long loadingRenderTime;
+
+    /**
+     * The amount of bytes the textures of the streamed atlas files may use. {@code 0} in case streaming is disabled.
+     */
+    private long streamingBudget;
+
+    /**
+     * The streamed atlas files that are decoded right now.
+     */
+    @Nonnull
+    private final Map<StreamedAtlas, Future<T>> requestedAtlases;
+
+    /**
+     * The streamed atlas files that currently have a texture.
+     */
+    @Nonnull
+    private final List<StreamedAtlas> residentAtlases;
+
+    /**
+     * The amount of bytes used by the textures of the resident streamed atlas files.
+     */
+    private long residentBytes;
+
+    /**
+     * The amount of times a streamed atlas had to be loaded because a sprite of it was drawn.
+     */
+    private int streamingMisses;
+
+    /**
+     * The amount of times the texture of a streamed atlas was released.
+     */
+    private int streamingEvictions;
+
+    /**
+     * The index of the current frame.
+     */
+    private int currentFrame;
+
+    /**
+     * The thread that owns the graphics context. This is the thread that called {@link #loadRemaining()} or
+     * {@code null} in case this function was not called yet.
+     */
+    @Nullable
+    private volatile Thread renderThread;
+
     /**
      * Creates a new texture loader.
      */
@@ -88,6 +242,12 @@ public abstract class AbstractTextureManager implements TextureManager {
         expectedAtlasCount = new ArrayList<Integer>();
         rootDirectories = new ArrayList<String>();
         textures = new HashMap<String, Texture>();
+        pendingAtlases = new ArrayDeque<AtlasTask>();
+        requestedAtlases = new LinkedHashMap<StreamedAtlas, Future<T>>();
+        residentAtlases = new ArrayList<StreamedAtlas>();
+        atlasIndices = new ArrayList<SpriteAtlasIndex>();
+        atlasTextures = new ArrayList<Texture[]>();
+        streamedAtlases = new ArrayList<StreamedAtlas[]>();
     }
 
     @Nonnull
@@ -129,15 +289,98 @@ public abstract class AbstractTextureManager implements TextureManager {
         return directory + '/' + name;
     }
 
+    /**
+     * Get the size of a resource.
+     *
+     * @param resource the path to the resource
+     * @return the size of the resource in bytes or {@code 0} in case the size is unknown
+     */
+    private static long getResourceSize(@Nonnull final String resource) {
+        final URL url = Thread.currentThread().getContextClassLoader().getResource(resource);
+        if (url == null) {
+            return 0L;
+        }
+        try {
+            final URLConnection connection = url.openConnection();
+            final int length = connection.getContentLength();
+            closeQuietly(connection.getInputStream());
+            return Math.max(0, length);
+        } catch (@Nonnull final IOException e) {
+            return 0L;
+        }
+    }
+
     @Override
     public final void addTextureDirectory(@Nonnull final String directory) {
         lastAtlasIndex.add(-1);
         expectedAtlasCount.add(-1);
-        if (directory.endsWith("/")) {
-            rootDirectories.add(directory);
-        } else {
-            rootDirectories.add(directory + '/');
+        final String cleanDirectory = directory.endsWith("/") ? directory : (directory + '/');
+        rootDirectories.add(cleanDirectory);
+
+        @Nullable SpriteAtlasIndex index = null;
+        try {
+            index = SpriteAtlasIndex.load(cleanDirectory + SpriteAtlasIndex.FILE_NAME);
+        } catch (@Nonnull final IOException e) {
+            LOGGER.error("Failed to load the sprite atlas index of: " + cleanDirectory, e);
         }
+        atlasIndices.add(index);
+        atlasTextures.add(null);
+        streamedAtlases.add(null);
+    }
+
+    @Override
+    public final void setStreamingBudget(final long budget) {
+        streamingBudget = Math.max(0L, budget);
+    }
+
+    /**
+     * Check if the streaming mode is enabled.
+     *
+     * @return {@code true} in case the textures of the atlas files are created on demand
+     */
+    public final boolean isStreaming() {
+        return streamingBudget > 0L;
+    }
+
+    /**
+     * Get the amount of bytes used by the textures of the resident streamed atlas files.
+     *
+     * @return the resident bytes
+     */
+    public final long getResidentBytes() {
+        return residentBytes;
+    }
+
+    /**
+     * Get the amount of times a streamed atlas had to be loaded because a sprite of it was drawn.
+     *
+     * @return the amount of misses
+     */
+    public final int getStreamingMisses() {
+        return streamingMisses;
+    }
+
+    /**
+     * Get the amount of times the texture of a streamed atlas was released.
+     *
+     * @return the amount of evictions
+     */
+    public final int getStreamingEvictions() {
+        return streamingEvictions;
+    }
+
+    /**
+     * Get a line of text that describes the state of the streaming mode. This is used for diagnostic output.
+     *
+     * @return the text describing the streaming mode
+     */
+    @Nonnull
+    public final String getStreamingDiagnostic() {
+        if (!isStreaming()) {
+            return "Texture streaming: off";
+        }
+        return "Texture streaming: " + (residentBytes / (1024 * 1024)) + " of " + (streamingBudget / (1024 * 1024)) +
+                " MB, misses: " + streamingMisses + ", evictions: " + streamingEvictions;
     }
 
     /**
@@ -216,7 +459,7 @@ public abstract class AbstractTextureManager implements TextureManager {
     }
 
     @Nullable
-    public Texture getTexture(final int directoryIndex, @Nonnull final String name) {
+    public synchronized Texture getTexture(final int directoryIndex, @Nonnull final String name) {
         if (directoryIndex == -1) {
             return null;
         }
@@ -228,6 +471,17 @@ public abstract class AbstractTextureManager implements TextureManager {
             return loadedTexture;
         }
 
+        @Nullable final Texture indexedTexture = getIndexedTexture(directoryIndex, cleanName);
+        if (indexedTexture != null) {
+            textures.put(cleanName, indexedTexture);
+            return indexedTexture;
+        }
+
+        if (!isRenderThread()) {
+            LOGGER.warn("Texture is not load yet and can't be load outside of the render thread: " + cleanName);
+            return null;
+        }
+
         @Nullable final Texture directTexture = loadTexture(cleanName + IMAGE_EXTENSION);
         if (directTexture != null) {
             textures.put(cleanName, directTexture);
@@ -244,6 +498,84 @@ public abstract class AbstractTextureManager implements TextureManager {
         return null;
     }
 
+    /**
+     * Get a texture using the sprite atlas index of a root directory.
+     *
+     * @param directoryIndex the index of the root directory
+     * @param name           the name of the texture, starting with the root directory
+     * @return the texture or {@code null} in case the directory has no index or the index does not contain the texture
+     */
+    @Nullable
+    private Texture getIndexedTexture(final int directoryIndex, @Nonnull final String name) {
+        @Nullable final SpriteAtlasIndex index = atlasIndices.get(directoryIndex);
+        if (index == null) {
+            return null;
+        }
+
+        final int record = index.find(name, rootDirectories.get(directoryIndex).length());
+        if (record == SpriteAtlasIndex.NOT_FOUND) {
+            return null;
+        }
+
+        final int atlasNumber = index.getAtlas(record);
+        final int atlasCount = getAtlasCount(directoryIndex);
+        if ((atlasNumber < 0) || (atlasNumber >= atlasCount)) {
+            LOGGER.warn("Sprite atlas index refers to a missing atlas: " + name);
+            return null;
+        }
+
+        if (isStreaming()) {
+            StreamedAtlas[] atlases = streamedAtlases.get(directoryIndex);
+            if (atlases == null) {
+                atlases = new StreamedAtlas[atlasCount];
+                streamedAtlases.set(directoryIndex, atlases);
+            }
+            if (atlases[atlasNumber] == null) {
+                atlases[atlasNumber] = new StreamedAtlas(this,
+                        rootDirectories.get(directoryIndex) + ATLAS_BASE_NAME + atlasNumber);
+            }
+            return createStreamedTexture(atlases[atlasNumber], index.getX(record), index.getY(record),
+                    index.getWidth(record), index.getHeight(record));
+        }
+
+        @Nullable Texture atlasTexture = getAtlasTexture(directoryIndex, atlasNumber);
+        while ((atlasTexture == null) && isRenderThread() && loadNextTextureAtlas(directoryIndex)) {
+            atlasTexture = getAtlasTexture(directoryIndex, atlasNumber);
+        }
+        if (atlasTexture == null) {
+            return null;
+        }
+        return atlasTexture.getSubTexture(index.getX(record), index.getY(record), index.getWidth(record),
+                index.getHeight(record));
+    }
+
+    /**
+     * Get the texture of a atlas that was load for the sprite atlas index of a root directory.
+     *
+     * @param directoryIndex the index of the root directory
+     * @param atlasNumber    the number of the atlas
+     * @return the texture of the atlas or {@code null} in case the atlas is not load yet
+     */
+    @Nullable
+    private Texture getAtlasTexture(final int directoryIndex, final int atlasNumber) {
+        @Nullable final Texture[] directoryTextures = atlasTextures.get(directoryIndex);
+        if (directoryTextures == null) {
+            return null;
+        }
+        return directoryTextures[atlasNumber];
+    }
+
+    /**
+     * Check if the atlas files of a root directory are streamed using the sprite atlas index. In this case there is
+     * nothing to load ahead of time, because the index already contains all definitions.
+     *
+     * @param directoryIndex the index of the root directory
+     * @return {@code true} in case the atlas files of the directory are only load once they are drawn
+     */
+    private boolean isIndexStreamed(final int directoryIndex) {
+        return isStreaming() && (atlasIndices.get(directoryIndex) != null);
+    }
+
     @Nullable
     @Override
     public Texture getTexture(@Nonnull final String directory, @Nonnull final String name) {
@@ -252,23 +584,23 @@ public abstract class AbstractTextureManager implements TextureManager {
 
     @Override
     public boolean isLoadingDone() {
-        final int directories = rootDirectories.size();
-
-        int totalAtlasTextures = 0;
-        int loadAtlasTextures = 0;
-        for (int i = 0; i < directories; i++) {
-            totalAtlasTextures += getAtlasCount(i);
-            loadAtlasTextures += lastAtlasIndex.get(i) + 1;
+        if (!pendingAtlases.isEmpty()) {
+            return false;
         }
 
-        if (totalAtlasTextures <= loadAtlasTextures) {
-            return true;
+        final int directories = rootDirectories.size();
+        for (int i = 0; i < directories; i++) {
+            if (getRemainingAtlasCount(i) > 0) {
+                return false;
+            }
         }
-        return false;
+        return true;
     }
 
     /**
-     * Load the next texture atlas inside a root directory.
+     * Load the next texture atlas inside a root directory. In case there are atlas files waiting for their textures
+     * to be created, the oldest one of those is finished first, even if it belongs to another root directory. This
+     * waits for the decoding thread in case the atlas is not decoded yet.
      *
      * @param directoryIndex the index of the root directory
      * @return {@code true} in case the atlas was load, {@code false} in case there are no atlas files left to load
@@ -278,11 +610,23 @@ public abstract class AbstractTextureManager implements TextureManager {
             throw new IndexOutOfBoundsException("Directory index is not within valid range");
         }
 
+        @Nullable final AtlasTask pendingTask = pendingAtlases.poll();
+        if (pendingTask != null) {
+            finishPendingAtlas(pendingTask);
+            return true;
+        }
+
         final int totalAmount = getAtlasCount(directoryIndex);
+        if (isIndexStreamed(directoryIndex)) {
+            lastAtlasIndex.set(directoryIndex, totalAmount - 1);
+            return false;
+        }
+
         final int lastLoadedIndex = lastAtlasIndex.get(directoryIndex);
         if (lastLoadedIndex < (totalAmount - 1)) {
             lastAtlasIndex.set(directoryIndex, lastLoadedIndex + 1);
-            loadTextureAtlas(directoryIndex, lastLoadedIndex + 1);
+            final AtlasTask task = new AtlasTask(directoryIndex, lastLoadedIndex + 1);
+            finishAtlas(task, task.call());
             return true;
         }
 
@@ -293,131 +637,675 @@ public abstract class AbstractTextureManager implements TextureManager {
         return getAtlasCount(directoryIndex) - 1 - lastAtlasIndex.get(directoryIndex);
     }
 
+    /**
+     * Check if the current thread is the thread that owns the graphics context.
+     *
+     * @return {@code true} in case the current thread is allowed to create textures
+     */
+    private boolean isRenderThread() {
+        @Nullable final Thread thread = renderThread;
+        return (thread == null) || (thread == Thread.currentThread());
+    }
+
     @Override
-    public float loadRemaining() {
-        final int directories = rootDirectories.size();
+    public synchronized float loadRemaining() {
+        final long callStart = System.nanoTime();
+        renderThread = Thread.currentThread();
+        scheduleRemainingAtlases();
 
-        int totalAtlasTextures = 0;
-        int loadAtlasTextures = 0;
-        for (int i = 0; i < directories; i++) {
-            totalAtlasTextures += getAtlasCount(i);
-            loadAtlasTextures += lastAtlasIndex.get(i) + 1;
+        final long uploadStart = System.nanoTime();
+        while (!pendingAtlases.isEmpty()) {
+            final AtlasTask task = pendingAtlases.peek();
+            if (!task.isDecoded()) {
+                break;
+            }
+            pendingAtlases.poll();
+            finishPendingAtlas(task);
+            if ((System.nanoTime() - uploadStart) > UPLOAD_TIME_BUDGET) {
+                break;
+            }
         }
 
-        if (totalAtlasTextures <= loadAtlasTextures) {
+        if (loadingStart != 0L) {
+            loadingRenderTime += System.nanoTime() - callStart;
+        }
+        if (pendingAtlases.isEmpty()) {
+            if (!isStreaming()) {
+                shutdownDecodeService();
+            }
+            logLoadingDone();
             return 1.f;
         }
+        return (float) loadedBytes / (float) (loadedBytes + pendingBytes);
+    }
+
+    /**
+     * Log the time the loading of the atlas files took, once all atlas files handed to the decoding threads are
+     * turned into textures.
+     */
+    private void logLoadingDone() {
+        if (loadingStart == 0L) {
+            return;
+        }
+        final long totalTime = System.nanoTime() - loadingStart;
+        LOGGER.info("Loaded " + loadingAtlasCount + " texture atlases (" + (loadingBytes / 1024L) + " kB) in " +
+                TimeUnit.NANOSECONDS.toMillis(totalTime) + "ms, render thread busy for " +
+                TimeUnit.NANOSECONDS.toMillis(loadingRenderTime) + "ms");
+        loadingStart = 0L;
+        loadingAtlasCount = 0;
+        loadingBytes = 0L;
+        loadingRenderTime = 0L;
+    }
 
+    /**
+     * Hand all atlas files that were not load yet to the decoding threads.
+     */
+    private void scheduleRemainingAtlases() {
+        final int directories = rootDirectories.size();
         for (int i = 0; i < directories; i++) {
-            if (getRemainingAtlasCount(i) > 0) {
-                if (loadNextTextureAtlas(i)) {
-                    return (float) (loadAtlasTextures + 1) / (float) totalAtlasTextures;
-                }
+            final int remaining = getRemainingAtlasCount(i);
+            if (remaining <= 0) {
+                continue;
+            }
+            if (isIndexStreamed(i)) {
                 lastAtlasIndex.set(i, getAtlasCount(i) - 1);
-                LOGGER.warn("Inconsistent resources. Found less texture atlas files then expected.");
+                continue;
+            }
+
+            final ExecutorService service = getDecodeService();
+            if (loadingStart == 0L) {
+                loadingStart = System.nanoTime();
+            }
+            loadingAtlasCount += remaining;
+            final int firstIndex = lastAtlasIndex.get(i) + 1;
+            for (int atlasIndex = firstIndex; atlasIndex < (firstIndex + remaining); atlasIndex++) {
+                final AtlasTask task = new AtlasTask(i, atlasIndex);
+                task.schedule(service);
+                pendingAtlases.add(task);
+                pendingBytes += task.getSize();
+                loadingBytes += task.getSize();
             }
+            lastAtlasIndex.set(i, firstIndex + remaining - 1);
+        }
+    }
+
+    /**
+     * Get the executor that runs the decoding threads. The executor is created in case there is none. One processor
+     * is left for the thread that creates the textures.
+     *
+     * @return the executor
+     */
+    @Nonnull
+    private ExecutorService getDecodeService() {
+        if (decodeService != null) {
+            return decodeService;
         }
+        final int threadCount = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        decodeService = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+            @Nonnull
+            private final AtomicInteger threadIndex = new AtomicInteger();
 
-        LOGGER.warn("Reached unexptected loading state.");
-        return 1.f;
+            @Nonnull
+            @Override
+            public Thread newThread(@Nonnull final Runnable r) {
+                final Thread thread = new Thread(r, "Texture Decoder " + threadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        return decodeService;
     }
 
     /**
-     * Load the texture from a specific resource.
+     * Shutdown the decoding threads once there is nothing left to decode.
+     */
+    private void shutdownDecodeService() {
+        if (decodeService != null) {
+            decodeService.shutdown();
+            decodeService = null;
+        }
+    }
+
+    /**
+     * Create the textures of a atlas that was handed to the decoding threads. In case the atlas is not decoded yet,
+     * this function waits until its done.
      *
-     * @param resource the path to the resource
-     * @return the texture loaded or {@code null} in case loading is impossible
+     * @param task the atlas
      */
-    @Nullable
-    protected abstract Texture loadTexture(@Nonnull String resource);
+    private void finishPendingAtlas(@Nonnull final AtlasTask task) {
+        pendingBytes -= task.getSize();
+        try {
+            finishAtlas(task, task.getResult());
+        } catch (@Nonnull final InterruptedException e) {
+            LOGGER.error("Interrupted while waiting for texture atlas: " + task.getResource(), e);
+            Thread.currentThread().interrupt();
+        } catch (@Nonnull final ExecutionException e) {
+            LOGGER.error("Error while decoding texture atlas: " + task.getResource(), e.getCause());
+        }
+    }
 
     /**
-     * Load a texture atlas.
+     * Create the textures of a decoded atlas and store them in this manager.
      *
-     * @param directoryIndex the index of the root directory the atlas belongs to
-     * @param atlasIndex     the index of the atlas
+     * @param task  the atlas
+     * @param atlas the decoded data of the atlas or {@code null} in case decoding failed
      */
-    private void loadTextureAtlas(final int directoryIndex, final int atlasIndex) {
-        if ((directoryIndex < 0) || (directoryIndex >= rootDirectories.size())) {
-            throw new IndexOutOfBoundsException("Directory index is not within valid range");
+    private void finishAtlas(@Nonnull final AtlasTask task, @Nullable final DecodedAtlas atlas) {
+        loadedBytes += task.getSize();
+        if (atlas == null) {
+            LOGGER.warn("Error loading texture atlas: " + task.getResource());
+            return;
         }
 
-        final String directory = rootDirectories.get(directoryIndex);
-        final String atlasTextureRes = directory + ATLAS_BASE_NAME + atlasIndex;
+        if (atlas.textureData == null) {
+            final StreamedAtlas streamedAtlas = new StreamedAtlas(this, task.getResource());
+            final int spriteCount = atlas.spriteNames.size();
+            for (int i = 0; i < spriteCount; i++) {
+                final int offset = i * 4;
+                @Nonnull final Texture subTexture = createStreamedTexture(streamedAtlas, atlas.spriteBounds[offset],
+                        atlas.spriteBounds[offset + 1], atlas.spriteBounds[offset + 2],
+                        atlas.spriteBounds[offset + 3]);
+                textures.put(task.getDirectory() + atlas.spriteNames.get(i), subTexture);
+            }
+            return;
+        }
 
-        final Texture atlasTexture = loadTexture(atlasTextureRes + IMAGE_EXTENSION);
+        final Texture atlasTexture = createTexture(atlas.textureData);
         if (atlasTexture == null) {
-            LOGGER.warn("Error loading texture atlas: " + atlasTextureRes);
+            LOGGER.warn("Error loading texture atlas: " + task.getResource());
             return;
         }
 
-        textures.put(atlasTextureRes, atlasTexture);
+        textures.put(task.getResource(), atlasTexture);
+        if (task.isIndexed()) {
+            Texture[] directoryTextures = atlasTextures.get(task.getDirectoryIndex());
+            if (directoryTextures == null) {
+                directoryTextures = new Texture[getAtlasCount(task.getDirectoryIndex())];
+                atlasTextures.set(task.getDirectoryIndex(), directoryTextures);
+            }
+            directoryTextures[task.getAtlasIndex()] = atlasTexture;
+        }
 
-        final MXParserFactory parserFactory = new MXParserFactory();
-        parserFactory.setNamespaceAware(false);
-        parserFactory.setValidating(false);
-        InputStream xmlStream = null;
-        try {
-            final XmlPullParser parser = parserFactory.newPullParser();
+        final int spriteCount = atlas.spriteNames.size();
+        for (int i = 0; i < spriteCount; i++) {
+            final int offset = i * 4;
+            @Nonnull final Texture subTexture = atlasTexture.getSubTexture(atlas.spriteBounds[offset],
+                    atlas.spriteBounds[offset + 1], atlas.spriteBounds[offset + 2], atlas.spriteBounds[offset + 3]);
+            textures.put(task.getDirectory() + atlas.spriteNames.get(i), subTexture);
+        }
+    }
+
+    /**
+     * Get the index of the current frame.
+     *
+     * @return the index of the frame
+     */
+    int getCurrentFrame() {
+        return currentFrame;
+    }
+
+    /**
+     * Start decoding the image data of a streamed atlas.
+     *
+     * @param atlas the atlas
+     */
+    void requestAtlas(@Nonnull final StreamedAtlas atlas) {
+        atlas.setLoading(true);
+        streamingMisses++;
+        final String resource = atlas.getResource() + IMAGE_EXTENSION;
+        requestedAtlases.put(atlas, getDecodeService().submit(new Callable<T>() {
+            @Nullable
+            @Override
+            public T call() {
+                return loadTextureData(resource);
+            }
+        }));
+    }
+
+    /**
+     * Create the texture of a streamed atlas right away. In case the image data is already decoded by the decoding
+     * threads, this waits for the result.
+     *
+     * @param atlas the atlas
+     */
+    void loadAtlasNow(@Nonnull final StreamedAtlas atlas) {
+        @Nullable final Future<T> request = requestedAtlases.remove(atlas);
+        if (request == null) {
+            uploadStreamedAtlas(atlas, loadTextureData(atlas.getResource() + IMAGE_EXTENSION));
+        } else {
+            uploadStreamedAtlas(atlas, getStreamedData(atlas, request));
+        }
+    }
 
-            final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
-            xmlStream = classLoader.getResourceAsStream(atlasTextureRes + ATLAS_DEF_EXTENSION);
-            parser.setInput(xmlStream, "UTF-8");
+    /**
+     * Finish the current frame. This creates the textures of the streamed atlas files that were decoded in the
+     * meantime and releases the textures of atlas files that were not drawn during this frame, as long as the
+     * textures exceed the budget. This function has to be called by the backend after each frame.
+     */
+    public final void finishFrame() {
+        if (!isStreaming()) {
+            return;
+        }
 
-            int currentEvent = parser.nextTag();
-            while (currentEvent != XmlPullParser.END_DOCUMENT) {
-                if ((currentEvent == XmlPullParser.START_TAG) && "sprite".equals(parser.getName())) {
-                    parseXmlTag(directory, atlasTexture, parser);
+        if (!requestedAtlases.isEmpty()) {
+            final long uploadStart = System.nanoTime();
+            final Iterator<Map.Entry<StreamedAtlas, Future<T>>> itr = requestedAtlases.entrySet().iterator();
+            while (itr.hasNext()) {
+                final Map.Entry<StreamedAtlas, Future<T>> entry = itr.next();
+                if (!entry.getValue().isDone()) {
+                    continue;
                 }
-                if ((currentEvent == XmlPullParser.END_TAG) && "sprites".equals(parser.getName())) {
+                itr.remove();
+                uploadStreamedAtlas(entry.getKey(), getStreamedData(entry.getKey(), entry.getValue()));
+                if ((System.nanoTime() - uploadStart) > STREAMING_UPLOAD_TIME_BUDGET) {
                     break;
                 }
-                currentEvent = parser.nextTag();
             }
+        }
 
-        } catch (@Nonnull final XmlPullParserException e) {
-            LOGGER.error("Failed to create a new instance of the pull parser for atlas: " + atlasTextureRes, e);
-        } catch (@Nonnull final IOException e) {
-            LOGGER.error("Error while reading the XML definition of the atlas.", e);
-        } finally {
-            closeQuietly(xmlStream);
+        while (residentBytes > streamingBudget) {
+            @Nullable StreamedAtlas leastRecentlyUsed = null;
+            for (final StreamedAtlas atlas : residentAtlases) {
+                if (atlas.isPinned() || (atlas.getLastUseFrame() >= currentFrame)) {
+                    continue;
+                }
+                if ((leastRecentlyUsed == null) || (atlas.getLastUseFrame() < leastRecentlyUsed.getLastUseFrame())) {
+                    leastRecentlyUsed = atlas;
+                }
+            }
+            if (leastRecentlyUsed == null) {
+                break;
+            }
+            evictStreamedAtlas(leastRecentlyUsed);
         }
+
+        currentFrame++;
     }
 
+    /**
+     * Get the image data a decoding thread created for a streamed atlas.
+     *
+     * @param atlas   the atlas
+     * @param request the result of the decoding thread
+     * @return the decoded image data or {@code null} in case decoding failed
+     */
+    @Nullable
+    private T getStreamedData(@Nonnull final StreamedAtlas atlas, @Nonnull final Future<T> request) {
+        try {
+            return request.get();
+        } catch (@Nonnull final InterruptedException e) {
+            LOGGER.error("Interrupted while waiting for texture atlas: " + atlas.getResource(), e);
+            Thread.currentThread().interrupt();
+        } catch (@Nonnull final ExecutionException e) {
+            LOGGER.error("Error while decoding texture atlas: " + atlas.getResource(), e.getCause());
+        }
+        return null;
+    }
+
+    /**
+     * Create the texture of a streamed atlas.
+     *
+     * @param atlas the atlas
+     * @param data  the decoded image data of the atlas or {@code null} in case decoding failed
+     */
+    private void uploadStreamedAtlas(@Nonnull final StreamedAtlas atlas, @Nullable final T data) {
+        @Nullable final Texture texture = (data == null) ? null : createTexture(data);
+        if (texture == null) {
+            LOGGER.warn("Error loading texture atlas: " + atlas.getResource());
+            atlas.setFailed();
+            return;
+        }
+
+        final long bytes = (long) texture.getWidth() * texture.getHeight() * 4L;
+        atlas.setTexture(texture, bytes);
+        residentAtlases.add(atlas);
+        residentBytes += bytes;
+    }
+
+    /**
+     * Release the texture of a streamed atlas.
+     *
+     * @param atlas the atlas
+     */
+    private void evictStreamedAtlas(@Nonnull final StreamedAtlas atlas) {
+        @Nullable final Texture texture = atlas.getTexture();
+        if (texture != null) {
+            disposeTexture(texture);
+        }
+        residentBytes -= atlas.getTextureBytes();
+        atlas.clearTexture();
+        residentAtlases.remove(atlas);
+        streamingEvictions++;
+    }
+
+    /**
+     * Load the texture from a specific resource.
+     *
+     * @param resource the path to the resource
+     * @return the texture loaded or {@code null} in case loading is impossible
+     */
+    @Nullable
+    protected final Texture loadTexture(@Nonnull final String resource) {
+        @Nullable final T data = loadTextureData(resource);
+        if (data == null) {
+            return null;
+        }
+        return createTexture(data);
+    }
+
+    /**
+     * Decode the image data of a specific resource. This function is called by the decoding threads and must not
+     * access the graphics context.
+     *
+     * @param resource the path to the resource
+     * @return the decoded image data or {@code null} in case loading is impossible
+     */
+    @Nullable
+    protected abstract T loadTextureData(@Nonnull String resource);
+
+    /**
+     * Create a texture from decoded image data. This function is only called by the thread that owns the graphics
+     * context. The implementation is responsible to release the image data once its not needed anymore.
+     *
+     * @param data the decoded image data
+     * @return the texture created or {@code null} in case creating the texture failed
+     */
+    @Nullable
+    protected abstract Texture createTexture(@Nonnull T data);
+
+    /**
+     * Create a texture that shows a part of a streamed atlas. The texture has to resolve the texture of the atlas
+     * using {@link StreamedAtlas#use()} every time its drawn.
+     *
+     * @param atlas  the atlas
+     * @param x      the x coordinate of the texture on the atlas
+     * @param y      the y coordinate of the texture on the atlas
+     * @param width  the width of the texture
+     * @param height the height of the texture
+     * @return the created texture
+     */
+    @Nonnull
+    protected abstract Texture createStreamedTexture(@Nonnull StreamedAtlas atlas, int x, int y, int width,
+                                                     int height);
+
+    /**
+     * Release the resources of a texture created by {@link #createTexture(Object)}.
+     *
+     * @param texture the texture
+     */
+    protected abstract void disposeTexture(@Nonnull Texture texture);
+
     protected static boolean isAtlas(@Nonnull final String name) {
         return name.contains(ATLAS_BASE_NAME);
     }
 
-    private void parseXmlTag(@Nonnull final String directory, @Nonnull final Texture parentTexture,
-                             @Nonnull final XmlPullParser parser) {
-        final int attributeCount = parser.getAttributeCount();
-        if (attributeCount >= 5) {
-            int height = 0;
-            int width = 0;
-            int y = 0;
-            int x = 0;
-            @Nullable String name = null;
-            for (int i = 0; i < attributeCount; i++) {
-                @Nonnull final String attribName = parser.getAttributeName(i);
-                @Nonnull final String attribValue = parser.getAttributeValue(i);
-                if ("x".equals(attribName)) {
-                    x = Integer.parseInt(attribValue);
-                } else if ("y".equals(attribName)) {
-                    y = Integer.parseInt(attribValue);
-                } else if ("height".equals(attribName)) {
-                    height = Integer.parseInt(attribValue);
-                } else if ("width".equals(attribName)) {
-                    width = Integer.parseInt(attribValue);
-                } else if ("name".equals(attribName)) {
-                    name = attribValue;
+    /**
+     * This is the decoded data of a atlas file. It contains the image data and the definitions of the sprites on the
+     * atlas.
+     */
+    private final class DecodedAtlas {
+        /**
+         * The decoded image data of the atlas or {@code null} in case the atlas is streamed.
+         */
+        @Nullable
+        private final T textureData;
+
+        /**
+         * The names of the sprites on the atlas.
+         */
+        @Nonnull
+        private final List<String> spriteNames;
+
+        /**
+         * The x and y coordinates, the width and the height of every sprite on the atlas.
+         */
+        @Nonnull
+        private int[] spriteBounds;
+
+        /**
+         * Create a new decoded atlas.
+         *
+         * @param textureData the decoded image data or {@code null} in case the atlas is streamed
+         */
+        DecodedAtlas(@Nullable final T textureData) {
+            this.textureData = textureData;
+            spriteNames = new ArrayList<String>();
+            spriteBounds = new int[256];
+        }
+
+        /**
+         * Add the definition of a sprite.
+         *
+         * @param name   the name of the sprite
+         * @param x      the x coordinate of the sprite on the atlas
+         * @param y      the y coordinate of the sprite on the atlas
+         * @param width  the width of the sprite
+         * @param height the height of the sprite
+         */
+        void addSprite(@Nonnull final String name, final int x, final int y, final int width, final int height) {
+            final int offset = spriteNames.size() * 4;
+            if ((offset + 4) > spriteBounds.length) {
+                final int[] newBounds = new int[spriteBounds.length * 2];
+                System.arraycopy(spriteBounds, 0, newBounds, 0, offset);
+                spriteBounds = newBounds;
+            }
+            spriteBounds[offset] = x;
+            spriteBounds[offset + 1] = y;
+            spriteBounds[offset + 2] = width;
+            spriteBounds[offset + 3] = height;
+            spriteNames.add(name);
+        }
+    }
+
+    /**
+     * This task decodes one atlas file.
+     */
+    private final class AtlasTask implements Callable<DecodedAtlas> {
+        /**
+         * The index of the root directory the atlas belongs to.
+         */
+        private final int directoryIndex;
+
+        /**
+         * The root directory the atlas belongs to.
+         */
+        @Nonnull
+        private final String directory;
+
+        /**
+         * The index of the atlas.
+         */
+        private final int atlasIndex;
+
+        /**
+         * The path to the atlas files without the file extension.
+         */
+        @Nonnull
+        private final String resource;
+
+        /**
+         * The size of the atlas files in bytes.
+         */
+        private final long size;
+
+        /**
+         * This flag is {@code true} in case only the definition of the atlas is loaded.
+         */
+        private final boolean streamed;
+
+        /**
+         * This flag is {@code true} in case the sprites of the atlas are defined by the sprite atlas index of the
+         * root directory and the XML definition is not read.
+         */
+        private final boolean indexed;
+
+        /**
+         * The result of the decoding thread or {@code null} in case the task was not scheduled.
+         */
+        @Nullable
+        private Future<DecodedAtlas> result;
+
+        /**
+         * Create a new atlas task.
+         *
+         * @param directoryIndex the index of the root directory the atlas belongs to
+         * @param atlasIndex     the index of the atlas
+         */
+        AtlasTask(final int directoryIndex, final int atlasIndex) {
+            this.directoryIndex = directoryIndex;
+            this.atlasIndex = atlasIndex;
+            directory = rootDirectories.get(directoryIndex);
+            resource = directory + ATLAS_BASE_NAME + atlasIndex;
+            streamed = isStreaming();
+            indexed = atlasIndices.get(directoryIndex) != null;
+            long atlasSize = 0L;
+            if (!streamed) {
+                atlasSize += getResourceSize(resource + IMAGE_EXTENSION);
+            }
+            if (!indexed) {
+                atlasSize += getResourceSize(resource + ATLAS_DEF_EXTENSION);
+            }
+            size = atlasSize;
+        }
+
+        int getDirectoryIndex() {
+            return directoryIndex;
+        }
+
+        int getAtlasIndex() {
+            return atlasIndex;
+        }
+
+        boolean isIndexed() {
+            return indexed;
+        }
+
+        @Nonnull
+        String getDirectory() {
+            return directory;
+        }
+
+        @Nonnull
+        String getResource() {
+            return resource;
+        }
+
+        long getSize() {
+            return size;
+        }
+
+        /**
+         * Hand this task to the decoding threads.
+         *
+         * @param service the executor of the decoding threads
+         */
+        void schedule(@Nonnull final ExecutorService service) {
+            result = service.submit(this);
+        }
+
+        /**
+         * Check if the decoding thread is done with this atlas.
+         *
+         * @return {@code true} in case the result is available without waiting
+         */
+        boolean isDecoded() {
+            return (result == null) || result.isDone();
+        }
+
+        /**
+         * Get the decoded atlas. This waits for the decoding thread in case its not done yet.
+         *
+         * @return the decoded atlas or {@code null} in case decoding failed
+         * @throws InterruptedException in case the thread got interrupted while waiting
+         * @throws ExecutionException   in case decoding the atlas failed with a exception
+         */
+        @Nullable
+        DecodedAtlas getResult() throws InterruptedException, ExecutionException {
+            if (result == null) {
+                return call();
+            }
+            return result.get();
+        }
+
+        @Nullable
+        @Override
+        public DecodedAtlas call() {
+            @Nullable final T textureData;
+            if (streamed) {
+                textureData = null;
+            } else {
+                textureData = loadTextureData(resource + IMAGE_EXTENSION);
+                if (textureData == null) {
+                    return null;
                 }
             }
 
-            if ((height > 0) && (width > 0) && (name != null)) {
-                @Nonnull final Texture subTexture = parentTexture.getSubTexture(x, y, width, height);
-                textures.put(directory + name, subTexture);
+            final DecodedAtlas atlas = new DecodedAtlas(textureData);
+            if (indexed) {
+                return atlas;
             }
 
+            final MXParserFactory parserFactory = new MXParserFactory();
+            parserFactory.setNamespaceAware(false);
+            parserFactory.setValidating(false);
+            InputStream xmlStream = null;
+            try {
+                final XmlPullParser parser = parserFactory.newPullParser();
+
+                final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+                xmlStream = classLoader.getResourceAsStream(resource + ATLAS_DEF_EXTENSION);
+                parser.setInput(xmlStream, "UTF-8");
+
+                int currentEvent = parser.nextTag();
+                while (currentEvent != XmlPullParser.END_DOCUMENT) {
+                    if ((currentEvent == XmlPullParser.START_TAG) && "sprite".equals(parser.getName())) {
+                        parseXmlTag(atlas, parser);
+                    }
+                    if ((currentEvent == XmlPullParser.END_TAG) && "sprites".equals(parser.getName())) {
+                        break;
+                    }
+                    currentEvent = parser.nextTag();
+                }
+
+            } catch (@Nonnull final XmlPullParserException e) {
+                LOGGER.error("Failed to create a new instance of the pull parser for atlas: " + resource, e);
+            } catch (@Nonnull final IOException e) {
+                LOGGER.error("Error while reading the XML definition of the atlas.", e);
+            } finally {
+                closeQuietly(xmlStream);
+            }
+            return atlas;
+        }
+
+        private void parseXmlTag(@Nonnull final DecodedAtlas atlas, @Nonnull final XmlPullParser parser) {
+            final int attributeCount = parser.getAttributeCount();
+            if (attributeCount >= 5) {
+                int height = 0;
+                int width = 0;
+                int y = 0;
+                int x = 0;
+                @Nullable String name = null;
+                for (int i = 0; i < attributeCount; i++) {
+                    @Nonnull final String attribName = parser.getAttributeName(i);
+                    @Nonnull final String attribValue = parser.getAttributeValue(i);
+                    if ("x".equals(attribName)) {
+                        x = Integer.parseInt(attribValue);
+                    } else if ("y".equals(attribName)) {
+                        y = Integer.parseInt(attribValue);
+                    } else if ("height".equals(attribName)) {
+                        height = Integer.parseInt(attribValue);
+                    } else if ("width".equals(attribName)) {
+                        width = Integer.parseInt(attribValue);
+                    } else if ("name".equals(attribName)) {
+                        name = attribValue;
+                    }
+                }
+
+                if ((height > 0) && (width > 0) && (name != null)) {
+                    atlas.addSprite(name, x, y, width, height);
+                }
+
+            }
         }
     }
 }
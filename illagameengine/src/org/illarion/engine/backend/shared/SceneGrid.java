@@ -0,0 +1,222 @@
+/*
+ * This file is part of the Illarion Game Engine.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Game Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Game Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Game Engine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.illarion.engine.backend.shared;
+
+import illarion.common.types.Rectangle;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+
+/**
+ * This is a uniform grid that covers the currently active area of a scene. It is rebuild every time the scene takes
+ * its snapshot of the elements and stores the indices of the elements in the working array of the scene. Elements
+ * that do not touch the active area are not stored in the grid at all. The entries of every cell are linked from
+ * the last inserted element to the first one.
+ * <p />
+ * All the data is stored in primitive arrays that grow when needed, so rebuilding the grid does not allocate
+ * anything once the arrays reached their required size.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+@NotThreadSafe
+final class SceneGrid {
+    /**
+     * The size of one cell of the grid in pixels.
+     */
+    private static final int CELL_SIZE = 128;
+
+    /**
+     * The value that marks the end of a linked list of cell entries.
+     */
+    static final int NO_ENTRY = -1;
+
+    /**
+     * The area covered by the grid.
+     */
+    @Nonnull
+    private final Rectangle area;
+
+    /**
+     * The amount of columns in the grid.
+     */
+    private int columns;
+
+    /**
+     * The amount of rows in the grid.
+     */
+    private int rows;
+
+    /**
+     * The index of the first entry of every cell. The cells are stored row by row.
+     */
+    @Nonnull
+    private int[] cellHeads = new int[0];
+
+    /**
+     * The element index of every entry.
+     */
+    @Nonnull
+    private int[] entryElements = new int[256];
+
+    /**
+     * The index of the next entry in the same cell.
+     */
+    @Nonnull
+    private int[] entryNext = new int[256];
+
+    /**
+     * The amount of entries currently used.
+     */
+    private int entryCount;
+
+    /**
+     * Create a new empty grid.
+     */
+    SceneGrid() {
+        area = new Rectangle();
+    }
+
+    /**
+     * Clear the grid and set the area that is covered by it.
+     *
+     * @param x      the x coordinate of the origin of the area
+     * @param y      the y coordinate of the origin of the area
+     * @param width  the width of the area
+     * @param height the height of the area
+     */
+    void reset(final int x, final int y, final int width, final int height) {
+        area.set(x, y, width, height);
+        columns = Math.max(1, (width + CELL_SIZE - 1) / CELL_SIZE);
+        rows = Math.max(1, (height + CELL_SIZE - 1) / CELL_SIZE);
+
+        final int cellCount = columns * rows;
+        if (cellHeads.length < cellCount) {
+            cellHeads = new int[cellCount];
+        }
+        Arrays.fill(cellHeads, 0, cellCount, NO_ENTRY);
+        entryCount = 0;
+    }
+
+    /**
+     * Get the area that is covered by the grid.
+     *
+     * @return the area of the grid
+     */
+    @Nonnull
+    Rectangle getArea() {
+        return area;
+    }
+
+    /**
+     * Insert a element into all cells of the grid it touches.
+     *
+     * @param elementIndex the index of the element that is stored in the grid
+     * @param bounds       the bounds of the element
+     * @return {@code true} in case the element touches the area of the grid and was stored
+     */
+    boolean insert(final int elementIndex, @Nonnull final Rectangle bounds) {
+        if (!area.intersects(bounds)) {
+            return false;
+        }
+
+        final int firstColumn = getColumn(bounds.getLeft());
+        final int lastColumn = getColumn(bounds.getRight());
+        final int firstRow = getRow(bounds.getBottom());
+        final int lastRow = getRow(bounds.getTop());
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                addEntry((row * columns) + column, elementIndex);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the index of the first entry of the cell that contains a specified point.
+     *
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @return the index of the first entry or {@code -1} in case the point is outside the grid or the cell is empty
+     */
+    int getFirstEntry(final int x, final int y) {
+        if ((x < area.getLeft()) || (x >= area.getRight()) || (y < area.getBottom()) || (y >= area.getTop())) {
+            return NO_ENTRY;
+        }
+        return cellHeads[(getRow(y) * columns) + getColumn(x)];
+    }
+
+    /**
+     * Get the entry that follows a entry in the same cell.
+     *
+     * @param entry the index of the current entry
+     * @return the index of the next entry or {@code -1} in case there is none
+     */
+    int getNextEntry(final int entry) {
+        return entryNext[entry];
+    }
+
+    /**
+     * Get the index of the element stored in a entry.
+     *
+     * @param entry the index of the entry
+     * @return the index of the element in the working array of the scene
+     */
+    int getElementIndex(final int entry) {
+        return entryElements[entry];
+    }
+
+    /**
+     * Get the column that contains a x coordinate. The value is clamped to the grid.
+     *
+     * @param x the x coordinate
+     * @return the column
+     */
+    private int getColumn(final int x) {
+        return Math.max(0, Math.min(columns - 1, (x - area.getLeft()) / CELL_SIZE));
+    }
+
+    /**
+     * Get the row that contains a y coordinate. The value is clamped to the grid.
+     *
+     * @param y the y coordinate
+     * @return the row
+     */
+    private int getRow(final int y) {
+        return Math.max(0, Math.min(rows - 1, (y - area.getBottom()) / CELL_SIZE));
+    }
+
+    /**
+     * Add a entry to the head of a cell.
+     *
+     * @param cell         the index of the cell
+     * @param elementIndex the index of the element
+     */
+    private void addEntry(final int cell, final int elementIndex) {
+        if (entryCount == entryElements.length) {
+            entryElements = Arrays.copyOf(entryElements, entryCount * 2);
+            entryNext = Arrays.copyOf(entryNext, entryCount * 2);
+        }
+        entryElements[entryCount] = elementIndex;
+        entryNext[entryCount] = cellHeads[cell];
+        cellHeads[cell] = entryCount;
+        entryCount++;
+    }
+}
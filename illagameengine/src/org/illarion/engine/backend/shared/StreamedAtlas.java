@@ -0,0 +1,190 @@
+/*
+ * This file is part of the Illarion Game Engine.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Game Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Game Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Game Engine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.illarion.engine.backend.shared;
+
+import org.illarion.engine.graphic.Texture;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * This is a texture atlas that is managed by the streaming mode of the texture manager. The definitions of the
+ * sprites on the atlas are known all the time, but the texture of the atlas is only created once a sprite of the atlas
+ * is drawn. The texture is released again by the texture manager when the atlas was not drawn for a while and the
+ * texture memory budget is exceeded.
+ * <p />
+ * The textures handed out by the backend for sprites on this atlas resolve the texture of the atlas every time they
+ * are drawn using {@link #use()}. To notice that the texture of the atlas was replaced, they compare the generation of
+ * the atlas.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+@NotThreadSafe
+public final class StreamedAtlas {
+    /**
+     * The texture manager that owns this atlas.
+     */
+    @Nonnull
+    private final AbstractTextureManager<?> manager;
+
+    /**
+     * The path to the atlas files without the file extension.
+     */
+    @Nonnull
+    private final String resource;
+
+    /**
+     * The texture of the atlas or {@code null} in case the atlas is not resident.
+     */
+    @Nullable
+    private Texture texture;
+
+    /**
+     * The amount of bytes used by the texture of the atlas.
+     */
+    private long textureBytes;
+
+    /**
+     * This value is increased every time a new texture is assigned to the atlas.
+     */
+    private int generation;
+
+    /**
+     * The frame the atlas was used last.
+     */
+    private int lastUseFrame;
+
+    /**
+     * This flag is {@code true} while the image data of the atlas is decoded.
+     */
+    private boolean loading;
+
+    /**
+     * This flag is {@code true} in case loading the atlas failed. The texture manager will not try again.
+     */
+    private boolean failed;
+
+    /**
+     * This flag is {@code true} in case the atlas must never be released.
+     */
+    private boolean pinned;
+
+    /**
+     * Create a new streamed atlas.
+     *
+     * @param manager  the texture manager that owns the atlas
+     * @param resource the path to the atlas files without the file extension
+     */
+    StreamedAtlas(@Nonnull final AbstractTextureManager<?> manager, @Nonnull final String resource) {
+        this.manager = manager;
+        this.resource = resource;
+    }
+
+    /**
+     * Get the texture of the atlas in order to draw it. In case the atlas is not resident, loading it is started and
+     * nothing is drawn until the texture is available.
+     *
+     * @return the texture of the atlas or {@code null} in case the atlas is not resident yet
+     */
+    @Nullable
+    public Texture use() {
+        lastUseFrame = manager.getCurrentFrame();
+        if ((texture == null) && !loading && !failed) {
+            manager.requestAtlas(this);
+        }
+        return texture;
+    }
+
+    /**
+     * Get the texture of the atlas and make sure that it is never released. This loads the atlas right away in case
+     * its not resident. This is meant for textures that are handed to other libraries that keep a reference to them.
+     *
+     * @return the texture of the atlas or {@code null} in case loading the atlas failed
+     */
+    @Nullable
+    public Texture require() {
+        pinned = true;
+        if ((texture == null) && !failed) {
+            manager.loadAtlasNow(this);
+        }
+        return texture;
+    }
+
+    /**
+     * Get the generation of the atlas. The generation changes every time the atlas gets a new texture.
+     *
+     * @return the generation of the atlas
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    @Nonnull
+    String getResource() {
+        return resource;
+    }
+
+    @Nullable
+    Texture getTexture() {
+        return texture;
+    }
+
+    long getTextureBytes() {
+        return textureBytes;
+    }
+
+    int getLastUseFrame() {
+        return lastUseFrame;
+    }
+
+    boolean isPinned() {
+        return pinned;
+    }
+
+    void setLoading(final boolean loading) {
+        this.loading = loading;
+    }
+
+    void setFailed() {
+        failed = true;
+        loading = false;
+    }
+
+    /**
+     * Assign the texture of the atlas once its loaded.
+     *
+     * @param texture the texture of the atlas
+     * @param bytes   the amount of bytes used by the texture
+     */
+    void setTexture(@Nonnull final Texture texture, final long bytes) {
+        this.texture = texture;
+        textureBytes = bytes;
+        loading = false;
+        generation++;
+    }
+
+    /**
+     * Remove the texture of the atlas after it was released.
+     */
+    void clearTexture() {
+        texture = null;
+        textureBytes = 0L;
+    }
+}
@@ -20,6 +20,8 @@ package org.illarion.engine.backend.slick;
 
 import org.apache.log4j.Logger;
 import org.illarion.engine.*;
+import org.illarion.engine.backend.shared.AbstractRenderQueue;
+import org.illarion.engine.backend.shared.AbstractTextureManager;
 import org.illarion.engine.graphic.GraphicResolution;
 import org.lwjgl.LWJGLException;
 import org.lwjgl.input.Cursor;
@@ -140,7 +142,14 @@ public class ApplicationGameContainer implements DesktopGameContainer {
     @Nonnull
     @Override
     public CharSequence[] getDiagnosticLines() {
-        return new CharSequence[0];
+        final AbstractRenderQueue renderQueue = engine.getGraphics().getRenderQueue();
+        final AbstractTextureManager<?> textureManager = engine.getAssets().getTextureManager();
+        return new CharSequence[]{"Sprites: " + renderQueue.getLastFrameSpriteCount(),
+                "Texture changes: " + renderQueue.getLastFrameTextureChanges() + " (" +
+                        renderQueue.getLastFrameUnsortedTextureChanges() + " unsorted, " +
+                        renderQueue.getSavedTextureChangesPercent() + "% saved)",
+                "Render queue: " + (renderQueue.isEnabled() ? "on" : "off"),
+                textureManager.getStreamingDiagnostic()};
     }
 
     @Override
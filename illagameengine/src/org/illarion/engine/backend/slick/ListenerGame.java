@@ -19,6 +19,8 @@
 package org.illarion.engine.backend.slick;
 
 import org.illarion.engine.GameListener;
+import org.illarion.engine.profiler.FrameProfiler;
+import org.illarion.engine.profiler.ProfilerSection;
 import org.newdawn.slick.Game;
 import org.newdawn.slick.GameContainer;
 import org.newdawn.slick.Graphics;
@@ -33,6 +35,12 @@ import javax.annotation.Nonnull;
  * @author Martin Karing &lt;nitram@illarion.org&gt;
  */
 class ListenerGame implements Game {
+    /**
+     * The profiler section that measures the flushing of the graphics at the end of the frame.
+     */
+    @Nonnull
+    private static final ProfilerSection BACKEND_FLUSH = FrameProfiler.getInstance().getSection("Backend flush");
+
     /**
      * The listener that this game implementation reports to.
      */
@@ -83,6 +91,7 @@ class ListenerGame implements Game {
             lastHeight = currentHeight;
             lastWidth = currentWidth;
         }
+        FrameProfiler.getInstance().beginFrame();
         listener.update(engineContainer, delta);
     }
 
@@ -91,7 +100,11 @@ class ListenerGame implements Game {
         final SlickGraphics slickGraphics = (SlickGraphics) engineContainer.getEngine().getGraphics();
         slickGraphics.setSlickGraphicsImpl(graphics);
         listener.render(engineContainer);
+        final long flushStart = BACKEND_FLUSH.start();
         slickGraphics.clearSlickGraphicsImpl();
+        ((SlickEngine) engineContainer.getEngine()).getAssets().getTextureManager().finishFrame();
+        BACKEND_FLUSH.stop(flushStart);
+        FrameProfiler.getInstance().endFrame();
     }
 
     @Override
@@ -91,7 +91,7 @@ class SlickAssets implements Assets {
 
     @Nonnull
     @Override
-    public TextureManager getTextureManager() {
+    public SlickTextureManager getTextureManager() {
         return textureManager;
     }
 
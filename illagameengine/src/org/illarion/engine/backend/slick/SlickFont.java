@@ -20,6 +20,7 @@ package org.illarion.engine.backend.slick;
 
 import org.illarion.engine.graphic.Font;
 import org.newdawn.slick.AngelCodeFont;
+import org.newdawn.slick.Image;
 import org.newdawn.slick.SlickException;
 
 import javax.annotation.Nonnull;
@@ -45,8 +46,12 @@ class SlickFont implements Font {
      * @throws SlickEngineException in case loading the font fails
      */
     SlickFont(@Nonnull final String fntFile, @Nonnull final SlickTexture imgFile) throws SlickEngineException {
+        final Image image = imgFile.getPinnedBackingImage();
+        if (image == null) {
+            throw new SlickEngineException("Failed to load the image of the font: " + fntFile);
+        }
         try {
-            internalFont = new AngelCodeFont(fntFile, imgFile.getBackingImage());
+            internalFont = new AngelCodeFont(fntFile, image);
         } catch (@Nonnull final SlickException e) {
             throw new SlickEngineException(e);
         } catch (@Nonnull final RuntimeException e) {
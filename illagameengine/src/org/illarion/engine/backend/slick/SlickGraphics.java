@@ -18,12 +18,14 @@
  */
 package org.illarion.engine.backend.slick;
 
+import org.illarion.engine.backend.shared.AbstractRenderQueue;
 import org.illarion.engine.graphic.*;
 import org.illarion.engine.graphic.effects.TextureEffect;
 import org.lwjgl.opengl.GL11;
 import org.newdawn.slick.AngelCodeFont;
 import org.newdawn.slick.Image;
 import org.newdawn.slick.ShapeFill;
+import org.newdawn.slick.SlickException;
 import org.newdawn.slick.geom.Rectangle;
 import org.newdawn.slick.geom.Shape;
 import org.newdawn.slick.geom.Vector2f;
@@ -113,6 +115,128 @@ class SlickGraphics implements Graphics {
         }
     }
 
+    /**
+     * The render queue implementation for Slick2D. Slick binds the texture of every image it draws, unless the same
+     * texture was bound before already. So sorting the sprites by texture reduces the amount of texture binds.
+     */
+    private final class SlickRenderQueue extends AbstractRenderQueue {
+        /**
+         * The amount of sprites the queue can store.
+         */
+        private static final int CAPACITY = 1000;
+
+        /**
+         * The images of the queued sprites.
+         */
+        @Nonnull
+        private final Image[] images;
+
+        /**
+         * The x coordinates of the queued sprites.
+         */
+        @Nonnull
+        private final int[] posX;
+
+        /**
+         * The y coordinates of the queued sprites.
+         */
+        @Nonnull
+        private final int[] posY;
+
+        /**
+         * The widths of the queued sprites.
+         */
+        @Nonnull
+        private final int[] width;
+
+        /**
+         * The scaling values of the queued sprites.
+         */
+        @Nonnull
+        private final float[] scale;
+
+        /**
+         * The mirror flags of the queued sprites.
+         */
+        @Nonnull
+        private final boolean[] mirrored;
+
+        /**
+         * The colors of the queued sprites.
+         */
+        @Nonnull
+        private final org.newdawn.slick.Color[] colors;
+
+        /**
+         * Create the render queue.
+         */
+        SlickRenderQueue() {
+            super(CAPACITY);
+            images = new Image[CAPACITY];
+            posX = new int[CAPACITY];
+            posY = new int[CAPACITY];
+            width = new int[CAPACITY];
+            scale = new float[CAPACITY];
+            mirrored = new boolean[CAPACITY];
+            colors = new org.newdawn.slick.Color[CAPACITY];
+            for (int i = 0; i < CAPACITY; i++) {
+                colors[i] = new org.newdawn.slick.Color(org.newdawn.slick.Color.white);
+            }
+        }
+
+        /**
+         * Add a sprite to the queue.
+         *
+         * @param image       the image of the sprite
+         * @param displayArea the area the sprite is displayed in
+         * @param scaling     the scaling value of the sprite
+         * @param mirror      {@code true} in case the sprite is drawn mirrored
+         * @param color       the color of the sprite
+         */
+        void add(@Nonnull final Image image, @Nonnull final illarion.common.types.Rectangle displayArea,
+                 final float scaling, final boolean mirror, @Nonnull final org.newdawn.slick.Color color) {
+            final int slot = enqueue(image.getTexture(), displayArea.getX(), displayArea.getY(),
+                    (int) Math.ceil(displayArea.getWidth() * scaling),
+                    (int) Math.ceil(displayArea.getHeight() * scaling));
+            images[slot] = image;
+            posX[slot] = displayArea.getX();
+            posY[slot] = displayArea.getY();
+            width[slot] = displayArea.getWidth();
+            scale[slot] = scaling;
+            mirrored[slot] = mirror;
+            colors[slot].r = color.r;
+            colors[slot].g = color.g;
+            colors[slot].b = color.b;
+            colors[slot].a = color.a;
+        }
+
+        @Override
+        protected void drawEntry(final int slot) {
+            if (slickGraphicsImpl == null) {
+                throw new IllegalStateException("Using graphics outside of the render loop is not allowed.");
+            }
+            slickGraphicsImpl.pushTransform();
+            slickGraphicsImpl.translate(posX[slot], posY[slot]);
+            final Image image = images[slot];
+            image.setRotation(0.f);
+            if (mirrored[slot]) {
+                slickGraphicsImpl.scale(-scale[slot], scale[slot]);
+                slickGraphicsImpl.drawImage(image, -width[slot], 0, colors[slot]);
+            } else {
+                slickGraphicsImpl.scale(scale[slot], scale[slot]);
+                slickGraphicsImpl.drawImage(image, 0, 0, colors[slot]);
+            }
+            slickGraphicsImpl.popTransform();
+            images[slot] = null;
+        }
+    }
+
+    /**
+     * The queue that collects the sprites to sort them by their texture.
+     */
+    @Nonnull
+    private final SlickRenderQueue renderQueue = new SlickRenderQueue();
+
     /**
      * This is the instance of the four colored rectangle that is used in all cases.
      */
@@ -130,6 +254,12 @@ class SlickGraphics implements Graphics {
     @Nullable
     private org.newdawn.slick.Graphics slickGraphicsImpl;
 
+    /**
+     * The graphics that were active before a render target was activated.
+     */
+    @Nullable
+    private org.newdawn.slick.Graphics graphicsBeforeTarget;
+
     /**
      * The rectangle used to exchange data with the drawn components. Its only used inside a single drawing function,
      * never beyond that.
@@ -155,6 +285,7 @@ class SlickGraphics implements Graphics {
         if (slickGraphicsImpl == null) {
             throw new IllegalStateException("Using graphics outside of the render loop is not allowed.");
         }
+        renderQueue.flush();
         slickGraphicsImpl.clear();
     }
 
@@ -162,14 +293,39 @@ class SlickGraphics implements Graphics {
      * Clear the graphics instance. This should be done after the rendering loop.
      */
     void clearSlickGraphicsImpl() {
+        renderQueue.finishFrame();
         slickGraphicsImpl = null;
     }
 
+    /**
+     * Draw all sprites that are waiting in the render queue. This needs to be called before the transformation of the
+     * Slick graphics is changed from outside of this class.
+     */
+    void flushRenderQueue() {
+        renderQueue.flush();
+    }
+
+    /**
+     * Get the render queue of this graphics instance.
+     *
+     * @return the render queue
+     */
+    @Nonnull
+    AbstractRenderQueue getRenderQueue() {
+        return renderQueue;
+    }
+
+    @Override
+    public void setRenderQueueEnabled(final boolean enabled) {
+        renderQueue.setEnabled(enabled);
+    }
+
     @Override
     public void drawRectangle(final int x, final int y, final int width, final int height, @Nonnull final Color color) {
         if (slickGraphicsImpl == null) {
             throw new IllegalStateException("Using graphics outside of the render loop is not allowed.");
         }
+        renderQueue.flush();
         transferColor(color, tempSlickColor1);
         slickGraphicsImpl.setColor(tempSlickColor1);
         slickGraphicsImpl.fillRect(x, y, width, height);
@@ -185,6 +341,7 @@ class SlickGraphics implements Graphics {
         if (slickGraphicsImpl == null) {
             throw new IllegalStateException("Using graphics outside of the render loop is not allowed.");
         }
+        renderQueue.flush();
         fourColorRect.setColors(topLeftColor, topRightColor, bottomLeftColor, bottomRightColor);
         fourColorRect.setLocation(x, y);
         fourColorRect.setSize(width, height);
@@ -206,6 +363,17 @@ class SlickGraphics implements Graphics {
             transferColor(color, tempSlickColor1);
             slickSprite.getDisplayArea(posX, posY, 1.f, 0.f, tempRect);
 
+            @Nullable final Image slickImage = slickSprite.getFrame(frame).getBackingImage();
+            if (slickImage == null) {
+                return;
+            }
+            if ((effects.length == 0) && (rotation == 0.0) && renderQueue.isEnabled()) {
+                renderQueue.add(slickImage, tempRect, (float) scale, slickSprite.isMirrored(), tempSlickColor1);
+                return;
+            }
+            renderQueue.flush();
+            renderQueue.recordDraw(slickImage.getTexture());
+
             slickGraphicsImpl.pushTransform();
             slickGraphicsImpl.translate(tempRect.getX(), tempRect.getY());
 
@@ -224,7 +392,6 @@ class SlickGraphics implements Graphics {
                 usedEffect.activateEffect(slickGraphicsImpl);
             }
 
-            final Image slickImage = slickSprite.getFrame(frame).getBackingImage();
             slickImage.setCenterOfRotation((float) centerTransX, (float) centerTransY);
             slickImage.setRotation((float) rotation);
 
@@ -246,6 +413,7 @@ class SlickGraphics implements Graphics {
         if (slickGraphicsImpl == null) {
             throw new IllegalStateException("Using graphics outside of the render loop is not allowed.");
         }
+        renderQueue.flush();
         if (font instanceof SlickFont) {
             final AngelCodeFont internalFont = ((SlickFont) font).getInternalFont();
             org.newdawn.slick.Graphics.setCurrent(slickGraphicsImpl);
@@ -260,6 +428,7 @@ class SlickGraphics implements Graphics {
         if (slickGraphicsImpl == null) {
             throw new IllegalStateException("Using graphics outside of the render loop is not allowed.");
         }
+        renderQueue.flush();
         if (font instanceof SlickFont) {
             final AngelCodeFont internalFont = ((SlickFont) font).getInternalFont();
             org.newdawn.slick.Graphics.setCurrent(slickGraphicsImpl);
@@ -278,7 +447,12 @@ class SlickGraphics implements Graphics {
         if (slickGraphicsImpl == null) {
             throw new IllegalStateException("Using graphics outside of the render loop is not allowed.");
         }
-        final SlickTexture slickTexture = (SlickTexture) texture;
+        @Nullable final Image slickImage = ((SlickTexture) texture).getBackingImage();
+        if (slickImage == null) {
+            return;
+        }
+        renderQueue.flush();
+        renderQueue.recordDraw(slickImage.getTexture());
         transferColor(color, tempSlickColor1);
 
         @Nullable SlickTextureEffect usedEffect = null;
@@ -289,8 +463,8 @@ class SlickGraphics implements Graphics {
         if (usedEffect != null) {
             usedEffect.activateEffect(slickGraphicsImpl);
         }
-        slickGraphicsImpl.drawImage(slickTexture.getBackingImage(), x, y, x + width, y + height, 0, 0,
-                slickTexture.getWidth(), slickTexture.getHeight(), tempSlickColor1);
+        slickGraphicsImpl.drawImage(slickImage, x, y, x + width, y + height, 0, 0, texture.getWidth(),
+                texture.getHeight(), tempSlickColor1);
 
         if (usedEffect != null) {
             usedEffect.disableEffect(slickGraphicsImpl);
@@ -305,7 +479,12 @@ class SlickGraphics implements Graphics {
         if (slickGraphicsImpl == null) {
             throw new IllegalStateException("Using graphics outside of the render loop is not allowed.");
         }
-        final SlickTexture slickTexture = (SlickTexture) texture;
+        @Nullable final Image slickImage = ((SlickTexture) texture).getBackingImage();
+        if (slickImage == null) {
+            return;
+        }
+        renderQueue.flush();
+        renderQueue.recordDraw(slickImage.getTexture());
 
         transferColor(color, tempSlickColor1);
         @Nullable SlickTextureEffect usedEffect = null;
@@ -316,7 +495,7 @@ class SlickGraphics implements Graphics {
         if (usedEffect != null) {
             usedEffect.activateEffect(slickGraphicsImpl);
         }
-        slickGraphicsImpl.drawImage(slickTexture.getBackingImage(), x, y, x + width, y + height, texX, texY,
+        slickGraphicsImpl.drawImage(slickImage, x, y, x + width, y + height, texX, texY,
                 texX + texWidth, texY + texHeight, tempSlickColor1);
 
         if (usedEffect != null) {
@@ -332,7 +511,12 @@ class SlickGraphics implements Graphics {
         if (slickGraphicsImpl == null) {
             throw new IllegalStateException("Using graphics outside of the render loop is not allowed.");
         }
-        final SlickTexture slickTexture = (SlickTexture) texture;
+        @Nullable final Image slickImage = ((SlickTexture) texture).getBackingImage();
+        if (slickImage == null) {
+            return;
+        }
+        renderQueue.flush();
+        renderQueue.recordDraw(slickImage.getTexture());
 
         transferColor(color, tempSlickColor1);
         @Nullable SlickTextureEffect usedEffect = null;
@@ -349,7 +533,7 @@ class SlickGraphics implements Graphics {
             slickGraphicsImpl.rotate(0, 0, (float) rotate);
             slickGraphicsImpl.translate(-centerX - x, -centerY - y);
         }
-        slickGraphicsImpl.drawImage(slickTexture.getBackingImage(), x, y, x + width, y + height, texX, texY,
+        slickGraphicsImpl.drawImage(slickImage, x, y, x + width, y + height, texX, texY,
                 texX + texWidth, texY + texHeight, tempSlickColor1);
 
         if (usedEffect != null) {
@@ -375,6 +559,7 @@ class SlickGraphics implements Graphics {
      */
     @SuppressWarnings("NullableProblems")
     void setSlickGraphicsImpl(@Nonnull final org.newdawn.slick.Graphics graphics) {
+        renderQueue.flush();
         slickGraphicsImpl = graphics;
         setBlendingMode(BlendingMode.AlphaBlend);
     }
@@ -384,6 +569,7 @@ class SlickGraphics implements Graphics {
         if (slickGraphicsImpl == null) {
             throw new IllegalStateException("Using graphics outside of the render loop is not allowed.");
         }
+        renderQueue.flush();
         switch (mode) {
             case AlphaBlend:
                 slickGraphicsImpl.setDrawMode(org.newdawn.slick.Graphics.MODE_NORMAL);
@@ -401,6 +587,7 @@ class SlickGraphics implements Graphics {
         if (slickGraphicsImpl == null) {
             throw new IllegalStateException("Using graphics outside of the render loop is not allowed.");
         }
+        renderQueue.flush();
         slickGraphicsImpl.setWorldClip(x, y, width, height);
     }
 
@@ -409,6 +596,67 @@ class SlickGraphics implements Graphics {
         if (slickGraphicsImpl == null) {
             throw new IllegalStateException("Using graphics outside of the render loop is not allowed.");
         }
+        renderQueue.flush();
         slickGraphicsImpl.clearWorldClip();
     }
+
+    @Nullable
+    @Override
+    public RenderTarget createRenderTarget(final int width, final int height) {
+        try {
+            return new SlickRenderTarget(width, height);
+        } catch (@Nonnull final SlickException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void beginRenderTarget(@Nonnull final RenderTarget target, final int x, final int y, final int width,
+                                  final int height) {
+        if (!(target instanceof SlickRenderTarget)) {
+            throw new IllegalArgumentException("Illegal render target implementation.");
+        }
+        if (slickGraphicsImpl == null) {
+            throw new IllegalStateException("Using graphics outside of the render loop is not allowed.");
+        }
+        if (graphicsBeforeTarget != null) {
+            throw new IllegalStateException("Render targets can't be nested.");
+        }
+        renderQueue.flush();
+
+        final org.newdawn.slick.Graphics targetGraphics;
+        try {
+            targetGraphics = ((SlickRenderTarget) target).getGraphics();
+        } catch (@Nonnull final SlickException e) {
+            throw new IllegalStateException("Failed to access the render target.", e);
+        }
+        graphicsBeforeTarget = slickGraphicsImpl;
+        slickGraphicsImpl = targetGraphics;
+        org.newdawn.slick.Graphics.setCurrent(targetGraphics);
+
+        targetGraphics.setClip(x, y, width, height);
+        targetGraphics.setBackground(org.newdawn.slick.Color.transparent);
+        targetGraphics.clear();
+        targetGraphics.clearClip();
+    }
+
+    @Override
+    public void endRenderTarget() {
+        if ((graphicsBeforeTarget == null) || (slickGraphicsImpl == null)) {
+            throw new IllegalStateException("No render target is active.");
+        }
+        renderQueue.flush();
+        slickGraphicsImpl.flush();
+
+        slickGraphicsImpl = graphicsBeforeTarget;
+        graphicsBeforeTarget = null;
+        org.newdawn.slick.Graphics.setCurrent(slickGraphicsImpl);
+
+        /* Clearing the clipping area of the render target disabled the clipping of the graphics that were active
+         * before as well. */
+        @Nullable final Rectangle clip = slickGraphicsImpl.getClip();
+        if (clip != null) {
+            slickGraphicsImpl.setClip(clip);
+        }
+    }
 }
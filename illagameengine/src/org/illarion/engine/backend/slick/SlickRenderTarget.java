@@ -0,0 +1,94 @@
+/*
+ * This file is part of the Illarion Game Engine.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Game Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Game Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Game Engine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.illarion.engine.backend.slick;
+
+import org.illarion.engine.graphic.RenderTarget;
+import org.illarion.engine.graphic.Texture;
+import org.newdawn.slick.Graphics;
+import org.newdawn.slick.Image;
+import org.newdawn.slick.SlickException;
+
+import javax.annotation.Nonnull;
+
+/**
+ * This is the render target implementation of Slick2D. It is backed by a offscreen image.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+class SlickRenderTarget implements RenderTarget {
+    /**
+     * The image that receives the render operations.
+     */
+    @Nonnull
+    private final Image image;
+
+    /**
+     * The texture that wraps the image.
+     */
+    @Nonnull
+    private final SlickTexture texture;
+
+    /**
+     * Create a new render target.
+     *
+     * @param width  the width of the render target
+     * @param height the height of the render target
+     * @throws SlickException in case creating the offscreen image fails
+     */
+    SlickRenderTarget(final int width, final int height) throws SlickException {
+        image = Image.createOffscreenImage(width, height);
+        texture = new SlickTexture(image);
+    }
+
+    /**
+     * Get the graphics that render into the image of this render target.
+     *
+     * @return the graphics of the image
+     * @throws SlickException in case fetching the graphics fails
+     */
+    @Nonnull
+    Graphics getGraphics() throws SlickException {
+        return image.getGraphics();
+    }
+
+    @Nonnull
+    @Override
+    public Texture getTexture() {
+        return texture;
+    }
+
+    @Override
+    public int getWidth() {
+        return image.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return image.getHeight();
+    }
+
+    @Override
+    public void dispose() {
+        try {
+            image.destroy();
+        } catch (@Nonnull final SlickException ignored) {
+            // the image is gone anyway
+        }
+    }
+}
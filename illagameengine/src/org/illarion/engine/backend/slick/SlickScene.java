@@ -137,6 +137,7 @@ class SlickScene extends AbstractScene<SlickSceneEffect> {
                 slickGraphicsImpl.setBackground(Color.transparent);
                 slickGraphicsImpl.clear();
                 renderScene(graphics);
+                slickGraphics.flushRenderQueue();
                 slickGraphicsImpl.popTransform();
                 slickGraphicsImpl.flush();
             } else {
@@ -152,6 +153,7 @@ class SlickScene extends AbstractScene<SlickSceneEffect> {
                     currentGraphics.pushTransform();
                     currentGraphics.translate(-offsetX, -offsetY);
                     renderScene(graphics);
+                    slickGraphics.flushRenderQueue();
                     currentGraphics.popTransform();
                     currentGraphics.flush();
 
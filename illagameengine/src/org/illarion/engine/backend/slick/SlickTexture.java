@@ -18,23 +18,61 @@
  */
 package org.illarion.engine.backend.slick;
 
+import org.illarion.engine.backend.shared.StreamedAtlas;
 import org.illarion.engine.graphic.Texture;
 import org.newdawn.slick.Image;
 import org.newdawn.slick.SlickException;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 /**
  * This is the implementation of the texture interface used by the Slick2D backend. These textures can be used to be
  * drawn using this backend.
+ * <p />
+ * Textures that show a part of a streamed atlas only know their location on the atlas. The image is created once the
+ * atlas is resident and created again every time the atlas gets a new texture.
  *
  * @author Martin Karing &lt;nitram@illarion.org&gt;
  */
 class SlickTexture implements Texture {
     /**
-     * The image that is actually rendered as this picture.
+     * The image that is actually rendered as this picture. For streamed textures this is {@code null} until the atlas
+     * was resident for the first time.
      */
-    private final Image backingImage;
+    @Nullable
+    private Image backingImage;
+
+    /**
+     * The streamed atlas this texture is a part of or {@code null} in case this texture is not streamed.
+     */
+    @Nullable
+    private final StreamedAtlas atlas;
+
+    /**
+     * The x coordinate of this texture on the streamed atlas.
+     */
+    private final int atlasX;
+
+    /**
+     * The y coordinate of this texture on the streamed atlas.
+     */
+    private final int atlasY;
+
+    /**
+     * The width of this texture.
+     */
+    private final int width;
+
+    /**
+     * The height of this texture.
+     */
+    private final int height;
+
+    /**
+     * The generation of the streamed atlas the backing image was created for.
+     */
+    private int atlasGeneration;
 
     /**
      * Create a new texture instance and set the reference string to the resource that is load to receive the texture.
@@ -43,7 +81,7 @@ class SlickTexture implements Texture {
      * @throws SlickException in case loading the texture fails
      */
     SlickTexture(@Nonnull final String texture) throws SlickException {
-        backingImage = new Image(texture);
+        this(new Image(texture));
     }
 
     /**
@@ -53,15 +91,77 @@ class SlickTexture implements Texture {
      */
     SlickTexture(@Nonnull final Image image) {
         backingImage = image;
+        atlas = null;
+        atlasX = 0;
+        atlasY = 0;
+        width = image.getWidth();
+        height = image.getHeight();
     }
 
     /**
-     * Get the image wrapped by this texture.
+     * Create a texture that shows a part of a streamed atlas.
      *
-     * @return the backing image
+     * @param atlas  the streamed atlas
+     * @param x      the x coordinate of the texture on the atlas
+     * @param y      the y coordinate of the texture on the atlas
+     * @param width  the width of the texture
+     * @param height the height of the texture
      */
-    @Nonnull
+    SlickTexture(@Nonnull final StreamedAtlas atlas, final int x, final int y, final int width, final int height) {
+        this.atlas = atlas;
+        atlasX = x;
+        atlasY = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Get the image wrapped by this texture in order to draw it.
+     *
+     * @return the backing image or {@code null} in case the streamed atlas of this texture is not resident
+     */
+    @Nullable
     public Image getBackingImage() {
+        if (atlas == null) {
+            return backingImage;
+        }
+        return resolveImage(atlas.use());
+    }
+
+    /**
+     * Get the image wrapped by this texture in order to hand it to another library that keeps it. In case this
+     * texture is streamed, the atlas is load right away and never released.
+     *
+     * @return the backing image or {@code null} in case loading the streamed atlas failed
+     */
+    @Nullable
+    public Image getPinnedBackingImage() {
+        if (atlas == null) {
+            return backingImage;
+        }
+        return resolveImage(atlas.require());
+    }
+
+    /**
+     * Get the image on the texture of the streamed atlas.
+     *
+     * @param atlasTexture the texture of the streamed atlas
+     * @return the image or {@code null} in case the atlas has no texture
+     */
+    @Nullable
+    private Image resolveImage(@Nullable final Texture atlasTexture) {
+        if (!(atlasTexture instanceof SlickTexture)) {
+            return null;
+        }
+        assert atlas != null;
+        if ((backingImage == null) || (atlasGeneration != atlas.getGeneration())) {
+            final Image atlasImage = ((SlickTexture) atlasTexture).getBackingImage();
+            if (atlasImage == null) {
+                return null;
+            }
+            backingImage = atlasImage.getSubImage(atlasX, atlasY, width, height);
+            atlasGeneration = atlas.getGeneration();
+        }
         return backingImage;
     }
 
@@ -73,16 +173,20 @@ class SlickTexture implements Texture {
     @Nonnull
     @Override
     public Texture getSubTexture(final int x, final int y, final int width, final int height) {
+        if (atlas != null) {
+            return new SlickTexture(atlas, atlasX + x, atlasY + y, width, height);
+        }
+        assert backingImage != null;
         return new SlickTexture(backingImage.getSubImage(x, y, width, height));
     }
 
     @Override
     public int getHeight() {
-        return backingImage.getHeight();
+        return height;
     }
 
     @Override
     public int getWidth() {
-        return backingImage.getWidth();
+        return width;
     }
 }
@@ -18,28 +18,84 @@
  */
 package org.illarion.engine.backend.slick;
 
+import org.apache.log4j.Logger;
 import org.illarion.engine.backend.shared.AbstractTextureManager;
+import org.illarion.engine.backend.shared.StreamedAtlas;
 import org.illarion.engine.graphic.Texture;
+import org.newdawn.slick.Image;
 import org.newdawn.slick.SlickException;
+import org.newdawn.slick.opengl.ImageDataFactory;
+import org.newdawn.slick.opengl.LoadableImageData;
+import org.newdawn.slick.util.ResourceLoader;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * The texture manager that takes care for loading and providing the texture data for the Slick 2D backend.
  *
  * @author Martin Karing &lt;nitram@illarion.org&gt;
  */
-class SlickTextureManager extends AbstractTextureManager {
+class SlickTextureManager extends AbstractTextureManager<LoadableImageData> {
+    /**
+     * The logger that provides the logging output of this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(SlickTextureManager.class);
+
     @Nullable
     @Override
-    protected Texture loadTexture(@Nonnull final String resource) {
+    protected LoadableImageData loadTextureData(@Nonnull final String resource) {
+        InputStream in = null;
         try {
-            return new SlickTexture(resource);
-        } catch (@Nonnull final SlickException ignored) {
+            in = ResourceLoader.getResourceAsStream(resource);
+            final LoadableImageData data = ImageDataFactory.getImageDataFor(resource);
+            data.loadImage(in, false, null);
+            return data;
+        } catch (@Nonnull final IOException ignored) {
+            return null;
+        } catch (@Nonnull final RuntimeException ignored) {
             return null;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (@Nonnull final IOException ignored) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    @Nullable
+    @Override
+    protected Texture createTexture(@Nonnull final LoadableImageData data) {
+        try {
+            return new SlickTexture(new Image(data));
         } catch (@Nonnull final RuntimeException ignored) {
             return null;
         }
     }
+
+    @Nonnull
+    @Override
+    protected Texture createStreamedTexture(@Nonnull final StreamedAtlas atlas, final int x, final int y,
+                                            final int width, final int height) {
+        return new SlickTexture(atlas, x, y, width, height);
+    }
+
+    @Override
+    protected void disposeTexture(@Nonnull final Texture texture) {
+        if (texture instanceof SlickTexture) {
+            final Image image = ((SlickTexture) texture).getBackingImage();
+            if (image != null) {
+                try {
+                    image.destroy();
+                } catch (@Nonnull final SlickException e) {
+                    LOGGER.warn("Failed to release texture.", e);
+                }
+            }
+        }
+    }
 }
@@ -22,6 +22,7 @@ import illarion.common.types.Rectangle;
 import org.illarion.engine.graphic.effects.TextureEffect;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
 /**
@@ -190,4 +191,46 @@ public interface Graphics {
      * Calling this function while no clipping area is set has not effect.
      */
     void unsetClippingArea();
+
+    /**
+     * Enable or disable the render queue. While the queue is enabled sprites and textures are not drawn right away.
+     * They are collected and drawn sorted by the texture they use, as long as this does not change the result on the
+     * screen. Any other operation on the graphics draws the collected sprites first.
+     *
+     * @param enabled {@code true} to enable the render queue
+     */
+    void setRenderQueueEnabled(boolean enabled);
+
+    /**
+     * Create a new render target. A render target is a texture that can be used as target for render operations.
+     *
+     * @param width  the width of the render target
+     * @param height the height of the render target
+     * @return the new render target or {@code null} in case the backend is unable to create it
+     */
+    @Nullable
+    RenderTarget createRenderTarget(int width, int height);
+
+    /**
+     * Redirect all following render operations to a area of a render target. The area is cleared to full transparency
+     * and the coordinates of the following render operations are relative to the top left corner of the render
+     * target. A clipping area that is active does not apply to the render target, it is applied again once the
+     * render target is done. This may be used while the scene renders into a buffer of its own to apply its effects,
+     * but render targets can't be nested into each other.
+     * <p/>
+     * Every call of this function has to be followed by a call of {@link #endRenderTarget()}.
+     *
+     * @param target the render target
+     * @param x      the x coordinate of the area that is cleared
+     * @param y      the y coordinate of the area that is cleared
+     * @param width  the width of the area that is cleared
+     * @param height the height of the area that is cleared
+     */
+    void beginRenderTarget(@Nonnull RenderTarget target, int x, int y, int width, int height);
+
+    /**
+     * Finish rendering to the render target and send all following render operations to where they were sent to
+     * before the render target was activated. That is either the screen or the buffer the scene is rendered to.
+     */
+    void endRenderTarget();
 }
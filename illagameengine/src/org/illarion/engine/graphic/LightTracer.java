@@ -22,11 +22,15 @@ import illarion.common.types.Location;
 import illarion.common.util.Stoppable;
 import illarion.common.util.StoppableStorage;
 import org.apache.log4j.Logger;
+import org.illarion.engine.profiler.FrameProfiler;
 
 import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Manager class that handles the light. It stores the pre-calculated light rays
@@ -34,13 +38,16 @@ import java.util.List;
  * removes the light sources on request.
  * <p>
  * The whole calculations are threaded, so the light map that is the target of
- * all calculation results needs to be thread save.
+ * all calculation results needs to be thread save. The calculations are
+ * executed as a task of the executor that is handed to the constructor. At
+ * most one task of the tracer is scheduled at a time and it keeps working
+ * until all lights are calculated.
  * </p>
  *
  * @author Nop
  * @author Martin Karing &lt;nitram@illarion.org&gt;
  */
-public final class LightTracer extends Thread implements Stoppable {
+public final class LightTracer implements Stoppable {
     /**
      * The maximal radius of the light. So length of the light rays is between 1
      * and the value of this constant.
@@ -100,12 +107,32 @@ public final class LightTracer extends Thread implements Stoppable {
      * calculating results for all light sources handled by this light tracer.
      */
     private final LightingMap mapSource;
+
+    /**
+     * The executor that runs the light calculations.
+     */
+    @Nonnull
+    private final Executor executor;
+
+    /**
+     * The task that calculates the lights using the executor.
+     */
+    @Nonnull
+    private final Runnable tracerTask;
+
     /**
      * The running flag that needs to be <code>true</code> as long as the light
      * tracer is supposed to calculate the lights.
      */
     private volatile boolean running;
 
+    /**
+     * This flag is <code>true</code> while the task of the tracer is scheduled
+     * or running.
+     */
+    @GuardedBy("lightsListsLock")
+    private boolean scheduled;
+
     /**
      * The list of light sources handled by this light tracer. This list
      * contains all lights that currently do not require any calculations.
@@ -118,12 +145,17 @@ public final class LightTracer extends Thread implements Stoppable {
      * sources that are on the map source that is set with the parameter.
      *
      * @param tracerMapSource the map the lights this tracer handles are on
+     * @param tracerExecutor  the executor that runs the light calculations
      */
-    @SuppressWarnings("nls")
-    public LightTracer(final LightingMap tracerMapSource) {
-        super("LightTracer Thread");
-
+    public LightTracer(final LightingMap tracerMapSource, @Nonnull final Executor tracerExecutor) {
         mapSource = tracerMapSource;
+        executor = tracerExecutor;
+        tracerTask = new Runnable() {
+            @Override
+            public void run() {
+                processLights();
+            }
+        };
         dirtyLights = new ArrayList<LightSource>();
         tidyLights = new ArrayList<LightSource>();
         running = false;
@@ -159,8 +191,8 @@ public final class LightTracer extends Thread implements Stoppable {
                 dirtyLights.add(light);
             }
             setDirty(true);
-            lightsListsLock.notifyAll();
         }
+        schedule();
     }
 
     /**
@@ -172,6 +204,7 @@ public final class LightTracer extends Thread implements Stoppable {
             return;
         }
 
+        final long calculateStart = FrameProfiler.getInstance().start();
         synchronized (lightsListsLock) {
             final Iterator<LightSource> dirtyItr = dirtyLights.iterator();
             final Iterator<LightSource> tinyItr = tidyLights.iterator();
@@ -191,6 +224,7 @@ public final class LightTracer extends Thread implements Stoppable {
                 tidyLights.add(light);
             }
         }
+        FrameProfiler.getInstance().recordSpan("Light tracing", calculateStart);
     }
 
     /**
@@ -316,18 +350,35 @@ public final class LightTracer extends Thread implements Stoppable {
      */
     private void restart() {
         doRestart = true;
+        schedule();
+    }
+
+    /**
+     * Hand the task of the tracer to the executor, in case it is not scheduled
+     * already.
+     */
+    private void schedule() {
         synchronized (lightsListsLock) {
-            lightsListsLock.notifyAll();
+            if (!running || scheduled) {
+                return;
+            }
+            scheduled = true;
+        }
+        try {
+            executor.execute(tracerTask);
+        } catch (@Nonnull final RejectedExecutionException e) {
+            LOGGER.debug("Light calculation dropped, the executor is shut down.");
+            synchronized (lightsListsLock) {
+                scheduled = false;
+            }
         }
     }
 
     /**
-     * This method runs until the running flag is turned to false and constantly
-     * calculates the lights in case its needed.
+     * This method calculates the lights until all lights are done or the
+     * running flag is turned to false.
      */
-    @Override
-    @SuppressWarnings("nls")
-    public void run() {
+    private void processLights() {
         while (running) {
             if (doRestart) {
                 mapSource.resetLights();
@@ -354,36 +405,34 @@ public final class LightTracer extends Thread implements Stoppable {
                     } else {
                         lastTinyIndex = -1;
                     }
-                } else {
-                    try {
-                        lightsListsLock.wait();
-                    } catch (@Nonnull final InterruptedException e) {
-                        LOGGER.debug("Light tracer woken up for unknown reasons", e);
-                    }
-
+                } else if (!doRestart) {
+                    scheduled = false;
+                    return;
                 }
             }
 
             if (light != null) {
+                final long lightStart = FrameProfiler.getInstance().start();
                 if (dirtyLight) {
                     light.calculateShadows();
                 }
                 light.apply();
+                FrameProfiler.getInstance().recordSpan("Light tracing", lightStart);
             } else {
                 setDirty(false);
             }
         }
+        synchronized (lightsListsLock) {
+            scheduled = false;
+        }
     }
 
     /**
-     * Stop the thread as soon as possible.
+     * Stop the calculations as soon as possible.
      */
     @Override
     public void saveShutdown() {
         running = false;
-        synchronized (lightsListsLock) {
-            lightsListsLock.notifyAll();
-        }
     }
 
     /**
@@ -397,7 +446,9 @@ public final class LightTracer extends Thread implements Stoppable {
             mapSource.resetLights();
             dirty = true;
         } else if (dirty && !newDirty) {
+            final long renderStart = FrameProfiler.getInstance().start();
             mapSource.renderLights();
+            FrameProfiler.getInstance().recordSpan("Light rendering", renderStart);
             dirty = false;
         } else {
             dirty = newDirty;
@@ -406,27 +457,29 @@ public final class LightTracer extends Thread implements Stoppable {
 
     /**
      * Set the running value to a new state. This is the only way to stop the
-     * light tracer thread from calculating stuff.
+     * light tracer from calculating stuff.
      *
-     * @param newRunning <code>false</code> to stop the light tracer thread
+     * @param newRunning <code>false</code> to stop the light tracer
      */
     public void setRunning(final boolean newRunning) {
         running = newRunning;
+        if (newRunning) {
+            schedule();
+        }
     }
 
     /**
-     * Overwritten start method to add the instance of the light tracer to the
+     * Start the light tracer and add the instance of the light tracer to the
      * Stoppable Storage so it shuts down at the end of the application
      * correctly.
      */
-    @Override
     public synchronized void start() {
         if (running) {
             return;
         }
         running = true;
-        super.start();
         StoppableStorage.getInstance().add(this);
+        schedule();
     }
 
     /**
@@ -436,7 +489,7 @@ public final class LightTracer extends Thread implements Stoppable {
         synchronized (lightsListsLock) {
             tidyLights.clear();
             dirtyLights.clear();
-            restart();
         }
+        restart();
     }
 }
@@ -0,0 +1,42 @@
+/*
+ * This file is part of the Illarion Game Engine.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Game Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Game Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Game Engine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.illarion.engine.graphic;
+
+/**
+ * This interface defines a event that refers to a single location on the screen. The scene only offers such events
+ * to the elements with a event area that contains this location.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ * @see SceneElement#getEventArea()
+ */
+public interface PointerSceneEvent extends SceneEvent {
+    /**
+     * Get the x coordinate of the location on the screen this event refers to.
+     *
+     * @return the x coordinate on the screen
+     */
+    int getPointerX();
+
+    /**
+     * Get the y coordinate of the location on the screen this event refers to.
+     *
+     * @return the y coordinate on the screen
+     */
+    int getPointerY();
+}
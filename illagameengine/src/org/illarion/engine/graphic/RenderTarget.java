@@ -0,0 +1,59 @@
+/*
+ * This file is part of the Illarion Game Engine.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Game Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Game Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Game Engine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.illarion.engine.graphic;
+
+import org.illarion.engine.Disposable;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * This is a texture that can be used as target of render operations. Its created by
+ * {@link Graphics#createRenderTarget(int, int)} and filled between the calls of
+ * {@link Graphics#beginRenderTarget(RenderTarget, int, int, int, int)} and {@link Graphics#endRenderTarget()}.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+@NotThreadSafe
+public interface RenderTarget extends Disposable {
+    /**
+     * Get the texture that contains the result of the render operations. The texture is oriented the same way as
+     * the textures loaded from the resources, so parts of it can be fetched with
+     * {@link Texture#getSubTexture(int, int, int, int)} using the same coordinates that were used to render into the
+     * target.
+     *
+     * @return the texture of this render target
+     */
+    @Nonnull
+    Texture getTexture();
+
+    /**
+     * Get the width of the render target.
+     *
+     * @return the width in pixels
+     */
+    int getWidth();
+
+    /**
+     * Get the height of the render target.
+     *
+     * @return the height in pixels
+     */
+    int getHeight();
+}
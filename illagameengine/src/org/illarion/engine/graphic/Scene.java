@@ -71,6 +71,39 @@ public interface Scene {
      */
     void render(@Nonnull Graphics graphics, int offsetX, int offsetY);
 
+    /**
+     * Set the viewport of the scene. Elements that are outside of the viewport are not rendered and receive only a
+     * reduced update. In case the width or the height are zero, the culling is disabled.
+     *
+     * @param x      the x coordinate of the origin of the viewport
+     * @param y      the y coordinate of the origin of the viewport
+     * @param width  the width of the viewport
+     * @param height the height of the viewport
+     */
+    void setViewport(int x, int y, int width, int height);
+
+    /**
+     * Get the amount of elements that received a update during the last update of the scene. This includes the
+     * elements outside of the viewport that received the reduced update.
+     *
+     * @return the amount of elements visited
+     */
+    int getVisitedElementCount();
+
+    /**
+     * Get the amount of elements that were outside of the viewport during the last update of the scene.
+     *
+     * @return the amount of culled elements
+     */
+    int getCulledElementCount();
+
+    /**
+     * Get the amount of elements that were rendered during the last render operation of the scene.
+     *
+     * @return the amount of rendered elements
+     */
+    int getDrawnElementCount();
+
     /**
      * This function publishes events to the scene. The actual publishing is done during the call of the
      * {@link #update(GameContainer, int)} function. This method is thread save.
@@ -18,6 +18,7 @@
  */
 package org.illarion.engine.graphic;
 
+import illarion.common.types.Rectangle;
 import org.illarion.engine.GameContainer;
 
 import javax.annotation.Nonnull;
@@ -50,6 +51,37 @@ public interface SceneElement {
      */
     void update(@Nonnull GameContainer container, int delta);
 
+    /**
+     * This function is called instead of {@link #update(GameContainer, int)} in case the element is outside of the
+     * viewport of the scene. The element is not called every frame in this case, the delta value contains the
+     * entire time since the last call. The implementation should only do the work needed to keep the display
+     * rectangle valid.
+     *
+     * @param container the game container this scene is assigned to
+     * @param delta     the time since the last update
+     */
+    void updateOffScreen(@Nonnull GameContainer container, int delta);
+
+    /**
+     * Get the area on the screen this element is displayed in. The coordinates are relative to the origin of the
+     * scene. In case the rectangle is empty the area of the element is assumed to be unknown and the element is
+     * never removed by the culling of the scene.
+     *
+     * @return the area this element is displayed in
+     */
+    @Nonnull
+    Rectangle getDisplayRect();
+
+    /**
+     * Get the area on the screen this element accepts pointer events in. The coordinates are relative to the origin
+     * of the scene. A {@link PointerSceneEvent} is only send to this element in case the location of the event is
+     * inside this area. In case the rectangle is empty all pointer events are send to the element.
+     *
+     * @return the area this element accepts pointer events in
+     */
+    @Nonnull
+    Rectangle getEventArea();
+
     /**
      * This function is called for events that are send to the scene.
      *
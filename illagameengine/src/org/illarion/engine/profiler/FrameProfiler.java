@@ -0,0 +1,519 @@
+/*
+ * This file is part of the Illarion Game Engine.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Game Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Game Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Game Engine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.illarion.engine.profiler;
+
+import org.illarion.engine.graphic.Color;
+import org.illarion.engine.graphic.Font;
+import org.illarion.engine.graphic.Graphics;
+import org.illarion.engine.graphic.ImmutableColor;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.*;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * This is the profiler of the main loop. It measures the time spent in the sections of the main loop, calculates
+ * percentiles of those times over the last frames and is able to display them as overlay on the screen.
+ * <p />
+ * In addition all measured sections and the spans reported by other threads are stored in a trace buffer that can be
+ * written to a file in the trace event format of Chrome (<i>chrome://tracing</i>).
+ * <p />
+ * As long as the profiler is disabled, measuring a section only costs a check of a volatile flag.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+@ThreadSafe
+public final class FrameProfiler {
+    /**
+     * The value returned by {@link #start()} in case the profiler is disabled.
+     */
+    public static final long NOT_MEASURED = 0L;
+
+    /**
+     * The amount of frames in the rolling window the percentiles are calculated over.
+     */
+    private static final int WINDOW_SIZE = 240;
+
+    /**
+     * The amount of frames between two calculations of the percentiles.
+     */
+    private static final int REFRESH_INTERVAL = 30;
+
+    /**
+     * The amount of spans stored in the trace buffer. Once the buffer is full the oldest spans are overwritten.
+     */
+    private static final int TRACE_CAPACITY = 65536;
+
+    /**
+     * The amount of nanoseconds in one millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1000000.0;
+
+    /**
+     * The color of the background of the overlay.
+     */
+    @Nonnull
+    private static final Color OVERLAY_BACKGROUND = new ImmutableColor(0.f, 0.f, 0.f, 0.6f);
+
+    /**
+     * The singleton instance of this class.
+     */
+    @Nonnull
+    private static final FrameProfiler INSTANCE = new FrameProfiler();
+
+    /**
+     * This flag is {@code true} while the profiler is measuring.
+     */
+    private volatile boolean enabled;
+
+    /**
+     * The section that covers the entire frame.
+     */
+    @Nonnull
+    private final ProfilerSection frameSection;
+
+    /**
+     * The value returned when the measurement of the current frame started.
+     */
+    private long frameStart;
+
+    /**
+     * The sections of the main loop in the order they were registered.
+     */
+    @Nonnull
+    private final List<ProfilerSection> sections;
+
+    /**
+     * The buffer used to sort the samples during the calculation of the percentiles.
+     */
+    @Nonnull
+    private final long[] percentileBuffer;
+
+    /**
+     * The amount of frames since the last calculation of the percentiles.
+     */
+    private int framesSinceRefresh;
+
+    /**
+     * The text lines of the overlay. This is rebuild every time the percentiles are calculated.
+     */
+    @Nullable
+    private volatile String[][] overlayLines;
+
+    /**
+     * The lock that guards the trace buffer.
+     */
+    @Nonnull
+    private final Object traceLock = new Object();
+
+    /**
+     * The names of the spans in the trace buffer.
+     */
+    @Nonnull
+    private final String[] traceNames;
+
+    /**
+     * The IDs of the threads the spans in the trace buffer were recorded on.
+     */
+    @Nonnull
+    private final long[] traceThreads;
+
+    /**
+     * The start times of the spans in the trace buffer in nanoseconds.
+     */
+    @Nonnull
+    private final long[] traceStarts;
+
+    /**
+     * The durations of the spans in the trace buffer in nanoseconds.
+     */
+    @Nonnull
+    private final long[] traceDurations;
+
+    /**
+     * The index in the trace buffer that is written next.
+     */
+    private int traceIndex;
+
+    /**
+     * The amount of valid spans in the trace buffer.
+     */
+    private int traceCount;
+
+    /**
+     * The names of the threads that recorded spans.
+     */
+    @Nonnull
+    private final Map<Long, String> threadNames;
+
+    /**
+     * Private constructor to ensure that only the singleton instance is created.
+     */
+    private FrameProfiler() {
+        sections = new CopyOnWriteArrayList<ProfilerSection>();
+        percentileBuffer = new long[WINDOW_SIZE];
+        frameSection = new ProfilerSection(this, "Frame", WINDOW_SIZE);
+        traceNames = new String[TRACE_CAPACITY];
+        traceThreads = new long[TRACE_CAPACITY];
+        traceStarts = new long[TRACE_CAPACITY];
+        traceDurations = new long[TRACE_CAPACITY];
+        threadNames = new HashMap<Long, String>();
+    }
+
+    /**
+     * Get the singleton instance of the profiler.
+     *
+     * @return the profiler
+     */
+    @Nonnull
+    public static FrameProfiler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Check if the profiler is currently measuring.
+     *
+     * @return {@code true} in case the profiler is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enable or disable the profiler. Enabling the profiler drops all samples and spans recorded so far. This has
+     * to be called on the thread that runs the main loop.
+     *
+     * @param enabled {@code true} to enable the profiler
+     */
+    public void setEnabled(final boolean enabled) {
+        if (enabled && !this.enabled) {
+            frameSection.reset();
+            for (final ProfilerSection section : sections) {
+                section.reset();
+            }
+            framesSinceRefresh = 0;
+            overlayLines = null;
+            synchronized (traceLock) {
+                traceIndex = 0;
+                traceCount = 0;
+            }
+        }
+        this.enabled = enabled;
+    }
+
+    /**
+     * Get the section with a specified name. The section is created in case it does not exist yet.
+     *
+     * @param name the name of the section
+     * @return the section
+     */
+    @Nonnull
+    public ProfilerSection getSection(@Nonnull final String name) {
+        synchronized (sections) {
+            for (final ProfilerSection section : sections) {
+                if (section.getName().equals(name)) {
+                    return section;
+                }
+            }
+            final ProfilerSection section = new ProfilerSection(this, name, WINDOW_SIZE);
+            sections.add(section);
+            return section;
+        }
+    }
+
+    /**
+     * Start measuring a span.
+     *
+     * @return the start time of the span or {@link #NOT_MEASURED} in case the profiler is disabled
+     */
+    public long start() {
+        if (!enabled) {
+            return NOT_MEASURED;
+        }
+        final long time = System.nanoTime();
+        return (time == NOT_MEASURED) ? 1L : time;
+    }
+
+    /**
+     * Record a span that was executed outside of the main loop. This span is only added to the trace.
+     *
+     * @param name  the name of the span
+     * @param start the value returned by {@link #start()} when the span started
+     */
+    public void recordSpan(@Nonnull final String name, final long start) {
+        if (start == NOT_MEASURED) {
+            return;
+        }
+        addTraceEvent(name, start, System.nanoTime() - start);
+    }
+
+    /**
+     * Mark the start of a new frame. This has to be called by the backend before the frame is updated.
+     */
+    public void beginFrame() {
+        frameStart = frameSection.start();
+    }
+
+    /**
+     * Mark the end of the current frame. This has to be called by the backend once the frame is rendered.
+     */
+    public void endFrame() {
+        if (frameStart == NOT_MEASURED) {
+            return;
+        }
+        frameSection.stop(frameStart);
+        frameStart = NOT_MEASURED;
+
+        frameSection.finishFrame();
+        for (final ProfilerSection section : sections) {
+            section.finishFrame();
+        }
+
+        framesSinceRefresh++;
+        if (framesSinceRefresh >= REFRESH_INTERVAL) {
+            framesSinceRefresh = 0;
+            refreshOverlay();
+        }
+    }
+
+    /**
+     * Calculate the percentiles of all sections and build the text of the overlay.
+     */
+    @SuppressWarnings("nls")
+    private void refreshOverlay() {
+        final String[][] lines = new String[sections.size() + 2][];
+        lines[0] = new String[]{"Section", "p50", "p95", "p99", "max"};
+        lines[1] = buildOverlayLine(frameSection);
+        int index = 2;
+        for (final ProfilerSection section : sections) {
+            if (index == lines.length) {
+                break;
+            }
+            lines[index++] = buildOverlayLine(section);
+        }
+        overlayLines = lines;
+    }
+
+    /**
+     * Calculate the percentiles of a section and build the overlay line that displays them.
+     *
+     * @param section the section
+     * @return the columns of the overlay line
+     */
+    @Nonnull
+    private String[] buildOverlayLine(@Nonnull final ProfilerSection section) {
+        section.calculatePercentiles(percentileBuffer);
+        return new String[]{section.getName(), formatTime(section.getMedian()),
+                formatTime(section.getPercentile95()), formatTime(section.getPercentile99()),
+                formatTime(section.getMaximum())};
+    }
+
+    /**
+     * Format a time for the display in the overlay.
+     *
+     * @param nanos the time in nanoseconds
+     * @return the time in milliseconds as text
+     */
+    @Nonnull
+    @SuppressWarnings("nls")
+    private static String formatTime(final long nanos) {
+        return String.format(Locale.ENGLISH, "%.2f", nanos / NANOS_PER_MILLI);
+    }
+
+    /**
+     * Render the overlay that displays the percentiles of the sections in milliseconds. Nothing is rendered in case
+     * the profiler did not collect enough frames yet.
+     *
+     * @param g    the graphics used to render the overlay
+     * @param font the font used for the text
+     * @param x    the x coordinate of the top left corner of the overlay
+     * @param y    the y coordinate of the top left corner of the overlay
+     */
+    @SuppressWarnings("nls")
+    public void renderOverlay(@Nonnull final Graphics g, @Nonnull final Font font, final int x, final int y) {
+        final String[][] lines = overlayLines;
+        if (lines == null) {
+            return;
+        }
+
+        int nameWidth = 0;
+        for (final String[] line : lines) {
+            nameWidth = Math.max(nameWidth, font.getWidth(line[0]));
+        }
+        final int padding = font.getWidth("  ");
+        final int valueWidth = font.getWidth("000.00") + padding;
+        final int lineHeight = font.getLineHeight();
+        final int columns = lines[0].length - 1;
+
+        g.drawRectangle(x - padding, y - padding, nameWidth + (columns * valueWidth) + (padding * 3),
+                (lines.length * lineHeight) + (padding * 2), OVERLAY_BACKGROUND);
+
+        int currentY = y;
+        for (final String[] line : lines) {
+            g.drawText(font, line[0], Color.WHITE, x, currentY);
+            int currentX = x + nameWidth + padding;
+            for (int i = 1; i < line.length; i++) {
+                currentX += valueWidth;
+                g.drawText(font, line[i], Color.WHITE, currentX - font.getWidth(line[i]), currentY);
+            }
+            currentY += lineHeight;
+        }
+    }
+
+    /**
+     * Add a span to the trace buffer.
+     *
+     * @param name     the name of the span
+     * @param start    the start time of the span in nanoseconds
+     * @param duration the duration of the span in nanoseconds
+     */
+    void addTraceEvent(@Nonnull final String name, final long start, final long duration) {
+        final Thread thread = Thread.currentThread();
+        final long threadId = thread.getId();
+        synchronized (traceLock) {
+            traceNames[traceIndex] = name;
+            traceThreads[traceIndex] = threadId;
+            traceStarts[traceIndex] = start;
+            traceDurations[traceIndex] = duration;
+            traceIndex = (traceIndex + 1) % TRACE_CAPACITY;
+            if (traceCount < TRACE_CAPACITY) {
+                traceCount++;
+            }
+            if (!threadNames.containsKey(threadId)) {
+                threadNames.put(threadId, thread.getName());
+            }
+        }
+    }
+
+    /**
+     * Write the spans in the trace buffer to a file. The file uses the JSON trace event format that is understood by
+     * the trace viewer of Chrome.
+     *
+     * @param file the file to write
+     * @throws IOException in case writing the file fails
+     */
+    @SuppressWarnings("nls")
+    public void writeTrace(@Nonnull final File file) throws IOException {
+        final String[] names;
+        final long[] threads;
+        final long[] starts;
+        final long[] durations;
+        final Map<Long, String> threadNameCopy;
+        synchronized (traceLock) {
+            names = new String[traceCount];
+            threads = new long[traceCount];
+            starts = new long[traceCount];
+            durations = new long[traceCount];
+            final int first = (traceIndex - traceCount + TRACE_CAPACITY) % TRACE_CAPACITY;
+            for (int i = 0; i < traceCount; i++) {
+                final int index = (first + i) % TRACE_CAPACITY;
+                names[i] = traceNames[index];
+                threads[i] = traceThreads[index];
+                starts[i] = traceStarts[index];
+                durations[i] = traceDurations[index];
+            }
+            threadNameCopy = new HashMap<Long, String>(threadNames);
+        }
+
+        long origin = Long.MAX_VALUE;
+        for (final long start : starts) {
+            origin = Math.min(origin, start);
+        }
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        try {
+            writer.write("{\"traceEvents\":[");
+            boolean first = true;
+            for (final Map.Entry<Long, String> threadName : threadNameCopy.entrySet()) {
+                if (!first) {
+                    writer.write(',');
+                }
+                first = false;
+                writer.write("\n{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":");
+                writer.write(Long.toString(threadName.getKey()));
+                writer.write(",\"args\":{\"name\":\"");
+                writeEscaped(writer, threadName.getValue());
+                writer.write("\"}}");
+            }
+            for (int i = 0; i < names.length; i++) {
+                if (!first) {
+                    writer.write(',');
+                }
+                first = false;
+                writer.write("\n{\"name\":\"");
+                writeEscaped(writer, names[i]);
+                writer.write("\",\"ph\":\"X\",\"pid\":1,\"tid\":");
+                writer.write(Long.toString(threads[i]));
+                writer.write(",\"ts\":");
+                writer.write(formatMicros(starts[i] - origin));
+                writer.write(",\"dur\":");
+                writer.write(formatMicros(durations[i]));
+                writer.write('}');
+            }
+            writer.write("\n]}\n");
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Format a time in nanoseconds as microseconds as its expected by the trace format.
+     *
+     * @param nanos the time in nanoseconds
+     * @return the time in microseconds as text
+     */
+    @Nonnull
+    private static String formatMicros(final long nanos) {
+        final long micros = nanos / 1000L;
+        final long fraction = nanos % 1000L;
+        if (fraction < 10L) {
+            return micros + ".00" + fraction;
+        }
+        if (fraction < 100L) {
+            return micros + ".0" + fraction;
+        }
+        return micros + "." + fraction;
+    }
+
+    /**
+     * Write a text as content of a JSON string.
+     *
+     * @param writer the writer that receives the text
+     * @param text   the text to write
+     * @throws IOException in case writing fails
+     */
+    private static void writeEscaped(@Nonnull final Writer writer, @Nonnull final String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if ((c == '"') || (c == '\\')) {
+                writer.write('\\');
+                writer.write(c);
+            } else if (c < ' ') {
+                writer.write(String.format("\\u%04x", (int) c));
+            } else {
+                writer.write(c);
+            }
+        }
+    }
+}
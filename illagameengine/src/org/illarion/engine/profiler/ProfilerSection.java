@@ -0,0 +1,223 @@
+/*
+ * This file is part of the Illarion Game Engine.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Game Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Game Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Game Engine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.illarion.engine.profiler;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+
+/**
+ * This is one phase of the main loop that is measured by the {@link FrameProfiler}. The section sums up the time
+ * spent in it during one frame and keeps the sums of the last frames, so percentiles over a rolling window can be
+ * calculated.
+ * <p />
+ * Sections are only supposed to be measured on the thread that runs the main loop. Work done by other threads is
+ * reported with {@link FrameProfiler#recordSpan(String, long)}.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+@NotThreadSafe
+public final class ProfilerSection {
+    /**
+     * The profiler this section belongs to.
+     */
+    @Nonnull
+    private final FrameProfiler profiler;
+
+    /**
+     * The name of this section.
+     */
+    @Nonnull
+    private final String name;
+
+    /**
+     * The time spent in this section during the last frames in nanoseconds.
+     */
+    @Nonnull
+    private final long[] samples;
+
+    /**
+     * The index in the sample array that is written next.
+     */
+    private int sampleIndex;
+
+    /**
+     * The amount of valid entries in the sample array.
+     */
+    private int sampleCount;
+
+    /**
+     * The time spent in this section during the current frame in nanoseconds.
+     */
+    private long currentFrameTime;
+
+    /**
+     * The median of the samples at the last calculation in nanoseconds.
+     */
+    private long median;
+
+    /**
+     * The 95th percentile of the samples at the last calculation in nanoseconds.
+     */
+    private long percentile95;
+
+    /**
+     * The 99th percentile of the samples at the last calculation in nanoseconds.
+     */
+    private long percentile99;
+
+    /**
+     * The largest sample at the last calculation in nanoseconds.
+     */
+    private long maximum;
+
+    /**
+     * Create a new section.
+     *
+     * @param profiler   the profiler this section belongs to
+     * @param name       the name of the section
+     * @param windowSize the amount of frames in the rolling window
+     */
+    ProfilerSection(@Nonnull final FrameProfiler profiler, @Nonnull final String name, final int windowSize) {
+        this.profiler = profiler;
+        this.name = name;
+        samples = new long[windowSize];
+    }
+
+    /**
+     * Get the name of this section.
+     *
+     * @return the name of the section
+     */
+    @Nonnull
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Start measuring this section.
+     *
+     * @return the value that needs to be handed over to {@link #stop(long)} once the section is done
+     */
+    public long start() {
+        return profiler.start();
+    }
+
+    /**
+     * Stop measuring this section.
+     *
+     * @param start the value that was returned by {@link #start()}
+     */
+    public void stop(final long start) {
+        if (start == FrameProfiler.NOT_MEASURED) {
+            return;
+        }
+        final long duration = System.nanoTime() - start;
+        currentFrameTime += duration;
+        profiler.addTraceEvent(name, start, duration);
+    }
+
+    /**
+     * Store the time spent in this section during the current frame as sample and start the next frame.
+     */
+    void finishFrame() {
+        samples[sampleIndex] = currentFrameTime;
+        sampleIndex = (sampleIndex + 1) % samples.length;
+        if (sampleCount < samples.length) {
+            sampleCount++;
+        }
+        currentFrameTime = 0L;
+    }
+
+    /**
+     * Drop all samples.
+     */
+    void reset() {
+        sampleIndex = 0;
+        sampleCount = 0;
+        currentFrameTime = 0L;
+        median = 0L;
+        percentile95 = 0L;
+        percentile99 = 0L;
+        maximum = 0L;
+    }
+
+    /**
+     * Calculate the percentiles of the current samples.
+     *
+     * @param buffer a buffer that is at least as large as the rolling window and is used to sort the samples
+     */
+    void calculatePercentiles(@Nonnull final long[] buffer) {
+        if (sampleCount == 0) {
+            return;
+        }
+        System.arraycopy(samples, 0, buffer, 0, sampleCount);
+        Arrays.sort(buffer, 0, sampleCount);
+        median = buffer[getPercentileIndex(50)];
+        percentile95 = buffer[getPercentileIndex(95)];
+        percentile99 = buffer[getPercentileIndex(99)];
+        maximum = buffer[sampleCount - 1];
+    }
+
+    /**
+     * Get the index of a percentile in the sorted samples.
+     *
+     * @param percentile the percentile
+     * @return the index in the sorted samples
+     */
+    private int getPercentileIndex(final int percentile) {
+        return Math.min(sampleCount - 1, ((sampleCount * percentile) + 99) / 100 - 1);
+    }
+
+    /**
+     * Get the median time spent in this section per frame.
+     *
+     * @return the median in nanoseconds
+     */
+    public long getMedian() {
+        return median;
+    }
+
+    /**
+     * Get the 95th percentile of the time spent in this section per frame.
+     *
+     * @return the 95th percentile in nanoseconds
+     */
+    public long getPercentile95() {
+        return percentile95;
+    }
+
+    /**
+     * Get the 99th percentile of the time spent in this section per frame.
+     *
+     * @return the 99th percentile in nanoseconds
+     */
+    public long getPercentile99() {
+        return percentile99;
+    }
+
+    /**
+     * Get the longest time spent in this section during one frame of the rolling window.
+     *
+     * @return the maximal time in nanoseconds
+     */
+    public long getMaximum() {
+        return maximum;
+    }
+}
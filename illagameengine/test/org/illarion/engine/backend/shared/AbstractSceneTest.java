@@ -0,0 +1,486 @@
+/*
+ * This file is part of the Illarion Game Engine.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Game Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Game Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Game Engine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.illarion.engine.backend.shared;
+
+import illarion.common.types.Rectangle;
+import org.illarion.engine.GameContainer;
+import org.illarion.engine.graphic.Graphics;
+import org.illarion.engine.graphic.PointerSceneEvent;
+import org.illarion.engine.graphic.SceneElement;
+import org.illarion.engine.graphic.SceneEvent;
+import org.illarion.engine.graphic.effects.SceneEffect;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This test verifies that the pointer events dispatched using the event grid of the {@link AbstractScene} reach the
+ * same elements in the same order as the linear walk over all elements of the scene.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+public class AbstractSceneTest {
+    /**
+     * The x coordinate of the viewport.
+     */
+    private static final int VIEW_X = 200;
+
+    /**
+     * The y coordinate of the viewport.
+     */
+    private static final int VIEW_Y = 100;
+
+    /**
+     * The width of the viewport.
+     */
+    private static final int VIEW_WIDTH = 800;
+
+    /**
+     * The height of the viewport.
+     */
+    private static final int VIEW_HEIGHT = 600;
+
+    /**
+     * The container handed to the scene. None of its functions are used by the tests.
+     */
+    @Nonnull
+    private static final GameContainer CONTAINER = (GameContainer) Proxy.newProxyInstance(
+            AbstractSceneTest.class.getClassLoader(), new Class<?>[]{GameContainer.class},
+            new InvocationHandler() {
+                @Override
+                public Object invoke(final Object proxy, @Nonnull final Method method, final Object[] args) {
+                    throw new UnsupportedOperationException(method.getName());
+                }
+            });
+
+    /**
+     * The scene that is tested.
+     */
+    private TestScene scene;
+
+    /**
+     * The elements in the order they were offered a event.
+     */
+    private List<TestElement> offers;
+
+    /**
+     * Prepare a new scene for each test.
+     */
+    @BeforeMethod
+    public void prepareScene() {
+        scene = new TestScene();
+        scene.setViewport(VIEW_X, VIEW_Y, VIEW_WIDTH, VIEW_HEIGHT);
+        offers = new ArrayList<TestElement>();
+    }
+
+    @Test
+    public void testOverlappingElements() {
+        final TestElement first = add(1, new Rectangle(300, 200, 100, 100), false);
+        final TestElement second = add(2, new Rectangle(320, 220, 100, 100), false);
+        final TestElement third = add(3, new Rectangle(340, 240, 100, 100), true);
+        final TestElement elsewhere = add(4, new Rectangle(700, 500, 50, 50), true);
+
+        Assert.assertSame(dispatchPointer(350, 250), third);
+        Assert.assertEquals(offers.size(), 3);
+        Assert.assertSame(offers.get(0), first);
+        Assert.assertSame(offers.get(1), second);
+        Assert.assertEquals(offers, dispatchLinearFiltered(350, 250));
+
+        Assert.assertNull(dispatchPointer(310, 210));
+        Assert.assertEquals(offers.size(), 1);
+        Assert.assertSame(offers.get(0), first);
+
+        Assert.assertSame(dispatchPointer(725, 525), elsewhere);
+        Assert.assertEquals(offers.size(), 1);
+
+        Assert.assertNull(dispatchPointer(10, 10));
+        Assert.assertTrue(offers.isEmpty());
+    }
+
+    @Test
+    public void testUnboundedElements() {
+        final TestElement unknownArea = add(1, new Rectangle(), new Rectangle(), false);
+        final TestElement bounded = add(2, new Rectangle(300, 200, 100, 100), false);
+        final TestElement unbounded = add(3, new Rectangle(), new Rectangle(280, 180, 200, 200), true);
+        final TestElement hidden = add(4, new Rectangle(300, 200, 100, 100), true);
+
+        Assert.assertSame(dispatchPointer(350, 250), unbounded);
+        Assert.assertEquals(offers.size(), 3);
+        Assert.assertSame(offers.get(0), unknownArea);
+        Assert.assertSame(offers.get(1), bounded);
+        Assert.assertSame(offers.get(2), unbounded);
+        Assert.assertFalse(offers.contains(hidden));
+
+        Assert.assertNull(dispatchPointer(600, 500));
+        Assert.assertEquals(offers.size(), 2);
+        Assert.assertSame(offers.get(1), unbounded);
+    }
+
+    @Test
+    public void testElementsOutsideOfTheGrid() {
+        final TestElement inside = add(1, new Rectangle(VIEW_X, VIEW_Y, 100, 100), true);
+        add(2, new Rectangle(VIEW_X - 500, VIEW_Y, 100, 100), true);
+        add(3, new Rectangle(), new Rectangle(VIEW_X + VIEW_WIDTH + 400, VIEW_Y, 100, 100), true);
+        add(4, new Rectangle(VIEW_X - 50, VIEW_Y - 50, 100, 100), false);
+
+        Assert.assertSame(dispatchPointer(VIEW_X + 10, VIEW_Y + 10), inside);
+        Assert.assertEquals(offers, dispatchLinearFiltered(VIEW_X + 10, VIEW_Y + 10));
+        Assert.assertEquals(scene.getCulledElementCount(), 2);
+    }
+
+    @Test
+    public void testNonPointerEventsUseAllElements() {
+        add(1, new Rectangle(VIEW_X - 500, VIEW_Y, 100, 100), false);
+        add(2, new Rectangle(300, 200, 100, 100), false);
+
+        scene.publishEvent(new LinearEvent(0, 0));
+        scene.update(CONTAINER, 16);
+
+        Assert.assertEquals(offers.size(), 2);
+    }
+
+    @Test
+    public void testGeneratedScenes() {
+        final Random rnd = new Random(2013L);
+        for (int sceneNumber = 0; sceneNumber < 20; sceneNumber++) {
+            prepareScene();
+            for (int i = 0; i < 400; i++) {
+                final int order = rnd.nextInt(200);
+                final boolean accepts = rnd.nextInt(4) == 0;
+                final Rectangle displayRect = createRect(rnd);
+                final int kind = rnd.nextInt(10);
+                if (kind == 0) {
+                    add(order, new Rectangle(), displayRect, accepts);
+                } else if (kind == 1) {
+                    add(order, new Rectangle(), new Rectangle(), accepts);
+                } else {
+                    add(order, displayRect, accepts);
+                }
+            }
+
+            for (int i = 0; i < 200; i++) {
+                final int x = VIEW_X + rnd.nextInt(VIEW_WIDTH);
+                final int y = VIEW_Y + rnd.nextInt(VIEW_HEIGHT);
+
+                final TestElement expectedElement = dispatchLinear(x, y);
+                final List<TestElement> expectedOffers = filterOffers(x, y);
+                final TestElement element = dispatchPointer(x, y);
+
+                Assert.assertSame(element, expectedElement, "Different element at " + x + ", " + y);
+                Assert.assertEquals(offers, expectedOffers, "Different order at " + x + ", " + y);
+            }
+        }
+    }
+
+    /**
+     * Create a random display rectangle. Most rectangles are inside the viewport, some are outside of it.
+     *
+     * @param rnd the random number generator
+     * @return the rectangle
+     */
+    @Nonnull
+    private static Rectangle createRect(@Nonnull final Random rnd) {
+        final int width = 10 + rnd.nextInt(200);
+        final int height = 10 + rnd.nextInt(200);
+        if (rnd.nextInt(8) == 0) {
+            return new Rectangle(VIEW_X + VIEW_WIDTH + 200 + rnd.nextInt(500), VIEW_Y + rnd.nextInt(VIEW_HEIGHT),
+                    width, height);
+        }
+        return new Rectangle((VIEW_X - 150) + rnd.nextInt(VIEW_WIDTH + 150),
+                (VIEW_Y - 150) + rnd.nextInt(VIEW_HEIGHT + 150), width, height);
+    }
+
+    /**
+     * Add a element that accepts pointer events in its display area.
+     *
+     * @param order       the order of the element
+     * @param displayRect the display rectangle, it is used as event area as well
+     * @param accepts     {@code true} in case the element handles the events on its area
+     * @return the element
+     */
+    @Nonnull
+    private TestElement add(final int order, @Nonnull final Rectangle displayRect, final boolean accepts) {
+        return add(order, displayRect, new Rectangle(displayRect), accepts);
+    }
+
+    /**
+     * Add a element to the scene.
+     *
+     * @param order       the order of the element
+     * @param eventArea   the event area, a empty area accepts pointer events everywhere
+     * @param displayRect the display rectangle, a empty rectangle is never culled
+     * @param accepts     {@code true} in case the element handles the events on its area
+     * @return the element
+     */
+    @Nonnull
+    private TestElement add(final int order, @Nonnull final Rectangle eventArea, @Nonnull final Rectangle displayRect,
+                            final boolean accepts) {
+        final TestElement element = new TestElement(order, eventArea, displayRect, accepts);
+        scene.addElement(element);
+        return element;
+    }
+
+    /**
+     * Dispatch a pointer event through the event grid.
+     *
+     * @param x the x coordinate of the event in the scene
+     * @param y the y coordinate of the event in the scene
+     * @return the element that handled the event or {@code null}
+     */
+    @Nullable
+    private TestElement dispatchPointer(final int x, final int y) {
+        offers.clear();
+        final PointerEvent event = new PointerEvent(x, y);
+        scene.publishEvent(event);
+        scene.update(CONTAINER, 16);
+        return event.handler;
+    }
+
+    /**
+     * Dispatch a event that is not a pointer event, so it is offered to the elements using the linear walk.
+     *
+     * @param x the x coordinate of the event in the scene
+     * @param y the y coordinate of the event in the scene
+     * @return the element that handled the event or {@code null}
+     */
+    @Nullable
+    private TestElement dispatchLinear(final int x, final int y) {
+        offers.clear();
+        final LinearEvent event = new LinearEvent(x, y);
+        scene.publishEvent(event);
+        scene.update(CONTAINER, 16);
+        return event.handler;
+    }
+
+    /**
+     * Dispatch a event using the linear walk and keep only the elements that are able to receive a pointer event at
+     * this location.
+     *
+     * @param x the x coordinate of the event in the scene
+     * @param y the y coordinate of the event in the scene
+     * @return the elements that received the event in the order they received it
+     */
+    @Nonnull
+    private List<TestElement> dispatchLinearFiltered(final int x, final int y) {
+        dispatchLinear(x, y);
+        return filterOffers(x, y);
+    }
+
+    /**
+     * Keep only the elements of the last linear walk that are able to receive a pointer event at this location.
+     * Those are the elements with a event area that contains the location and the elements without a event area
+     * that are inside the viewport, including the margin of the scene.
+     *
+     * @param x the x coordinate of the event in the scene
+     * @param y the y coordinate of the event in the scene
+     * @return the elements that received the event in the order they received it
+     */
+    @Nonnull
+    private List<TestElement> filterOffers(final int x, final int y) {
+        final Rectangle viewport = new Rectangle(VIEW_X - AbstractScene.VIEWPORT_MARGIN,
+                VIEW_Y - AbstractScene.VIEWPORT_MARGIN, VIEW_WIDTH + (2 * AbstractScene.VIEWPORT_MARGIN),
+                VIEW_HEIGHT + (2 * AbstractScene.VIEWPORT_MARGIN));
+        final List<TestElement> result = new ArrayList<TestElement>();
+        for (final TestElement element : offers) {
+            if (element.eventArea.isEmpty()) {
+                if (element.displayRect.isEmpty() || element.displayRect.intersects(viewport)) {
+                    result.add(element);
+                }
+            } else if (element.eventArea.isInside(x, y)) {
+                result.add(element);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The scene used by the tests.
+     */
+    private static final class TestScene extends AbstractScene<SceneEffect> {
+        @Override
+        public void update(@Nonnull final GameContainer container, final int delta) {
+            updateScene(container, delta);
+        }
+
+        @Override
+        public void render(@Nonnull final Graphics graphics, final int offsetX, final int offsetY) {
+            renderScene(graphics);
+        }
+    }
+
+    /**
+     * The event that refers to a location, but does not use the event grid.
+     */
+    private static class LinearEvent implements SceneEvent {
+        /**
+         * The x coordinate of the event in the scene.
+         */
+        final int sceneX;
+
+        /**
+         * The y coordinate of the event in the scene.
+         */
+        final int sceneY;
+
+        /**
+         * The element that handled the event.
+         */
+        @Nullable
+        TestElement handler;
+
+        /**
+         * Create a new event.
+         *
+         * @param x the x coordinate of the event in the scene
+         * @param y the y coordinate of the event in the scene
+         */
+        LinearEvent(final int x, final int y) {
+            sceneX = x;
+            sceneY = y;
+        }
+
+        @Override
+        public void notHandled() {
+            handler = null;
+        }
+    }
+
+    /**
+     * The pointer event that is dispatched using the event grid.
+     */
+    private static final class PointerEvent extends LinearEvent implements PointerSceneEvent {
+        /**
+         * Create a new event.
+         *
+         * @param x the x coordinate of the event in the scene
+         * @param y the y coordinate of the event in the scene
+         */
+        PointerEvent(final int x, final int y) {
+            super(x, y);
+        }
+
+        @Override
+        public int getPointerX() {
+            return sceneX - VIEW_X;
+        }
+
+        @Override
+        public int getPointerY() {
+            return sceneY - VIEW_Y;
+        }
+    }
+
+    /**
+     * The element used by the tests. It records the events it is offered and handles them in case it accepts events
+     * and the location is inside its event area, or its display area in case the event area is empty.
+     */
+    private final class TestElement implements SceneElement {
+        /**
+         * The order of the element.
+         */
+        private final int order;
+
+        /**
+         * The event area of the element.
+         */
+        @Nonnull
+        private final Rectangle eventArea;
+
+        /**
+         * The display rectangle of the element.
+         */
+        @Nonnull
+        private final Rectangle displayRect;
+
+        /**
+         * {@code true} in case the element handles the events on its area.
+         */
+        private final boolean accepts;
+
+        /**
+         * Create a new element.
+         *
+         * @param order       the order of the element
+         * @param eventArea   the event area
+         * @param displayRect the display rectangle
+         * @param accepts     {@code true} in case the element handles the events on its area
+         */
+        TestElement(final int order, @Nonnull final Rectangle eventArea, @Nonnull final Rectangle displayRect,
+                    final boolean accepts) {
+            this.order = order;
+            this.eventArea = eventArea;
+            this.displayRect = displayRect;
+            this.accepts = accepts;
+        }
+
+        @Override
+        public int getOrder() {
+            return order;
+        }
+
+        @Override
+        public void render(@Nonnull final Graphics graphics) {
+            // nothing to render
+        }
+
+        @Override
+        public void update(@Nonnull final GameContainer container, final int delta) {
+            // nothing to update
+        }
+
+        @Override
+        public void updateOffScreen(@Nonnull final GameContainer container, final int delta) {
+            // nothing to update
+        }
+
+        @Nonnull
+        @Override
+        public Rectangle getDisplayRect() {
+            return displayRect;
+        }
+
+        @Nonnull
+        @Override
+        public Rectangle getEventArea() {
+            return eventArea;
+        }
+
+        @Override
+        public boolean isEventProcessed(@Nonnull final GameContainer container, final int delta,
+                                        @Nonnull final SceneEvent event) {
+            offers.add(this);
+            final LinearEvent locationEvent = (LinearEvent) event;
+            final Rectangle hitArea = eventArea.isEmpty() ? displayRect : eventArea;
+            if (accepts && (hitArea.isEmpty() || hitArea.isInside(locationEvent.sceneX, locationEvent.sceneY))) {
+                locationEvent.handler = this;
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,460 @@
+/*
+ * This file is part of the Illarion Game Engine.
+ *
+ * Copyright © 2013 - Illarion e.V.
+ *
+ * The Illarion Game Engine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Illarion Game Engine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Illarion Game Engine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.illarion.engine.backend.shared;
+
+import org.apache.log4j.Logger;
+import org.illarion.engine.graphic.Texture;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This test verifies that the {@link AbstractTextureManager} creates the same textures, no matter if the atlas files
+ * are decoded by the decoding threads or by the render thread. It also compares the time needed to load the atlas
+ * files with both ways.
+ *
+ * @author Martin Karing &lt;nitram@illarion.org&gt;
+ */
+public class AbstractTextureManagerTest {
+    /**
+     * The logger that provides the logging output of this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(AbstractTextureManagerTest.class);
+
+    /**
+     * The root directory of the generated atlas files.
+     */
+    private static final String DIRECTORY = "textures/";
+
+    /**
+     * The amount of generated atlas files.
+     */
+    private static final int ATLAS_COUNT = 8;
+
+    /**
+     * The width and the height of the generated atlas images.
+     */
+    private static final int ATLAS_SIZE = 1024;
+
+    /**
+     * The amount of sprites in each row and each column of a atlas.
+     */
+    private static final int SPRITES_PER_ROW = 8;
+
+    /**
+     * The width and the height of the sprites.
+     */
+    private static final int SPRITE_SIZE = ATLAS_SIZE / SPRITES_PER_ROW;
+
+    /**
+     * The time in milliseconds the render thread spends on the rest of a frame between two calls of
+     * {@link AbstractTextureManager#loadRemaining()}.
+     */
+    private static final long FRAME_TIME = 1L;
+
+    /**
+     * The amount of rounds of the benchmark that are executed before the time is measured.
+     */
+    private static final int BENCHMARK_WARMUP_ROUNDS = 2;
+
+    /**
+     * The amount of rounds of the benchmark that are measured.
+     */
+    private static final int BENCHMARK_ROUNDS = 5;
+
+    /**
+     * The directory that contains the generated atlas files.
+     */
+    private File resourceRoot;
+
+    /**
+     * The context class loader of the thread before the tests.
+     */
+    private ClassLoader originalClassLoader;
+
+    /**
+     * Generate the atlas files and make them available using the context class loader.
+     *
+     * @throws IOException in case writing the files fails
+     */
+    @BeforeClass
+    public void createAtlasFiles() throws IOException {
+        resourceRoot = File.createTempFile("atlas", "test");
+        if (!resourceRoot.delete() || !resourceRoot.mkdir()) {
+            throw new IOException("Failed to create the directory for the atlas files.");
+        }
+        final File directory = new File(resourceRoot, DIRECTORY);
+        if (!directory.mkdir()) {
+            throw new IOException("Failed to create the directory for the atlas files.");
+        }
+
+        final DataOutputStream countOut = new DataOutputStream(new FileOutputStream(new File(directory,
+                "atlas.count")));
+        try {
+            countOut.writeInt(ATLAS_COUNT);
+        } finally {
+            countOut.close();
+        }
+
+        final Random random = new Random(7L);
+        for (int atlas = 0; atlas < ATLAS_COUNT; atlas++) {
+            final BufferedImage image = new BufferedImage(ATLAS_SIZE, ATLAS_SIZE, BufferedImage.TYPE_INT_ARGB);
+            for (int y = 0; y < ATLAS_SIZE; y++) {
+                for (int x = 0; x < ATLAS_SIZE; x++) {
+                    final int shade = ((x ^ y) & 0xFF) + random.nextInt(16);
+                    image.setRGB(x, y, 0xFF000000 | (shade << 8) | (atlas * 31) | (random.nextInt(64) << 16));
+                }
+            }
+            ImageIO.write(image, "png", new File(directory, "atlas-" + atlas + ".png"));
+
+            final Writer xmlOut = new OutputStreamWriter(new FileOutputStream(new File(directory,
+                    "atlas-" + atlas + ".xml")), "UTF-8");
+            try {
+                xmlOut.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<sprites>\n");
+                for (int row = 0; row < SPRITES_PER_ROW; row++) {
+                    for (int column = 0; column < SPRITES_PER_ROW; column++) {
+                        xmlOut.write("<sprite name=\"" + getSpriteName(atlas, row, column) + "\" x=\"" +
+                                (column * SPRITE_SIZE) + "\" y=\"" + (row * SPRITE_SIZE) + "\" width=\"" +
+                                SPRITE_SIZE + "\" height=\"" + (SPRITE_SIZE - row) + "\"/>\n");
+                    }
+                }
+                xmlOut.write("</sprites>\n");
+            } finally {
+                xmlOut.close();
+            }
+        }
+
+        originalClassLoader = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(new URLClassLoader(new URL[]{resourceRoot.toURI().toURL()},
+                originalClassLoader));
+    }
+
+    /**
+     * Restore the context class loader and remove the generated atlas files.
+     */
+    @AfterClass
+    public void removeAtlasFiles() {
+        Thread.currentThread().setContextClassLoader(originalClassLoader);
+        final File directory = new File(resourceRoot, DIRECTORY);
+        @Nullable final File[] files = directory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                if (!file.delete()) {
+                    file.deleteOnExit();
+                }
+            }
+        }
+        if (!directory.delete() || !resourceRoot.delete()) {
+            resourceRoot.deleteOnExit();
+        }
+    }
+
+    @Test
+    public void testLoadRemaining() {
+        final TestTextureManager manager = new TestTextureManager();
+        manager.addTextureDirectory(DIRECTORY);
+        Assert.assertFalse(manager.isLoadingDone());
+
+        float lastProgress = 0.f;
+        int calls = 0;
+        while (true) {
+            final float progress = manager.loadRemaining();
+            Assert.assertTrue(progress >= lastProgress, "Loading progress went backwards.");
+            Assert.assertTrue(progress <= 1.f);
+            lastProgress = progress;
+            calls++;
+            if (progress >= 1.f) {
+                break;
+            }
+            Assert.assertTrue(calls < 100000, "Loading did not finish.");
+            sleep(FRAME_TIME);
+        }
+
+        Assert.assertTrue(manager.isLoadingDone());
+        Assert.assertEquals(manager.decodedAtlases.size(), ATLAS_COUNT);
+        Assert.assertFalse(manager.decodeThreads.contains(Thread.currentThread().getName()),
+                "A atlas was decoded by the render thread.");
+        Assert.assertEquals(manager.createThreads, Collections.singleton(Thread.currentThread().getName()));
+        assertAllSprites(manager);
+    }
+
+    @Test
+    public void testLoadOnRenderThread() {
+        final TestTextureManager manager = new TestTextureManager();
+        manager.addTextureDirectory(DIRECTORY);
+
+        final Texture lastSprite = manager.getTexture(DIRECTORY + getSpriteName(ATLAS_COUNT - 1, 0, 0));
+
+        Assert.assertNotNull(lastSprite);
+        Assert.assertTrue(manager.isLoadingDone());
+        Assert.assertEquals(manager.decodedAtlases.size(), ATLAS_COUNT);
+        Assert.assertEquals(manager.decodeThreads, Collections.singleton(Thread.currentThread().getName()));
+        Assert.assertEquals(manager.loadRemaining(), 1.f, 0.f);
+        assertAllSprites(manager);
+    }
+
+    @Test
+    public void testMissingSprite() {
+        final TestTextureManager manager = new TestTextureManager();
+        manager.addTextureDirectory(DIRECTORY);
+        while (manager.loadRemaining() < 1.f) {
+            sleep(FRAME_TIME);
+        }
+
+        Assert.assertNull(manager.getTexture(DIRECTORY + "missing"));
+        Assert.assertNull(manager.getTexture("unknown/" + getSpriteName(0, 0, 0)));
+        Assert.assertEquals(manager.decodedAtlases.size(), ATLAS_COUNT);
+    }
+
+    /**
+     * Load all atlas files once on the render thread and once with the decoding threads. For the decoding threads
+     * the render thread calls {@link AbstractTextureManager#loadRemaining()} once per frame. Creating the textures
+     * does not include uploading them to the graphics card.
+     */
+    @Test(groups = "benchmark")
+    public void benchmarkDecoding() {
+        long bestSingleTime = Long.MAX_VALUE;
+        long bestPoolTime = Long.MAX_VALUE;
+        long bestPoolLongestCall = Long.MAX_VALUE;
+        int poolCalls = 0;
+        for (int round = 0; round < (BENCHMARK_WARMUP_ROUNDS + BENCHMARK_ROUNDS); round++) {
+            final TestTextureManager singleManager = new TestTextureManager();
+            singleManager.addTextureDirectory(DIRECTORY);
+            final long singleStart = System.nanoTime();
+            Assert.assertNotNull(singleManager.getTexture(DIRECTORY + getSpriteName(ATLAS_COUNT - 1, 0, 0)));
+            final long singleTime = System.nanoTime() - singleStart;
+
+            final TestTextureManager poolManager = new TestTextureManager();
+            poolManager.addTextureDirectory(DIRECTORY);
+            long longestCall = 0L;
+            int calls = 0;
+            final long poolStart = System.nanoTime();
+            while (true) {
+                final long callStart = System.nanoTime();
+                final float progress = poolManager.loadRemaining();
+                longestCall = Math.max(longestCall, System.nanoTime() - callStart);
+                calls++;
+                if (progress >= 1.f) {
+                    break;
+                }
+                sleep(FRAME_TIME);
+            }
+            final long poolTime = System.nanoTime() - poolStart;
+            Assert.assertEquals(poolManager.decodedAtlases.size(), ATLAS_COUNT);
+
+            if (round >= BENCHMARK_WARMUP_ROUNDS) {
+                bestSingleTime = Math.min(bestSingleTime, singleTime);
+                if (poolTime < bestPoolTime) {
+                    bestPoolTime = poolTime;
+                    poolCalls = calls;
+                }
+                bestPoolLongestCall = Math.min(bestPoolLongestCall, longestCall);
+            }
+        }
+
+        LOGGER.info("Loading " + ATLAS_COUNT + " atlases of " + ATLAS_SIZE + "x" + ATLAS_SIZE + " pixels with " +
+                Runtime.getRuntime().availableProcessors() + " processors: render thread only " +
+                TimeUnit.NANOSECONDS.toMillis(bestSingleTime) + "ms in one call, decoding threads " +
+                TimeUnit.NANOSECONDS.toMillis(bestPoolTime) + "ms in " + poolCalls + " calls, longest call " +
+                TimeUnit.NANOSECONDS.toMicros(bestPoolLongestCall) + "us");
+        Assert.assertTrue(bestPoolLongestCall < bestSingleTime, "The decoding threads block the render thread.");
+    }
+
+    /**
+     * Check that all sprites of all atlas files are load with the size they got in the atlas definition.
+     *
+     * @param manager the texture manager
+     */
+    private static void assertAllSprites(@Nonnull final TestTextureManager manager) {
+        for (int atlas = 0; atlas < ATLAS_COUNT; atlas++) {
+            final Texture atlasTexture = manager.getTexture(DIRECTORY + "atlas-" + atlas);
+            Assert.assertNotNull(atlasTexture);
+            Assert.assertEquals(atlasTexture.getWidth(), ATLAS_SIZE);
+            for (int row = 0; row < SPRITES_PER_ROW; row++) {
+                for (int column = 0; column < SPRITES_PER_ROW; column++) {
+                    final String name = DIRECTORY + getSpriteName(atlas, row, column);
+                    final Texture sprite = manager.getTexture(name);
+                    Assert.assertNotNull(sprite, name);
+                    Assert.assertEquals(sprite.getWidth(), SPRITE_SIZE);
+                    Assert.assertEquals(sprite.getHeight(), SPRITE_SIZE - row);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the name of a sprite on a generated atlas.
+     *
+     * @param atlas  the index of the atlas
+     * @param row    the row of the sprite on the atlas
+     * @param column the column of the sprite on the atlas
+     * @return the name of the sprite
+     */
+    @Nonnull
+    private static String getSpriteName(final int atlas, final int row, final int column) {
+        return "sprite-" + atlas + '-' + row + '-' + column;
+    }
+
+    /**
+     * Let the current thread sleep for a while.
+     *
+     * @param time the time to sleep in milliseconds
+     */
+    private static void sleep(final long time) {
+        try {
+            Thread.sleep(time);
+        } catch (@Nonnull final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * This texture manager decodes the atlas images with the image I/O of Java and creates textures that only know
+     * their size.
+     */
+    private static final class TestTextureManager extends AbstractTextureManager<BufferedImage> {
+        /**
+         * The resources of the decoded atlas images.
+         */
+        @Nonnull
+        private final Set<String> decodedAtlases = Collections.synchronizedSet(new HashSet<String>());
+
+        /**
+         * The names of the threads that decoded the images.
+         */
+        @Nonnull
+        private final Set<String> decodeThreads = Collections.synchronizedSet(new HashSet<String>());
+
+        /**
+         * The names of the threads that created the textures.
+         */
+        @Nonnull
+        private final Set<String> createThreads = Collections.synchronizedSet(new HashSet<String>());
+
+        @Nullable
+        @Override
+        protected BufferedImage loadTextureData(@Nonnull final String resource) {
+            @Nullable final InputStream in = Thread.currentThread().getContextClassLoader()
+                    .getResourceAsStream(resource);
+            if (in == null) {
+                return null;
+            }
+            try {
+                final BufferedImage image = ImageIO.read(in);
+                decodedAtlases.add(resource);
+                decodeThreads.add(Thread.currentThread().getName());
+                return image;
+            } catch (@Nonnull final IOException e) {
+                return null;
+            } finally {
+                try {
+                    in.close();
+                } catch (@Nonnull final IOException ignored) {
+                    // ignore
+                }
+            }
+        }
+
+        @Nonnull
+        @Override
+        protected Texture createTexture(@Nonnull final BufferedImage data) {
+            createThreads.add(Thread.currentThread().getName());
+            return new TestTexture(data.getWidth(), data.getHeight());
+        }
+
+        @Nonnull
+        @Override
+        protected Texture createStreamedTexture(@Nonnull final StreamedAtlas atlas, final int x, final int y,
+                                                final int width, final int height) {
+            throw new UnsupportedOperationException("Streaming is not tested.");
+        }
+
+        @Override
+        protected void disposeTexture(@Nonnull final Texture texture) {
+            texture.dispose();
+        }
+    }
+
+    /**
+     * This texture only knows its size.
+     */
+    private static final class TestTexture implements Texture {
+        /**
+         * The width of the texture.
+         */
+        private final int width;
+
+        /**
+         * The height of the texture.
+         */
+        private final int height;
+
+        /**
+         * Create a new texture.
+         *
+         * @param width  the width of the texture
+         * @param height the height of the texture
+         */
+        TestTexture(final int width, final int height) {
+            this.width = width;
+            this.height = height;
+        }
+
+        @Nonnull
+        @Override
+        public Texture getSubTexture(final int x, final int y, final int width, final int height) {
+            return new TestTexture(width, height);
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public void dispose() {
+            // nothing to release
+        }
+    }
+}
@@ -18,6 +18,7 @@
  */
 package illarion.mapedit.graphics;
 
+import illarion.common.graphics.SpriteAtlasIndex;
 import illarion.common.graphics.TextureAtlas;
 import javolution.util.FastComparator;
 import javolution.util.FastMap;
@@ -26,11 +27,14 @@ import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.awt.image.BufferedImage;
 import java.util.Map;
 
 /**
  * This is the texture atlas implementation that uses AWT images.
+ * <p />
+ * In case the atlas is created from a sprite atlas index, the sub-images are only created once they are requested.
  *
  * @author Martin Karing &gt;nitram@illarion.org&lt;
  */
@@ -41,6 +45,24 @@ public final class TextureAtlasAwt implements TextureAtlas<BufferedImage> {
     @Nonnull
     private final Map<String, BufferedImage> textures;
 
+    /**
+     * The image that contains the entire texture. This is only set in case the atlas uses a sprite atlas index.
+     */
+    @Nullable
+    private final BufferedImage atlasImage;
+
+    /**
+     * The sprite atlas index that contains the locations of the sub-images or {@code null} in case the XML definition
+     * was used.
+     */
+    @Nullable
+    private final SpriteAtlasIndex index;
+
+    /**
+     * The number of this atlas in the sprite atlas index.
+     */
+    private final int atlasNumber;
+
     /**
      * Create a new instance of the texture atlas.
      *
@@ -52,6 +74,9 @@ public final class TextureAtlasAwt implements TextureAtlas<BufferedImage> {
         textureMap.setKeyComparator(FastComparator.STRING);
         textureMap.setValueComparator(FastComparator.DEFAULT);
         textures = textureMap;
+        atlasImage = null;
+        index = null;
+        atlasNumber = -1;
 
         final NodeList list = textureDef.getElementsByTagName("sprite");
         for (int i = 0; i < list.getLength(); i++) {
@@ -67,13 +92,60 @@ public final class TextureAtlasAwt implements TextureAtlas<BufferedImage> {
         }
     }
 
+    /**
+     * Create a new instance of the texture atlas that uses a sprite atlas index.
+     *
+     * @param image       the buffered image that contains the entire texture
+     * @param index       the sprite atlas index that contains the locations of the sub-images
+     * @param atlasNumber the number of this atlas in the index
+     */
+    public TextureAtlasAwt(@Nonnull final BufferedImage image, @Nonnull final SpriteAtlasIndex index,
+                           final int atlasNumber) {
+        final FastMap<String, BufferedImage> textureMap = new FastMap<String, BufferedImage>();
+        textureMap.setKeyComparator(FastComparator.STRING);
+        textureMap.setValueComparator(FastComparator.DEFAULT);
+        textures = textureMap;
+        atlasImage = image;
+        this.index = index;
+        this.atlasNumber = atlasNumber;
+    }
+
+    /**
+     * Find the record of a texture in the sprite atlas index.
+     *
+     * @param texture the name of the texture
+     * @return the index of the record or {@link SpriteAtlasIndex#NOT_FOUND} in case the texture is not on this atlas
+     */
+    private int findRecord(@Nonnull final String texture) {
+        if (index == null) {
+            return SpriteAtlasIndex.NOT_FOUND;
+        }
+        final int record = index.find(texture, 0);
+        if ((record == SpriteAtlasIndex.NOT_FOUND) || (index.getAtlas(record) != atlasNumber)) {
+            return SpriteAtlasIndex.NOT_FOUND;
+        }
+        return record;
+    }
+
     @Override
     public boolean containsTexture(final String texture) {
-        return textures.containsKey(texture);
+        return textures.containsKey(texture) || (findRecord(texture) != SpriteAtlasIndex.NOT_FOUND);
     }
 
     @Override
     public BufferedImage getTexture(final String texture) {
-        return textures.get(texture);
+        final BufferedImage storedImage = textures.get(texture);
+        if (storedImage != null) {
+            return storedImage;
+        }
+        final int record = findRecord(texture);
+        if (record == SpriteAtlasIndex.NOT_FOUND) {
+            return null;
+        }
+        assert (index != null) && (atlasImage != null);
+        final BufferedImage subImage = atlasImage.getSubimage(index.getX(record), index.getY(record),
+                index.getWidth(record), index.getHeight(record));
+        textures.put(texture, subImage);
+        return subImage;
     }
 }
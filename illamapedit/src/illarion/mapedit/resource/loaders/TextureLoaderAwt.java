@@ -19,6 +19,7 @@
 package illarion.mapedit.resource.loaders;
 
 import illarion.common.graphics.AbstractTextureLoader;
+import illarion.common.graphics.SpriteAtlasIndex;
 import illarion.mapedit.graphics.TextureAtlasAwt;
 import illarion.mapedit.resource.Resource;
 import org.apache.log4j.Logger;
@@ -26,6 +27,7 @@ import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.imageio.ImageIO;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
@@ -104,6 +106,23 @@ public final class TextureLoaderAwt extends AbstractTextureLoader<TextureAtlasAw
         throw new IllegalStateException("Failed to load texture data for unknown reasons.");
     }
 
+    @Nullable
+    @Override
+    protected TextureAtlasAwt createTextureAtlas(@Nonnull final String image, @Nonnull final SpriteAtlasIndex index,
+                                                 final int atlasNumber) {
+        final URL imageURL = Thread.currentThread().getContextClassLoader().getResource(image);
+        if (imageURL == null) {
+            return null;
+        }
+
+        try {
+            return new TextureAtlasAwt(readImage(imageURL), index, atlasNumber);
+        } catch (@Nonnull final IOException e) {
+            LOGGER.error("Failed to read texture atlas data.", e);
+        }
+        return null;
+    }
+
     /**
      * Generate a buffered image that is optimized in matters of possible hardware acceleration. This will use the read
      * image in case it by chance meats the requirements of the graphic environment provided by java. In any other